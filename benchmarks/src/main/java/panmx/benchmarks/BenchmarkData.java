@@ -0,0 +1,450 @@
+package panmx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+import panmx.annotations.MxTabularData;
+
+/**
+ * Types and payloads shared by the benchmarks.
+ */
+public final class BenchmarkData
+{
+    public enum Status
+    {
+        OK, WARN, FAIL
+    }
+
+    public static class Reading
+    {
+        private String m_sensor;
+        private double m_value;
+        private long m_timestamp;
+        private Status m_status;
+
+        public String getSensor()
+        {
+            return m_sensor;
+        }
+
+        public void setSensor( final String sensor )
+        {
+            m_sensor = sensor;
+        }
+
+        public double getValue()
+        {
+            return m_value;
+        }
+
+        public void setValue( final double value )
+        {
+            m_value = value;
+        }
+
+        public long getTimestamp()
+        {
+            return m_timestamp;
+        }
+
+        public void setTimestamp( final long timestamp )
+        {
+            m_timestamp = timestamp;
+        }
+
+        public Status getStatus()
+        {
+            return m_status;
+        }
+
+        public void setStatus( final Status status )
+        {
+            m_status = status;
+        }
+    }
+
+    public static class Station
+    {
+        private String m_name;
+        private Reading m_latest;
+        private List<Reading> m_history;
+        private Map<String, Reading> m_bySensor;
+
+        public String getName()
+        {
+            return m_name;
+        }
+
+        public void setName( final String name )
+        {
+            m_name = name;
+        }
+
+        public Reading getLatest()
+        {
+            return m_latest;
+        }
+
+        public void setLatest( final Reading latest )
+        {
+            m_latest = latest;
+        }
+
+        public List<Reading> getHistory()
+        {
+            return m_history;
+        }
+
+        public void setHistory( final List<Reading> history )
+        {
+            m_history = history;
+        }
+
+        public Map<String, Reading> getBySensor()
+        {
+            return m_bySensor;
+        }
+
+        public void setBySensor( final Map<String, Reading> bySensor )
+        {
+            m_bySensor = bySensor;
+        }
+    }
+
+    @MxTabularData( keys = {"id"} )
+    public static class Sample
+    {
+        private int m_id;
+        private long m_count;
+
+        public int getId()
+        {
+            return m_id;
+        }
+
+        public void setId( final int id )
+        {
+            m_id = id;
+        }
+
+        public long getCount()
+        {
+            return m_count;
+        }
+
+        public void setCount( final long count )
+        {
+            m_count = count;
+        }
+    }
+
+    /**
+     * A type that converts itself to and from CompositeData.
+     */
+    public static class Coordinate
+    {
+        private static final String[] ITEMS = new String[]{"x", "y"};
+        private static CompositeType c_type;
+        private final double m_x;
+        private final double m_y;
+
+        public Coordinate( final double x, final double y )
+        {
+            m_x = x;
+            m_y = y;
+        }
+
+        public static synchronized CompositeType getCompositeType()
+            throws OpenDataException
+        {
+            if( null == c_type )
+            {
+                final String name = Coordinate.class.getName();
+                final OpenType[] types = new OpenType[]{SimpleType.DOUBLE, SimpleType.DOUBLE};
+                c_type = new CompositeType( name, name, ITEMS, ITEMS, types );
+            }
+            return c_type;
+        }
+
+        public static CompositeData toCompositeData( final Coordinate coordinate )
+            throws OpenDataException
+        {
+            if( null == coordinate )
+            {
+                return null;
+            }
+            final Object[] values = new Object[]{coordinate.m_x, coordinate.m_y};
+            return new CompositeDataSupport( getCompositeType(), ITEMS, values );
+        }
+
+        public static Coordinate fromCompositeData( final CompositeData data )
+        {
+            if( null == data )
+            {
+                return null;
+            }
+            return new Coordinate( (Double)data.get( "x" ), (Double)data.get( "y" ) );
+        }
+    }
+
+    /**
+     * Methods whose generic return types are used to look up converters.
+     */
+    public interface GenericTypes
+    {
+        List<Reading> list();
+
+        Map<String, Long> map();
+
+        Map<String, Map<String, Long>> nestedMap();
+    }
+
+    public interface GaugeRMXBean
+    {
+        int getValue();
+
+        Reading getReading();
+
+        Station getStation();
+
+        int scale( int factor );
+
+        int scale( int factor, int offset );
+    }
+
+    /**
+     * Base class for the gauges that implements no management interface
+     * so that each subclass satisfies exactly one bean convention.
+     */
+    public static class AbstractGauge
+    {
+        private final Reading m_reading = reading( 0 );
+        private final Station m_station = station( 10 );
+
+        public int getValue()
+        {
+            return 42;
+        }
+
+        public Reading getReading()
+        {
+            return m_reading;
+        }
+
+        public Station getStation()
+        {
+            return m_station;
+        }
+
+        public int scale( final int factor )
+        {
+            return factor;
+        }
+
+        public int scale( final int factor, final int offset )
+        {
+            return factor + offset;
+        }
+    }
+
+    public static class Gauge
+        extends AbstractGauge
+        implements GaugeRMXBean
+    {
+    }
+
+    @MBean
+    public static class AnnotatedGauge
+    {
+        private final Reading m_reading = reading( 0 );
+        private final Station m_station = station( 10 );
+
+        @MxAttribute
+        public int getValue()
+        {
+            return 42;
+        }
+
+        @MxAttribute
+        public Reading getReading()
+        {
+            return m_reading;
+        }
+
+        @MxAttribute
+        public Station getStation()
+        {
+            return m_station;
+        }
+
+        @MxOperation
+        public int scale( final int factor )
+        {
+            return factor;
+        }
+    }
+
+    public interface StandardGaugeMBean
+    {
+        int getValue();
+
+        Reading getReading();
+
+        Station getStation();
+    }
+
+    public static class StandardGauge
+        extends AbstractGauge
+        implements StandardGaugeMBean
+    {
+    }
+
+    public interface GaugeMXBean
+    {
+        int getValue();
+
+        Reading getReading();
+
+        Station getStation();
+    }
+
+    public static class MXGauge
+        extends AbstractGauge
+        implements GaugeMXBean
+    {
+    }
+
+    public interface TableRMXBean
+    {
+        Sample[] getSamples();
+    }
+
+    public static class Table
+        implements TableRMXBean
+    {
+        private final Sample[] m_samples;
+
+        public Table( final int size )
+        {
+            m_samples = samples( size );
+        }
+
+        public Sample[] getSamples()
+        {
+            return m_samples;
+        }
+    }
+
+    public static Reading reading( final int index )
+    {
+        final Reading reading = new Reading();
+        reading.setSensor( "sensor" + index );
+        reading.setValue( index * 1.5D );
+        reading.setTimestamp( 1000000L + index );
+        reading.setStatus( Status.values()[index % Status.values().length] );
+        return reading;
+    }
+
+    public static Reading[] readings( final int size )
+    {
+        final Reading[] readings = new Reading[size];
+        for( int i = 0; i < size; i++ )
+        {
+            readings[i] = reading( i );
+        }
+        return readings;
+    }
+
+    public static List<Reading> readingList( final int size )
+    {
+        final ArrayList<Reading> readings = new ArrayList<Reading>( size );
+        for( int i = 0; i < size; i++ )
+        {
+            readings.add( reading( i ) );
+        }
+        return readings;
+    }
+
+    public static Station station( final int size )
+    {
+        final Station station = new Station();
+        station.setName( "station" );
+        station.setLatest( reading( 0 ) );
+        station.setHistory( readingList( size ) );
+        final HashMap<String, Reading> bySensor = new HashMap<String, Reading>();
+        for( final Reading reading : station.getHistory() )
+        {
+            bySensor.put( reading.getSensor(), reading );
+        }
+        station.setBySensor( bySensor );
+        return station;
+    }
+
+    public static Status[] statuses( final int size )
+    {
+        final Status[] statuses = new Status[size];
+        for( int i = 0; i < size; i++ )
+        {
+            statuses[i] = Status.values()[i % Status.values().length];
+        }
+        return statuses;
+    }
+
+    public static Status[][] statusMatrix( final int size )
+    {
+        final int width = Math.max( 1, (int)Math.sqrt( size ) );
+        final Status[][] matrix = new Status[width][];
+        for( int i = 0; i < width; i++ )
+        {
+            matrix[i] = statuses( width );
+        }
+        return matrix;
+    }
+
+    public static Map<String, Long> longMap( final int size )
+    {
+        final HashMap<String, Long> map = new HashMap<String, Long>();
+        for( int i = 0; i < size; i++ )
+        {
+            map.put( "key" + i, (long)i );
+        }
+        return map;
+    }
+
+    public static Map<String, Map<String, Long>> nestedMap( final int size )
+    {
+        final int width = Math.max( 1, (int)Math.sqrt( size ) );
+        final HashMap<String, Map<String, Long>> map = new HashMap<String, Map<String, Long>>();
+        for( int i = 0; i < width; i++ )
+        {
+            map.put( "outer" + i, longMap( width ) );
+        }
+        return map;
+    }
+
+    public static Sample[] samples( final int size )
+    {
+        final Sample[] samples = new Sample[size];
+        for( int i = 0; i < size; i++ )
+        {
+            samples[i] = new Sample();
+            samples[i].setId( i );
+            samples[i].setCount( i * 10L );
+        }
+        return samples;
+    }
+
+    private BenchmarkData()
+    {
+    }
+}
@@ -0,0 +1,30 @@
+package panmx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for the benchmarks jar.
+ * Delegates to JMH but defaults to writing results as JSON to
+ * "jmh-result.json" so that runs can be tracked for regressions.
+ */
+public final class BenchmarkMain
+{
+    /** JMH option specifying result format. */
+    private static final String RESULT_FORMAT_OPTION = "-rf";
+    /** The default result format. */
+    private static final String DEFAULT_RESULT_FORMAT = "json";
+
+    public static void main( final String[] args )
+        throws Exception
+    {
+        final List<String> arguments = new ArrayList<String>( Arrays.asList( args ) );
+        if( !arguments.contains( RESULT_FORMAT_OPTION ) )
+        {
+            arguments.add( 0, DEFAULT_RESULT_FORMAT );
+            arguments.add( 0, RESULT_FORMAT_OPTION );
+        }
+        org.openjdk.jmh.Main.main( arguments.toArray( new String[arguments.size()] ) );
+    }
+}
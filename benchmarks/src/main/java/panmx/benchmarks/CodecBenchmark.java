@@ -0,0 +1,101 @@
+package panmx.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import javax.management.DynamicMBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.codec.OpenValueCodec;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Compares encoding and decoding open values with the compact codec
+ * against java serialization as used by the RMI connector. The encoded
+ * size of each payload is printed during setup.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CodecBenchmark
+{
+    @Param( {"serialization", "codec"} )
+    public String format;
+
+    @Param( {"composite", "graph", "tabular"} )
+    public String payload;
+
+    private Object m_value;
+    private byte[] m_encoded;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        if( "composite".equals( payload ) )
+        {
+            m_value = gauge().getAttribute( "reading" );
+        }
+        else if( "graph".equals( payload ) )
+        {
+            m_value = gauge().getAttribute( "station" );
+        }
+        else if( "tabular".equals( payload ) )
+        {
+            final Object bean = RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Table( 100 ) );
+            m_value = ( (DynamicMBean)bean ).getAttribute( "samples" );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown payload: " + payload );
+        }
+        m_encoded = encode();
+        System.out.println( "Encoded size of " + payload + " using " + format + ": " + m_encoded.length + " bytes" );
+    }
+
+    private static DynamicMBean gauge()
+        throws Exception
+    {
+        return (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Gauge() );
+    }
+
+    @Benchmark
+    public byte[] encode()
+        throws Exception
+    {
+        if( "codec".equals( format ) )
+        {
+            return OpenValueCodec.encode( m_value );
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( m_value );
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object decode()
+        throws Exception
+    {
+        if( "codec".equals( format ) )
+        {
+            return OpenValueCodec.decode( m_encoded );
+        }
+        return new ObjectInputStream( new ByteArrayInputStream( m_encoded ) ).readObject();
+    }
+}
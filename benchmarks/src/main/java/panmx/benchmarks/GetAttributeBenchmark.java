@@ -0,0 +1,130 @@
+package panmx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.model.ModelMBeanFactory;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Measures end-to-end attribute reads through an MBeanServer for RMXBeans
+ * and for the StandardMBean, MXBean and ModelMBean equivalents so that
+ * the RMXBean dispatch path can be compared against the platform.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GetAttributeBenchmark
+{
+    private static final String[] ATTRIBUTES = new String[]{"value", "reading", "station"};
+
+    @Param( {"rmxAnnotated", "rmxStandard", "standardMBean", "mxBean", "modelMBean"} )
+    public String bean;
+
+    @Param( {"scalar", "composite", "graph"} )
+    public String attribute;
+
+    private MBeanServer m_server;
+    private ObjectName m_name;
+    private String m_attribute;
+    private String[] m_attributes;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        final Object object;
+        boolean capitalize = false;
+        if( "rmxAnnotated".equals( bean ) )
+        {
+            object = RMXBeanFactory.createAnnotatedRMXBean( new BenchmarkData.AnnotatedGauge() );
+        }
+        else if( "rmxStandard".equals( bean ) )
+        {
+            object = RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Gauge() );
+        }
+        else if( "standardMBean".equals( bean ) )
+        {
+            object = new BenchmarkData.StandardGauge();
+            capitalize = true;
+        }
+        else if( "mxBean".equals( bean ) )
+        {
+            object = new BenchmarkData.MXGauge();
+            capitalize = true;
+        }
+        else if( "modelMBean".equals( bean ) )
+        {
+            object = ModelMBeanFactory.createAnnotatedModelMBean( new BenchmarkData.AnnotatedGauge() );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown bean: " + bean );
+        }
+
+        m_attributes = new String[ATTRIBUTES.length];
+        for( int i = 0; i < ATTRIBUTES.length; i++ )
+        {
+            final String name = ATTRIBUTES[i];
+            m_attributes[i] = capitalize ? Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 ) : name;
+        }
+        if( "scalar".equals( attribute ) )
+        {
+            m_attribute = m_attributes[0];
+        }
+        else if( "composite".equals( attribute ) )
+        {
+            m_attribute = m_attributes[1];
+        }
+        else if( "graph".equals( attribute ) )
+        {
+            m_attribute = m_attributes[2];
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown attribute: " + attribute );
+        }
+
+        m_server = MBeanServerFactory.newMBeanServer();
+        m_name = new ObjectName( "panmx.benchmarks:type=Gauge" );
+        m_server.registerMBean( object, m_name );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws Exception
+    {
+        m_server.unregisterMBean( m_name );
+    }
+
+    @Benchmark
+    public Object getAttribute()
+        throws Exception
+    {
+        return m_server.getAttribute( m_name, m_attribute );
+    }
+
+    @Benchmark
+    public AttributeList getAttributes()
+        throws Exception
+    {
+        return m_server.getAttributes( m_name, m_attributes );
+    }
+}
@@ -0,0 +1,58 @@
+package panmx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.DynamicMBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Measures invoking overloaded operations directly on an RMXBean.
+ * Run with "-prof gc" to verify that operation lookup does not allocate.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class InvokeBenchmark
+{
+    private static final String[] SIGNATURE1 = new String[]{"int"};
+    private static final String[] SIGNATURE2 = new String[]{"int", "int"};
+
+    private DynamicMBean m_bean;
+    private Object[] m_params1;
+    private Object[] m_params2;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        m_bean = (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Gauge() );
+        m_params1 = new Object[]{1};
+        m_params2 = new Object[]{1, 2};
+    }
+
+    @Benchmark
+    public Object invokeOneParameter()
+        throws Exception
+    {
+        return m_bean.invoke( "scale", m_params1, SIGNATURE1 );
+    }
+
+    @Benchmark
+    public Object invokeTwoParameters()
+        throws Exception
+    {
+        return m_bean.invoke( "scale", m_params2, SIGNATURE2 );
+    }
+}
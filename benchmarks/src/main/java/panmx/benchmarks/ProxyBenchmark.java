@@ -0,0 +1,78 @@
+package panmx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Measures the client side cost of RMXBean proxies: creating a proxy and
+ * reading attributes through a proxy connected to a local MBeanServer.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ProxyBenchmark
+{
+    private MBeanServer m_server;
+    private ObjectName m_name;
+    private BenchmarkData.GaugeRMXBean m_proxy;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        m_server = MBeanServerFactory.newMBeanServer();
+        m_name = new ObjectName( "panmx.benchmarks:type=Gauge" );
+        m_server.registerMBean( RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Gauge() ), m_name );
+        m_proxy = newProxy();
+    }
+
+    @TearDown
+    public void tearDown()
+        throws Exception
+    {
+        m_server.unregisterMBean( m_name );
+    }
+
+    @Benchmark
+    public Object newProxyInstance()
+        throws Exception
+    {
+        return newProxy();
+    }
+
+    @Benchmark
+    public int getScalar()
+    {
+        return m_proxy.getValue();
+    }
+
+    @Benchmark
+    public Object getComposite()
+    {
+        return m_proxy.getReading();
+    }
+
+    private BenchmarkData.GaugeRMXBean newProxy()
+        throws Exception
+    {
+        return (BenchmarkData.GaugeRMXBean)
+            RMXBeanFactory.newProxyInstance( m_server, m_name, BenchmarkData.GaugeRMXBean.class );
+    }
+}
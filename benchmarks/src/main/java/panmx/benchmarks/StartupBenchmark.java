@@ -0,0 +1,179 @@
+package panmx.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.rmx.LazyIntrospection;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Measures the cost of registering many short-lived beans of many distinct
+ * types with types prepared eagerly or lazily. The management interfaces
+ * are compiled during setup so that every type is distinct, including the
+ * composite type of one of its attributes.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class StartupBenchmark
+{
+    /** The number of beans registered by each operation. */
+    private static final int BEAN_COUNT = 10000;
+    /** The number of distinct management interfaces. */
+    private static final int TYPE_COUNT = 500;
+    /** The package of the generated management interfaces. */
+    private static final String PACKAGE = "panmx.benchmarks.generated";
+
+    @Param( {"eager", "lazy"} )
+    public String mode;
+
+    private File m_directory;
+    private Class<?>[] m_types;
+    private Object[] m_targets;
+    private ObjectName[] m_names;
+
+    @Setup( Level.Trial )
+    public void setup()
+        throws Exception
+    {
+        m_directory = File.createTempFile( "panmx", "types" );
+        m_directory.delete();
+        final File sources = new File( m_directory, PACKAGE.replace( '.', File.separatorChar ) );
+        sources.mkdirs();
+        final List<String> arguments = new ArrayList<String>();
+        arguments.add( "-d" );
+        arguments.add( m_directory.getPath() );
+        for( int i = 0; i < TYPE_COUNT; i++ )
+        {
+            final File file = new File( sources, "Type" + i + "RMXBean.java" );
+            final Writer writer = new FileWriter( file );
+            writer.write( source( i ) );
+            writer.close();
+            arguments.add( file.getPath() );
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if( 0 != compiler.run( null, null, null, arguments.toArray( new String[arguments.size()] ) ) )
+        {
+            throw new IllegalStateException( "Unable to compile management interfaces" );
+        }
+
+        final ClassLoader loader =
+            new URLClassLoader( new URL[]{m_directory.toURI().toURL()}, getClass().getClassLoader() );
+        final InvocationHandler handler = new InvocationHandler()
+        {
+            public Object invoke( final Object proxy, final Method method, final Object[] args )
+            {
+                final Class<?> type = method.getReturnType();
+                return ( Integer.TYPE == type ) ? (Object)0 : ( Long.TYPE == type ) ? (Object)0L : null;
+            }
+        };
+        m_types = new Class<?>[TYPE_COUNT];
+        m_targets = new Object[TYPE_COUNT];
+        for( int i = 0; i < TYPE_COUNT; i++ )
+        {
+            m_types[i] = loader.loadClass( PACKAGE + ".Type" + i + "RMXBean" );
+            m_targets[i] = Proxy.newProxyInstance( loader, new Class<?>[]{m_types[i]}, handler );
+        }
+        m_names = new ObjectName[BEAN_COUNT];
+        for( int i = 0; i < BEAN_COUNT; i++ )
+        {
+            m_names[i] = new ObjectName( "panmx.benchmarks:type=Type" + ( i % TYPE_COUNT ) + ",id=" + i );
+        }
+        if( "lazy".equals( mode ) )
+        {
+            LazyIntrospection.enable();
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+    {
+        LazyIntrospection.disable();
+        delete( m_directory );
+    }
+
+    @Benchmark
+    public MBeanServer registerBeans()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        for( int i = 0; i < BEAN_COUNT; i++ )
+        {
+            final int type = i % TYPE_COUNT;
+            server.registerMBean( RMXBeanFactory.createStandardRMXBean( m_targets[type], m_types[type] ),
+                                  m_names[i] );
+        }
+        return server;
+    }
+
+    private static String source( final int index )
+    {
+        return "package " + PACKAGE + ";\n" +
+               "import java.util.List;\n" +
+               "import java.util.Map;\n" +
+               "public interface Type" + index + "RMXBean\n" +
+               "{\n" +
+               "    class Info" + index + "\n" +
+               "    {\n" +
+               "        private String m_label;\n" +
+               "        private long m_total;\n" +
+               "        public String getLabel() { return m_label; }\n" +
+               "        public void setLabel( String label ) { m_label = label; }\n" +
+               "        public long getTotal() { return m_total; }\n" +
+               "        public void setTotal( long total ) { m_total = total; }\n" +
+               "    }\n" +
+               "    int getCount();\n" +
+               "    void setCount( int count );\n" +
+               "    String getName();\n" +
+               "    long[] getSamples();\n" +
+               "    List<String> getTags();\n" +
+               "    Map<String, Long> getTotals();\n" +
+               "    Info" + index + " getInfo();\n" +
+               "    void setInfo( Info" + index + " info );\n" +
+               "    String reset( String reason, int level );\n" +
+               "    List<Info" + index + "> history( int limit );\n" +
+               "}\n";
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] children = file.listFiles();
+        if( null != children )
+        {
+            for( final File child : children )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,89 @@
+package panmx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.DynamicMBean;
+import javax.management.MBeanServerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.model.ModelMBeanFactory;
+import panmx.rmx.RMXBeanFactory;
+import panmx.stats.Statistics;
+
+/**
+ * Measures the overhead of collecting statistics on attribute reads and
+ * operations invoked directly on an RMXBean and a ModelMBean. Each
+ * parameter combination runs in its own fork so beans measured without
+ * statistics are never instrumented.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class StatisticsBenchmark
+{
+    private static final String[] SIGNATURE = new String[]{"int"};
+
+    @Param( {"false", "true"} )
+    public boolean statistics;
+
+    @Param( {"rmxStandard", "modelMBean"} )
+    public String bean;
+
+    private DynamicMBean m_bean;
+    private Object[] m_params;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        if( statistics )
+        {
+            Statistics.enable( MBeanServerFactory.newMBeanServer() );
+        }
+        if( "rmxStandard".equals( bean ) )
+        {
+            m_bean = (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new BenchmarkData.Gauge() );
+        }
+        else if( "modelMBean".equals( bean ) )
+        {
+            m_bean = ModelMBeanFactory.createAnnotatedModelMBean( new BenchmarkData.AnnotatedGauge() );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown bean: " + bean );
+        }
+        m_params = new Object[]{1};
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        Statistics.disable();
+    }
+
+    @Benchmark
+    public Object getAttribute()
+        throws Exception
+    {
+        return m_bean.getAttribute( "value" );
+    }
+
+    @Benchmark
+    public Object invoke()
+        throws Exception
+    {
+        return m_bean.invoke( "scale", m_params, SIGNATURE );
+    }
+}
@@ -0,0 +1,126 @@
+package panmx.rmx;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import javax.management.openmbean.OpenDataException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.benchmarks.BenchmarkData;
+
+/**
+ * Measures conversion in both directions for the Converter implementations
+ * that handle arrays, collections, tabular data and composite graphs.
+ * The size parameter is the number of elements in the payload. Two
+ * dimensional payloads (matrix and nestedMap) are square so they contain
+ * approximately size elements in total.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CollectionConverterBenchmark
+{
+    @Param( {"primitiveArray", "enumArray", "compositeArray", "matrix", "list", "map", "nestedMap", "tabular", "graph"} )
+    public String kind;
+
+    @Param( {"10", "10000"} )
+    public int size;
+
+    private Converter m_converter;
+    private Object m_javaValue;
+    private Object m_openValue;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        final Type type;
+        if( "primitiveArray".equals( kind ) )
+        {
+            final long[] values = new long[size];
+            for( int i = 0; i < size; i++ )
+            {
+                values[i] = i;
+            }
+            m_javaValue = values;
+            type = long[].class;
+        }
+        else if( "enumArray".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.statuses( size );
+            type = BenchmarkData.Status[].class;
+        }
+        else if( "compositeArray".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.readings( size );
+            type = BenchmarkData.Reading[].class;
+        }
+        else if( "matrix".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.statusMatrix( size );
+            type = BenchmarkData.Status[][].class;
+        }
+        else if( "list".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.readingList( size );
+            type = genericType( "list" );
+        }
+        else if( "map".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.longMap( size );
+            type = genericType( "map" );
+        }
+        else if( "nestedMap".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.nestedMap( size );
+            type = genericType( "nestedMap" );
+        }
+        else if( "tabular".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.samples( size );
+            type = BenchmarkData.Sample[].class;
+        }
+        else if( "graph".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.station( size );
+            type = BenchmarkData.Station.class;
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown kind: " + kind );
+        }
+        m_converter = ConverterManager.getConverterFor( type );
+        m_openValue = m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toOpenType()
+        throws OpenDataException
+    {
+        return m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toJavaType()
+        throws OpenDataException
+    {
+        return m_converter.toJavaType( m_openValue );
+    }
+
+    private static Type genericType( final String name )
+        throws NoSuchMethodException
+    {
+        return BenchmarkData.GenericTypes.class.getMethod( name ).getGenericReturnType();
+    }
+}
@@ -0,0 +1,141 @@
+package panmx.rmx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of creating and registering RMXBeans from many
+ * threads at once. Every bean creation resolves converters for each
+ * attribute and operation through the ConverterManager.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Threads( 32 )
+@Fork( 1 )
+public class ConverterManagerContentionBenchmark
+{
+    public static class Reading
+    {
+        private String m_sensor;
+        private double m_value;
+
+        public String getSensor()
+        {
+            return m_sensor;
+        }
+
+        public void setSensor( final String sensor )
+        {
+            m_sensor = sensor;
+        }
+
+        public double getValue()
+        {
+            return m_value;
+        }
+
+        public void setValue( final double value )
+        {
+            m_value = value;
+        }
+    }
+
+    public static interface StationRMXBean
+    {
+        String getName();
+
+        Reading getLatest();
+
+        List<Reading> getHistory();
+
+        Map<String, Reading> getBySensor();
+
+        long[] getCounters();
+
+        Reading[] sample( int count, Reading[] previous );
+    }
+
+    public static class Station
+        implements StationRMXBean
+    {
+        private final String m_name;
+
+        public Station( final String name )
+        {
+            m_name = name;
+        }
+
+        public String getName()
+        {
+            return m_name;
+        }
+
+        public Reading getLatest()
+        {
+            return new Reading();
+        }
+
+        public List<Reading> getHistory()
+        {
+            return new ArrayList<Reading>();
+        }
+
+        public Map<String, Reading> getBySensor()
+        {
+            return new HashMap<String, Reading>();
+        }
+
+        public long[] getCounters()
+        {
+            return new long[0];
+        }
+
+        public Reading[] sample( final int count, final Reading[] previous )
+        {
+            return previous;
+        }
+    }
+
+    private final AtomicLong m_nextId = new AtomicLong();
+    private MBeanServer m_server;
+
+    /**
+     * Use a new server for each iteration so registered beans do not accumulate.
+     */
+    @Setup( Level.Iteration )
+    public void setup()
+    {
+        m_server = MBeanServerFactory.newMBeanServer();
+    }
+
+    @Benchmark
+    public Object createAndRegister()
+        throws Exception
+    {
+        final String name = "s" + m_nextId.incrementAndGet();
+        final Object bean = RMXBeanFactory.createStandardRMXBean( new Station( name ), StationRMXBean.class );
+        return m_server.registerMBean( bean, new ObjectName( "bench:name=" + name ) );
+    }
+}
@@ -0,0 +1,116 @@
+package panmx.rmx;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.openmbean.OpenDataException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures conversion of large primitive and wrapper arrays such as
+ * histograms and sample windows. The size parameter is the total number
+ * of elements. Two dimensional arrays are square.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class PrimitiveArrayConverterBenchmark
+{
+    @Param( {"long", "double", "int", "wrapperLong", "double2d"} )
+    public String kind;
+
+    @Param( {"1000", "100000", "1000000"} )
+    public int size;
+
+    private Converter m_converter;
+    private Object m_javaValue;
+    private Object m_openValue;
+
+    @Setup
+    public void setup()
+        throws OpenDataException
+    {
+        if( "long".equals( kind ) )
+        {
+            final long[] values = new long[size];
+            for( int i = 0; i < size; i++ )
+            {
+                values[i] = i;
+            }
+            m_javaValue = values;
+        }
+        else if( "double".equals( kind ) )
+        {
+            m_javaValue = doubles( size );
+        }
+        else if( "int".equals( kind ) )
+        {
+            final int[] values = new int[size];
+            for( int i = 0; i < size; i++ )
+            {
+                values[i] = i;
+            }
+            m_javaValue = values;
+        }
+        else if( "wrapperLong".equals( kind ) )
+        {
+            final Long[] values = new Long[size];
+            for( int i = 0; i < size; i++ )
+            {
+                values[i] = (long)i;
+            }
+            m_javaValue = values;
+        }
+        else if( "double2d".equals( kind ) )
+        {
+            final int width = (int)Math.sqrt( size );
+            final double[][] values = new double[width][];
+            for( int i = 0; i < width; i++ )
+            {
+                values[i] = doubles( width );
+            }
+            m_javaValue = values;
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown kind: " + kind );
+        }
+        m_converter = ConverterManager.getConverterFor( m_javaValue.getClass() );
+        m_openValue = m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toOpenType()
+        throws OpenDataException
+    {
+        return m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toJavaType()
+        throws OpenDataException
+    {
+        return m_converter.toJavaType( m_openValue );
+    }
+
+    private static double[] doubles( final int size )
+    {
+        final double[] values = new double[size];
+        for( int i = 0; i < size; i++ )
+        {
+            values[i] = i * 0.5D;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,78 @@
+package panmx.rmx;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.openmbean.OpenDataException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import panmx.benchmarks.BenchmarkData;
+
+/**
+ * Measures single value conversion in both directions for each of the
+ * scalar Converter implementations.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ScalarConverterBenchmark
+{
+    @Param( {"simple", "enum", "composite", "rmxComposite"} )
+    public String kind;
+
+    private Converter m_converter;
+    private Object m_javaValue;
+    private Object m_openValue;
+
+    @Setup
+    public void setup()
+        throws OpenDataException
+    {
+        if( "simple".equals( kind ) )
+        {
+            m_javaValue = "Hello World";
+        }
+        else if( "enum".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.Status.WARN;
+        }
+        else if( "composite".equals( kind ) )
+        {
+            m_javaValue = new BenchmarkData.Coordinate( 1.5D, 2.5D );
+        }
+        else if( "rmxComposite".equals( kind ) )
+        {
+            m_javaValue = BenchmarkData.reading( 1 );
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown kind: " + kind );
+        }
+        m_converter = ConverterManager.getConverterFor( m_javaValue.getClass() );
+        m_openValue = m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toOpenType()
+        throws OpenDataException
+    {
+        return m_converter.toOpenType( m_javaValue );
+    }
+
+    @Benchmark
+    public Object toJavaType()
+        throws OpenDataException
+    {
+        return m_converter.toJavaType( m_openValue );
+    }
+}
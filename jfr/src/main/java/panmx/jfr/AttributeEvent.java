@@ -0,0 +1,13 @@
+package panmx.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name( "panmx.Attribute" )
+@Label( "Attribute Access" )
+@Description( "An attribute read or written on an RMXBean." )
+final class AttributeEvent
+    extends PanMXEvent
+{
+}
@@ -0,0 +1,13 @@
+package panmx.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name( "panmx.Conversion" )
+@Label( "Conversion" )
+@Description( "A conversion between a java value and an open value." )
+final class ConversionEvent
+    extends PanMXEvent
+{
+}
@@ -0,0 +1,13 @@
+package panmx.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name( "panmx.Invoke" )
+@Label( "Operation Invocation" )
+@Description( "An operation invoked on an RMXBean." )
+final class InvokeEvent
+    extends PanMXEvent
+{
+}
@@ -0,0 +1,112 @@
+package panmx.jfr;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import jdk.jfr.EventType;
+import panmx.stats.TraceKind;
+import panmx.stats.TraceListener;
+import panmx.stats.Tracer;
+
+/**
+ * TraceListener that emits a JDK Flight Recorder event for each call
+ * reported by the PanMX tracer so that slow JMX calls can be correlated
+ * with GC and safepoint events in a recording.
+ *
+ * <p>Events are only created if their type is enabled in a running
+ * recording so installing the listener costs little when no recording
+ * is in progress.</p>
+ *
+ * <p>Calls are reported once they complete so each event is committed
+ * after its call. Use the "callStart" and "callDuration" fields of the
+ * event, rather than its own start time and duration, to find the period
+ * the call took.</p>
+ */
+public final class JfrTraceListener
+    implements TraceListener
+{
+    /** The type of events for attributes accessed. */
+    private static final EventType ATTRIBUTE = EventType.getEventType( AttributeEvent.class );
+    /** The type of events for operations invoked. */
+    private static final EventType INVOKE = EventType.getEventType( InvokeEvent.class );
+    /** The type of events for calls through proxies. */
+    private static final EventType PROXY = EventType.getEventType( ProxyEvent.class );
+    /** The type of events for conversions. */
+    private static final EventType CONVERSION = EventType.getEventType( ConversionEvent.class );
+
+    /**
+     * Install a JfrTraceListener that reports calls taking at least threshold.
+     *
+     * @param threshold the minimum duration of calls reported.
+     * @param unit the unit of threshold.
+     */
+    public static void install( final long threshold, final TimeUnit unit )
+    {
+        Tracer.install( new JfrTraceListener(), threshold, unit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void trace( final TraceKind kind,
+                       final ObjectName objectName,
+                       final String member,
+                       final int payloadSize,
+                       final long start,
+                       final long duration )
+    {
+        final EventType type = getEventType( kind );
+        if( !type.isEnabled() )
+        {
+            return;
+        }
+        final PanMXEvent event = createEvent( type );
+        event.kind = kind.name();
+        event.objectName = ( null != objectName ) ? objectName.toString() : null;
+        event.member = member;
+        event.payloadSize = payloadSize;
+        event.callStart =
+            System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        event.callDuration = duration;
+        event.commit();
+    }
+
+    private static EventType getEventType( final TraceKind kind )
+    {
+        switch( kind )
+        {
+            case GET_ATTRIBUTE:
+            case GET_ATTRIBUTES:
+            case SET_ATTRIBUTE:
+            case SET_ATTRIBUTES:
+                return ATTRIBUTE;
+            case INVOKE:
+                return INVOKE;
+            case PROXY_GET_ATTRIBUTE:
+            case PROXY_SET_ATTRIBUTE:
+            case PROXY_INVOKE:
+                return PROXY;
+            default:
+                return CONVERSION;
+        }
+    }
+
+    private static PanMXEvent createEvent( final EventType type )
+    {
+        if( ATTRIBUTE == type )
+        {
+            return new AttributeEvent();
+        }
+        else if( INVOKE == type )
+        {
+            return new InvokeEvent();
+        }
+        else if( PROXY == type )
+        {
+            return new ProxyEvent();
+        }
+        else
+        {
+            return new ConversionEvent();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package panmx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * Base class of the events emitted for calls reported by the PanMX tracer.
+ *
+ * <p>The tracer only reports a call once it has completed and taken at
+ * least the threshold, so the event is created and committed after the
+ * call. The start time of the event is therefore the time the call ended
+ * and the event itself has no duration. The time range of the call is
+ * given by the "callStart" and "callDuration" fields, which should be used
+ * to line the call up with GC and safepoint events in the recording.
+ * Stack traces are not recorded by default so the events are cheap to
+ * leave enabled.</p>
+ */
+@Category( "PanMX" )
+@StackTrace( false )
+abstract class PanMXEvent
+    extends Event
+{
+    @Label( "Kind" )
+    String kind;
+
+    @Label( "Object Name" )
+    String objectName;
+
+    @Label( "Member" )
+    String member;
+
+    @Label( "Payload Size" )
+    int payloadSize;
+
+    @Label( "Call Start" )
+    @Timestamp( Timestamp.MILLISECONDS_SINCE_EPOCH )
+    long callStart;
+
+    @Label( "Call Duration" )
+    @Timespan( Timespan.NANOSECONDS )
+    long callDuration;
+}
@@ -0,0 +1,13 @@
+package panmx.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name( "panmx.Proxy" )
+@Label( "Proxy Round Trip" )
+@Description( "A call made through an RMXBean proxy including the round trip to the server." )
+final class ProxyEvent
+    extends PanMXEvent
+{
+}
@@ -0,0 +1,124 @@
+package panmx.jfr;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+import panmx.rmx.RMXBeanFactory;
+import panmx.stats.Tracer;
+
+public class JfrTraceListenerTestCase
+    extends TestCase
+{
+    public interface ArteryRMXBean
+    {
+        long[] getPressure();
+
+        long dilate( int amount );
+    }
+
+    public static class Artery
+        implements ArteryRMXBean
+    {
+        public long[] getPressure()
+        {
+            return new long[]{120, 80};
+        }
+
+        public long dilate( final int amount )
+        {
+            try
+            {
+                Thread.sleep( amount );
+            }
+            catch( final InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return amount;
+        }
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        Tracer.uninstall();
+    }
+
+    public void testEventsRecorded()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Artery" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Artery() ), name );
+        final ArteryRMXBean proxy = (ArteryRMXBean)RMXBeanFactory.newProxyInstance( server, name, ArteryRMXBean.class );
+
+        final Path file = Files.createTempFile( "panmx", ".jfr" );
+        try
+        {
+            final Recording recording = new Recording();
+            recording.enable( "panmx.Attribute" );
+            recording.enable( "panmx.Invoke" );
+            recording.enable( "panmx.Proxy" );
+            recording.enable( "panmx.Conversion" );
+            recording.start();
+            JfrTraceListener.install( 0, TimeUnit.NANOSECONDS );
+
+            proxy.getPressure();
+            proxy.dilate( 50 );
+
+            Tracer.uninstall();
+            recording.stop();
+            recording.dump( file );
+            recording.close();
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents( file );
+            final RecordedEvent attribute = find( events, "panmx.Attribute" );
+            assertEquals( "attribute.kind", "GET_ATTRIBUTE", attribute.getString( "kind" ) );
+            assertEquals( "attribute.objectName", name.toString(), attribute.getString( "objectName" ) );
+            assertEquals( "attribute.member", "pressure", attribute.getString( "member" ) );
+            assertEquals( "attribute.payloadSize", 2, attribute.getInt( "payloadSize" ) );
+            assertTrue( "attribute.callDuration > 0", attribute.getLong( "callDuration" ) > 0 );
+
+            final RecordedEvent invoke = find( events, "panmx.Invoke" );
+            assertEquals( "invoke.member", "dilate", invoke.getString( "member" ) );
+            assertEquals( "invoke.payloadSize", 1, invoke.getInt( "payloadSize" ) );
+            assertTrue( "invoke.callDuration",
+                        invoke.getLong( "callDuration" ) >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+            final long sinceCallStart =
+                Duration.between( invoke.getInstant( "callStart" ), invoke.getStartTime() ).toMillis();
+            assertTrue( "invoke.callStart precedes event by " + sinceCallStart, sinceCallStart >= 40 );
+
+            final RecordedEvent proxyEvent = find( events, "panmx.Proxy" );
+            assertEquals( "proxy.objectName", name.toString(), proxyEvent.getString( "objectName" ) );
+
+            final RecordedEvent conversion = find( events, "panmx.Conversion" );
+            assertEquals( "conversion.objectName", name.toString(), conversion.getString( "objectName" ) );
+        }
+        finally
+        {
+            Files.deleteIfExists( file );
+        }
+    }
+
+    private static RecordedEvent find( final List<RecordedEvent> events, final String type )
+    {
+        for( final RecordedEvent event : events )
+        {
+            if( type.equals( event.getEventType().getName() ) )
+            {
+                return event;
+            }
+        }
+        fail( "No " + type + " event recorded" );
+        return null;
+    }
+}
@@ -0,0 +1,457 @@
+package panmx.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates the {@link panmx.util.MxMetadata}
+ * of each class annotated with {@link panmx.annotations.MBean}.
+ *
+ * <p>The metadata of a class lists the public methods annotated with
+ * {@link panmx.annotations.MxAttribute} or {@link panmx.annotations.MxOperation}
+ * followed by the methods of the management interfaces named in the MBean
+ * annotation, and dispatches to them with direct calls. The MBeanInfo is
+ * still created at runtime from the annotations of the listed methods as it
+ * depends on the converters registered at runtime. Classes that the
+ * metadata could not call, such as private nested classes, are skipped with
+ * a warning and are introspected at runtime.</p>
+ *
+ * <p>The processor is registered as a service so it runs whenever this
+ * jar is on the compile classpath.</p>
+ */
+@SupportedAnnotationTypes( "panmx.annotations.MBean" )
+public class MxMetadataProcessor
+    extends AbstractProcessor
+{
+    private static final String MBEAN = "panmx.annotations.MBean";
+    private static final String MX_ATTRIBUTE = "panmx.annotations.MxAttribute";
+    private static final String MX_OPERATION = "panmx.annotations.MxOperation";
+    /** Suffix appended to the binary name of a class to get the name of its metadata. */
+    private static final String CLASS_SUFFIX = "$MxMetadata";
+
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process( final Set<? extends TypeElement> annotations,
+                            final RoundEnvironment roundEnv )
+    {
+        final TypeElement mBean = processingEnv.getElementUtils().getTypeElement( MBEAN );
+        if( null == mBean )
+        {
+            return false;
+        }
+        for( final TypeElement type : ElementFilter.typesIn( roundEnv.getElementsAnnotatedWith( mBean ) ) )
+        {
+            if( ElementKind.CLASS == type.getKind() )
+            {
+                try
+                {
+                    generate( type );
+                }
+                catch( final IOException ioe )
+                {
+                    processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR,
+                                                              "Unable to write MxMetadata: " + ioe,
+                                                              type );
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate the metadata of type unless the metadata could not call it.
+     *
+     * @param type the class annotated with MBean.
+     * @throws IOException if unable to write the source file.
+     */
+    private void generate( final TypeElement type )
+        throws IOException
+    {
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf( type );
+        if( !isAccessible( type, pkg ) )
+        {
+            warn( "Class is not accessible from its package so no MxMetadata is generated.", type );
+            return;
+        }
+
+        final ArrayList<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        final ArrayList<TypeElement> declaringTypes = new ArrayList<TypeElement>();
+        final ArrayList<Boolean> forced = new ArrayList<Boolean>();
+        for( final ExecutableElement method : getPublicMethods( type ) )
+        {
+            if( hasAnnotation( method, MX_ATTRIBUTE ) || hasAnnotation( method, MX_OPERATION ) )
+            {
+                methods.add( method );
+                declaringTypes.add( type );
+                forced.add( Boolean.FALSE );
+            }
+        }
+        for( final TypeElement mx : getManagementInterfaces( type ) )
+        {
+            if( !isAccessible( mx, pkg ) )
+            {
+                warn( "Management interface " + mx.getQualifiedName() + " is not accessible " +
+                      "so no MxMetadata is generated.", type );
+                return;
+            }
+            for( final ExecutableElement method : getPublicMethods( mx ) )
+            {
+                methods.add( method );
+                declaringTypes.add( mx );
+                forced.add( Boolean.TRUE );
+            }
+        }
+        for( final ExecutableElement method : methods )
+        {
+            for( final VariableElement parameter : method.getParameters() )
+            {
+                if( !isAccessible( parameter.asType(), pkg ) )
+                {
+                    warn( "Parameter " + parameter.getSimpleName() + " of method " + method.getSimpleName() +
+                          " is not accessible so no MxMetadata is generated.", type );
+                    return;
+                }
+            }
+        }
+
+        final String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+        final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String className =
+            ( packageName.length() == 0 ? binaryName : binaryName.substring( packageName.length() + 1 ) ) +
+            CLASS_SUFFIX;
+        final JavaFileObject file =
+            processingEnv.getFiler().createSourceFile( binaryName + CLASS_SUFFIX, type );
+        final PrintWriter writer = new PrintWriter( file.openWriter() );
+        try
+        {
+            write( writer, packageName, className, type, methods, declaringTypes, forced );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private void write( final PrintWriter writer,
+                        final String packageName,
+                        final String className,
+                        final TypeElement type,
+                        final List<ExecutableElement> methods,
+                        final List<TypeElement> declaringTypes,
+                        final List<Boolean> forced )
+    {
+        final String typeName = type.getQualifiedName().toString();
+        if( packageName.length() != 0 )
+        {
+            writer.println( "package " + packageName + ";" );
+            writer.println();
+        }
+        writer.println( "/** MxMetadata of " + typeName + " generated by " + getClass().getName() + ". */" );
+        writer.println( "@SuppressWarnings( value = {\"unchecked\", \"rawtypes\"} )" );
+        writer.println( "public final class " + className );
+        writer.println( "    extends panmx.util.MxMetadata" );
+        writer.println( "{" );
+        writer.println( "    public " + className + "()" );
+        writer.println( "    {" );
+        writer.println( "        super( " + typeName + ".class," );
+        writer.print( "               new Class<?>[]{" );
+        for( int i = 0; i < methods.size(); i++ )
+        {
+            writer.print( ( 0 == i ? "" : ", " ) + declaringTypes.get( i ).getQualifiedName() + ".class" );
+        }
+        writer.println( "}," );
+        writer.print( "               new String[]{" );
+        for( int i = 0; i < methods.size(); i++ )
+        {
+            writer.print( ( 0 == i ? "" : ", " ) + "\"" + methods.get( i ).getSimpleName() + "\"" );
+        }
+        writer.println( "}," );
+        writer.print( "               new Class<?>[][]{" );
+        for( int i = 0; i < methods.size(); i++ )
+        {
+            writer.print( ( 0 == i ? "" : ", " ) + "{" );
+            final List<? extends VariableElement> parameters = methods.get( i ).getParameters();
+            for( int j = 0; j < parameters.size(); j++ )
+            {
+                writer.print( ( 0 == j ? "" : ", " ) + erasure( parameters.get( j ).asType() ) + ".class" );
+            }
+            writer.print( "}" );
+        }
+        writer.println( "}," );
+        writer.print( "               new boolean[]{" );
+        for( int i = 0; i < methods.size(); i++ )
+        {
+            writer.print( ( 0 == i ? "" : ", " ) + forced.get( i ) );
+        }
+        writer.println( "} );" );
+        writer.println( "    }" );
+        writer.println();
+        writer.println( "    public Object invoke( final int index, final Object target, final Object[] args )" );
+        writer.println( "        throws java.lang.reflect.InvocationTargetException" );
+        writer.println( "    {" );
+        writer.println( "        switch( index )" );
+        writer.println( "        {" );
+        for( int i = 0; i < methods.size(); i++ )
+        {
+            final ExecutableElement method = methods.get( i );
+            final String declaringType = declaringTypes.get( i ).getQualifiedName().toString();
+            final boolean isStatic = method.getModifiers().contains( Modifier.STATIC );
+            final List<? extends VariableElement> parameters = method.getParameters();
+            writer.println( "            case " + i + ":" );
+            writer.println( "            {" );
+            if( !isStatic )
+            {
+                writer.println( "                final " + declaringType + " o;" );
+            }
+            for( int j = 0; j < parameters.size(); j++ )
+            {
+                writer.println( "                final " + erasure( parameters.get( j ).asType() ) + " a" + j + ";" );
+            }
+            if( !isStatic || 0 != parameters.size() )
+            {
+                writer.println( "                try" );
+                writer.println( "                {" );
+                if( !isStatic )
+                {
+                    writer.println( "                    o = (" + declaringType + ")target;" );
+                }
+                for( int j = 0; j < parameters.size(); j++ )
+                {
+                    writer.println( "                    a" + j + " = " + argument( parameters.get( j ).asType(), j ) + ";" );
+                }
+                writer.println( "                }" );
+                writer.println( "                catch( final RuntimeException e )" );
+                writer.println( "                {" );
+                writer.println( "                    throw new IllegalArgumentException( e );" );
+                writer.println( "                }" );
+            }
+            final StringBuilder call = new StringBuilder();
+            call.append( isStatic ? declaringType : "o" );
+            call.append( '.' ).append( method.getSimpleName() ).append( "( " );
+            for( int j = 0; j < parameters.size(); j++ )
+            {
+                call.append( 0 == j ? "" : ", " ).append( "a" ).append( j );
+            }
+            call.append( " )" );
+            writer.println( "                try" );
+            writer.println( "                {" );
+            if( TypeKind.VOID == method.getReturnType().getKind() )
+            {
+                writer.println( "                    " + call + ";" );
+                writer.println( "                    return null;" );
+            }
+            else
+            {
+                writer.println( "                    return " + call + ";" );
+            }
+            writer.println( "                }" );
+            writer.println( "                catch( final Throwable t )" );
+            writer.println( "                {" );
+            writer.println( "                    throw new java.lang.reflect.InvocationTargetException( t );" );
+            writer.println( "                }" );
+            writer.println( "            }" );
+        }
+        writer.println( "        }" );
+        writer.println( "        throw new IllegalArgumentException( \"Unknown method index \" + index );" );
+        writer.println( "    }" );
+        writer.println( "}" );
+    }
+
+    /**
+     * Return the expression that converts an element of the args array to the parameter type.
+     *
+     * @param type the parameter type.
+     * @param index the index of the parameter.
+     * @return the expression.
+     */
+    private String argument( final TypeMirror type, final int index )
+    {
+        final String arg = "args[ " + index + " ]";
+        if( type.getKind().isPrimitive() )
+        {
+            final Types types = processingEnv.getTypeUtils();
+            final String boxed =
+                types.boxedClass( types.getPrimitiveType( type.getKind() ) ).getQualifiedName().toString();
+            return "( (" + boxed + ")" + arg + " )." + type.getKind().name().toLowerCase() + "Value()";
+        }
+        else
+        {
+            return "(" + erasure( type ) + ")" + arg;
+        }
+    }
+
+    /**
+     * Return the source name of the erasure of type.
+     *
+     * @param type the type.
+     * @return the source name.
+     */
+    private String erasure( final TypeMirror type )
+    {
+        final TypeMirror erasure = processingEnv.getTypeUtils().erasure( type );
+        if( TypeKind.ARRAY == erasure.getKind() )
+        {
+            return erasure( ( (ArrayType)erasure ).getComponentType() ) + "[]";
+        }
+        else if( TypeKind.DECLARED == erasure.getKind() )
+        {
+            return ( (TypeElement)( (DeclaredType)erasure ).asElement() ).getQualifiedName().toString();
+        }
+        else
+        {
+            return erasure.getKind().name().toLowerCase();
+        }
+    }
+
+    /**
+     * Return the public methods of type, including inherited methods but
+     * excluding those of java.lang.Object, in the same way as Class.getMethods().
+     *
+     * @param type the class or interface.
+     * @return the methods.
+     */
+    private List<ExecutableElement> getPublicMethods( final TypeElement type )
+    {
+        final ArrayList<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        for( final ExecutableElement method :
+            ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) )
+        {
+            final TypeElement declaringType = (TypeElement)method.getEnclosingElement();
+            final boolean inheritedStatic =
+                type.getKind().isInterface() && declaringType != type &&
+                method.getModifiers().contains( Modifier.STATIC );
+            if( method.getModifiers().contains( Modifier.PUBLIC ) && !inheritedStatic &&
+                !declaringType.getQualifiedName().contentEquals( "java.lang.Object" ) )
+            {
+                methods.add( method );
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Return the management interfaces named in the MBean annotation of type.
+     *
+     * @param type the class.
+     * @return the interfaces.
+     */
+    private List<TypeElement> getManagementInterfaces( final TypeElement type )
+    {
+        final ArrayList<TypeElement> interfaces = new ArrayList<TypeElement>();
+        final AnnotationMirror mBean = getAnnotation( type, MBEAN );
+        for( final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+            mBean.getElementValues().entrySet() )
+        {
+            if( entry.getKey().getSimpleName().contentEquals( "interfaces" ) )
+            {
+                final Object value = entry.getValue().getValue();
+                final List<?> values =
+                    ( value instanceof List ) ? (List<?>)value : Collections.singletonList( entry.getValue() );
+                for( final Object element : values )
+                {
+                    final Object mx = ( (AnnotationValue)element ).getValue();
+                    if( mx instanceof DeclaredType )
+                    {
+                        interfaces.add( (TypeElement)( (DeclaredType)mx ).asElement() );
+                    }
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    /**
+     * Return true if type may be named by a class in pkg.
+     *
+     * @param type the type.
+     * @param pkg the package.
+     * @return true if accessible.
+     */
+    private boolean isAccessible( final TypeMirror type, final PackageElement pkg )
+    {
+        final TypeMirror erasure = processingEnv.getTypeUtils().erasure( type );
+        if( TypeKind.ARRAY == erasure.getKind() )
+        {
+            return isAccessible( ( (ArrayType)erasure ).getComponentType(), pkg );
+        }
+        else if( TypeKind.DECLARED == erasure.getKind() )
+        {
+            return isAccessible( (TypeElement)( (DeclaredType)erasure ).asElement(), pkg );
+        }
+        else
+        {
+            return erasure.getKind().isPrimitive();
+        }
+    }
+
+    private boolean isAccessible( final TypeElement type, final PackageElement pkg )
+    {
+        for( Element element = type; element instanceof TypeElement; element = element.getEnclosingElement() )
+        {
+            final TypeElement enclosing = (TypeElement)element;
+            final Set<Modifier> modifiers = enclosing.getModifiers();
+            if( NestingKind.LOCAL == enclosing.getNestingKind() ||
+                NestingKind.ANONYMOUS == enclosing.getNestingKind() ||
+                modifiers.contains( Modifier.PRIVATE ) ||
+                ( !modifiers.contains( Modifier.PUBLIC ) &&
+                  !processingEnv.getElementUtils().getPackageOf( enclosing ).equals( pkg ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasAnnotation( final Element element, final String name )
+    {
+        return null != getAnnotation( element, name );
+    }
+
+    private static AnnotationMirror getAnnotation( final Element element, final String name )
+    {
+        for( final AnnotationMirror annotation : element.getAnnotationMirrors() )
+        {
+            final TypeElement type = (TypeElement)annotation.getAnnotationType().asElement();
+            if( type.getQualifiedName().contentEquals( name ) )
+            {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private void warn( final String message, final Element element )
+    {
+        processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING, message, element );
+    }
+}
@@ -0,0 +1,231 @@
+package panmx.processor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import javax.management.Attribute;
+import javax.management.DynamicMBean;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.model.ModelMBeanFactory;
+import panmx.rmx.RMXBeanFactory;
+import panmx.util.Invoker;
+import panmx.util.InvokerFactory;
+import panmx.util.ManagedType;
+import panmx.util.MxMetadata;
+
+public class MxMetadataProcessorTestCase
+    extends TestCase
+{
+    private static final String DIAL_SOURCE =
+        "package sample;\n" +
+        "public interface Dial\n" +
+        "{\n" +
+        "    int getSetting();\n" +
+        "    void turn( int amount );\n" +
+        "}\n";
+    private static final String THERMOSTAT_SOURCE =
+        "package sample;\n" +
+        "import java.util.List;\n" +
+        "import panmx.annotations.*;\n" +
+        "@MBean( interfaces = Dial.class )\n" +
+        "public class Thermostat\n" +
+        "    implements Dial\n" +
+        "{\n" +
+        "    private int m_setting;\n" +
+        "    private String m_name = \"hall\";\n" +
+        "    public int getSetting() { return m_setting; }\n" +
+        "    public void turn( final int amount ) { m_setting += amount; }\n" +
+        "    @MxAttribute public String getName() { return m_name; }\n" +
+        "    @MxAttribute public void setName( final String name ) { m_name = name; }\n" +
+        "    @MxOperation public long total( @MxParameter( name = \"values\" ) final List<Long> values )\n" +
+        "    {\n" +
+        "        long total = 0;\n" +
+        "        for( final long value : values ) { total += value; }\n" +
+        "        return total;\n" +
+        "    }\n" +
+        "    @MxOperation public void fail() { throw new IllegalStateException( \"failed\" ); }\n" +
+        "    public void ignored() {}\n" +
+        "    @MBean public static class Part\n" +
+        "    {\n" +
+        "        @MxAttribute public boolean isBroken() { return false; }\n" +
+        "    }\n" +
+        "    @MBean private static class Secret\n" +
+        "    {\n" +
+        "        @MxAttribute public int getCode() { return 42; }\n" +
+        "    }\n" +
+        "}\n";
+
+    private File m_directory;
+    private ClassLoader m_loader;
+    private String m_diagnostics;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_directory = File.createTempFile( "panmx", "processor" );
+        assertTrue( "delete", m_directory.delete() );
+        assertTrue( "mkdir", m_directory.mkdir() );
+        final File sources = new File( m_directory, "sample" );
+        assertTrue( "mkdir", sources.mkdir() );
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager( null, null, null );
+        final Iterable<? extends JavaFileObject> units =
+            fileManager.getJavaFileObjects( write( sources, "Dial.java", DIAL_SOURCE ),
+                                            write( sources, "Thermostat.java", THERMOSTAT_SOURCE ) );
+        final String classpath =
+            new File( MBean.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).getPath();
+        final StringWriter output = new StringWriter();
+        final JavaCompiler.CompilationTask task =
+            compiler.getTask( output,
+                              fileManager,
+                              null,
+                              Arrays.asList( "-classpath", classpath, "-d", m_directory.getPath() ),
+                              null,
+                              units );
+        task.setProcessors( Arrays.asList( new MxMetadataProcessor() ) );
+        assertTrue( "compiled: " + output, task.call() );
+        fileManager.close();
+        m_diagnostics = output.toString();
+        m_loader = new URLClassLoader( new URL[]{m_directory.toURI().toURL()}, getClass().getClassLoader() );
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        delete( m_directory );
+    }
+
+    public void testMetadataGenerated()
+        throws Exception
+    {
+        final Class<?> type = m_loader.loadClass( "sample.Thermostat" );
+        final MxMetadata metadata = MxMetadata.getMetadata( type );
+        assertNotNull( "metadata", metadata );
+        assertEquals( "metadata.getMethodCount()", 6, metadata.getMethodCount() );
+
+        final ManagedType managedType = ManagedType.getManagedType( type );
+        assertEquals( "managedType.getMethods().length", 6, managedType.getMethods().length );
+        int forced = 0;
+        for( int i = 0; i < metadata.getMethodCount(); i++ )
+        {
+            assertTrue( "ignored", !"ignored".equals( metadata.getMethod( i ).getName() ) );
+            if( metadata.isForced( i ) )
+            {
+                assertEquals( "forced declaring class",
+                              "sample.Dial",
+                              metadata.getMethod( i ).getDeclaringClass().getName() );
+                forced++;
+            }
+        }
+        assertEquals( "forced", 2, forced );
+
+        assertNotNull( "nested metadata",
+                       MxMetadata.getMetadata( m_loader.loadClass( "sample.Thermostat$Part" ) ) );
+        assertNull( "private nested metadata",
+                    MxMetadata.getMetadata( m_loader.loadClass( "sample.Thermostat$Secret" ) ) );
+        assertTrue( "warning: " + m_diagnostics, m_diagnostics.indexOf( "not accessible" ) != -1 );
+    }
+
+    public void testDispatch()
+        throws Exception
+    {
+        final Class<?> type = m_loader.loadClass( "sample.Thermostat" );
+        final Object thermostat = type.newInstance();
+        final Method turn = type.getMethod( "turn", Integer.TYPE );
+        final Method total = type.getMethod( "total", java.util.List.class );
+        final Method fail = type.getMethod( "fail" );
+        final Invoker invoker = InvokerFactory.createInvoker( type, new Member[]{turn, total, fail} );
+        assertTrue( "invoker dispatches through metadata",
+                    !invoker.getClass().getName().startsWith( "panmx.generated." ) );
+
+        assertNull( "turn", invoker.invoke( 0, thermostat, new Object[]{3} ) );
+        assertEquals( "getSetting", 3, type.getMethod( "getSetting" ).invoke( thermostat ) );
+        assertEquals( "total", 6L, invoker.invoke( 1, thermostat, new Object[]{Arrays.asList( 1L, 2L, 3L )} ) );
+        try
+        {
+            invoker.invoke( 0, thermostat, new Object[]{null} );
+            fail( "Expected null primitive to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        try
+        {
+            invoker.invoke( 1, "thermostat", new Object[]{Arrays.asList( 1L )} );
+            fail( "Expected bad target to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        try
+        {
+            invoker.invoke( 2, thermostat, new Object[0] );
+            fail( "Expected exception to be wrapped" );
+        }
+        catch( final java.lang.reflect.InvocationTargetException ite )
+        {
+            assertTrue( "cause", ite.getCause() instanceof IllegalStateException );
+        }
+    }
+
+    public void testFactoriesUseMetadata()
+        throws Exception
+    {
+        final Class<?> type = m_loader.loadClass( "sample.Thermostat" );
+
+        final DynamicMBean rmxBean = (DynamicMBean)RMXBeanFactory.createAnnotatedRMXBean( type.newInstance() );
+        rmxBean.setAttribute( new Attribute( "name", "kitchen" ) );
+        assertEquals( "name", "kitchen", rmxBean.getAttribute( "name" ) );
+        rmxBean.invoke( "turn", new Object[]{2}, new String[]{"int"} );
+        assertEquals( "setting", 2, rmxBean.getAttribute( "setting" ) );
+
+        final DynamicMBean modelMBean = ModelMBeanFactory.createAnnotatedModelMBean( type.newInstance() );
+        assertEquals( "name", "hall", modelMBean.getAttribute( "name" ) );
+        assertEquals( "total",
+                      10L,
+                      modelMBean.invoke( "total",
+                                         new Object[]{Arrays.asList( 4L, 6L )},
+                                         new String[]{"java.util.List"} ) );
+    }
+
+    private static File write( final File directory, final String name, final String source )
+        throws IOException
+    {
+        final File file = new File( directory, name );
+        final FileWriter writer = new FileWriter( file );
+        try
+        {
+            writer.write( source );
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] files = file.listFiles();
+        if( null != files )
+        {
+            for( final File child : files )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+}
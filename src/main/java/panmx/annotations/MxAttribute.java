@@ -20,4 +20,43 @@ import java.lang.annotation.Target;
 
     /** Descriptor fields for managemed element. */
     MxField[] fields() default {};
+
+    /**
+     * The number of seconds for which the value of the attribute may be cached.
+     * A value of {@link #NEVER_CACHE} means that the accessor is invoked every
+     * time the attribute is read and a value of {@link #CACHE_FOREVER} means
+     * that the accessor is only invoked the first time the attribute is read.
+     * This has the same semantics as the "currencyTimeLimit" descriptor field
+     * and any value other than {@link #DEFAULT_CURRENCY_TIME_LIMIT} is copied
+     * into that field of ModelMBeans. By default the values of RMXBean
+     * attributes are never cached.
+     * The value is only used when the annotation is placed on the accessor.
+     */
+    int currencyTimeLimit() default DEFAULT_CURRENCY_TIME_LIMIT;
+
+    /**
+     * The number of milliseconds that a bulk read of the attributes of an
+     * RMXBean waits for the accessor when accessors are read concurrently.
+     * A value of {@link #DEFAULT_TIMEOUT} uses the default timeout and a
+     * value of {@link #NO_TIMEOUT} waits until the accessor returns.
+     * The value is only used when the annotation is placed on the accessor.
+     *
+     * @see panmx.rmx.ConcurrentReads
+     */
+    long readTimeout() default DEFAULT_TIMEOUT;
+
+    /** Value for {@link #currencyTimeLimit()} that uses the default. */
+    int DEFAULT_CURRENCY_TIME_LIMIT = Integer.MIN_VALUE;
+
+    /** Value for {@link #currencyTimeLimit()} that disables caching. */
+    int NEVER_CACHE = -1;
+
+    /** Value for {@link #currencyTimeLimit()} that caches value until the attribute is set. */
+    int CACHE_FOREVER = 0;
+
+    /** Value for {@link #readTimeout()} that uses the default timeout. */
+    long DEFAULT_TIMEOUT = 0;
+
+    /** Value for {@link #readTimeout()} that waits until the accessor returns. */
+    long NO_TIMEOUT = -1;
 }
@@ -7,9 +7,14 @@ import java.lang.annotation.Target;
 
 /**
  * Annotation to indicate constructor is a managed constructor.
+ *
+ * <p>When placed on a constructor or static factory method of a type that is
+ * converted to CompositeData, objects of the type are created from CompositeData
+ * by passing the fields named by the {@link MxParameter} annotations of the
+ * parameters.</p>
  */
 @Retention(RetentionPolicy.RUNTIME)
-    @Target(ElementType.CONSTRUCTOR)
+    @Target({ElementType.CONSTRUCTOR, ElementType.METHOD})
     public @interface MxConstructor
 {
     /** The display name for managemed element. */
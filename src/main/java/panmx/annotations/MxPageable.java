@@ -0,0 +1,22 @@
+package panmx.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to indicate that the List, Map or array returned by an
+ * attribute accessor or operation may be retrieved a page at a time
+ * through a cursor rather than in a single value.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface MxPageable
+{
+    /** The number of elements retrieved in each page unless the caller requests another size. */
+    int pageSize() default 1000;
+
+    /** The number of seconds a cursor may be idle before it is closed. */
+    int cursorTimeout() default 60;
+}
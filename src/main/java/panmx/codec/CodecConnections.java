@@ -0,0 +1,239 @@
+package panmx.codec;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.management.remote.MBeanServerForwarder;
+
+/**
+ * Static methods that apply {@link OpenValueCodec} to the values passed
+ * over a JMX connector.
+ *
+ * <p>The server installs the forwarder returned by {@link #newForwarder()}
+ * on its JMXConnectorServer and clients wrap the connection returned by
+ * the JMXConnector using {@link #wrap(MBeanServerConnection)}. The client
+ * wraps attribute values and operation parameters that are CompositeData,
+ * TabularData or arrays in an {@link EncodedValue} and the forwarder
+ * unwraps them before they reach the MBeanServer. Results are wrapped by
+ * the forwarder and unwrapped by the client in the same way. Clients that
+ * do not wrap the connection see EncodedValue instances in place of these
+ * values so the forwarder should only be installed on connector servers
+ * whose clients all wrap their connections.</p>
+ *
+ * <p>No state is kept per connection. Each value is encoded with its own
+ * dictionaries, so the types of a value are written once for each value
+ * sent rather than once for the life of the connection.</p>
+ */
+public final class CodecConnections
+{
+    /**
+     * Create a forwarder that unwraps the values sent by clients and wraps
+     * the values returned to clients.
+     *
+     * @return the forwarder.
+     */
+    public static MBeanServerForwarder newForwarder()
+    {
+        return (MBeanServerForwarder)Proxy.newProxyInstance( CodecConnections.class.getClassLoader(),
+                                                             new Class[]{MBeanServerForwarder.class},
+                                                             new CodecHandler( null, true ) );
+    }
+
+    /**
+     * Wrap a connection to a server that has installed the forwarder
+     * returned by {@link #newForwarder()}.
+     *
+     * @param connection the connection.
+     * @return the wrapped connection.
+     */
+    public static MBeanServerConnection wrap( final MBeanServerConnection connection )
+    {
+        if( null == connection )
+        {
+            throw new NullPointerException( "connection" );
+        }
+        return (MBeanServerConnection)Proxy.newProxyInstance( CodecConnections.class.getClassLoader(),
+                                                              new Class[]{MBeanServerConnection.class},
+                                                              new CodecHandler( connection, false ) );
+    }
+
+    /**
+     * Return value wrapped in an EncodedValue if it benefits from encoding.
+     *
+     * @param value the value.
+     * @return the wrapped value or value.
+     */
+    static Object encode( final Object value )
+    {
+        if( value instanceof CompositeData || value instanceof TabularData ||
+            ( null != value && value.getClass().isArray() ) )
+        {
+            return new EncodedValue( value );
+        }
+        else
+        {
+            return value;
+        }
+    }
+
+    /**
+     * Return the value held by value if it is an EncodedValue.
+     *
+     * @param value the value.
+     * @return the value held or value.
+     */
+    static Object decode( final Object value )
+    {
+        return ( value instanceof EncodedValue ) ? ( (EncodedValue)value ).getValue() : value;
+    }
+
+    /**
+     * Return a copy of attributes with the value of each attribute encoded or decoded.
+     *
+     * @param attributes the attributes.
+     * @param encode true to encode values, false to decode them.
+     * @return the attributes.
+     */
+    static AttributeList convert( final AttributeList attributes, final boolean encode )
+    {
+        if( null == attributes )
+        {
+            return null;
+        }
+        final AttributeList results = new AttributeList( attributes.size() );
+        for( final Object element : attributes )
+        {
+            final Attribute attribute = (Attribute)element;
+            final Object value = encode ? encode( attribute.getValue() ) : decode( attribute.getValue() );
+            results.add( ( value == attribute.getValue() ) ? attribute : new Attribute( attribute.getName(), value ) );
+        }
+        return results;
+    }
+
+    /**
+     * Return a copy of params with each parameter encoded or decoded.
+     *
+     * @param params the parameters.
+     * @param encode true to encode parameters, false to decode them.
+     * @return the parameters.
+     */
+    static Object[] convert( final Object[] params, final boolean encode )
+    {
+        if( null == params )
+        {
+            return null;
+        }
+        final Object[] results = new Object[params.length];
+        for( int i = 0; i < params.length; i++ )
+        {
+            results[i] = encode ? encode( params[i] ) : decode( params[i] );
+        }
+        return results;
+    }
+
+    /**
+     * Handler that converts the values passed to and returned from the
+     * attribute and operation methods and delegates every method.
+     */
+    private static final class CodecHandler
+        implements InvocationHandler
+    {
+        /** The delegate. For a forwarder this is set via setMBeanServer. */
+        private volatile MBeanServerConnection m_connection;
+        /** True if the handler is a forwarder in the server, false if it wraps a client connection. */
+        private final boolean m_server;
+
+        CodecHandler( final MBeanServerConnection connection, final boolean server )
+        {
+            m_connection = connection;
+            m_server = server;
+        }
+
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+            throws Throwable
+        {
+            final String name = method.getName();
+            if( m_server && "getMBeanServer".equals( name ) && null == args )
+            {
+                return m_connection;
+            }
+            else if( m_server && "setMBeanServer".equals( name ) )
+            {
+                m_connection = (MBeanServer)args[0];
+                return null;
+            }
+            else if( Object.class == method.getDeclaringClass() )
+            {
+                return invokeObjectMethod( proxy, method, args );
+            }
+
+            // Values sent by clients are encoded, values received by the server are decoded
+            final boolean encodeArgs = !m_server;
+            if( "setAttribute".equals( name ) )
+            {
+                final Attribute attribute = (Attribute)args[1];
+                final Object value = encodeArgs ? encode( attribute.getValue() ) : decode( attribute.getValue() );
+                args[1] = new Attribute( attribute.getName(), value );
+            }
+            else if( "setAttributes".equals( name ) )
+            {
+                args[1] = convert( (AttributeList)args[1], encodeArgs );
+            }
+            else if( "invoke".equals( name ) )
+            {
+                args[2] = convert( (Object[])args[2], encodeArgs );
+            }
+
+            final Object result;
+            try
+            {
+                result = method.invoke( m_connection, args );
+            }
+            catch( final InvocationTargetException ite )
+            {
+                throw ite.getTargetException();
+            }
+
+            if( "getAttribute".equals( name ) || "invoke".equals( name ) )
+            {
+                return m_server ? encode( result ) : decode( result );
+            }
+            else if( "getAttributes".equals( name ) || "setAttributes".equals( name ) )
+            {
+                return convert( (AttributeList)result, m_server );
+            }
+            else
+            {
+                return result;
+            }
+        }
+
+        private Object invokeObjectMethod( final Object proxy, final Method method, final Object[] args )
+        {
+            final String name = method.getName();
+            if( "equals".equals( name ) )
+            {
+                return proxy == args[0];
+            }
+            else if( "hashCode".equals( name ) )
+            {
+                return System.identityHashCode( proxy );
+            }
+            else
+            {
+                return "CodecConnection[" + m_connection + "]";
+            }
+        }
+    }
+
+    private CodecConnections()
+    {
+    }
+}
@@ -0,0 +1,105 @@
+package panmx.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+
+/**
+ * Holder that serializes its value using {@link OpenValueCodec} rather
+ * than java serialization. Wrapping a CompositeData, TabularData or array
+ * in an EncodedValue before it is passed to a connector means the connector
+ * sends the class descriptor of the holder and the compact encoding rather
+ * than the descriptors and full types of every nested value. Each holder
+ * is encoded with its own dictionaries as the connector serializes every
+ * request and response independently, so a type is written once per holder.
+ *
+ * <p>Values nested in the held value that are not open values are
+ * serialized by the enclosing stream after the encoding, so they are
+ * resolved using the class loaders and filters of the connector.</p>
+ *
+ * <p>Both ends of the connection must have the holder on the classpath.</p>
+ *
+ * @see CodecConnections
+ */
+public final class EncodedValue
+    implements Externalizable
+{
+    private static final long serialVersionUID = 1L;
+    /** The size of the chunks the encoding is read in so a corrupt length does not cause a large allocation. */
+    private static final int CHUNK_SIZE = 8192;
+
+    private Object m_value;
+
+    /**
+     * Constructor required by java serialization.
+     */
+    public EncodedValue()
+    {
+    }
+
+    public EncodedValue( final Object value )
+    {
+        m_value = value;
+    }
+
+    /**
+     * Return the value held.
+     *
+     * @return the value.
+     */
+    public Object getValue()
+    {
+        return m_value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeExternal( final ObjectOutput out )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ArrayList<Object> objects = new ArrayList<Object>();
+        final OpenValueOutput output = new OpenValueOutput( bytes, objects );
+        output.writeObject( m_value );
+        output.flush();
+        out.writeInt( bytes.size() );
+        out.write( bytes.toByteArray() );
+        for( final Object object : objects )
+        {
+            out.writeObject( object );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void readExternal( final ObjectInput in )
+        throws IOException, ClassNotFoundException
+    {
+        final int length = in.readInt();
+        if( length < 0 )
+        {
+            throw new StreamCorruptedException( "Invalid length " + length );
+        }
+        byte[] data = new byte[Math.min( length, CHUNK_SIZE )];
+        int offset = 0;
+        while( offset < length )
+        {
+            if( offset == data.length )
+            {
+                final byte[] grown = new byte[(int)Math.min( length, data.length * 2L )];
+                System.arraycopy( data, 0, grown, 0, offset );
+                data = grown;
+            }
+            in.readFully( data, offset, data.length - offset );
+            offset = data.length;
+        }
+        m_value = new OpenValueInput( new ByteArrayInputStream( data ), length, in ).readObject();
+    }
+}
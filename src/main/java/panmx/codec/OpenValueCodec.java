@@ -0,0 +1,180 @@
+package panmx.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Compact binary encoding of open values.
+ *
+ * <p>Java serialization of CompositeData and TabularData repeats the full
+ * CompositeType or TabularType, including item names and descriptions, and
+ * the class descriptors of the support classes with every value. This
+ * encoding instead writes each OpenType once per stream into a dictionary
+ * and refers to it by index thereafter, writes the items of composite
+ * values positionally in the order of {@link javax.management.openmbean.CompositeType#keySet()},
+ * writes integers as variable length quantities, writes each distinct
+ * short string once per stream and writes arrays of numbers in bulk.</p>
+ *
+ * <p>Values that are not open values are written using java serialization
+ * so any Serializable value may be encoded.</p>
+ *
+ * <p>The encoding is produced by {@link OpenValueOutput} and read by
+ * {@link OpenValueInput}. The dictionaries are retained for the life of the
+ * OpenValueOutput so a long lived stream that is written to directly, such
+ * as a socket, only sends each type once. The static methods in this class,
+ * {@link EncodedValue} and {@link CodecConnections} encode each value with
+ * its own dictionaries, so over a JMX connector each type is written once
+ * per value rather than once per connection.</p>
+ *
+ * @see EncodedValue
+ * @see CodecConnections
+ */
+public final class OpenValueCodec
+{
+    /** Tag for null values. */
+    static final int TAG_NULL = 0;
+    // Tags 1 to 13 are the SimpleType codes.
+    /** Tag for CompositeData values. */
+    static final int TAG_COMPOSITE = 20;
+    /** Tag for TabularData values. */
+    static final int TAG_TABULAR = 21;
+    /** Tag for arrays whose elements are written individually. */
+    static final int TAG_ARRAY = 22;
+    /** Tag for one dimensional arrays of numbers, characters or booleans written in bulk. */
+    static final int TAG_PACKED_ARRAY = 23;
+    /** Tag for values that are written using java serialization. */
+    static final int TAG_SERIALIZED = 24;
+    /** Tag for values that are serialized by the enclosing stream after the encoding. */
+    static final int TAG_OBJECT = 25;
+
+    /** Code for SimpleType.BOOLEAN. */
+    static final int BOOLEAN = 1;
+    /** Code for SimpleType.CHARACTER. */
+    static final int CHARACTER = 2;
+    /** Code for SimpleType.BYTE. */
+    static final int BYTE = 3;
+    /** Code for SimpleType.SHORT. */
+    static final int SHORT = 4;
+    /** Code for SimpleType.INTEGER. */
+    static final int INTEGER = 5;
+    /** Code for SimpleType.LONG. */
+    static final int LONG = 6;
+    /** Code for SimpleType.FLOAT. */
+    static final int FLOAT = 7;
+    /** Code for SimpleType.DOUBLE. */
+    static final int DOUBLE = 8;
+    /** Code for SimpleType.STRING. */
+    static final int STRING = 9;
+    /** Code for SimpleType.BIGDECIMAL. */
+    static final int BIGDECIMAL = 10;
+    /** Code for SimpleType.BIGINTEGER. */
+    static final int BIGINTEGER = 11;
+    /** Code for SimpleType.DATE. */
+    static final int DATE = 12;
+    /** Code for SimpleType.OBJECTNAME. */
+    static final int OBJECTNAME = 13;
+    /** Code for CompositeData array components. */
+    static final int COMPOSITE = 14;
+    /** Code for TabularData array components. */
+    static final int TABULAR = 15;
+    /** Code for any other array component. */
+    static final int OBJECT = 16;
+    /** Flag added to the code of packed arrays of primitives. */
+    static final int PRIMITIVE = 0x80;
+
+    /** Kind of SimpleType definitions. */
+    static final int KIND_SIMPLE = 1;
+    /** Kind of ArrayType definitions. */
+    static final int KIND_ARRAY = 2;
+    /** Kind of CompositeType definitions. */
+    static final int KIND_COMPOSITE = 3;
+    /** Kind of TabularType definitions. */
+    static final int KIND_TABULAR = 4;
+
+    /** The SimpleTypes indexed by code. */
+    static final SimpleType[] SIMPLE_TYPES = new SimpleType[]
+        {SimpleType.VOID, SimpleType.BOOLEAN, SimpleType.CHARACTER, SimpleType.BYTE,
+         SimpleType.SHORT, SimpleType.INTEGER, SimpleType.LONG, SimpleType.FLOAT,
+         SimpleType.DOUBLE, SimpleType.STRING, SimpleType.BIGDECIMAL,
+         SimpleType.BIGINTEGER, SimpleType.DATE, SimpleType.OBJECTNAME};
+    /** The classes of array components indexed by code. */
+    static final Class[] COMPONENT_TYPES = new Class[]
+        {Void.class, Boolean.class, Character.class, Byte.class,
+         Short.class, Integer.class, Long.class, Float.class,
+         Double.class, String.class, BigDecimal.class,
+         BigInteger.class, Date.class, ObjectName.class,
+         CompositeData.class, TabularData.class, Object.class};
+    /** The primitive types indexed by code. */
+    static final Class[] PRIMITIVE_TYPES = new Class[]
+        {Void.TYPE, Boolean.TYPE, Character.TYPE, Byte.TYPE,
+         Short.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE,
+         Double.TYPE};
+
+    /** The maximum number of strings retained in the string dictionary. */
+    static final int MAX_STRINGS = 4096;
+    /** The maximum length of strings added to the string dictionary. */
+    static final int MAX_STRING_LENGTH = 256;
+
+    /**
+     * Encode value with its own dictionaries.
+     *
+     * @param value the value.
+     * @return the encoded value.
+     * @throws IOException if value can not be encoded.
+     */
+    public static byte[] encode( final Object value )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OpenValueOutput output = new OpenValueOutput( bytes );
+        output.writeObject( value );
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a value encoded by {@link #encode(Object)}.
+     *
+     * @param data the encoded value.
+     * @return the value.
+     * @throws IOException if data is not a valid encoding.
+     * @throws ClassNotFoundException if the class of a serialized value can not be found.
+     */
+    public static Object decode( final byte[] data )
+        throws IOException, ClassNotFoundException
+    {
+        return new OpenValueInput( new ByteArrayInputStream( data ), data.length, null ).readObject();
+    }
+
+    /**
+     * Return the code for the component type of an array or -1 if the type
+     * is not one of the classes of open values.
+     *
+     * @param type the component type.
+     * @param codes the array of types indexed by code.
+     * @return the code or -1.
+     */
+    static int getCode( final Class type, final Class[] codes )
+    {
+        for( int i = 1; i < codes.length; i++ )
+        {
+            if( codes[i] == type )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private OpenValueCodec()
+    {
+    }
+}
@@ -0,0 +1,710 @@
+package panmx.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * Reads open values written by {@link OpenValueOutput}. The dictionaries
+ * of types and strings are rebuilt as the stream is read so an input must
+ * read every value written to the corresponding output in order. Input is
+ * buffered so the stream should not be read by other readers.
+ *
+ * <p>Values that were not open values are read using java serialization
+ * so the stream must only be read from trusted sources. Lengths read from
+ * the stream are checked against the bytes remaining when the length of
+ * the stream is known.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class OpenValueInput
+{
+    /** The size of the input buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream m_in;
+    private final byte[] m_buffer = new byte[BUFFER_SIZE];
+    private int m_position;
+    private int m_limit;
+    /** The number of bytes not yet read from m_in or Long.MAX_VALUE if not known. */
+    private long m_remaining;
+    /** The stream that deserializes values serialized by the enclosing stream or null if not enclosed. */
+    private final ObjectInput m_objects;
+    /** The types read indexed by their position in the dictionary. */
+    private final ArrayList<OpenType> m_types = new ArrayList<OpenType>();
+    /** The items of composite values or rows of tabular values for each type. */
+    private final ArrayList<String[]> m_items = new ArrayList<String[]>();
+    /** The strings read indexed by their position in the dictionary. */
+    private final ArrayList<String> m_strings = new ArrayList<String>();
+
+    public OpenValueInput( final InputStream in )
+    {
+        this( in, Long.MAX_VALUE, null );
+    }
+
+    /**
+     * Create an input that reads an encoding of known length. If objects is
+     * specified then values that are not open values are read from objects,
+     * using its class loaders and filters, and values serialized inline are
+     * rejected.
+     *
+     * @param in the stream to read the encoding from.
+     * @param length the number of bytes in the encoding or Long.MAX_VALUE if not known.
+     * @param objects the enclosing stream that serialized values that are not open values or null.
+     */
+    OpenValueInput( final InputStream in, final long length, final ObjectInput objects )
+    {
+        if( null == in )
+        {
+            throw new NullPointerException( "in" );
+        }
+        m_in = in;
+        m_remaining = length;
+        m_objects = objects;
+    }
+
+    /**
+     * Read the next value from the stream.
+     *
+     * @return the value.
+     * @throws IOException if an I/O error occurs or the stream is corrupt.
+     * @throws ClassNotFoundException if the class of a serialized value can not be found.
+     */
+    public Object readObject()
+        throws IOException, ClassNotFoundException
+    {
+        final int tag = readByte();
+        switch( tag )
+        {
+            case OpenValueCodec.TAG_NULL:
+                return null;
+            case OpenValueCodec.TAG_COMPOSITE:
+            {
+                final int index = readType();
+                return readItems( (CompositeType)getType( index, CompositeType.class ), m_items.get( index ) );
+            }
+            case OpenValueCodec.TAG_TABULAR:
+            {
+                final int index = readType();
+                final TabularType type = (TabularType)getType( index, TabularType.class );
+                final CompositeType rowType = type.getRowType();
+                final String[] items = m_items.get( index );
+                final int size = readLength();
+                final TabularDataSupport data = new TabularDataSupport( type, Math.max( 16, size * 4 / 3 + 1 ), 0.75F );
+                for( int i = 0; i < size; i++ )
+                {
+                    data.put( readItems( rowType, items ) );
+                }
+                return data;
+            }
+            case OpenValueCodec.TAG_ARRAY:
+                return readArray();
+            case OpenValueCodec.TAG_PACKED_ARRAY:
+            {
+                final int code = readByte();
+                return readPacked( code & ~OpenValueCodec.PRIMITIVE, 0 != ( code & OpenValueCodec.PRIMITIVE ) );
+            }
+            case OpenValueCodec.TAG_SERIALIZED:
+                if( null != m_objects )
+                {
+                    throw new StreamCorruptedException( "Inline serialized values are not accepted" );
+                }
+                final ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( readBytes() ) );
+                return input.readObject();
+            case OpenValueCodec.TAG_OBJECT:
+                if( null == m_objects )
+                {
+                    throw new StreamCorruptedException( "Values serialized by an enclosing stream can not be read" );
+                }
+                return m_objects.readObject();
+            default:
+                if( tag >= OpenValueCodec.BOOLEAN && tag <= OpenValueCodec.OBJECTNAME )
+                {
+                    return readSimple( tag );
+                }
+                throw new StreamCorruptedException( "Unknown tag " + tag );
+        }
+    }
+
+    private CompositeData readItems( final CompositeType type, final String[] items )
+        throws IOException, ClassNotFoundException
+    {
+        final Object[] values = new Object[items.length];
+        for( int i = 0; i < values.length; i++ )
+        {
+            values[i] = readObject();
+        }
+        try
+        {
+            return new CompositeDataSupport( type, items, values );
+        }
+        catch( final OpenDataException ode )
+        {
+            throw corrupt( ode );
+        }
+    }
+
+    private Object readSimple( final int code )
+        throws IOException
+    {
+        switch( code )
+        {
+            case OpenValueCodec.BOOLEAN:
+                return 0 != readByte();
+            case OpenValueCodec.CHARACTER:
+                return (char)readVarint();
+            case OpenValueCodec.BYTE:
+                return (byte)readByte();
+            case OpenValueCodec.SHORT:
+                return (short)unzigzag( readVarint() );
+            case OpenValueCodec.INTEGER:
+                return unzigzag( readVarint() );
+            case OpenValueCodec.LONG:
+                return unzigzag( readVarlong() );
+            case OpenValueCodec.FLOAT:
+                return Float.intBitsToFloat( (int)readFixed( 4 ) );
+            case OpenValueCodec.DOUBLE:
+                return Double.longBitsToDouble( readFixed( 8 ) );
+            case OpenValueCodec.STRING:
+                return readString();
+            case OpenValueCodec.BIGDECIMAL:
+                final BigInteger unscaled = new BigInteger( readBytes() );
+                return new BigDecimal( unscaled, unzigzag( readVarint() ) );
+            case OpenValueCodec.BIGINTEGER:
+                return new BigInteger( readBytes() );
+            case OpenValueCodec.DATE:
+                return new Date( unzigzag( readVarlong() ) );
+            default:
+                try
+                {
+                    return new ObjectName( readString() );
+                }
+                catch( final MalformedObjectNameException mone )
+                {
+                    throw corrupt( mone );
+                }
+        }
+    }
+
+    private Object readArray()
+        throws IOException, ClassNotFoundException
+    {
+        final int code = readByte();
+        if( code < OpenValueCodec.BOOLEAN || code >= OpenValueCodec.COMPONENT_TYPES.length )
+        {
+            throw new StreamCorruptedException( "Unknown array component " + code );
+        }
+        final int dimensions = readLength();
+        final int length = readLength();
+        checkRemaining( length );
+        final Class component = OpenValueCodec.COMPONENT_TYPES[code];
+        final Class elementType =
+            ( dimensions <= 1 ) ? component : Array.newInstance( component, new int[dimensions - 1] ).getClass();
+        final Object[] array = (Object[])Array.newInstance( elementType, length );
+        try
+        {
+            for( int i = 0; i < length; i++ )
+            {
+                array[i] = readObject();
+            }
+        }
+        catch( final ArrayStoreException ase )
+        {
+            throw corrupt( ase );
+        }
+        return array;
+    }
+
+    /**
+     * Read an array of primitives or their wrappers written in bulk.
+     *
+     * @param code the code of the component type.
+     * @param primitive true to return an array of primitives.
+     * @return the array.
+     */
+    private Object readPacked( final int code, final boolean primitive )
+        throws IOException
+    {
+        if( OpenValueCodec.BYTE == code )
+        {
+            final byte[] bytes = readBytes();
+            if( primitive )
+            {
+                return bytes;
+            }
+            final Byte[] results = new Byte[bytes.length];
+            for( int i = 0; i < bytes.length; i++ )
+            {
+                results[i] = bytes[i];
+            }
+            return results;
+        }
+        final int length = readLength();
+        checkRemaining( ( OpenValueCodec.BOOLEAN == code ) ? ( length + 7L ) / 8 : length );
+        switch( code )
+        {
+            case OpenValueCodec.BOOLEAN:
+            {
+                final boolean[] booleans = new boolean[length];
+                for( int i = 0; i < length; i += 8 )
+                {
+                    final int bits = readByte();
+                    for( int j = i; j < length && j < i + 8; j++ )
+                    {
+                        booleans[j] = 0 != ( bits & ( 1 << ( j - i ) ) );
+                    }
+                }
+                if( primitive )
+                {
+                    return booleans;
+                }
+                final Boolean[] results = new Boolean[length];
+                for( int i = 0; i < length; i++ )
+                {
+                    results[i] = booleans[i];
+                }
+                return results;
+            }
+            case OpenValueCodec.CHARACTER:
+                if( primitive )
+                {
+                    final char[] results = new char[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = (char)readVarint();
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Character[] results = new Character[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = (char)readVarint();
+                    }
+                    return results;
+                }
+            case OpenValueCodec.SHORT:
+                if( primitive )
+                {
+                    final short[] results = new short[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = (short)unzigzag( readVarint() );
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Short[] results = new Short[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = (short)unzigzag( readVarint() );
+                    }
+                    return results;
+                }
+            case OpenValueCodec.INTEGER:
+                if( primitive )
+                {
+                    final int[] results = new int[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = unzigzag( readVarint() );
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Integer[] results = new Integer[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = unzigzag( readVarint() );
+                    }
+                    return results;
+                }
+            case OpenValueCodec.LONG:
+                if( primitive )
+                {
+                    final long[] results = new long[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = unzigzag( readVarlong() );
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Long[] results = new Long[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = unzigzag( readVarlong() );
+                    }
+                    return results;
+                }
+            case OpenValueCodec.FLOAT:
+                if( primitive )
+                {
+                    final float[] results = new float[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = Float.intBitsToFloat( (int)readFixed( 4 ) );
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Float[] results = new Float[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = Float.intBitsToFloat( (int)readFixed( 4 ) );
+                    }
+                    return results;
+                }
+            case OpenValueCodec.DOUBLE:
+                if( primitive )
+                {
+                    final double[] results = new double[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = Double.longBitsToDouble( readFixed( 8 ) );
+                    }
+                    return results;
+                }
+                else
+                {
+                    final Double[] results = new Double[length];
+                    for( int i = 0; i < length; i++ )
+                    {
+                        results[i] = Double.longBitsToDouble( readFixed( 8 ) );
+                    }
+                    return results;
+                }
+            default:
+                throw new StreamCorruptedException( "Unknown packed array component " + code );
+        }
+    }
+
+    /**
+     * Read a reference to a type, reading and defining the type if the
+     * reference is followed by a definition.
+     *
+     * @return the index of the type in the dictionary.
+     */
+    private int readType()
+        throws IOException
+    {
+        final int reference = readVarint();
+        if( 0 != reference )
+        {
+            if( reference > m_types.size() )
+            {
+                throw new StreamCorruptedException( "Unknown type " + reference );
+            }
+            return reference - 1;
+        }
+        final int kind = readByte();
+        final OpenType type;
+        String[] items = null;
+        try
+        {
+            if( OpenValueCodec.KIND_SIMPLE == kind )
+            {
+                final int code = readByte();
+                if( code >= OpenValueCodec.SIMPLE_TYPES.length )
+                {
+                    throw new StreamCorruptedException( "Unknown SimpleType " + code );
+                }
+                type = OpenValueCodec.SIMPLE_TYPES[code];
+            }
+            else if( OpenValueCodec.KIND_ARRAY == kind )
+            {
+                final int dimensions = readLength();
+                final OpenType elementType = m_types.get( readType() );
+                final boolean primitive = 0 != readByte();
+                type = primitive ?
+                       newPrimitiveArrayType( dimensions, elementType ) :
+                       new ArrayType( dimensions, elementType );
+            }
+            else if( OpenValueCodec.KIND_COMPOSITE == kind )
+            {
+                final String typeName = readString();
+                final String description = readString();
+                final int count = readLength();
+                items = new String[count];
+                final String[] descriptions = new String[count];
+                final OpenType[] types = new OpenType[count];
+                for( int i = 0; i < count; i++ )
+                {
+                    items[i] = readString();
+                    descriptions[i] = readString();
+                    types[i] = m_types.get( readType() );
+                }
+                type = new CompositeType( typeName, description, items, descriptions, types );
+            }
+            else if( OpenValueCodec.KIND_TABULAR == kind )
+            {
+                final String typeName = readString();
+                final String description = readString();
+                final int rowIndex = readType();
+                final CompositeType rowType = (CompositeType)getType( rowIndex, CompositeType.class );
+                items = m_items.get( rowIndex );
+                final String[] indexNames = new String[readLength()];
+                for( int i = 0; i < indexNames.length; i++ )
+                {
+                    indexNames[i] = readString();
+                }
+                type = new TabularType( typeName, description, rowType, indexNames );
+            }
+            else
+            {
+                throw new StreamCorruptedException( "Unknown kind of type " + kind );
+            }
+        }
+        catch( final OpenDataException ode )
+        {
+            throw corrupt( ode );
+        }
+        m_types.add( type );
+        m_items.add( items );
+        return m_types.size() - 1;
+    }
+
+    private OpenType getType( final int index, final Class<? extends OpenType> kind )
+        throws StreamCorruptedException
+    {
+        final OpenType type = m_types.get( index );
+        if( !kind.isInstance( type ) )
+        {
+            throw new StreamCorruptedException( "Type " + type + " is not a " + kind.getName() );
+        }
+        return type;
+    }
+
+    /**
+     * Create an ArrayType of primitives. These types were added after
+     * Java 5 so they are created reflectively.
+     */
+    private static ArrayType newPrimitiveArrayType( final int dimensions, final OpenType elementType )
+        throws IOException, OpenDataException
+    {
+        try
+        {
+            final Constructor<ArrayType> constructor =
+                ArrayType.class.getConstructor( SimpleType.class, Boolean.TYPE );
+            final ArrayType type = constructor.newInstance( elementType, Boolean.TRUE );
+            return ( 1 == dimensions ) ? type : new ArrayType( dimensions - 1, type );
+        }
+        catch( final OpenDataException ode )
+        {
+            throw ode;
+        }
+        catch( final Exception e )
+        {
+            throw corrupt( e );
+        }
+    }
+
+    private String readString()
+        throws IOException
+    {
+        final int reference = readVarint();
+        if( 0 != reference )
+        {
+            if( reference > m_strings.size() )
+            {
+                throw new StreamCorruptedException( "Unknown string " + reference );
+            }
+            return m_strings.get( reference - 1 );
+        }
+        final int length = readLength();
+        final String value;
+        if( length <= m_limit - m_position )
+        {
+            value = new String( m_buffer, m_position, length, "UTF-8" );
+            m_position += length;
+        }
+        else
+        {
+            checkRemaining( length );
+            final byte[] bytes = new byte[length];
+            readFully( bytes );
+            value = new String( bytes, "UTF-8" );
+        }
+        if( value.length() <= OpenValueCodec.MAX_STRING_LENGTH && m_strings.size() < OpenValueCodec.MAX_STRINGS )
+        {
+            m_strings.add( value );
+        }
+        return value;
+    }
+
+    private static int unzigzag( final int value )
+    {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private static long unzigzag( final long value )
+    {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private int readLength()
+        throws IOException
+    {
+        final int length = readVarint();
+        if( length < 0 )
+        {
+            throw new StreamCorruptedException( "Invalid length " + length );
+        }
+        return length;
+    }
+
+    private int readVarint()
+        throws IOException
+    {
+        int result = 0;
+        for( int shift = 0; shift < 35; shift += 7 )
+        {
+            final int b = readByte();
+            result |= ( b & 0x7F ) << shift;
+            if( 0 == ( b & 0x80 ) )
+            {
+                return result;
+            }
+        }
+        throw new StreamCorruptedException( "Malformed varint" );
+    }
+
+    private long readVarlong()
+        throws IOException
+    {
+        long result = 0;
+        for( int shift = 0; shift < 70; shift += 7 )
+        {
+            final int b = readByte();
+            result |= (long)( b & 0x7F ) << shift;
+            if( 0 == ( b & 0x80 ) )
+            {
+                return result;
+            }
+        }
+        throw new StreamCorruptedException( "Malformed varlong" );
+    }
+
+    /**
+     * Read a value written most significant byte first.
+     *
+     * @param size the number of bytes.
+     * @return the value.
+     */
+    private long readFixed( final int size )
+        throws IOException
+    {
+        long result = 0;
+        for( int i = 0; i < size; i++ )
+        {
+            result = ( result << 8 ) | readByte();
+        }
+        return result;
+    }
+
+    private byte[] readBytes()
+        throws IOException
+    {
+        final int length = readLength();
+        checkRemaining( length );
+        final byte[] bytes = new byte[length];
+        readFully( bytes );
+        return bytes;
+    }
+
+    /**
+     * Check that at least count bytes remain in the stream so a corrupt
+     * length does not cause a large allocation. Lengths can not be checked
+     * if the length of the stream is not known.
+     *
+     * @param count the number of bytes.
+     * @throws StreamCorruptedException if fewer than count bytes remain.
+     */
+    private void checkRemaining( final long count )
+        throws StreamCorruptedException
+    {
+        final long available = m_limit - m_position;
+        if( count > available && count - available > m_remaining )
+        {
+            final String message =
+                "Length " + count + " exceeds the " + ( available + m_remaining ) + " bytes remaining";
+            throw new StreamCorruptedException( message );
+        }
+    }
+
+    private void readFully( final byte[] bytes )
+        throws IOException
+    {
+        int offset = 0;
+        while( offset < bytes.length )
+        {
+            if( m_position == m_limit )
+            {
+                fill();
+            }
+            final int count = Math.min( bytes.length - offset, m_limit - m_position );
+            System.arraycopy( m_buffer, m_position, bytes, offset, count );
+            m_position += count;
+            offset += count;
+        }
+    }
+
+    private int readByte()
+        throws IOException
+    {
+        if( m_position == m_limit )
+        {
+            fill();
+        }
+        return m_buffer[m_position++] & 0xFF;
+    }
+
+    private void fill()
+        throws IOException
+    {
+        final int count = m_in.read( m_buffer, 0, (int)Math.min( BUFFER_SIZE, m_remaining ) );
+        if( count <= 0 )
+        {
+            throw new EOFException();
+        }
+        if( Long.MAX_VALUE != m_remaining )
+        {
+            m_remaining -= count;
+        }
+        m_position = 0;
+        m_limit = count;
+    }
+
+    private static StreamCorruptedException corrupt( final Exception cause )
+    {
+        final StreamCorruptedException exception = new StreamCorruptedException( cause.getMessage() );
+        exception.initCause( cause );
+        return exception;
+    }
+}
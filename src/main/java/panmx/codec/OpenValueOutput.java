@@ -0,0 +1,685 @@
+package panmx.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularType;
+
+/**
+ * Writes open values in the encoding described by {@link OpenValueCodec}.
+ * Types and strings written to the stream are remembered so that later
+ * values refer to them by index. Output is buffered so {@link #flush()}
+ * must be invoked once the values have been written.
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class OpenValueOutput
+    implements Flushable
+{
+    /** The size of the output buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream m_out;
+    private final byte[] m_buffer = new byte[BUFFER_SIZE];
+    private int m_position;
+    /** The types written keyed by identity. Converters reuse types so most lookups hit this map. */
+    private final IdentityHashMap<OpenType, TypeEntry> m_typesByIdentity =
+        new IdentityHashMap<OpenType, TypeEntry>();
+    /** The types written keyed by equality. */
+    private final HashMap<OpenType, TypeEntry> m_types = new HashMap<OpenType, TypeEntry>();
+    /** The index of each string in the dictionary. */
+    private final HashMap<String, Integer> m_strings = new HashMap<String, Integer>();
+    /** The values to be serialized by the enclosing stream or null to serialize values inline. */
+    private final List<Object> m_objects;
+
+    public OpenValueOutput( final OutputStream out )
+    {
+        this( out, null );
+    }
+
+    /**
+     * Create an output that leaves values that are not open values to the
+     * enclosing stream. Such values are added to objects in the order they
+     * are written and the caller must serialize them after the encoding.
+     *
+     * @param out the stream to write the encoding to.
+     * @param objects the list to add values that are not open values to.
+     */
+    OpenValueOutput( final OutputStream out, final List<Object> objects )
+    {
+        if( null == out )
+        {
+            throw new NullPointerException( "out" );
+        }
+        m_out = out;
+        m_objects = objects;
+    }
+
+    /**
+     * Write value to the stream.
+     *
+     * @param value the value.
+     * @throws IOException if an I/O error occurs or value can not be encoded.
+     */
+    public void writeObject( final Object value )
+        throws IOException
+    {
+        if( null == value )
+        {
+            writeByte( OpenValueCodec.TAG_NULL );
+        }
+        else if( value instanceof CompositeData )
+        {
+            final CompositeData data = (CompositeData)value;
+            writeByte( OpenValueCodec.TAG_COMPOSITE );
+            final TypeEntry entry = writeType( data.getCompositeType() );
+            writeItems( data, entry.m_items );
+        }
+        else if( value instanceof TabularData )
+        {
+            final TabularData data = (TabularData)value;
+            writeByte( OpenValueCodec.TAG_TABULAR );
+            final TypeEntry entry = writeType( data.getTabularType() );
+            final Collection<?> rows = data.values();
+            writeVarint( rows.size() );
+            for( final Object row : rows )
+            {
+                writeItems( (CompositeData)row, entry.m_items );
+            }
+        }
+        else if( value.getClass().isArray() )
+        {
+            writeArray( value );
+        }
+        else
+        {
+            final int code = OpenValueCodec.getCode( value.getClass(), OpenValueCodec.COMPONENT_TYPES );
+            if( code >= OpenValueCodec.BOOLEAN && code <= OpenValueCodec.OBJECTNAME )
+            {
+                writeByte( code );
+                writeSimple( code, value );
+            }
+            else
+            {
+                writeSerialized( value );
+            }
+        }
+    }
+
+    /**
+     * Write any buffered output to the underlying stream and flush it.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void flush()
+        throws IOException
+    {
+        drain();
+        m_out.flush();
+    }
+
+    private void writeItems( final CompositeData data, final String[] items )
+        throws IOException
+    {
+        for( final Object item : data.getAll( items ) )
+        {
+            writeObject( item );
+        }
+    }
+
+    private void writeSimple( final int code, final Object value )
+        throws IOException
+    {
+        switch( code )
+        {
+            case OpenValueCodec.BOOLEAN:
+                writeByte( ( (Boolean)value ) ? 1 : 0 );
+                break;
+            case OpenValueCodec.CHARACTER:
+                writeVarint( (Character)value );
+                break;
+            case OpenValueCodec.BYTE:
+                writeByte( (Byte)value );
+                break;
+            case OpenValueCodec.SHORT:
+                writeVarint( zigzag( (Short)value ) );
+                break;
+            case OpenValueCodec.INTEGER:
+                writeVarint( zigzag( (Integer)value ) );
+                break;
+            case OpenValueCodec.LONG:
+                writeVarlong( zigzag( (Long)value ) );
+                break;
+            case OpenValueCodec.FLOAT:
+                writeFixed( Float.floatToIntBits( (Float)value ), 4 );
+                break;
+            case OpenValueCodec.DOUBLE:
+                writeFixed( Double.doubleToLongBits( (Double)value ), 8 );
+                break;
+            case OpenValueCodec.STRING:
+                writeString( (String)value );
+                break;
+            case OpenValueCodec.BIGDECIMAL:
+                final BigDecimal decimal = (BigDecimal)value;
+                writeBytes( decimal.unscaledValue().toByteArray() );
+                writeVarint( zigzag( decimal.scale() ) );
+                break;
+            case OpenValueCodec.BIGINTEGER:
+                writeBytes( ( (BigInteger)value ).toByteArray() );
+                break;
+            case OpenValueCodec.DATE:
+                writeVarlong( zigzag( ( (Date)value ).getTime() ) );
+                break;
+            default:
+                writeString( value.toString() );
+                break;
+        }
+    }
+
+    /**
+     * Write an array. Arrays of primitives and one dimensional arrays of
+     * numbers, characters or booleans without null elements are written in
+     * bulk. Arrays of other open values write each element. Arrays of any
+     * other type are serialized.
+     */
+    private void writeArray( final Object value )
+        throws IOException
+    {
+        final Class type = value.getClass().getComponentType();
+        if( type.isPrimitive() )
+        {
+            final int code = OpenValueCodec.getCode( type, OpenValueCodec.PRIMITIVE_TYPES );
+            writeByte( OpenValueCodec.TAG_PACKED_ARRAY );
+            writeByte( code | OpenValueCodec.PRIMITIVE );
+            writePacked( code, value, true );
+            return;
+        }
+        int dimensions = 1;
+        Class component = type;
+        while( component.isArray() )
+        {
+            dimensions++;
+            component = component.getComponentType();
+        }
+        final int code = OpenValueCodec.getCode( component, OpenValueCodec.COMPONENT_TYPES );
+        if( -1 == code )
+        {
+            writeSerialized( value );
+            return;
+        }
+        final Object[] array = (Object[])value;
+        if( 1 == dimensions && code <= OpenValueCodec.DOUBLE && !containsNull( array ) )
+        {
+            writeByte( OpenValueCodec.TAG_PACKED_ARRAY );
+            writeByte( code );
+            writePacked( code, array, false );
+        }
+        else
+        {
+            writeByte( OpenValueCodec.TAG_ARRAY );
+            writeByte( code );
+            writeVarint( dimensions );
+            writeVarint( array.length );
+            for( final Object element : array )
+            {
+                writeObject( element );
+            }
+        }
+    }
+
+    private static boolean containsNull( final Object[] array )
+    {
+        for( final Object element : array )
+        {
+            if( null == element )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the length and elements of an array of primitives or their wrappers.
+     *
+     * @param code the code of the component type.
+     * @param value the array.
+     * @param primitive true if the array is an array of primitives.
+     */
+    private void writePacked( final int code, final Object value, final boolean primitive )
+        throws IOException
+    {
+        switch( code )
+        {
+            case OpenValueCodec.BOOLEAN:
+                final boolean[] booleans = primitive ? (boolean[])value : unbox( (Boolean[])value );
+                writeVarint( booleans.length );
+                for( int i = 0; i < booleans.length; i += 8 )
+                {
+                    int bits = 0;
+                    for( int j = i; j < booleans.length && j < i + 8; j++ )
+                    {
+                        bits |= booleans[j] ? 1 << ( j - i ) : 0;
+                    }
+                    writeByte( bits );
+                }
+                break;
+            case OpenValueCodec.CHARACTER:
+                if( primitive )
+                {
+                    final char[] chars = (char[])value;
+                    writeVarint( chars.length );
+                    for( final char c : chars )
+                    {
+                        writeVarint( c );
+                    }
+                }
+                else
+                {
+                    final Character[] chars = (Character[])value;
+                    writeVarint( chars.length );
+                    for( final Character c : chars )
+                    {
+                        writeVarint( c );
+                    }
+                }
+                break;
+            case OpenValueCodec.BYTE:
+                writeBytes( primitive ? (byte[])value : unbox( (Byte[])value ) );
+                break;
+            case OpenValueCodec.SHORT:
+                if( primitive )
+                {
+                    final short[] shorts = (short[])value;
+                    writeVarint( shorts.length );
+                    for( final short s : shorts )
+                    {
+                        writeVarint( zigzag( s ) );
+                    }
+                }
+                else
+                {
+                    final Short[] shorts = (Short[])value;
+                    writeVarint( shorts.length );
+                    for( final Short s : shorts )
+                    {
+                        writeVarint( zigzag( s ) );
+                    }
+                }
+                break;
+            case OpenValueCodec.INTEGER:
+                if( primitive )
+                {
+                    final int[] ints = (int[])value;
+                    writeVarint( ints.length );
+                    for( final int i : ints )
+                    {
+                        writeVarint( zigzag( i ) );
+                    }
+                }
+                else
+                {
+                    final Integer[] ints = (Integer[])value;
+                    writeVarint( ints.length );
+                    for( final Integer i : ints )
+                    {
+                        writeVarint( zigzag( i ) );
+                    }
+                }
+                break;
+            case OpenValueCodec.LONG:
+                if( primitive )
+                {
+                    final long[] longs = (long[])value;
+                    writeVarint( longs.length );
+                    for( final long l : longs )
+                    {
+                        writeVarlong( zigzag( l ) );
+                    }
+                }
+                else
+                {
+                    final Long[] longs = (Long[])value;
+                    writeVarint( longs.length );
+                    for( final Long l : longs )
+                    {
+                        writeVarlong( zigzag( l ) );
+                    }
+                }
+                break;
+            case OpenValueCodec.FLOAT:
+                if( primitive )
+                {
+                    final float[] floats = (float[])value;
+                    writeVarint( floats.length );
+                    for( final float f : floats )
+                    {
+                        writeFixed( Float.floatToIntBits( f ), 4 );
+                    }
+                }
+                else
+                {
+                    final Float[] floats = (Float[])value;
+                    writeVarint( floats.length );
+                    for( final Float f : floats )
+                    {
+                        writeFixed( Float.floatToIntBits( f ), 4 );
+                    }
+                }
+                break;
+            default:
+                if( primitive )
+                {
+                    final double[] doubles = (double[])value;
+                    writeVarint( doubles.length );
+                    for( final double d : doubles )
+                    {
+                        writeFixed( Double.doubleToLongBits( d ), 8 );
+                    }
+                }
+                else
+                {
+                    final Double[] doubles = (Double[])value;
+                    writeVarint( doubles.length );
+                    for( final Double d : doubles )
+                    {
+                        writeFixed( Double.doubleToLongBits( d ), 8 );
+                    }
+                }
+                break;
+        }
+    }
+
+    private static boolean[] unbox( final Boolean[] values )
+    {
+        final boolean[] results = new boolean[values.length];
+        for( int i = 0; i < values.length; i++ )
+        {
+            results[i] = values[i];
+        }
+        return results;
+    }
+
+    private static byte[] unbox( final Byte[] values )
+    {
+        final byte[] results = new byte[values.length];
+        for( int i = 0; i < values.length; i++ )
+        {
+            results[i] = values[i];
+        }
+        return results;
+    }
+
+    private void writeSerialized( final Object value )
+        throws IOException
+    {
+        if( null != m_objects )
+        {
+            writeByte( OpenValueCodec.TAG_OBJECT );
+            m_objects.add( value );
+            return;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( value );
+        output.close();
+        writeByte( OpenValueCodec.TAG_SERIALIZED );
+        writeBytes( bytes.toByteArray() );
+    }
+
+    /**
+     * Write a reference to type, writing the definition of type if it has
+     * not previously been written to the stream. Definitions are written
+     * depth first so a type is assigned its index after the types it refers to.
+     *
+     * @param type the type.
+     * @return the entry for type.
+     */
+    private TypeEntry writeType( final OpenType type )
+        throws IOException
+    {
+        TypeEntry entry = m_typesByIdentity.get( type );
+        if( null == entry )
+        {
+            entry = m_types.get( type );
+            if( null != entry )
+            {
+                m_typesByIdentity.put( type, entry );
+            }
+        }
+        if( null != entry )
+        {
+            writeVarint( entry.m_index + 1 );
+            return entry;
+        }
+        writeVarint( 0 );
+        String[] items = null;
+        if( type instanceof SimpleType )
+        {
+            writeByte( OpenValueCodec.KIND_SIMPLE );
+            writeByte( getSimpleCode( type ) );
+        }
+        else if( type instanceof ArrayType )
+        {
+            final ArrayType arrayType = (ArrayType)type;
+            writeByte( OpenValueCodec.KIND_ARRAY );
+            writeVarint( arrayType.getDimension() );
+            writeType( arrayType.getElementOpenType() );
+            writeByte( arrayType.getClassName().endsWith( ";" ) ? 0 : 1 );
+        }
+        else if( type instanceof CompositeType )
+        {
+            final CompositeType compositeType = (CompositeType)type;
+            writeByte( OpenValueCodec.KIND_COMPOSITE );
+            writeString( compositeType.getTypeName() );
+            writeString( compositeType.getDescription() );
+            final Set<String> keys = compositeType.keySet();
+            items = keys.toArray( new String[keys.size()] );
+            writeVarint( items.length );
+            for( final String item : items )
+            {
+                writeString( item );
+                writeString( compositeType.getDescription( item ) );
+                writeType( compositeType.getType( item ) );
+            }
+        }
+        else if( type instanceof TabularType )
+        {
+            final TabularType tabularType = (TabularType)type;
+            writeByte( OpenValueCodec.KIND_TABULAR );
+            writeString( tabularType.getTypeName() );
+            writeString( tabularType.getDescription() );
+            items = writeType( tabularType.getRowType() ).m_items;
+            final List<String> indexNames = tabularType.getIndexNames();
+            writeVarint( indexNames.size() );
+            for( final String indexName : indexNames )
+            {
+                writeString( indexName );
+            }
+        }
+        else
+        {
+            throw new NotSerializableException( "Unsupported OpenType " + type );
+        }
+        entry = new TypeEntry( m_types.size(), items );
+        m_types.put( type, entry );
+        m_typesByIdentity.put( type, entry );
+        return entry;
+    }
+
+    private static int getSimpleCode( final OpenType type )
+        throws IOException
+    {
+        for( int i = 0; i < OpenValueCodec.SIMPLE_TYPES.length; i++ )
+        {
+            if( OpenValueCodec.SIMPLE_TYPES[i].equals( type ) )
+            {
+                return i;
+            }
+        }
+        throw new NotSerializableException( "Unsupported SimpleType " + type );
+    }
+
+    /**
+     * Write a reference to string, writing the characters of string if it
+     * is not in the dictionary. Short strings are added to the dictionary
+     * until it is full.
+     */
+    private void writeString( final String value )
+        throws IOException
+    {
+        final boolean dictionary = value.length() <= OpenValueCodec.MAX_STRING_LENGTH;
+        if( dictionary )
+        {
+            final Integer index = m_strings.get( value );
+            if( null != index )
+            {
+                writeVarint( index + 1 );
+                return;
+            }
+        }
+        writeVarint( 0 );
+        writeUTF( value );
+        if( dictionary && m_strings.size() < OpenValueCodec.MAX_STRINGS )
+        {
+            m_strings.put( value, m_strings.size() );
+        }
+    }
+
+    private void writeUTF( final String value )
+        throws IOException
+    {
+        final int length = value.length();
+        for( int i = 0; i < length; i++ )
+        {
+            if( value.charAt( i ) >= 0x80 )
+            {
+                writeBytes( value.getBytes( "UTF-8" ) );
+                return;
+            }
+        }
+        writeVarint( length );
+        for( int i = 0; i < length; i++ )
+        {
+            writeByte( value.charAt( i ) );
+        }
+    }
+
+    private static int zigzag( final int value )
+    {
+        return ( value << 1 ) ^ ( value >> 31 );
+    }
+
+    private static long zigzag( final long value )
+    {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+    private void writeVarint( final int value )
+        throws IOException
+    {
+        int remaining = value;
+        while( 0 != ( remaining & ~0x7F ) )
+        {
+            writeByte( ( remaining & 0x7F ) | 0x80 );
+            remaining >>>= 7;
+        }
+        writeByte( remaining );
+    }
+
+    private void writeVarlong( final long value )
+        throws IOException
+    {
+        long remaining = value;
+        while( 0 != ( remaining & ~0x7FL ) )
+        {
+            writeByte( (int)( remaining & 0x7F ) | 0x80 );
+            remaining >>>= 7;
+        }
+        writeByte( (int)remaining );
+    }
+
+    /**
+     * Write the low order bytes of value, most significant first.
+     *
+     * @param value the value.
+     * @param size the number of bytes to write.
+     */
+    private void writeFixed( final long value, final int size )
+        throws IOException
+    {
+        for( int shift = ( size - 1 ) * 8; shift >= 0; shift -= 8 )
+        {
+            writeByte( (int)( value >>> shift ) );
+        }
+    }
+
+    private void writeBytes( final byte[] bytes )
+        throws IOException
+    {
+        writeVarint( bytes.length );
+        if( bytes.length > BUFFER_SIZE - m_position )
+        {
+            drain();
+            m_out.write( bytes );
+        }
+        else
+        {
+            System.arraycopy( bytes, 0, m_buffer, m_position, bytes.length );
+            m_position += bytes.length;
+        }
+    }
+
+    private void writeByte( final int value )
+        throws IOException
+    {
+        if( BUFFER_SIZE == m_position )
+        {
+            drain();
+        }
+        m_buffer[m_position++] = (byte)value;
+    }
+
+    private void drain()
+        throws IOException
+    {
+        if( 0 != m_position )
+        {
+            m_out.write( m_buffer, 0, m_position );
+            m_position = 0;
+        }
+    }
+
+    /**
+     * The index of a type in the dictionary and the items of composite
+     * values of the type or the rows of tabular values of the type.
+     */
+    private static final class TypeEntry
+    {
+        final int m_index;
+        final String[] m_items;
+
+        TypeEntry( final int index, final String[] items )
+        {
+            m_index = index;
+            m_items = items;
+        }
+    }
+}
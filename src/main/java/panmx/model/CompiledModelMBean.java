@@ -0,0 +1,1167 @@
+package panmx.model;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
+import javax.management.AttributeChangeNotificationFilter;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.Descriptor;
+import javax.management.InstanceNotFoundException;
+import javax.management.InvalidAttributeValueException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanRegistration;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.RuntimeErrorException;
+import javax.management.RuntimeOperationsException;
+import javax.management.ServiceNotFoundException;
+import javax.management.modelmbean.InvalidTargetObjectTypeException;
+import javax.management.modelmbean.ModelMBean;
+import javax.management.modelmbean.ModelMBeanAttributeInfo;
+import javax.management.modelmbean.ModelMBeanInfo;
+import panmx.stats.BeanStatistics;
+import panmx.stats.MemberStatistics;
+import panmx.stats.Statistics;
+import panmx.util.BeanUtil;
+import panmx.util.Invoker;
+import panmx.util.InvokerFactory;
+
+/**
+ * ModelMBean that compiles the ModelMBeanInfo into direct dispatch tables.
+ *
+ * <p>RequiredModelMBean consults descriptors and resolves the target method
+ * reflectively on every request. This implementation resolves the
+ * "getMethod" and "setMethod" descriptor fields and the operations when the
+ * managed resource or the ModelMBeanInfo is set and dispatches through a
+ * generated {@link Invoker} where possible. Attribute values are cached
+ * according to the "currencyTimeLimit" descriptor field (in seconds) of the
+ * attribute or, if absent, of the MBean. As for RequiredModelMBean, a
+ * negative value means that values are never cached and 0 means that a
+ * cached value never expires. Cached values are held in immutable
+ * timestamped holders so reads never lock.</p>
+ *
+ * <p>If {@link Statistics} are enabled when the managed resource is set,
+ * each invocation of the managed resource is recorded in the statistics
+ * for the class named by the ModelMBeanInfo.</p>
+ *
+ * <p>Operations are always invoked on the managed resource. The
+ * "targetObject" descriptor field, operation caching and persistence are
+ * not supported.</p>
+ */
+final class CompiledModelMBean
+    implements ModelMBean, MBeanRegistration
+{
+    /** The only supported type of managed resource. */
+    private static final String OBJECT_REF_TYPE = "ObjectReference";
+    /** The type of notifications sent by {@link #sendNotification(String)}. */
+    private static final String GENERIC_TYPE = "jmx.modelmbean.generic";
+    /** Field name for accessor in attribute descriptor. */
+    private static final String GET_METHOD_FIELD = "getMethod";
+    /** Field name for mutator in attribute descriptor. */
+    private static final String SET_METHOD_FIELD = "setMethod";
+    /** Field name for the time in seconds for which attribute values may be cached. */
+    private static final String CURRENCY_TIME_LIMIT_FIELD = "currencyTimeLimit";
+    /** Field name for the value of an attribute without an accessor. */
+    private static final String VALUE_FIELD = "value";
+    /** Field name for the default value of an attribute without an accessor. */
+    private static final String DEFAULT_FIELD = "default";
+    /** Cache time limit indicating that values are never cached. */
+    private static final long NEVER_CACHE = 0;
+    /** Cache time limit indicating that values never expire. */
+    private static final long CACHE_FOREVER = Long.MAX_VALUE;
+    /** Logger used to report attributes that could not be accessed in bulk operations. */
+    private static final Logger LOGGER = Logger.getLogger( CompiledModelMBean.class.getName() );
+
+    /** Support for sending notifications. */
+    private final NotificationBroadcasterSupport m_broadcaster = new NotificationBroadcasterSupport();
+    /**
+     * The ModelMBeanInfo passed to the constructor. This bean works on a
+     * copy so this reference only keeps a shared (cached) instance alive.
+     */
+    private final ModelMBeanInfo m_sharedInfo;
+    /** The ModelMBeanInfo. */
+    private ModelMBeanInfo m_info;
+    /** The managed resource. */
+    private Object m_resource;
+    /** The compiled dispatch tables. Null until managed resource is set. */
+    private volatile Dispatcher m_dispatcher;
+    /** Flag indicating whether bean is registered in an MBeanServer. */
+    private volatile boolean m_registered;
+    /** Flag set once a listener is added so attribute change notifications are only created when needed. */
+    private volatile boolean m_listenerAdded;
+    /**
+     * The listeners added through {@link #addAttributeChangeNotificationListener}
+     * so that they can be removed by attribute name. Guarded by itself.
+     */
+    private final ArrayList<AttributeListener> m_attributeListeners = new ArrayList<AttributeListener>();
+
+    CompiledModelMBean( final ModelMBeanInfo info )
+        throws MBeanException, RuntimeOperationsException
+    {
+        m_sharedInfo = info;
+        setModelMBeanInfo( info );
+    }
+
+    public synchronized void setModelMBeanInfo( final ModelMBeanInfo info )
+        throws MBeanException, RuntimeOperationsException
+    {
+        if( null == info )
+        {
+            final String message = "ModelMBeanInfo must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        if( m_registered )
+        {
+            final String message = "ModelMBeanInfo can not be set while ModelMBean is registered.";
+            throw new RuntimeOperationsException( new IllegalStateException( message ), message );
+        }
+        m_info = (ModelMBeanInfo)info.clone();
+        compile();
+    }
+
+    public synchronized void setManagedResource( final Object resource, final String type )
+        throws MBeanException, RuntimeOperationsException,
+               InstanceNotFoundException, InvalidTargetObjectTypeException
+    {
+        if( null == resource )
+        {
+            final String message = "Managed resource must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        if( !OBJECT_REF_TYPE.equalsIgnoreCase( type ) )
+        {
+            throw new InvalidTargetObjectTypeException( type );
+        }
+        m_resource = resource;
+        compile();
+    }
+
+    public Object getAttribute( final String name )
+        throws AttributeNotFoundException, MBeanException, ReflectionException
+    {
+        if( null == name )
+        {
+            final String message = "Attribute name must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final Dispatcher dispatcher = getDispatcher();
+        return getAttributeTarget( dispatcher, name ).get( dispatcher );
+    }
+
+    public AttributeList getAttributes( final String[] names )
+    {
+        if( null == names )
+        {
+            final String message = "Attribute names must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final AttributeList results = new AttributeList( names.length );
+        for( final String name : names )
+        {
+            try
+            {
+                results.add( new Attribute( name, getAttribute( name ) ) );
+            }
+            catch( final Exception e )
+            {
+                //Attributes that can not be read are omitted
+                reportFailure( "get", name, e );
+            }
+        }
+        return results;
+    }
+
+    public void setAttribute( final Attribute attribute )
+        throws AttributeNotFoundException, InvalidAttributeValueException,
+               MBeanException, ReflectionException
+    {
+        if( null == attribute )
+        {
+            final String message = "Attribute must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final Dispatcher dispatcher = getDispatcher();
+        final AttributeTarget target = getAttributeTarget( dispatcher, attribute.getName() );
+        Object oldValue = null;
+        if( m_listenerAdded && target.m_readable )
+        {
+            try
+            {
+                oldValue = target.get( dispatcher );
+            }
+            catch( final Exception e )
+            {
+                //Old value is unknown
+            }
+        }
+        target.set( dispatcher, attribute.getValue() );
+        if( m_listenerAdded )
+        {
+            sendAttributeChangeNotification( new Attribute( attribute.getName(), oldValue ), attribute );
+        }
+    }
+
+    public AttributeList setAttributes( final AttributeList attributes )
+    {
+        if( null == attributes )
+        {
+            final String message = "Attributes must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final AttributeList results = new AttributeList( attributes.size() );
+        for( final Object element : attributes )
+        {
+            final Attribute attribute = (Attribute)element;
+            try
+            {
+                setAttribute( attribute );
+                results.add( attribute );
+            }
+            catch( final Exception e )
+            {
+                //Attributes that can not be set are omitted
+                reportFailure( "set", null == attribute ? null : attribute.getName(), e );
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Report an attribute that could not be accessed in a bulk operation.
+     * The JMX specification requires such attributes to be omitted from the
+     * result so the reason is logged instead.
+     *
+     * @param action the action that failed.
+     * @param name the name of the attribute.
+     * @param e the reason for failure.
+     */
+    private void reportFailure( final String action, final String name, final Exception e )
+    {
+        if( LOGGER.isLoggable( Level.FINE ) )
+        {
+            final String message;
+            synchronized( this )
+            {
+                message = "Unable to " + action + " attribute " + name + " of " + m_info.getClassName();
+            }
+            LOGGER.log( Level.FINE, message, e );
+        }
+    }
+
+    public Object invoke( final String actionName, final Object[] params, final String[] signature )
+        throws MBeanException, ReflectionException
+    {
+        if( null == actionName )
+        {
+            final String message = "Action name must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final Dispatcher dispatcher = getDispatcher();
+        final OperationTarget[] candidates = dispatcher.m_operations.get( actionName );
+        if( null == candidates )
+        {
+            final String message = "Operation " + actionName + " not in ModelMBeanInfo.";
+            throw new MBeanException( new ServiceNotFoundException( message ), message );
+        }
+        for( final OperationTarget candidate : candidates )
+        {
+            if( candidate.matches( signature ) )
+            {
+                if( -1 == candidate.m_index )
+                {
+                    final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
+                    throw new ReflectionException( new NoSuchMethodException( name ) );
+                }
+                return dispatcher.invoke( candidate.m_index, params, candidate.m_statistics );
+            }
+        }
+        final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
+        throw new ReflectionException( new NoSuchMethodException( name ) );
+    }
+
+    public MBeanInfo getMBeanInfo()
+    {
+        synchronized( this )
+        {
+            return (MBeanInfo)m_info.clone();
+        }
+    }
+
+    public void load()
+        throws MBeanException, RuntimeOperationsException, InstanceNotFoundException
+    {
+        throw new MBeanException( new ServiceNotFoundException( "Persistence not supported." ) );
+    }
+
+    public void store()
+        throws MBeanException, RuntimeOperationsException, InstanceNotFoundException
+    {
+        throw new MBeanException( new ServiceNotFoundException( "Persistence not supported." ) );
+    }
+
+    public void sendNotification( final Notification notification )
+        throws MBeanException, RuntimeOperationsException
+    {
+        if( null == notification )
+        {
+            final String message = "Notification must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        m_broadcaster.sendNotification( notification );
+    }
+
+    public void sendNotification( final String text )
+        throws MBeanException, RuntimeOperationsException
+    {
+        if( null == text )
+        {
+            final String message = "Notification text must not be null.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        sendNotification( new Notification( GENERIC_TYPE, this, 1, text ) );
+    }
+
+    public void sendAttributeChangeNotification( final AttributeChangeNotification notification )
+        throws MBeanException, RuntimeOperationsException
+    {
+        sendNotification( notification );
+    }
+
+    public void sendAttributeChangeNotification( final Attribute oldValue, final Attribute newValue )
+        throws MBeanException, RuntimeOperationsException
+    {
+        if( null == oldValue || null == newValue || !oldValue.getName().equals( newValue.getName() ) )
+        {
+            final String message = "Attributes must not be null and must have the same name.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final String name = newValue.getName();
+        final MBeanAttributeInfo attribute = getAttributeInfo( name );
+        final String type;
+        if( null != attribute )
+        {
+            type = attribute.getType();
+        }
+        else if( null != newValue.getValue() )
+        {
+            type = newValue.getValue().getClass().getName();
+        }
+        else
+        {
+            type = Object.class.getName();
+        }
+        final AttributeChangeNotification notification =
+            new AttributeChangeNotification( this,
+                                             1,
+                                             System.currentTimeMillis(),
+                                             "AttributeChangeDetected",
+                                             name,
+                                             type,
+                                             oldValue.getValue(),
+                                             newValue.getValue() );
+        sendAttributeChangeNotification( notification );
+    }
+
+    public void addAttributeChangeNotificationListener( final NotificationListener listener,
+                                                        final String name,
+                                                        final Object handback )
+        throws MBeanException, RuntimeOperationsException, IllegalArgumentException
+    {
+        if( null == listener )
+        {
+            throw new IllegalArgumentException( "Listener must not be null." );
+        }
+        final AttributeChangeNotificationFilter filter = new AttributeChangeNotificationFilter();
+        if( null == name )
+        {
+            synchronized( this )
+            {
+                for( final MBeanAttributeInfo attribute : m_info.getAttributes() )
+                {
+                    filter.enableAttribute( attribute.getName() );
+                }
+            }
+        }
+        else if( null == getAttributeInfo( name ) )
+        {
+            final String message = "Attribute " + name + " not in ModelMBeanInfo.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        else
+        {
+            filter.enableAttribute( name );
+        }
+        addNotificationListener( listener, filter, handback );
+        synchronized( m_attributeListeners )
+        {
+            m_attributeListeners.add( new AttributeListener( listener, name, filter, handback ) );
+        }
+    }
+
+    public void removeAttributeChangeNotificationListener( final NotificationListener listener,
+                                                           final String name )
+        throws MBeanException, RuntimeOperationsException, ListenerNotFoundException
+    {
+        if( null == listener )
+        {
+            throw new ListenerNotFoundException( "Listener must not be null." );
+        }
+        if( null == name )
+        {
+            removeNotificationListener( listener );
+            return;
+        }
+        if( null == getAttributeInfo( name ) )
+        {
+            final String message = "Attribute " + name + " not in ModelMBeanInfo.";
+            throw new RuntimeOperationsException( new IllegalArgumentException( message ), message );
+        }
+        final ArrayList<AttributeListener> removed = new ArrayList<AttributeListener>();
+        synchronized( m_attributeListeners )
+        {
+            final Iterator<AttributeListener> iterator = m_attributeListeners.iterator();
+            while( iterator.hasNext() )
+            {
+                final AttributeListener candidate = iterator.next();
+                if( candidate.m_listener == listener && name.equals( candidate.m_name ) )
+                {
+                    iterator.remove();
+                    removed.add( candidate );
+                }
+            }
+        }
+        if( removed.isEmpty() )
+        {
+            throw new ListenerNotFoundException( "Listener not registered for attribute " + name + "." );
+        }
+        for( final AttributeListener candidate : removed )
+        {
+            m_broadcaster.removeNotificationListener( listener, candidate.m_filter, candidate.m_handback );
+        }
+    }
+
+    public void addNotificationListener( final NotificationListener listener,
+                                         final NotificationFilter filter,
+                                         final Object handback )
+        throws IllegalArgumentException
+    {
+        m_broadcaster.addNotificationListener( listener, filter, handback );
+        m_listenerAdded = true;
+    }
+
+    public void removeNotificationListener( final NotificationListener listener )
+        throws ListenerNotFoundException
+    {
+        m_broadcaster.removeNotificationListener( listener );
+        synchronized( m_attributeListeners )
+        {
+            final Iterator<AttributeListener> iterator = m_attributeListeners.iterator();
+            while( iterator.hasNext() )
+            {
+                if( iterator.next().m_listener == listener )
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public MBeanNotificationInfo[] getNotificationInfo()
+    {
+        final MBeanNotificationInfo[] notifications;
+        synchronized( this )
+        {
+            notifications = m_info.getNotifications();
+        }
+        boolean hasGeneric = false;
+        boolean hasAttributeChange = false;
+        for( final MBeanNotificationInfo notification : notifications )
+        {
+            for( final String type : notification.getNotifTypes() )
+            {
+                hasGeneric |= GENERIC_TYPE.equals( type );
+                hasAttributeChange |= AttributeChangeNotification.ATTRIBUTE_CHANGE.equals( type );
+            }
+        }
+        final ArrayList<MBeanNotificationInfo> results = new ArrayList<MBeanNotificationInfo>();
+        for( final MBeanNotificationInfo notification : notifications )
+        {
+            results.add( notification );
+        }
+        if( !hasGeneric )
+        {
+            results.add( new MBeanNotificationInfo( new String[]{GENERIC_TYPE},
+                                                    Notification.class.getName(),
+                                                    "A text notification has been issued by the managed resource" ) );
+        }
+        if( !hasAttributeChange )
+        {
+            results.add( new MBeanNotificationInfo( new String[]{AttributeChangeNotification.ATTRIBUTE_CHANGE},
+                                                    AttributeChangeNotification.class.getName(),
+                                                    "Signifies a change in the value of an attribute" ) );
+        }
+        return results.toArray( new MBeanNotificationInfo[results.size()] );
+    }
+
+    public ObjectName preRegister( final MBeanServer server, final ObjectName name )
+        throws Exception
+    {
+        if( null == name )
+        {
+            throw new NullPointerException( "name" );
+        }
+        final Object resource = getResource();
+        if( resource instanceof MBeanRegistration )
+        {
+            return ( (MBeanRegistration)resource ).preRegister( server, name );
+        }
+        return name;
+    }
+
+    public void postRegister( final Boolean registrationDone )
+    {
+        m_registered = registrationDone.booleanValue();
+        final Object resource = getResource();
+        if( resource instanceof MBeanRegistration )
+        {
+            ( (MBeanRegistration)resource ).postRegister( registrationDone );
+        }
+    }
+
+    public void preDeregister()
+        throws Exception
+    {
+        final Object resource = getResource();
+        if( resource instanceof MBeanRegistration )
+        {
+            ( (MBeanRegistration)resource ).preDeregister();
+        }
+    }
+
+    public void postDeregister()
+    {
+        final Object resource = getResource();
+        if( resource instanceof MBeanRegistration )
+        {
+            ( (MBeanRegistration)resource ).postDeregister();
+        }
+        m_registered = false;
+    }
+
+    private synchronized Object getResource()
+    {
+        return m_resource;
+    }
+
+    private synchronized MBeanAttributeInfo getAttributeInfo( final String name )
+    {
+        for( final MBeanAttributeInfo attribute : m_info.getAttributes() )
+        {
+            if( attribute.getName().equals( name ) )
+            {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    private Dispatcher getDispatcher()
+    {
+        final Dispatcher dispatcher = m_dispatcher;
+        if( null == dispatcher )
+        {
+            final String message = "Managed resource has not been set.";
+            throw new RuntimeOperationsException( new IllegalStateException( message ), message );
+        }
+        return dispatcher;
+    }
+
+    private static AttributeTarget getAttributeTarget( final Dispatcher dispatcher, final String name )
+        throws AttributeNotFoundException
+    {
+        final AttributeTarget target = dispatcher.m_attributes.get( name );
+        if( null == target )
+        {
+            throw new AttributeNotFoundException( name );
+        }
+        return target;
+    }
+
+    /**
+     * Rebuild the dispatch tables from the ModelMBeanInfo and managed resource.
+     */
+    private void compile()
+        throws MBeanException
+    {
+        m_dispatcher = ( null != m_resource ) ? new Dispatcher( m_info, m_resource ) : null;
+    }
+
+    /**
+     * Return the cache time limit in nanoseconds specified by descriptor.
+     *
+     * @param descriptor the descriptor.
+     * @return the time limit, or null if not specified by descriptor.
+     */
+    private static Long getCurrencyTimeLimit( final Descriptor descriptor )
+    {
+        final Object value = ( null != descriptor ) ? descriptor.getFieldValue( CURRENCY_TIME_LIMIT_FIELD ) : null;
+        if( null == value )
+        {
+            return null;
+        }
+        final long seconds;
+        try
+        {
+            seconds = Long.parseLong( value.toString().trim() );
+        }
+        catch( final NumberFormatException nfe )
+        {
+            return null;
+        }
+        if( seconds < 0 )
+        {
+            return NEVER_CACHE;
+        }
+        else if( 0 == seconds || seconds >= TimeUnit.NANOSECONDS.toSeconds( CACHE_FOREVER ) )
+        {
+            return CACHE_FOREVER;
+        }
+        else
+        {
+            return TimeUnit.SECONDS.toNanos( seconds );
+        }
+    }
+
+    /**
+     * Return the wrapper type for a primitive type or the type itself.
+     *
+     * @param type the type.
+     * @return the boxed type.
+     */
+    private static Class<?> box( final Class<?> type )
+    {
+        if( !type.isPrimitive() )
+        {
+            return type;
+        }
+        else if( Boolean.TYPE == type )
+        {
+            return Boolean.class;
+        }
+        else if( Character.TYPE == type )
+        {
+            return Character.class;
+        }
+        else if( Byte.TYPE == type )
+        {
+            return Byte.class;
+        }
+        else if( Short.TYPE == type )
+        {
+            return Short.class;
+        }
+        else if( Integer.TYPE == type )
+        {
+            return Integer.class;
+        }
+        else if( Long.TYPE == type )
+        {
+            return Long.class;
+        }
+        else if( Float.TYPE == type )
+        {
+            return Float.class;
+        }
+        else if( Double.TYPE == type )
+        {
+            return Double.class;
+        }
+        else
+        {
+            return Void.class;
+        }
+    }
+
+    /**
+     * The dispatch tables compiled from a ModelMBeanInfo for a managed resource.
+     */
+    private static final class Dispatcher
+    {
+        /** The managed resource. */
+        final Object m_resource;
+        /** The resolved methods indexed by invoker index. */
+        final Method[] m_methods;
+        /** The generated invoker or null if generation was not possible. */
+        final Invoker m_invoker;
+        /** The attributes keyed by name. */
+        final Map<String, AttributeTarget> m_attributes = new HashMap<String, AttributeTarget>();
+        /** The operations grouped by name. */
+        final Map<String, OperationTarget[]> m_operations = new HashMap<String, OperationTarget[]>();
+
+        Dispatcher( final ModelMBeanInfo info, final Object resource )
+            throws MBeanException
+        {
+            m_resource = resource;
+            final Class<?> type = resource.getClass();
+            final BeanStatistics statistics = Statistics.getBeanStatistics( info.getClassName() );
+            final ArrayList<Method> methods = new ArrayList<Method>();
+
+            final HashMap<String, ArrayList<OperationTarget>> operations =
+                new HashMap<String, ArrayList<OperationTarget>>();
+            for( final MBeanOperationInfo operation : info.getOperations() )
+            {
+                final String name = operation.getName();
+                final String[] signature = getSignature( operation.getSignature() );
+                final Method method = findMethod( type, name, signature );
+                int index = -1;
+                if( null != method )
+                {
+                    index = methods.size();
+                    methods.add( method );
+                }
+                ArrayList<OperationTarget> group = operations.get( name );
+                if( null == group )
+                {
+                    group = new ArrayList<OperationTarget>();
+                    operations.put( name, group );
+                }
+                final MemberStatistics operationStatistics =
+                    getMember( statistics, "invoke ", BeanUtil.makeFullyQualifiedName( name, signature ), null != method );
+                group.add( new OperationTarget( signature, index, method, operationStatistics ) );
+            }
+            for( final Map.Entry<String, ArrayList<OperationTarget>> entry : operations.entrySet() )
+            {
+                final ArrayList<OperationTarget> group = entry.getValue();
+                m_operations.put( entry.getKey(), group.toArray( new OperationTarget[group.size()] ) );
+            }
+
+            final Long defaultTimeLimit = getCurrencyTimeLimit( getMBeanDescriptor( info ) );
+            for( final MBeanAttributeInfo attribute : info.getAttributes() )
+            {
+                final Descriptor descriptor =
+                    ( attribute instanceof ModelMBeanAttributeInfo ) ?
+                    ( (ModelMBeanAttributeInfo)attribute ).getDescriptor() :
+                    null;
+                final String getMethod = getStringField( descriptor, GET_METHOD_FIELD );
+                final String setMethod = getStringField( descriptor, SET_METHOD_FIELD );
+                final OperationTarget getter =
+                    ( null != getMethod ) ? findOperation( getMethod, new String[0] ) : null;
+                final OperationTarget setter =
+                    ( null != setMethod ) ? findOperation( setMethod, new String[]{attribute.getType()} ) : null;
+                final Class<?> setterType =
+                    ( null != setter && null != setter.m_method ) ? setter.m_method.getParameterTypes()[0] : null;
+                Long timeLimit = getCurrencyTimeLimit( descriptor );
+                if( null == timeLimit )
+                {
+                    timeLimit = defaultTimeLimit;
+                }
+                Object value = null;
+                if( null != descriptor )
+                {
+                    value = descriptor.getFieldValue( VALUE_FIELD );
+                    if( null == value )
+                    {
+                        value = descriptor.getFieldValue( DEFAULT_FIELD );
+                    }
+                }
+                final AttributeTarget target =
+                    new AttributeTarget( attribute.getName(),
+                                         attribute.isReadable(),
+                                         attribute.isWritable(),
+                                         getMethod,
+                                         ( null != getter ) ? getter.m_index : -1,
+                                         setMethod,
+                                         ( null != setter ) ? setter.m_index : -1,
+                                         ( null != setterType ) ? box( setterType ) : null,
+                                         null != setterType && setterType.isPrimitive(),
+                                         ( null != timeLimit ) ? timeLimit : NEVER_CACHE,
+                                         value,
+                                         getMember( statistics, "get ", attribute.getName(), null != getter ),
+                                         getMember( statistics, "set ", attribute.getName(), null != setter ) );
+                m_attributes.put( attribute.getName(), target );
+            }
+
+            m_methods = methods.toArray( new Method[methods.size()] );
+            m_invoker = InvokerFactory.createInvoker( type, m_methods );
+        }
+
+        /**
+         * Invoke method on the managed resource and record the call in statistics.
+         *
+         * @param index the index of method.
+         * @param args the arguments.
+         * @param statistics the statistics for the member invoked or null if statistics are not collected.
+         * @return the value returned by method.
+         */
+        Object invoke( final int index, final Object[] args, final MemberStatistics statistics )
+            throws MBeanException, ReflectionException
+        {
+            if( null == statistics )
+            {
+                return invoke( index, args );
+            }
+            final boolean timed = statistics.recordCall();
+            final long start = timed ? System.nanoTime() : 0;
+            boolean failed = true;
+            try
+            {
+                final Object result = invoke( index, args );
+                failed = false;
+                return result;
+            }
+            finally
+            {
+                if( failed )
+                {
+                    statistics.recordError();
+                }
+                if( timed )
+                {
+                    statistics.recordTimes( System.nanoTime() - start, 0 );
+                }
+            }
+        }
+
+        Object invoke( final int index, final Object[] args )
+            throws MBeanException, ReflectionException
+        {
+            try
+            {
+                if( null != m_invoker )
+                {
+                    return m_invoker.invoke( index, m_resource, args );
+                }
+                else
+                {
+                    return m_methods[ index ].invoke( m_resource, args );
+                }
+            }
+            catch( final InvocationTargetException ite )
+            {
+                final Throwable cause = ite.getTargetException();
+                if( cause instanceof Error )
+                {
+                    throw new RuntimeErrorException( (Error)cause );
+                }
+                else if( cause instanceof ReflectionException )
+                {
+                    throw (ReflectionException)cause;
+                }
+                else
+                {
+                    final MBeanException exception = new MBeanException( (Exception)cause );
+                    exception.initCause( ite );
+                    throw exception;
+                }
+            }
+            catch( final Exception e )
+            {
+                final ReflectionException exception = new ReflectionException( e );
+                exception.initCause( e );
+                throw exception;
+            }
+        }
+
+        /**
+         * Return the statistics for member if statistics are collected and member invokes the managed resource.
+         *
+         * @param statistics the statistics for bean or null if statistics are not collected.
+         * @param prefix the kind of access.
+         * @param name the name of member.
+         * @param invokes true if member invokes the managed resource.
+         * @return the statistics for member or null.
+         */
+        private static MemberStatistics getMember( final BeanStatistics statistics,
+                                                   final String prefix,
+                                                   final String name,
+                                                   final boolean invokes )
+        {
+            return ( null != statistics && invokes ) ? statistics.getMember( prefix + name ) : null;
+        }
+
+        private OperationTarget findOperation( final String name, final String[] signature )
+        {
+            final OperationTarget[] candidates = m_operations.get( name );
+            if( null != candidates )
+            {
+                for( final OperationTarget candidate : candidates )
+                {
+                    if( candidate.matches( signature ) )
+                    {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static Descriptor getMBeanDescriptor( final ModelMBeanInfo info )
+            throws MBeanException
+        {
+            try
+            {
+                return info.getMBeanDescriptor();
+            }
+            catch( final RuntimeOperationsException roe )
+            {
+                return null;
+            }
+        }
+
+        private static String getStringField( final Descriptor descriptor, final String name )
+        {
+            final Object value = ( null != descriptor ) ? descriptor.getFieldValue( name ) : null;
+            return ( null != value ) ? value.toString() : null;
+        }
+
+        private static String[] getSignature( final MBeanParameterInfo[] parameters )
+        {
+            final String[] signature = new String[parameters.length];
+            for( int i = 0; i < parameters.length; i++ )
+            {
+                signature[ i ] = parameters[ i ].getType();
+            }
+            return signature;
+        }
+
+        private static Method findMethod( final Class<?> type, final String name, final String[] signature )
+        {
+            for( final Method method : type.getMethods() )
+            {
+                if( method.getName().equals( name ) &&
+                    Arrays.equals( BeanUtil.getSignature( method ), signature ) )
+                {
+                    return method;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A compiled operation.
+     */
+    private static final class OperationTarget
+    {
+        /** The signature of operation. */
+        final String[] m_signature;
+        /** The index of method in dispatcher or -1 if method could not be resolved. */
+        final int m_index;
+        /** The resolved method or null. */
+        final Method m_method;
+        /** The statistics for operation or null if statistics are not collected. */
+        final MemberStatistics m_statistics;
+
+        OperationTarget( final String[] signature,
+                         final int index,
+                         final Method method,
+                         final MemberStatistics statistics )
+        {
+            m_signature = signature;
+            m_index = index;
+            m_method = method;
+            m_statistics = statistics;
+        }
+
+        boolean matches( final String[] signature )
+        {
+            final int length = ( null == signature ) ? 0 : signature.length;
+            if( length != m_signature.length )
+            {
+                return false;
+            }
+            for( int i = 0; i < length; i++ )
+            {
+                if( !m_signature[ i ].equals( signature[ i ] ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A compiled attribute and its cached value.
+     */
+    private static final class AttributeTarget
+    {
+        final String m_name;
+        final boolean m_readable;
+        final boolean m_writable;
+        /** The name of accessor or null if attribute has no accessor. */
+        final String m_getMethod;
+        /** The index of accessor in dispatcher or -1 if not resolved. */
+        final int m_getter;
+        /** The name of mutator or null if attribute has no mutator. */
+        final String m_setMethod;
+        /** The index of mutator in dispatcher or -1 if not resolved. */
+        final int m_setter;
+        /** The (boxed) type accepted by mutator or null if mutator not resolved. */
+        final Class<?> m_setterType;
+        /** True if mutator accepts a primitive and thus does not accept null. */
+        final boolean m_setterPrimitive;
+        /** The time in nanoseconds for which values are cached. */
+        final long m_timeLimit;
+        /** The value of an attribute without an accessor. */
+        volatile Object m_value;
+        /** The cached value or null if no value is cached. */
+        volatile CachedValue m_cached;
+        /** The statistics for reads or null if statistics are not collected. */
+        final MemberStatistics m_readStatistics;
+        /** The statistics for writes or null if statistics are not collected. */
+        final MemberStatistics m_writeStatistics;
+
+        AttributeTarget( final String name,
+                         final boolean readable,
+                         final boolean writable,
+                         final String getMethod,
+                         final int getter,
+                         final String setMethod,
+                         final int setter,
+                         final Class<?> setterType,
+                         final boolean setterPrimitive,
+                         final long timeLimit,
+                         final Object value,
+                         final MemberStatistics readStatistics,
+                         final MemberStatistics writeStatistics )
+        {
+            m_name = name;
+            m_readable = readable;
+            m_writable = writable;
+            m_getMethod = getMethod;
+            m_getter = getter;
+            m_setMethod = setMethod;
+            m_setter = setter;
+            m_setterType = setterType;
+            m_setterPrimitive = setterPrimitive;
+            m_timeLimit = timeLimit;
+            m_value = value;
+            m_readStatistics = readStatistics;
+            m_writeStatistics = writeStatistics;
+        }
+
+        Object get( final Dispatcher dispatcher )
+            throws AttributeNotFoundException, MBeanException, ReflectionException
+        {
+            if( !m_readable )
+            {
+                throw new AttributeNotFoundException( "Attribute " + m_name + " is not readable." );
+            }
+            if( null == m_getMethod )
+            {
+                return m_value;
+            }
+            else if( -1 == m_getter )
+            {
+                throw new ReflectionException( new NoSuchMethodException( m_getMethod ) );
+            }
+            final long now = ( NEVER_CACHE != m_timeLimit ) ? System.nanoTime() : 0;
+            if( NEVER_CACHE != m_timeLimit )
+            {
+                final CachedValue cached = m_cached;
+                if( null != cached && ( CACHE_FOREVER == m_timeLimit || now - cached.m_timestamp < m_timeLimit ) )
+                {
+                    return cached.m_value;
+                }
+            }
+            final Object value = dispatcher.invoke( m_getter, null, m_readStatistics );
+            if( NEVER_CACHE != m_timeLimit )
+            {
+                m_cached = new CachedValue( value, now );
+            }
+            return value;
+        }
+
+        void set( final Dispatcher dispatcher, final Object value )
+            throws AttributeNotFoundException, InvalidAttributeValueException,
+                   MBeanException, ReflectionException
+        {
+            if( !m_writable )
+            {
+                throw new AttributeNotFoundException( "Attribute " + m_name + " is not writable." );
+            }
+            if( null == m_setMethod )
+            {
+                m_value = value;
+            }
+            else if( -1 == m_setter )
+            {
+                throw new ReflectionException( new NoSuchMethodException( m_setMethod ) );
+            }
+            else
+            {
+                if( null == value ? m_setterPrimitive : !m_setterType.isInstance( value ) )
+                {
+                    final String message = "Invalid value " + value + " for attribute " + m_name + ".";
+                    throw new InvalidAttributeValueException( message );
+                }
+                dispatcher.invoke( m_setter, new Object[]{value}, m_writeStatistics );
+            }
+            if( NEVER_CACHE != m_timeLimit )
+            {
+                m_cached = new CachedValue( value, System.nanoTime() );
+            }
+        }
+    }
+
+    /**
+     * A listener added for the attribute change notifications of a single
+     * attribute, or of all attributes if the name is null.
+     */
+    private static final class AttributeListener
+    {
+        final NotificationListener m_listener;
+        final String m_name;
+        final NotificationFilter m_filter;
+        final Object m_handback;
+
+        AttributeListener( final NotificationListener listener,
+                           final String name,
+                           final NotificationFilter filter,
+                           final Object handback )
+        {
+            m_listener = listener;
+            m_name = name;
+            m_filter = filter;
+            m_handback = handback;
+        }
+    }
+
+    /**
+     * An immutable cached attribute value.
+     */
+    private static final class CachedValue
+    {
+        final Object m_value;
+        /** The time (as per System.nanoTime()) at which value was read. */
+        final long m_timestamp;
+
+        CachedValue( final Object value, final long timestamp )
+        {
+            m_value = value;
+            m_timestamp = timestamp;
+        }
+    }
+}
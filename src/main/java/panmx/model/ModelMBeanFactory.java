@@ -1,13 +1,11 @@
 package panmx.model;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import javax.management.JMException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.modelmbean.InvalidTargetObjectTypeException;
 import javax.management.modelmbean.ModelMBean;
 import javax.management.modelmbean.ModelMBeanInfo;
-import javax.management.modelmbean.RequiredModelMBean;
+import panmx.util.WeakCache;
 
 /**
  * Utility class to create ModelMBeans and their associated MBeanInfo
@@ -137,17 +135,35 @@ import javax.management.modelmbean.RequiredModelMBean;
  *       ModelMBeanAttributeInfo is set to the "name" of the attribute
  *       or operation unless otherwise specified.</li>
  * </ul>
+ *
+ * <p>If the class has {@link panmx.util.MxMetadata MxMetadata} generated by
+ * the panmx-processor annotation processor then the management methods are
+ * read from it rather than found by scanning the class, and are called
+ * through it rather than through reflection.</p>
  */
 public class ModelMBeanFactory
 {
-    /** The managed type for RequiredModelMBean objects. */
+    /** The managed type for ModelMBean objects. */
     private static final String OBJECT_REF_TYPE = "ObjectReference";
     /** Permission needed to clear complete cache. */
     private static final RuntimePermission CLEAR_CACHE_PERMISSION =
         new RuntimePermission( "panmx.model.ModelMBeanFactory.clearCache" );
-    /** This maps Class to MBeanInfo. */
-    private static final Map<Class<?>, ModelMBeanInfo> c_infos =
-        new WeakHashMap<Class<?>, ModelMBeanInfo>();
+    /**
+     * This maps Class to MBeanInfo. Entries remain while a ModelMBean
+     * created from the MBeanInfo is reachable.
+     */
+    private static final WeakCache<Class<?>, ModelMBeanInfo> c_infos =
+        new WeakCache<Class<?>, ModelMBeanInfo>();
+    /** Factory used to create MBeanInfos not yet in cache. */
+    private static final WeakCache.Factory<Class<?>, ModelMBeanInfo, NotCompliantMBeanException> FACTORY =
+        new WeakCache.Factory<Class<?>, ModelMBeanInfo, NotCompliantMBeanException>()
+        {
+            public ModelMBeanInfo create( final Class<?> type )
+                throws NotCompliantMBeanException
+            {
+                return ModelMBeanInfoCreator.createModelMBeanInfo( type );
+            }
+        };
 
     /**
      * Create ModelMBean for annotated object.
@@ -156,7 +172,7 @@ public class ModelMBeanFactory
      * @return the ModelMBean.
      * @throws NotCompliantMBeanException if the object does not conform to
      *                                    ModelMBean specification.
-     * @throws JMException if there is an error creating RequiredModelMBean.
+     * @throws JMException if there is an error creating ModelMBean.
      */
     public static ModelMBean createAnnotatedModelMBean( final Object object )
         throws NotCompliantMBeanException, JMException, InvalidTargetObjectTypeException
@@ -166,7 +182,7 @@ public class ModelMBeanFactory
             throw new NullPointerException( "object" );
         }
         final ModelMBeanInfo info = getMBeanInfo( object.getClass() );
-        final RequiredModelMBean mBean = new WrapperRequiredModelMBean( info );
+        final ModelMBean mBean = new CompiledModelMBean( info );
         mBean.setManagedResource( object, OBJECT_REF_TYPE );
         return mBean;
     }
@@ -180,7 +196,7 @@ public class ModelMBeanFactory
      *
      * @throws SecurityException if the caller does not have permission to clear cache.
      */
-    public static synchronized void clearCache()
+    public static void clearCache()
         throws SecurityException
     {
         final SecurityManager sm = System.getSecurityManager();
@@ -201,12 +217,6 @@ public class ModelMBeanFactory
     public static ModelMBeanInfo getMBeanInfo( final Class<?> type )
         throws NotCompliantMBeanException
     {
-        ModelMBeanInfo info = c_infos.get( type );
-        if( null == info )
-        {
-            info = ModelMBeanInfoCreator.createModelMBeanInfo( type );
-            c_infos.put( type, info );
-        }
-        return info;
+        return c_infos.get( type, FACTORY );
     }
 }
@@ -14,12 +14,13 @@ import javax.management.modelmbean.ModelMBeanInfoSupport;
 import javax.management.modelmbean.ModelMBeanNotificationInfo;
 import javax.management.modelmbean.ModelMBeanOperationInfo;
 import javax.management.openmbean.OpenDataException;
-import panmx.annotations.MBean;
 import panmx.annotations.MxAttribute;
 import panmx.annotations.MxField;
 import panmx.annotations.MxOperation;
 import panmx.annotations.MxParameter;
 import panmx.util.BeanUtil;
+import panmx.util.ManagedType;
+import panmx.util.ManagedType.ManagedMethod;
 
 /**
  * Utility class to create ModelMBeanInfo from a management specification.
@@ -57,36 +58,11 @@ final class ModelMBeanInfoCreator
     static ModelMBeanInfo createModelMBeanInfo( final Class<?> type )
         throws NotCompliantMBeanException
     {
-        final MBean mBean = type.getAnnotation( MBean.class );
-        if( null == mBean )
-        {
-            final String message =
-                "Class " + type.getName() + " is missing the MBean annotation.";
-            throw new NotCompliantMBeanException( message );
-        }
+        final ManagedType managedType = ManagedType.getManagedType( type );
         final HashMap<String, ModelMBeanAttributeInfo> attributes = new HashMap<String, ModelMBeanAttributeInfo>();
         final HashMap<String, ModelMBeanOperationInfo> operations = new HashMap<String, ModelMBeanOperationInfo>();
 
-        defineManagementElements( type, type.getMethods(), attributes, operations, false );
-        final Class<?>[] mxInterfaces = mBean.interfaces();
-        for( final Class<?> mx : mxInterfaces )
-        {
-            if( !mx.isInterface() )
-            {
-                final String message =
-                    "Management interface " + mx.getName() + " of class " +
-                    type.getName() + " is not a java interface.";
-                throw new NotCompliantMBeanException( message );
-            }
-            if( !mx.isAssignableFrom( type ) )
-            {
-                final String message =
-                    "Class " + type.getName() + " is not assignable from " +
-                    "management interface " + mx.getName() + ".";
-                throw new NotCompliantMBeanException( message );
-            }
-            defineManagementElements( type, mx.getMethods(), attributes, operations, true );
-        }
+        defineManagementElements( type, managedType.getMethods(), attributes, operations );
 
         final ModelMBeanAttributeInfo[] attributeInfos =
             attributes.values().toArray( new ModelMBeanAttributeInfo[attributes.size()] );
@@ -95,7 +71,7 @@ final class ModelMBeanInfoCreator
 
         final String name = type.getName();
         return new ModelMBeanInfoSupport( name,
-                                          fixEmptyString( mBean.description(), name ),
+                                          fixEmptyString( managedType.getMBean().description(), name ),
                                           attributeInfos,
                                           new ModelMBeanConstructorInfo[0],
                                           operationInfos,
@@ -106,33 +82,31 @@ final class ModelMBeanInfoCreator
      * Define management interface for specified type.
      *
      * @param type the type.
-     * @param methods the set of methods that are candidate management operations.
+     * @param methods the management methods.
      * @param attributes the map of managed attributes. (IN/OUT)
      * @param operations the map of managed operations. (IN/OUT)
-     * @param force if true will add all methods as managed operations even if
-     *              they are not annotated.
      * @throws NotCompliantMBeanException if type does not follow MBean conventions.
      */
     private static void defineManagementElements( final Class<?> type,
-                                                  final Method[] methods,
+                                                  final ManagedMethod[] methods,
                                                   final HashMap<String, ModelMBeanAttributeInfo> attributes,
-                                                  final HashMap<String, ModelMBeanOperationInfo> operations,
-                                                  final boolean force )
+                                                  final HashMap<String, ModelMBeanOperationInfo> operations )
         throws NotCompliantMBeanException
     {
-        for( final Method method : methods )
+        for( final ManagedMethod managedMethod : methods )
         {
-            final MxAttribute attribute = method.getAnnotation( MxAttribute.class );
+            final Method method = managedMethod.getMethod();
+            final MxAttribute attribute = managedMethod.getAttribute();
             if( null != attribute )
             {
                 defineAttribute( operations, attributes, type, method );
             }
-            final MxOperation operation = method.getAnnotation( MxOperation.class );
+            final MxOperation operation = managedMethod.getOperation();
             if( null != operation )
             {
                 defineOperation( operations, method, operation );
             }
-            if( force && null == attribute && null == operation )
+            if( managedMethod.isForced() && null == attribute && null == operation )
             {
                 defineOperation( operations, method, operation );
             }
@@ -251,6 +225,15 @@ final class ModelMBeanInfoCreator
         }
 
         final DescriptorSupport descriptor = createDescriptor( fields );
+        final MxAttribute readerAnnotation = ( null != reader ) ? reader.getAnnotation( MxAttribute.class ) : null;
+        final int currencyTimeLimit =
+            ( null != readerAnnotation ) ?
+            readerAnnotation.currencyTimeLimit() :
+            MxAttribute.DEFAULT_CURRENCY_TIME_LIMIT;
+        if( MxAttribute.DEFAULT_CURRENCY_TIME_LIMIT != currencyTimeLimit )
+        {
+            setFieldIfUnset( descriptor, CURRENCY_TIME_LIMIT_FIELD, new Integer( currencyTimeLimit ) );
+        }
         setFieldIfUnset( descriptor, CURRENCY_TIME_LIMIT_FIELD, new Integer( 1 ) );
 
         setFieldIfUnset( descriptor, DISPLAY_NAME_FIELD, fixEmptyString( displayName, name ) );
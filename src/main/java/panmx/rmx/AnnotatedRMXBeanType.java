@@ -1,14 +1,14 @@
 package panmx.rmx;
 
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.WeakHashMap;
 import javax.management.NotCompliantMBeanException;
 import javax.management.openmbean.OpenDataException;
-import panmx.annotations.MBean;
 import panmx.annotations.MxAttribute;
 import panmx.annotations.MxOperation;
 import panmx.util.BeanUtil;
+import panmx.util.ManagedType;
+import panmx.util.ManagedType.ManagedMethod;
+import panmx.util.WeakCache;
 
 class AnnotatedRMXBeanType
     extends RMXBeanType
@@ -16,20 +16,36 @@ class AnnotatedRMXBeanType
     /** Permission needed to clear complete cache. */
     private static final RuntimePermission CLEAR_CACHE_PERMISSION =
         new RuntimePermission( AnnotatedRMXBeanType.class.getName() + ".clearCache" );
-    /** This maps Class to MBeanInfo. */
-    private static final Map<Class<?>, AnnotatedRMXBeanType> c_types =
-        new WeakHashMap<Class<?>, AnnotatedRMXBeanType>();
+    /** This maps Class to AnnotatedRMXBeanType. */
+    private static final WeakCache<Class<?>, AnnotatedRMXBeanType> c_types =
+        new WeakCache<Class<?>, AnnotatedRMXBeanType>();
+    /** Factory used to create types not yet in cache. */
+    private static final WeakCache.Factory<Class<?>, AnnotatedRMXBeanType, NotCompliantMBeanException> FACTORY =
+        new WeakCache.Factory<Class<?>, AnnotatedRMXBeanType, NotCompliantMBeanException>()
+        {
+            public AnnotatedRMXBeanType create( final Class<?> type )
+                throws NotCompliantMBeanException
+            {
+                return new AnnotatedRMXBeanType( type );
+            }
+        };
+
+    /**
+     * The introspected management methods. Held so that the introspection
+     * is shared with other consumers of the class while this type is in use.
+     */
+    private final ManagedType m_managedType;
 
     /**
      * Clear the cache of AnnotatedRMXBeanType currently loaded into the system.
      *
      * <p>Note that the caller must have been granted the
-     * "panmx.rmx.AnnotatedRMXBeanType.clearCache"mBeanInfoManager.clearCompleteCache"
+     * "panmx.rmx.AnnotatedRMXBeanType.clearCache"
      * {@link RuntimePermission} or else a security exception will be thrown.</p>
      *
      * @throws SecurityException if the caller does not have permission
      */
-    static final synchronized void clearCache()
+    static final void clearCache()
         throws SecurityException
     {
         final SecurityManager sm = System.getSecurityManager();
@@ -51,14 +67,7 @@ class AnnotatedRMXBeanType
     static final AnnotatedRMXBeanType getAnnotatedRMXBeanType( final Class<?> clazz )
         throws NotCompliantMBeanException
     {
-        AnnotatedRMXBeanType type = c_types.get( clazz );
-        if( null == type )
-        {
-            type = new AnnotatedRMXBeanType( clazz );
-            c_types.put( clazz, type );
-        }
-
-        return type;
+        return c_types.get( clazz, FACTORY );
     }
 
     AnnotatedRMXBeanType( final Class<?> type )
@@ -66,36 +75,10 @@ class AnnotatedRMXBeanType
     {
         super( type );
 
-        final MBean mBean = type.getAnnotation( MBean.class );
-        if( null == mBean )
-        {
-            final String message =
-                "Class " + type.getName() + " is missing the MBean annotation.";
-            throw new NotCompliantMBeanException( message );
-        }
-
+        m_managedType = ManagedType.getManagedType( type );
         try
         {
-            defineManagementElements( type.getMethods(), false );
-            final Class<?>[] mxInterfaces = mBean.interfaces();
-            for( final Class<?> mx : mxInterfaces )
-            {
-                if( !mx.isInterface() )
-                {
-                    final String message =
-                        "Management interface " + mx.getName() + " of class " +
-                        type.getName() + " is not a java interface.";
-                    throw new NotCompliantMBeanException( message );
-                }
-                if( !mx.isAssignableFrom( type ) )
-                {
-                    final String message =
-                        "Class " + type.getName() + " is not assignable from " +
-                        "management interface " + mx.getName() + ".";
-                    throw new NotCompliantMBeanException( message );
-                }
-                defineManagementElements( mx.getMethods(), true );
-            }
+            defineManagementElements( m_managedType.getMethods() );
             freeze();
         }
         catch( final OpenDataException ode )
@@ -110,27 +93,26 @@ class AnnotatedRMXBeanType
     /**
      * Define management elements from methods.
      *
-     * @param methods the methods.
-     * @param force if true always add method even if not annotated.
+     * @param methods the management methods.
      * @throws OpenDataException if there is non-compliant methods.
      */
-    private void defineManagementElements( final Method[] methods,
-                                           final boolean force )
+    private void defineManagementElements( final ManagedMethod[] methods )
         throws OpenDataException
     {
-        for( final Method method : methods )
+        for( final ManagedMethod managedMethod : methods )
         {
-            final MxAttribute attribute = method.getAnnotation( MxAttribute.class );
+            final Method method = managedMethod.getMethod();
+            final MxAttribute attribute = managedMethod.getAttribute();
             if( null != attribute )
             {
                 defineAttribute( method );
             }
-            final MxOperation operation = method.getAnnotation( MxOperation.class );
+            final MxOperation operation = managedMethod.getOperation();
             if( null != operation )
             {
                 defineOperation( method );
             }
-            if( force && null == operation && null == attribute )
+            if( managedMethod.isForced() && null == operation && null == attribute )
             {
                 if( BeanUtil.isAccessor( method ) )
                 {
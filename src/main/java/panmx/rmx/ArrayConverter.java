@@ -8,6 +8,10 @@ import javax.management.openmbean.OpenType;
 
 /**
  * Converter to translate non-SimpleType Arrays to OpenType arrays and back again.
+ *
+ * <p>Arrays of primitives are converted to and from arrays of the wrapper
+ * type using loops specialised for the primitive type. Arrays whose
+ * components do not require conversion are copied in bulk.</p>
  */
 class ArrayConverter
     implements Converter
@@ -22,6 +26,13 @@ class ArrayConverter
     private final Type[] m_javaTypes;
     /** Types of each dimension when converting from OpenType to Java type. */
     private final Class[] m_openJavaTypes;
+    /** True if the component type is primitive and must be boxed to the open type. */
+    private final boolean m_primitive;
+    /**
+     * True if the java component type and open component type are identical
+     * and components can be copied in bulk without conversion.
+     */
+    private final boolean m_passThrough;
 
     ArrayConverter( final Class javaType,
                     final int dimensions,
@@ -62,6 +73,9 @@ class ArrayConverter
             final Object value = Array.newInstance( m_openJavaTypes[i - 1], 0 );
             m_openJavaTypes[i] = value.getClass();
         }
+        m_primitive = ( (Class)m_javaTypes[0] ).isPrimitive();
+        m_passThrough = m_componentConverter instanceof SimpleTypeConverter &&
+                        m_javaTypes[0] == m_openJavaTypes[0];
     }
 
     public Type getJavaType()
@@ -86,48 +100,298 @@ class ArrayConverter
        return convertArray( object, m_openType.getDimension() - 1, m_javaTypes, true );
     }
 
-   private Object convertArray( final Object object,
-                                final int level,
-                                final Type[] javaTypes,
-                                final boolean toJava )
-      throws OpenDataException
-   {
-      if( null == object )
-      {
-          return null;
-      }
-      else
-      {
-         if( 0 == level )
-          {
-              final int length = Array.getLength( object );
-              final Object newArray =
-                  Array.newInstance( (Class) javaTypes[ level ], length );
-
-              for( int i = 0; i < length; i++ )
-              {
-                 final Object v = Array.get( object, i );
-                 final Object value =
-                     toJava ?
-                     m_componentConverter.toJavaType( v ) :
-                     m_componentConverter.toOpenType( v );
-                  Array.set( newArray, i, value );
-              }
-              return newArray;
-          }
-          else
-          {
-              final Object[] array = (Object[]) object;
-              final Object[] newArray =
-                  (Object[]) Array.newInstance( (Class) javaTypes[ level ], array.length );
-
-              final int nextLevel = level - 1;
-              for( int i = 0; i < array.length; i++ )
-              {
-                  newArray[i] = convertArray( array[i], nextLevel, javaTypes, toJava );
-              }
-              return newArray;
-          }
-      }
-   }
+    private Object convertArray( final Object object,
+                                 final int level,
+                                 final Type[] javaTypes,
+                                 final boolean toJava )
+        throws OpenDataException
+    {
+        if( null == object )
+        {
+            return null;
+        }
+        else if( 0 == level )
+        {
+            return toJava ? convertComponentsToJava( object ) : convertComponentsToOpen( object );
+        }
+        else
+        {
+            final Object[] array = (Object[])object;
+            final Object[] newArray =
+                (Object[])Array.newInstance( (Class)javaTypes[level], array.length );
+
+            final int nextLevel = level - 1;
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = convertArray( array[i], nextLevel, javaTypes, toJava );
+            }
+            return newArray;
+        }
+    }
+
+    /**
+     * Convert a one dimensional array of java components into an array of open components.
+     *
+     * @param object the array.
+     * @return the converted array.
+     * @throws OpenDataException if unable to convert a component.
+     */
+    private Object convertComponentsToOpen( final Object object )
+        throws OpenDataException
+    {
+        if( m_primitive )
+        {
+            return box( object );
+        }
+        final Object[] array = (Object[])object;
+        final Object[] newArray = (Object[])Array.newInstance( m_openJavaTypes[0], array.length );
+        if( m_passThrough )
+        {
+            System.arraycopy( array, 0, newArray, 0, array.length );
+        }
+        else
+        {
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = m_componentConverter.toOpenType( array[i] );
+            }
+        }
+        return newArray;
+    }
+
+    /**
+     * Convert a one dimensional array of open components into an array of java components.
+     *
+     * @param object the array.
+     * @return the converted array.
+     * @throws OpenDataException if unable to convert a component.
+     */
+    private Object convertComponentsToJava( final Object object )
+        throws OpenDataException
+    {
+        final Class type = (Class)m_javaTypes[0];
+        if( m_primitive )
+        {
+            if( object.getClass().getComponentType() == type )
+            {
+                //Already a primitive array. Possibly sent by an older version of PanMX
+                final int length = Array.getLength( object );
+                final Object newArray = Array.newInstance( type, length );
+                System.arraycopy( object, 0, newArray, 0, length );
+                return newArray;
+            }
+            else
+            {
+                return unbox( (Object[])object );
+            }
+        }
+        final Object[] array = (Object[])object;
+        final Object[] newArray = (Object[])Array.newInstance( type, array.length );
+        if( m_passThrough )
+        {
+            System.arraycopy( array, 0, newArray, 0, array.length );
+        }
+        else
+        {
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = m_componentConverter.toJavaType( array[i] );
+            }
+        }
+        return newArray;
+    }
+
+    /**
+     * Convert primitive array into corresponding wrapper array.
+     *
+     * @param object the primitive array.
+     * @return the wrapper array.
+     */
+    private Object box( final Object object )
+    {
+        final Class type = (Class)m_javaTypes[0];
+        if( Long.TYPE == type )
+        {
+            final long[] array = (long[])object;
+            final Long[] newArray = new Long[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Double.TYPE == type )
+        {
+            final double[] array = (double[])object;
+            final Double[] newArray = new Double[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Integer.TYPE == type )
+        {
+            final int[] array = (int[])object;
+            final Integer[] newArray = new Integer[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Float.TYPE == type )
+        {
+            final float[] array = (float[])object;
+            final Float[] newArray = new Float[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Short.TYPE == type )
+        {
+            final short[] array = (short[])object;
+            final Short[] newArray = new Short[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Byte.TYPE == type )
+        {
+            final byte[] array = (byte[])object;
+            final Byte[] newArray = new Byte[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else if( Character.TYPE == type )
+        {
+            final char[] array = (char[])object;
+            final Character[] newArray = new Character[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+        else
+        {
+            final boolean[] array = (boolean[])object;
+            final Boolean[] newArray = new Boolean[array.length];
+            for( int i = 0; i < array.length; i++ )
+            {
+                newArray[i] = array[i];
+            }
+            return newArray;
+        }
+    }
+
+    /**
+     * Convert wrapper array into corresponding primitive array.
+     *
+     * @param array the wrapper array.
+     * @return the primitive array.
+     * @throws OpenDataException if the array contains a null element.
+     */
+    private Object unbox( final Object[] array )
+        throws OpenDataException
+    {
+        final Class type = (Class)m_javaTypes[0];
+        try
+        {
+            if( Long.TYPE == type )
+            {
+                final Long[] values = (Long[])array;
+                final long[] newArray = new long[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Double.TYPE == type )
+            {
+                final Double[] values = (Double[])array;
+                final double[] newArray = new double[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Integer.TYPE == type )
+            {
+                final Integer[] values = (Integer[])array;
+                final int[] newArray = new int[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Float.TYPE == type )
+            {
+                final Float[] values = (Float[])array;
+                final float[] newArray = new float[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Short.TYPE == type )
+            {
+                final Short[] values = (Short[])array;
+                final short[] newArray = new short[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Byte.TYPE == type )
+            {
+                final Byte[] values = (Byte[])array;
+                final byte[] newArray = new byte[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else if( Character.TYPE == type )
+            {
+                final Character[] values = (Character[])array;
+                final char[] newArray = new char[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+            else
+            {
+                final Boolean[] values = (Boolean[])array;
+                final boolean[] newArray = new boolean[values.length];
+                for( int i = 0; i < values.length; i++ )
+                {
+                    newArray[i] = values[i];
+                }
+                return newArray;
+            }
+        }
+        catch( final NullPointerException npe )
+        {
+            final String message = "Unable to convert null element to " + type.getName();
+            final OpenDataException exception = new OpenDataException( message );
+            exception.initCause( npe );
+            throw exception;
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package panmx.rmx;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.management.MBeanException;
+import javax.management.ReflectionException;
+
+/**
+ * Cache of the open values of the attributes of a single RMXBean.
+ *
+ * <p>Entries are indexed by the index of the accessor and are replaced
+ * atomically so reading a fresh value never blocks. When a value expires
+ * exactly one thread invokes the accessor to refresh it. Other threads
+ * return the previous value while the refresh is in progress or, if there
+ * is no previous value, wait for the refresh to complete.</p>
+ */
+final class AttributeCache
+{
+    /** Value returned by {@link #getStaleValue(InvocationTarget)} if no value is cached. */
+    static final Object NO_VALUE = new Object();
+    /** The entries indexed by accessor index. */
+    private final AtomicReferenceArray<Entry> m_entries;
+
+    AttributeCache( final int size )
+    {
+        m_entries = new AtomicReferenceArray<Entry>( size );
+    }
+
+    /**
+     * Return the cached open value of attribute, reading it from target if
+     * it is missing or expired.
+     *
+     * @param type the type of bean.
+     * @param target the target object.
+     * @param accessor the accessor for attribute.
+     * @return the open value of attribute.
+     * @throws MBeanException if accessor throws an exception.
+     * @throws ReflectionException if unable to invoke accessor.
+     */
+    Object get( final RMXBeanType type, final Object target, final InvocationTarget accessor )
+        throws MBeanException, ReflectionException
+    {
+        final int index = accessor.getIndex();
+        while( true )
+        {
+            final Entry entry = m_entries.get( index );
+            final long now = System.nanoTime();
+            if( null != entry )
+            {
+                if( null == entry.m_latch )
+                {
+                    if( entry.isFresh( now ) )
+                    {
+                        return entry.m_value;
+                    }
+                }
+                else if( entry.m_hasValue )
+                {
+                    //Another thread is refreshing value so use previous value
+                    return entry.m_value;
+                }
+                else
+                {
+                    try
+                    {
+                        entry.m_latch.await();
+                    }
+                    catch( final InterruptedException ie )
+                    {
+                        Thread.currentThread().interrupt();
+                        return type.readAttribute( target, accessor );
+                    }
+                    continue;
+                }
+            }
+
+            final Entry loading = new Entry( entry );
+            if( m_entries.compareAndSet( index, entry, loading ) )
+            {
+                boolean loaded = false;
+                try
+                {
+                    final Object value = type.readAttribute( target, accessor );
+                    final long currencyTimeLimit = accessor.getCurrencyTimeLimit();
+                    m_entries.compareAndSet( index, loading, new Entry( value, now + currencyTimeLimit ) );
+                    loaded = true;
+                    return value;
+                }
+                finally
+                {
+                    if( !loaded )
+                    {
+                        //Restore previous entry so the next reader retries
+                        m_entries.compareAndSet( index, loading, entry );
+                    }
+                    loading.m_latch.countDown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the most recently cached open value of attribute even if it
+     * has expired or {@link #NO_VALUE} if no value has been cached.
+     *
+     * @param accessor the accessor for attribute.
+     * @return the cached value or NO_VALUE.
+     */
+    Object getStaleValue( final InvocationTarget accessor )
+    {
+        final Entry entry = m_entries.get( accessor.getIndex() );
+        return ( null != entry && entry.m_hasValue ) ? entry.m_value : NO_VALUE;
+    }
+
+    /**
+     * Discard the cached value of attribute.
+     *
+     * @param accessor the accessor for attribute.
+     */
+    void invalidate( final InvocationTarget accessor )
+    {
+        m_entries.set( accessor.getIndex(), null );
+    }
+
+    /**
+     * An immutable cache entry. Entries with a latch are placeholders for a
+     * value that is being read and hold the previous value, if any.
+     */
+    private static final class Entry
+    {
+        /** The cached open value. */
+        final Object m_value;
+        /** True if entry holds a value. */
+        final boolean m_hasValue;
+        /** The time (as per System.nanoTime()) at which value expires. */
+        final long m_expiresAt;
+        /** Latch released when value has been read or null if this entry is not loading. */
+        final CountDownLatch m_latch;
+
+        Entry( final Object value, final long expiresAt )
+        {
+            m_value = value;
+            m_hasValue = true;
+            m_expiresAt = expiresAt;
+            m_latch = null;
+        }
+
+        Entry( final Entry previous )
+        {
+            m_value = ( null != previous ) ? previous.m_value : null;
+            m_hasValue = null != previous && previous.m_hasValue;
+            m_expiresAt = 0;
+            m_latch = new CountDownLatch( 1 );
+        }
+
+        boolean isFresh( final long now )
+        {
+            return m_expiresAt - now > 0;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package panmx.rmx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.management.MBeanServer;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import panmx.annotations.MBean;
+
+/**
+ * Registers and unregisters large numbers of RMXBeans.
+ *
+ * <p>Registration first creates the RMXBeanType of each distinct class
+ * once, concurrently if there is an Executor, and shares it between every
+ * object of that class. The RMXBeans are then created and registered in
+ * chunks, again concurrently if there is an Executor. A failure to
+ * introspect a class or to register a bean, including an Error such as a
+ * LinkageError, is recorded against the ObjectName of each bean affected
+ * and does not stop the other beans from being registered.</p>
+ */
+final class BulkRegistration
+{
+    /** The number of beans registered or unregistered by each task. */
+    private static final int CHUNK_SIZE = 256;
+
+    /** The server to register beans with. */
+    private final MBeanServer m_server;
+    /** The executor used to run tasks or null to run tasks in calling thread. */
+    private final Executor m_executor;
+
+    BulkRegistration( final MBeanServer server, final Executor executor )
+    {
+        m_server = server;
+        m_executor = executor;
+    }
+
+    /**
+     * Create a RMXBean for each object and register it with the server.
+     *
+     * @param objects the objects keyed by the name to register them under.
+     * @return the failures keyed by name, in the order of objects.
+     * @throws InterruptedException if interrupted while waiting for tasks to complete.
+     */
+    Map<ObjectName, Exception> registerAll( final Map<ObjectName, ?> objects )
+        throws InterruptedException
+    {
+        final int count = objects.size();
+        final ObjectName[] names = new ObjectName[count];
+        final Object[] targets = new Object[count];
+        final int[] typeIndexes = new int[count];
+        final LinkedHashMap<Class<?>, Integer> classes = new LinkedHashMap<Class<?>, Integer>();
+        int index = 0;
+        for( final Map.Entry<ObjectName, ?> entry : objects.entrySet() )
+        {
+            names[ index ] = entry.getKey();
+            targets[ index ] = entry.getValue();
+            if( null != targets[ index ] )
+            {
+                final Class<?> type = targets[ index ].getClass();
+                Integer typeIndex = classes.get( type );
+                if( null == typeIndex )
+                {
+                    typeIndex = classes.size();
+                    classes.put( type, typeIndex );
+                }
+                typeIndexes[ index ] = typeIndex;
+            }
+            index++;
+        }
+
+        final Class<?>[] types = classes.keySet().toArray( new Class<?>[classes.size()] );
+        final RMXBeanType[] beanTypes = new RMXBeanType[types.length];
+        final Exception[] typeFailures = new Exception[types.length];
+        final ArrayList<Runnable> introspections = new ArrayList<Runnable>( types.length );
+        for( int i = 0; i < types.length; i++ )
+        {
+            final int typeIndex = i;
+            introspections.add( new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        beanTypes[ typeIndex ] = createRMXBeanType( types[ typeIndex ] );
+                    }
+                    catch( final Throwable t )
+                    {
+                        typeFailures[ typeIndex ] = toException( types[ typeIndex ], t );
+                    }
+                }
+            } );
+        }
+        run( introspections );
+
+        final Exception[] failures = new Exception[count];
+        final ArrayList<Runnable> registrations = new ArrayList<Runnable>();
+        for( int start = 0; start < count; start += CHUNK_SIZE )
+        {
+            final int first = start;
+            final int last = Math.min( count, start + CHUNK_SIZE );
+            registrations.add( new Runnable()
+            {
+                public void run()
+                {
+                    for( int i = first; i < last; i++ )
+                    {
+                        if( null == targets[ i ] )
+                        {
+                            failures[ i ] = new NullPointerException( "object" );
+                        }
+                        else if( null != typeFailures[ typeIndexes[ i ] ] )
+                        {
+                            failures[ i ] = typeFailures[ typeIndexes[ i ] ];
+                        }
+                        else if( null == beanTypes[ typeIndexes[ i ] ] )
+                        {
+                            final String message =
+                                "Class " + targets[ i ].getClass().getName() + " was not introspected.";
+                            failures[ i ] = new IllegalStateException( message );
+                        }
+                        else
+                        {
+                            try
+                            {
+                                m_server.registerMBean( new RMXBean( beanTypes[ typeIndexes[ i ] ], targets[ i ] ),
+                                                        names[ i ] );
+                            }
+                            catch( final Throwable t )
+                            {
+                                failures[ i ] = toException( targets[ i ].getClass(), t );
+                            }
+                        }
+                    }
+                }
+            } );
+        }
+        run( registrations );
+        return toFailures( names, failures );
+    }
+
+    /**
+     * Unregister every bean with a name that matches pattern.
+     *
+     * @param pattern the ObjectName pattern.
+     * @return the failures keyed by name.
+     * @throws InterruptedException if interrupted while waiting for tasks to complete.
+     */
+    Map<ObjectName, Exception> unregisterAll( final ObjectName pattern )
+        throws InterruptedException
+    {
+        final Set<ObjectName> matches = m_server.queryNames( pattern, null );
+        final ObjectName[] names = matches.toArray( new ObjectName[matches.size()] );
+        final Exception[] failures = new Exception[names.length];
+        final ArrayList<Runnable> unregistrations = new ArrayList<Runnable>();
+        for( int start = 0; start < names.length; start += CHUNK_SIZE )
+        {
+            final int first = start;
+            final int last = Math.min( names.length, start + CHUNK_SIZE );
+            unregistrations.add( new Runnable()
+            {
+                public void run()
+                {
+                    for( int i = first; i < last; i++ )
+                    {
+                        try
+                        {
+                            m_server.unregisterMBean( names[ i ] );
+                        }
+                        catch( final Throwable t )
+                        {
+                            failures[ i ] = ( t instanceof Exception ) ? (Exception)t : new RuntimeException( t );
+                        }
+                    }
+                }
+            } );
+        }
+        run( unregistrations );
+        return toFailures( names, failures );
+    }
+
+    /**
+     * Create the RMXBeanType for class. Classes annotated with MBean are
+     * exposed as annotated RMXBeans, other classes as StandardRMXBeans with
+     * the default management interface.
+     *
+     * @param type the class.
+     * @return the RMXBeanType.
+     * @throws NotCompliantMBeanException if the class does not conform to the RMXBean specification.
+     */
+    private static RMXBeanType createRMXBeanType( final Class<?> type )
+        throws NotCompliantMBeanException
+    {
+        if( type.isAnnotationPresent( MBean.class ) )
+        {
+            return AnnotatedRMXBeanType.getAnnotatedRMXBeanType( type );
+        }
+        else
+        {
+            return new StandardRMXBeanType( type, new Class[]{RMXBeanFactory.findMxTypeFor( type )} );
+        }
+    }
+
+    /**
+     * Run tasks and wait for them to complete. Tasks rejected by the
+     * executor are run in the calling thread.
+     *
+     * @param tasks the tasks.
+     * @throws InterruptedException if interrupted while waiting for tasks to complete.
+     */
+    private void run( final List<Runnable> tasks )
+        throws InterruptedException
+    {
+        if( null == m_executor || tasks.size() < 2 )
+        {
+            for( final Runnable task : tasks )
+            {
+                task.run();
+            }
+        }
+        else
+        {
+            final CountDownLatch latch = new CountDownLatch( tasks.size() );
+            for( final Runnable task : tasks )
+            {
+                final Runnable counted = new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            task.run();
+                        }
+                        finally
+                        {
+                            latch.countDown();
+                        }
+                    }
+                };
+                try
+                {
+                    m_executor.execute( counted );
+                }
+                catch( final RejectedExecutionException ree )
+                {
+                    counted.run();
+                }
+            }
+            latch.await();
+        }
+    }
+
+    /**
+     * Return the exception to report for a failure to introspect or register
+     * an object of type. Errors, such as a LinkageError, are wrapped in a
+     * NotCompliantMBeanException.
+     *
+     * @param type the class of the object.
+     * @param t the failure.
+     * @return the exception.
+     */
+    private static Exception toException( final Class<?> type, final Throwable t )
+    {
+        if( t instanceof Exception )
+        {
+            return (Exception)t;
+        }
+        final NotCompliantMBeanException exception =
+            new NotCompliantMBeanException( "Unable to introspect " + type.getName() + ": " + t );
+        exception.initCause( t );
+        return exception;
+    }
+
+    private static Map<ObjectName, Exception> toFailures( final ObjectName[] names, final Exception[] failures )
+    {
+        final LinkedHashMap<ObjectName, Exception> results = new LinkedHashMap<ObjectName, Exception>();
+        for( int i = 0; i < names.length; i++ )
+        {
+            if( null != failures[ i ] )
+            {
+                results.put( names[ i ], failures[ i ] );
+            }
+        }
+        return results;
+    }
+}
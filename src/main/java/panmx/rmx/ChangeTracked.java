@@ -0,0 +1,27 @@
+package panmx.rmx;
+
+/**
+ * Interface implemented by objects exposed as RMXBeans that keep a change
+ * version for each attribute so that collectors can poll for the attributes
+ * that changed since a previous poll rather than reading every attribute.
+ *
+ * <p>When an RMXBean is created for such an object the bean passes the
+ * object a {@link ChangeTracker}. Writes through the bean are tracked
+ * automatically. The object either reports other changes via
+ * {@link ChangeTracker#markChanged(String)} or asks for attributes to be
+ * compared with their previous value each time the bean is polled via
+ * {@link ChangeTracker#compareWhenSampled(String[])}.</p>
+ *
+ * <p>The bean exposes the changes through the operation
+ * "getAttributesChangedSince(long)" which is most easily invoked through
+ * {@link RMXBeanFactory#getChangesSince(Object, long)}.</p>
+ */
+public interface ChangeTracked
+{
+    /**
+     * Set the tracker used to report changes to attributes.
+     *
+     * @param tracker the tracker.
+     */
+    void setChangeTracker( ChangeTracker tracker );
+}
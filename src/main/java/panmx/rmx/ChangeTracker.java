@@ -0,0 +1,181 @@
+package panmx.rmx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The change versions of the attributes of an RMXBean whose target
+ * implements {@link ChangeTracked}.
+ *
+ * <p>The tracker holds a version that is incremented for every change and
+ * each attribute records the version at which it last changed. Every
+ * attribute starts at version 1 so polling since version 0 returns every
+ * attribute.</p>
+ *
+ * <p>Marking a change and taking a snapshot of the versions are mutually
+ * exclusive so that a poll never returns a version that an attribute is
+ * stamped with after the poll has excluded it, which would lose the change.</p>
+ */
+public final class ChangeTracker
+{
+    /** The latest version. */
+    private final AtomicLong m_version = new AtomicLong( 1 );
+    /** The version at which each attribute last changed. */
+    private final Map<String, AtomicLong> m_versions;
+    /** The attributes that are compared with their previous value when sampled. */
+    private final Set<String> m_compared = new HashSet<String>();
+    /** The open value of each compared attribute when last sampled. */
+    private final Map<String, Object> m_samples = new HashMap<String, Object>();
+
+    ChangeTracker( final Set<String> attributes )
+    {
+        final HashMap<String, AtomicLong> versions = new HashMap<String, AtomicLong>();
+        for( final String attribute : attributes )
+        {
+            versions.put( attribute, new AtomicLong( 1 ) );
+        }
+        m_versions = Collections.unmodifiableMap( versions );
+    }
+
+    /**
+     * Return the latest version.
+     *
+     * @return the latest version.
+     */
+    public long getVersion()
+    {
+        return m_version.get();
+    }
+
+    /**
+     * Record that the value of attribute has changed.
+     *
+     * @param attribute the name of the attribute.
+     * @throws IllegalArgumentException if the bean has no such readable attribute.
+     */
+    public synchronized void markChanged( final String attribute )
+    {
+        final AtomicLong version = m_versions.get( attribute );
+        if( null == version )
+        {
+            throw new IllegalArgumentException( "Unknown attribute " + attribute );
+        }
+        version.set( m_version.incrementAndGet() );
+    }
+
+    /**
+     * Record that attribute was written through the bean. Write-only
+     * attributes are not tracked and are ignored.
+     *
+     * @param attribute the name of the attribute.
+     */
+    void attributeWritten( final String attribute )
+    {
+        if( m_versions.containsKey( attribute ) )
+        {
+            markChanged( attribute );
+        }
+    }
+
+    /**
+     * Record that the value of every attribute has changed.
+     */
+    public synchronized void markAllChanged()
+    {
+        final long version = m_version.incrementAndGet();
+        for( final AtomicLong attributeVersion : m_versions.values() )
+        {
+            attributeVersion.set( version );
+        }
+    }
+
+    /**
+     * Specify attributes whose changes are detected by comparing the value
+     * read when the bean is polled with the value read by the previous poll.
+     * This suits attributes that are derived or change too often to report
+     * individually, at the cost of reading and converting them on each poll.
+     *
+     * @param attributes the names of the attributes.
+     * @throws IllegalArgumentException if the bean has no such readable attribute.
+     */
+    public synchronized void compareWhenSampled( final String... attributes )
+    {
+        for( final String attribute : attributes )
+        {
+            if( !m_versions.containsKey( attribute ) )
+            {
+                throw new IllegalArgumentException( "Unknown attribute " + attribute );
+            }
+            m_compared.add( attribute );
+        }
+    }
+
+    /**
+     * Return the attributes that are compared when sampled.
+     *
+     * @return the names of the attributes.
+     */
+    synchronized String[] getComparedAttributes()
+    {
+        return m_compared.toArray( new String[m_compared.size()] );
+    }
+
+    /**
+     * Return the version at which attribute last changed.
+     *
+     * @param attribute the name of the attribute.
+     * @return the version.
+     */
+    long getVersion( final String attribute )
+    {
+        return m_versions.get( attribute ).get();
+    }
+
+    /**
+     * Record the version at which each attribute last changed and return
+     * the latest version, as of a single point in time.
+     *
+     * @param versions the map to record the version of each attribute in. (OUT)
+     * @return the latest version.
+     */
+    synchronized long snapshot( final Map<String, Long> versions )
+    {
+        for( final Map.Entry<String, AtomicLong> entry : m_versions.entrySet() )
+        {
+            versions.put( entry.getKey(), entry.getValue().get() );
+        }
+        return m_version.get();
+    }
+
+    /**
+     * Return the names of the attributes tracked.
+     *
+     * @return the names of the attributes.
+     */
+    Set<String> getAttributes()
+    {
+        return m_versions.keySet();
+    }
+
+    /**
+     * Compare the sampled value of attribute with the previous sample and
+     * mark the attribute as changed if the value differs.
+     *
+     * @param attribute the name of the attribute.
+     * @param value the open value of attribute.
+     */
+    synchronized void sample( final String attribute, final Object value )
+    {
+        final boolean sampled = m_samples.containsKey( attribute );
+        final Object previous = m_samples.put( attribute, value );
+        if( sampled && !Arrays.deepEquals( new Object[]{previous}, new Object[]{value} ) )
+        {
+            markChanged( attribute );
+        }
+    }
+}
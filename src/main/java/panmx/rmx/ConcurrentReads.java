@@ -0,0 +1,203 @@
+package panmx.rmx;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controls whether the accessors read by a bulk read of the attributes
+ * of an RMXBean are invoked concurrently.
+ *
+ * <p>By default the accessors are invoked one after another in the calling
+ * thread so a single slow accessor delays the whole read. Once enabled,
+ * each accessor is invoked on the executor and the read waits for each
+ * accessor until its deadline, measured from the start of the read. The
+ * deadline is the timeout specified by
+ * {@link panmx.annotations.MxAttribute#readTimeout()} or the default
+ * timeout. An attribute whose accessor misses its deadline is returned with
+ * its most recently cached value if it may be cached and is otherwise
+ * omitted from the result.</p>
+ *
+ * <p>An accessor that misses its deadline is left to complete so that it
+ * refreshes the cached value. Later reads of the same attribute of the same
+ * bean wait for that invocation rather than invoking the accessor again so
+ * an accessor that blocks ties up at most one thread.</p>
+ */
+public final class ConcurrentReads
+{
+    /** The current configuration or null if reads are not concurrent. */
+    private static volatile ConcurrentReads c_reads;
+
+    private final Executor m_executor;
+    private final long m_timeout;
+
+    private ConcurrentReads( final Executor executor, final long timeout )
+    {
+        m_executor = executor;
+        m_timeout = timeout;
+    }
+
+    /**
+     * Invoke the accessors of bulk reads concurrently.
+     *
+     * @param executor the executor that invokes accessors. If the executor
+     *                 rejects an accessor it is invoked by the calling thread.
+     * @param timeout the default time to wait for an accessor or a negative value to wait until it returns.
+     * @param unit the unit of timeout.
+     */
+    public static void enable( final Executor executor, final long timeout, final TimeUnit unit )
+    {
+        if( null == executor )
+        {
+            throw new NullPointerException( "executor" );
+        }
+        if( 0 == timeout )
+        {
+            throw new IllegalArgumentException( "timeout must not be 0" );
+        }
+        c_reads = new ConcurrentReads( executor, unit.toNanos( timeout ) );
+    }
+
+    /**
+     * Invoke the accessors of bulk reads in the calling thread.
+     */
+    public static void disable()
+    {
+        c_reads = null;
+    }
+
+    /**
+     * Return true if the accessors of bulk reads are invoked concurrently.
+     *
+     * @return true if enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return null != c_reads;
+    }
+
+    /**
+     * Create an executor for accessors that runs at most parallelism
+     * accessors at once. Virtual threads are used if the JVM supports them,
+     * otherwise daemon threads are created on demand and discarded once idle.
+     *
+     * @param parallelism the maximum number of accessors invoked at once.
+     * @return the executor.
+     */
+    public static Executor newExecutor( final int parallelism )
+    {
+        if( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "parallelism must be positive" );
+        }
+        try
+        {
+            final Method method = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return new BoundedExecutor( (Executor)method.invoke( null ), parallelism );
+        }
+        catch( final Exception e )
+        {
+            //Virtual threads are not supported
+        }
+        return new ThreadPoolExecutor( 0,
+                                       parallelism,
+                                       60,
+                                       TimeUnit.SECONDS,
+                                       new SynchronousQueue<Runnable>(),
+                                       new DaemonThreadFactory() );
+    }
+
+    /**
+     * Return the current configuration or null if reads are not concurrent.
+     *
+     * @return the configuration or null.
+     */
+    static ConcurrentReads getConcurrentReads()
+    {
+        return c_reads;
+    }
+
+    Executor getExecutor()
+    {
+        return m_executor;
+    }
+
+    /**
+     * Return the time in nanoseconds to wait for accessor or a negative
+     * value to wait until it returns.
+     *
+     * @param accessor the accessor.
+     * @return the timeout.
+     */
+    long getTimeout( final InvocationTarget accessor )
+    {
+        final long timeout = accessor.getReadTimeout();
+        return ( 0 == timeout ) ? m_timeout : timeout;
+    }
+
+    /**
+     * Executor that rejects tasks once a number of tasks are running.
+     */
+    private static final class BoundedExecutor
+        implements Executor
+    {
+        private final Executor m_executor;
+        private final Semaphore m_permits;
+
+        BoundedExecutor( final Executor executor, final int parallelism )
+        {
+            m_executor = executor;
+            m_permits = new Semaphore( parallelism );
+        }
+
+        public void execute( final Runnable task )
+        {
+            if( !m_permits.tryAcquire() )
+            {
+                throw new RejectedExecutionException();
+            }
+            try
+            {
+                m_executor.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            task.run();
+                        }
+                        finally
+                        {
+                            m_permits.release();
+                        }
+                    }
+                } );
+            }
+            catch( final RejectedExecutionException ree )
+            {
+                m_permits.release();
+                throw ree;
+            }
+        }
+    }
+
+    private static final class DaemonThreadFactory
+        implements ThreadFactory
+    {
+        private final AtomicInteger m_count = new AtomicInteger();
+
+        public Thread newThread( final Runnable runnable )
+        {
+            final Thread thread = new Thread( runnable, "panmx-reader-" + m_count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
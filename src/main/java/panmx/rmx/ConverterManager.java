@@ -1,20 +1,51 @@
 package panmx.rmx;
 
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.management.openmbean.ArrayType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import panmx.annotations.MxTabularData;
+import panmx.util.WeakCache;
 
 class ConverterManager
 {
-    /** Map between types and Converters. */
-    private static final WeakHashMap<Type, Converter> c_converters =
-        new WeakHashMap<Type, Converter>();
+    /**
+     * Map between types and Converters. Lookups are lock free and each
+     * Converter is only created once, even when requested concurrently.
+     */
+    private static final WeakCache<Type, Converter> c_converters =
+        new WeakCache<Type, Converter>();
+    /**
+     * Converters for types loaded by the ClassLoader of PanMX or its parents.
+     * These types live as long as PanMX so their converters are held strongly,
+     * which stops them being collected and rebuilt. A rebuilt converter for a
+     * recursive type could otherwise differ from the original as the fields
+     * left out of a recursive type depend on which type was converted first.
+     * Converters for types from other ClassLoaders are only weakly held so
+     * that the ClassLoader can be collected.
+     */
+    private static final ConcurrentHashMap<Type, Converter> c_pinned =
+        new ConcurrentHashMap<Type, Converter>();
+    /** Factory used to create Converters not yet in registry. */
+    private static final WeakCache.Factory<Type, Converter, OpenDataException> FACTORY =
+        new WeakCache.Factory<Type, Converter, OpenDataException>()
+        {
+            public Converter create( final Type type )
+                throws OpenDataException
+            {
+                final Converter converter = createConverter( type );
+                if( isPinned( type ) )
+                {
+                    c_pinned.put( type, converter );
+                }
+                return converter;
+            }
+        };
 
     static
     {
@@ -44,26 +75,32 @@ class ConverterManager
     static Converter getConverterFor( final Type type )
         throws OpenDataException
     {
-        synchronized( c_converters )
+        try
         {
-            Converter converter = c_converters.get( type );
-            if( null == converter )
-            {
-                if( type instanceof Class )
-                {
-                    converter = createConverterForClass( (Class<?>)type );
-                }
-                else if( type instanceof ParameterizedType )
-                {
-                    converter = createConverterForGenericType( (ParameterizedType)type );
-                }
-                else
-                {
-                    throw new OpenDataException( "Unsupported type: " + type );
-                }
-                addConverter( converter );
-            }
-            return converter;
+            return c_converters.get( type, FACTORY );
+        }
+        catch( final WeakCache.CircularCreationException cce )
+        {
+            final OpenDataException exception = new OpenDataException( "Recursive type: " + type );
+            exception.initCause( cce );
+            throw exception;
+        }
+    }
+
+    private static Converter createConverter( final Type type )
+        throws OpenDataException
+    {
+        if( type instanceof Class )
+        {
+            return createConverterForClass( (Class<?>)type );
+        }
+        else if( type instanceof ParameterizedType )
+        {
+            return createConverterForGenericType( (ParameterizedType)type );
+        }
+        else
+        {
+            throw new OpenDataException( "Unsupported type: " + type );
         }
     }
 
@@ -81,7 +118,9 @@ class ConverterManager
             }
             final Converter converter = getConverterFor( baseType );
             final OpenType baseOpenType = converter.getOpenType();
-            if( converter instanceof SimpleTypeConverter )
+            //Arrays of wrapper types are valid open values and can be passed
+            //through but arrays of primitives must be boxed to match the open type
+            if( converter instanceof SimpleTypeConverter && !baseType.isPrimitive() )
             {
                 final ArrayType openType = new ArrayType( dimension, baseOpenType );
                 return new SimpleTypeConverter( type, openType );
@@ -149,6 +188,59 @@ class ConverterManager
         }
     }
 
+    /**
+     * Return true if every class that makes up type is loaded by the
+     * ClassLoader of PanMX or one of its parents.
+     *
+     * @param type the type.
+     * @return true if the converter for type should be held strongly.
+     */
+    static boolean isPinned( final Type type )
+    {
+        if( type instanceof Class )
+        {
+            final ClassLoader classLoader = ( (Class<?>)type ).getClassLoader();
+            if( null == classLoader )
+            {
+                return true;
+            }
+            for( ClassLoader parent = ConverterManager.class.getClassLoader();
+                 null != parent;
+                 parent = parent.getParent() )
+            {
+                if( classLoader == parent )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if( type instanceof ParameterizedType )
+        {
+            final ParameterizedType parameterizedType = (ParameterizedType)type;
+            if( !isPinned( parameterizedType.getRawType() ) )
+            {
+                return false;
+            }
+            for( final Type argument : parameterizedType.getActualTypeArguments() )
+            {
+                if( !isPinned( argument ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        else if( type instanceof GenericArrayType )
+        {
+            return isPinned( ( (GenericArrayType)type ).getGenericComponentType() );
+        }
+        else
+        {
+            return false;
+        }
+    }
+
     /**
      * Add converter into registry.
      *
@@ -0,0 +1,203 @@
+package panmx.rmx;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The open cursors over the pageable values of a single RMXBean.
+ *
+ * <p>A cursor holds the java value returned by the target and hands out
+ * its elements a page at a time so only one page is converted to open
+ * types at once. The elements of a List or Map are copied when the cursor
+ * is opened so the target may modify the value while it is being paged
+ * without the cursor failing or skipping elements. A cursor that is idle for longer than the timeout of
+ * its member is closed the next time the table is used, which avoids a
+ * thread to reap cursors abandoned by remote clients.</p>
+ */
+final class CursorTable
+{
+    /** The source of cursor identifiers. Shared so an identifier is never reused by another bean. */
+    private static final AtomicLong c_nextId = new AtomicLong();
+    /** The open cursors keyed by identifier. */
+    private final ConcurrentMap<Long, Cursor> m_cursors =
+        new ConcurrentHashMap<Long, Cursor>( 4, 0.75F, 1 );
+
+    /**
+     * Open a cursor over value.
+     *
+     * @param member the pageable member that returned value.
+     * @param value the java value, a List, Map or array. May be null.
+     * @return the cursor.
+     */
+    Cursor open( final InvocationTarget member, final Object value )
+    {
+        final long now = System.nanoTime();
+        expire( now );
+        final Cursor cursor = new Cursor( c_nextId.incrementAndGet(), member, value, now );
+        m_cursors.put( cursor.m_id, cursor );
+        return cursor;
+    }
+
+    /**
+     * Return the open cursor with identifier over a value of member.
+     *
+     * @param id the identifier.
+     * @param member the pageable member.
+     * @return the cursor or null if it does not exist, is closed or has expired.
+     */
+    Cursor get( final long id, final InvocationTarget member )
+    {
+        final long now = System.nanoTime();
+        expire( now );
+        final Cursor cursor = m_cursors.get( id );
+        if( null == cursor || member != cursor.m_member )
+        {
+            return null;
+        }
+        cursor.m_deadline = now + member.getCursorTimeout();
+        return cursor;
+    }
+
+    /**
+     * Close the cursor with identifier. Closing a cursor that does not exist has no effect.
+     *
+     * @param id the identifier.
+     */
+    void close( final long id )
+    {
+        m_cursors.remove( id );
+    }
+
+    /**
+     * Close every cursor.
+     */
+    void clear()
+    {
+        m_cursors.clear();
+    }
+
+    /**
+     * Return the number of open cursors.
+     *
+     * @return the number of open cursors.
+     */
+    int size()
+    {
+        return m_cursors.size();
+    }
+
+    private void expire( final long now )
+    {
+        for( final Iterator<Cursor> iterator = m_cursors.values().iterator(); iterator.hasNext(); )
+        {
+            if( now - iterator.next().m_deadline > 0 )
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A position within a pageable value.
+     */
+    static final class Cursor
+    {
+        /** The identifier of cursor. */
+        final long m_id;
+        /** The pageable member that returned the value. */
+        final InvocationTarget m_member;
+        /** The array being paged, or a copy of the elements, or entries, of a List or Map. */
+        private final Object m_array;
+        /** The number of elements in the array. */
+        private final int m_length;
+        /** The index of the next element of the array. */
+        private int m_index;
+        /** The time after which the cursor expires. */
+        volatile long m_deadline;
+
+        Cursor( final long id, final InvocationTarget member, final Object value, final long now )
+        {
+            m_id = id;
+            m_member = member;
+            m_deadline = now + member.getCursorTimeout();
+            if( null == value )
+            {
+                m_array = null;
+            }
+            else if( value.getClass().isArray() )
+            {
+                m_array = value;
+            }
+            else if( value instanceof Map )
+            {
+                m_array = ( (Map<?, ?>)value ).entrySet().toArray();
+            }
+            else
+            {
+                m_array = ( (List<?>)value ).toArray();
+            }
+            m_length = ( null == m_array ) ? 0 : Array.getLength( m_array );
+        }
+
+        /**
+         * Return a java value of the same type as the paged value holding
+         * the next count elements or fewer if the value is exhausted.
+         *
+         * @param count the maximum number of elements.
+         * @return the page.
+         */
+        synchronized Object next( final int count )
+        {
+            final Class<?> type = m_member.getMethod().getReturnType();
+            if( type.isArray() )
+            {
+                final int size = ( null == m_array ) ? 0 : Math.min( count, m_length - m_index );
+                final Object page = Array.newInstance( type.getComponentType(), size );
+                if( 0 != size )
+                {
+                    System.arraycopy( m_array, m_index, page, 0, size );
+                    m_index += size;
+                }
+                return page;
+            }
+            final int size = Math.min( count, m_length - m_index );
+            final Object[] elements = (Object[])m_array;
+            if( Map.class == type )
+            {
+                final LinkedHashMap<Object, Object> page = new LinkedHashMap<Object, Object>();
+                for( int i = 0; i < size; i++ )
+                {
+                    final Map.Entry<?, ?> entry = (Map.Entry<?, ?>)elements[ m_index++ ];
+                    page.put( entry.getKey(), entry.getValue() );
+                }
+                return page;
+            }
+            else
+            {
+                final ArrayList<Object> page = new ArrayList<Object>( size );
+                for( int i = 0; i < size; i++ )
+                {
+                    page.add( elements[ m_index++ ] );
+                }
+                return page;
+            }
+        }
+
+        /**
+         * Return true if every element has been returned.
+         *
+         * @return true if exhausted.
+         */
+        synchronized boolean isExhausted()
+        {
+            return m_index == m_length;
+        }
+    }
+}
@@ -8,6 +8,8 @@ class DataFieldDescriptor
     private final Converter m_converter;
     private Method m_accessor;
     private Method m_mutator;
+    private int m_accessorIndex = -1;
+    private int m_mutatorIndex = -1;
 
     DataFieldDescriptor( final String name,
                          final Converter converter, Method accessor, Method mutator )
@@ -37,4 +39,38 @@ class DataFieldDescriptor
     {
         return m_mutator;
     }
+
+    /**
+     * Return the index of accessor in the types Invoker or -1 if the
+     * accessor must be invoked via reflection.
+     * This is only valid after the type has been frozen.
+     *
+     * @return the index of accessor.
+     */
+    int getAccessorIndex()
+    {
+        return m_accessorIndex;
+    }
+
+    void setAccessorIndex( final int accessorIndex )
+    {
+        m_accessorIndex = accessorIndex;
+    }
+
+    /**
+     * Return the index of mutator in the types Invoker or -1 if the
+     * mutator must be invoked via reflection.
+     * This is only valid after the type has been frozen.
+     *
+     * @return the index of mutator.
+     */
+    int getMutatorIndex()
+    {
+        return m_mutatorIndex;
+    }
+
+    void setMutatorIndex( final int mutatorIndex )
+    {
+        m_mutatorIndex = mutatorIndex;
+    }
 }
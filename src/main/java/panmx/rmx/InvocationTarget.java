@@ -1,20 +1,65 @@
 package panmx.rmx;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import panmx.stats.MemberStatistics;
+import panmx.util.BeanUtil;
 
 class InvocationTarget
 {
+    /** Kind of target that reads an attribute. */
+    static final int ACCESSOR = 0;
+    /** Kind of target that writes an attribute. */
+    static final int MUTATOR = 1;
+    /** Kind of target that performs an operation. */
+    static final int OPERATION = 2;
+    /** The items of a page of a pageable value. Sorted so pages can be RMXCompositeData. */
+    static final String[] PAGE_ITEMS = new String[]{"cursor", "values"};
+    /** The descriptions of the items of a page. */
+    private static final String[] PAGE_DESCRIPTIONS =
+        new String[]{"The cursor to fetch the next page from or 0 if there are no more pages",
+                     "The elements of the page"};
+
     private final Method m_method;
-    private final Converter[] m_parameterConverters;
-    private final Converter m_returnValueConverter;
+    private final int m_kind;
+    private final String[] m_signature;
+    private Converter[] m_parameterConverters;
+    private Converter m_returnValueConverter;
+    /** Flag indicating whether the converters have been resolved. Written after the converters. */
+    private volatile boolean m_resolved;
+    private int m_index = -1;
+    private long m_currencyTimeLimit;
+    /** The read timeout in nanoseconds, 0 to use the default or negative for no timeout. */
+    private long m_readTimeout;
+    /** The statistics for method or null if statistics are not collected. */
+    private volatile MemberStatistics m_statistics;
+    /** The name of the attribute or operation if the value is pageable, otherwise null. */
+    private String m_pageName;
+    /** The default number of elements in a page. */
+    private int m_pageSize;
+    /** The time in nanoseconds a cursor over the value may be idle. */
+    private long m_cursorTimeout;
+    /** The converter for the whole value, and each page of it, if pageable. */
+    private Converter m_pageConverter;
+    /** The type of a page of the value if pageable. */
+    private CompositeType m_pageType;
 
-    InvocationTarget( final Method method,
-                      final Converter[] parameterConverters,
-                      final Converter returnValueConverter )
+    /**
+     * Create a target whose converters are resolved by {@link #resolve()}
+     * or on first use.
+     *
+     * @param method the method.
+     * @param kind one of ACCESSOR, MUTATOR or OPERATION.
+     */
+    InvocationTarget( final Method method, final int kind )
     {
         m_method = method;
-        m_parameterConverters = parameterConverters;
-        m_returnValueConverter = returnValueConverter;
+        m_kind = kind;
+        m_signature = BeanUtil.getSignature( method );
     }
 
     Method getMethod()
@@ -22,13 +67,295 @@ class InvocationTarget
         return m_method;
     }
 
+    /**
+     * Return the names of the parameter types of method.
+     * The array MUST NOT be modified.
+     *
+     * @return the signature of method.
+     */
+    String[] getSignature()
+    {
+        return m_signature;
+    }
+
+    /**
+     * Return true if signature matches the signature of method.
+     * A null signature is equivalent to an empty signature.
+     *
+     * @param signature the signature.
+     * @return true if signature matches.
+     */
+    boolean matches( final String[] signature )
+    {
+        final int length = ( null == signature ) ? 0 : signature.length;
+        if( length != m_signature.length )
+        {
+            return false;
+        }
+        for( int i = 0; i < length; i++ )
+        {
+            if( !m_signature[ i ].equals( signature[ i ] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     Converter[] getParameterConverters()
+        throws OpenDataException
     {
+        if( !m_resolved )
+        {
+            resolve();
+        }
         return m_parameterConverters;
     }
 
     Converter getReturnValueConverter()
+        throws OpenDataException
     {
+        if( !m_resolved )
+        {
+            resolve();
+        }
         return m_returnValueConverter;
     }
+
+    /**
+     * Resolve the converters for method if they have not been resolved.
+     * Accessors always have a return value converter and mutators always
+     * have a parameter converter. Operations have no converters for
+     * parameters and return values that are SimpleTypes.
+     *
+     * @throws OpenDataException if unable to get converter for a type of method.
+     */
+    synchronized void resolve()
+        throws OpenDataException
+    {
+        if( m_resolved )
+        {
+            return;
+        }
+        if( ACCESSOR == m_kind )
+        {
+            m_returnValueConverter = ConverterManager.getConverterFor( m_method.getGenericReturnType() );
+        }
+        else if( MUTATOR == m_kind )
+        {
+            final Type[] types = m_method.getGenericParameterTypes();
+            m_parameterConverters = new Converter[]{ConverterManager.getConverterFor( types[0] )};
+        }
+        else
+        {
+            m_parameterConverters = getConverters( m_method.getGenericParameterTypes() );
+            m_returnValueConverter = getConverter( m_method.getGenericReturnType() );
+        }
+        if( null != m_pageName )
+        {
+            m_pageConverter = ConverterManager.getConverterFor( m_method.getGenericReturnType() );
+            final String name = m_method.getDeclaringClass().getName() + "." + m_pageName + ".Page";
+            final OpenType[] types = new OpenType[]{SimpleType.LONG, m_pageConverter.getOpenType()};
+            m_pageType = new CompositeType( name, name, PAGE_ITEMS, PAGE_DESCRIPTIONS, types );
+        }
+        m_resolved = true;
+    }
+
+    /**
+     * Return converter for specified type if type is not a SimpleType.
+     * This method will return null if type is void, null or a SimpleType.
+     *
+     * @param type the type.
+     * @return the Converter.
+     * @throws OpenDataException if unable to get converter for type.
+     */
+    private static Converter getConverter( final Type type )
+        throws OpenDataException
+    {
+        if( null == type || Void.TYPE == type )
+        {
+            return null;
+        }
+        final Converter converter = ConverterManager.getConverterFor( type );
+        if( converter instanceof SimpleTypeConverter )
+        {
+            return null;
+        }
+        else
+        {
+            return converter;
+        }
+    }
+
+    /**
+     * Return an array of converters for specified types.
+     * This method will return null if all the types are SimpleTypes.
+     *
+     * @param types the types.
+     * @return the Converters.
+     * @throws OpenDataException if unable to get converter for an element.
+     */
+    private static Converter[] getConverters( final Type[] types )
+        throws OpenDataException
+    {
+        if( 0 == types.length )
+        {
+            return null;
+        }
+        else
+        {
+            final Converter[] converters = new Converter[types.length];
+            boolean nonSimpleTypes = false;
+
+            for( int i = 0; i < converters.length; i++ )
+            {
+                converters[i] = ConverterManager.getConverterFor( types[i] );
+                nonSimpleTypes = nonSimpleTypes ||
+                                 !( converters[i] instanceof SimpleTypeConverter );
+            }
+
+            if( nonSimpleTypes )
+            {
+                return converters;
+            }
+            else
+            {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Return the time in nanoseconds for which the value returned by method may be
+     * cached or 0 if the value should not be cached.
+     *
+     * @return the time for which value may be cached.
+     */
+    long getCurrencyTimeLimit()
+    {
+        return m_currencyTimeLimit;
+    }
+
+    void setCurrencyTimeLimit( final long currencyTimeLimit )
+    {
+        m_currencyTimeLimit = currencyTimeLimit;
+    }
+
+    /**
+     * Return the time in nanoseconds that a concurrent bulk read waits for
+     * method, 0 if the default applies or a negative value if the bulk read
+     * waits until method returns.
+     *
+     * @return the read timeout.
+     */
+    long getReadTimeout()
+    {
+        return m_readTimeout;
+    }
+
+    void setReadTimeout( final long readTimeout )
+    {
+        m_readTimeout = readTimeout;
+    }
+
+    /**
+     * Return the index of method in the types Invoker.
+     * This is only valid after the type has been frozen.
+     *
+     * @return the index of method.
+     */
+    int getIndex()
+    {
+        return m_index;
+    }
+
+    void setIndex( final int index )
+    {
+        m_index = index;
+    }
+
+    /**
+     * Return the statistics for method or null if statistics are not collected.
+     *
+     * @return the statistics or null.
+     */
+    MemberStatistics getStatistics()
+    {
+        return m_statistics;
+    }
+
+    void setStatistics( final MemberStatistics statistics )
+    {
+        m_statistics = statistics;
+    }
+
+    /**
+     * Mark the value returned by method as pageable.
+     *
+     * @param name the name of the attribute or operation.
+     * @param pageSize the default number of elements in a page.
+     * @param cursorTimeout the time in nanoseconds a cursor may be idle.
+     */
+    void setPageable( final String name, final int pageSize, final long cursorTimeout )
+    {
+        m_pageName = name;
+        m_pageSize = pageSize;
+        m_cursorTimeout = cursorTimeout;
+    }
+
+    /**
+     * Return the name of the attribute or operation if the value returned
+     * by method is pageable, otherwise null.
+     *
+     * @return the name or null.
+     */
+    String getPageName()
+    {
+        return m_pageName;
+    }
+
+    int getPageSize()
+    {
+        return m_pageSize;
+    }
+
+    long getCursorTimeout()
+    {
+        return m_cursorTimeout;
+    }
+
+    /**
+     * Return the converter for the value returned by method. Each page is
+     * converted as a value of the same type holding some of the elements.
+     * This is only valid if the value is pageable.
+     *
+     * @return the converter.
+     * @throws OpenDataException if unable to get converter for the return type.
+     */
+    Converter getPageConverter()
+        throws OpenDataException
+    {
+        if( !m_resolved )
+        {
+            resolve();
+        }
+        return m_pageConverter;
+    }
+
+    /**
+     * Return the type of a page of the value returned by method.
+     * This is only valid if the value is pageable.
+     *
+     * @return the type.
+     * @throws OpenDataException if unable to get converter for the return type.
+     */
+    CompositeType getPageType()
+        throws OpenDataException
+    {
+        if( !m_resolved )
+        {
+            resolve();
+        }
+        return m_pageType;
+    }
 }
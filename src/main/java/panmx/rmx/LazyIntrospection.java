@@ -0,0 +1,54 @@
+package panmx.rmx;
+
+/**
+ * Controls whether RMXBean types are prepared when created or on first use.
+ *
+ * <p>By default the converter for every attribute, parameter and return
+ * value of a type is resolved, and its MBeanInfo is created, when the type is
+ * created so a non-compliant type is reported by the factory method. Once
+ * enabled, types created afterwards resolve the converters of a member when
+ * the member is first used and describe their attributes and operations when
+ * they are first requested. Registering a bean does not request them so
+ * services that register many beans that are rarely inspected avoid most of
+ * the cost of preparing their types.</p>
+ *
+ * <p>A lazy type that is not compliant is reported when the offending member
+ * is used or described. {@link RMXBeanFactory#validate(Object)} reports it
+ * with the same {@link javax.management.NotCompliantMBeanException} as
+ * creating the type does when this is disabled.</p>
+ */
+public final class LazyIntrospection
+{
+    /** Flag indicating whether types created from now on are lazy. */
+    private static volatile boolean c_enabled;
+
+    private LazyIntrospection()
+    {
+    }
+
+    /**
+     * Prepare types created from now on when first used.
+     */
+    public static void enable()
+    {
+        c_enabled = true;
+    }
+
+    /**
+     * Prepare types created from now on when created.
+     */
+    public static void disable()
+    {
+        c_enabled = false;
+    }
+
+    /**
+     * Return true if types created from now on are prepared when first used.
+     *
+     * @return true if enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return c_enabled;
+    }
+}
@@ -0,0 +1,110 @@
+package panmx.rmx;
+
+import java.io.ObjectStreamException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanConstructorInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenMBeanAttributeInfo;
+import javax.management.openmbean.OpenMBeanConstructorInfo;
+import javax.management.openmbean.OpenMBeanInfoSupport;
+import javax.management.openmbean.OpenMBeanOperationInfo;
+
+/**
+ * MBeanInfo of a lazy RMXBeanType. The class name and description are
+ * available immediately, which is all the MBeanServer reads when a bean
+ * is registered. The attributes and operations are described by the
+ * MBeanInfo of the type which is created when first requested. The info
+ * is serialized as the MBeanInfo of the type.
+ */
+final class LazyOpenMBeanInfo
+    extends OpenMBeanInfoSupport
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The type described. */
+    private final transient RMXBeanType m_type;
+    /** The MBeanInfo of the type or null if not yet created. */
+    private transient volatile MBeanInfo m_mBeanInfo;
+
+    LazyOpenMBeanInfo( final RMXBeanType type, final Class<?> managedType )
+    {
+        super( managedType.getName(),
+               OpenMBeanInfoCreator.getDescription( managedType ),
+               new OpenMBeanAttributeInfo[0],
+               new OpenMBeanConstructorInfo[0],
+               new OpenMBeanOperationInfo[0],
+               new MBeanNotificationInfo[0] );
+        m_type = type;
+    }
+
+    /**
+     * Return the MBeanInfo of the type, creating it on first use.
+     *
+     * @return the MBeanInfo.
+     * @throws OpenDataException if a member of the type does not conform to the OpenMBean specification.
+     */
+    MBeanInfo getMBeanInfo()
+        throws OpenDataException
+    {
+        if( null == m_mBeanInfo )
+        {
+            synchronized( this )
+            {
+                if( null == m_mBeanInfo )
+                {
+                    m_mBeanInfo = m_type.createMBeanInfo();
+                }
+            }
+        }
+        return m_mBeanInfo;
+    }
+
+    /**
+     * Return the MBeanInfo of the type, reporting non-compliance as an unchecked exception.
+     *
+     * @return the MBeanInfo.
+     */
+    private MBeanInfo getResolvedMBeanInfo()
+    {
+        try
+        {
+            return getMBeanInfo();
+        }
+        catch( final OpenDataException ode )
+        {
+            final IllegalStateException exception =
+                new IllegalStateException( "Type " + getClassName() + " is not compliant: " + ode.getMessage() );
+            exception.initCause( ode );
+            throw exception;
+        }
+    }
+
+    public MBeanAttributeInfo[] getAttributes()
+    {
+        return getResolvedMBeanInfo().getAttributes();
+    }
+
+    public MBeanOperationInfo[] getOperations()
+    {
+        return getResolvedMBeanInfo().getOperations();
+    }
+
+    public MBeanConstructorInfo[] getConstructors()
+    {
+        return getResolvedMBeanInfo().getConstructors();
+    }
+
+    public MBeanNotificationInfo[] getNotifications()
+    {
+        return getResolvedMBeanInfo().getNotifications();
+    }
+
+    private Object writeReplace()
+        throws ObjectStreamException
+    {
+        return getResolvedMBeanInfo();
+    }
+}
@@ -6,12 +6,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import javax.management.openmbean.CompositeData;
-import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.TabularData;
-import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
 /**
@@ -24,7 +22,7 @@ class MapConverter
     private static final String KEY = "key";
     /** Name of value field in tabular data. */
     private static final String VALUE = "value";
-    /** Fields that appear in tabular data. */
+    /** Fields that appear in tabular data. Must be sorted as they are the names of RMXCompositeData rows. */
     private static final String[] ITEMS = new String[]{KEY, VALUE};
     /** Fields that uniquely identify row in tabular data. */
     private static final String[] INDEXS = new String[]{KEY};
@@ -77,7 +75,8 @@ class MapConverter
 
         final @SuppressWarnings(value = {"unchecked"}) Map<Object, Object> map =
             (Map<Object, Object>)object;
-        final TabularDataSupport support = new TabularDataSupport( m_openType );
+        //Distinct keys may convert to the same open value so indexes are checked
+        final RMXTabularData data = new RMXTabularData( m_openType, map.size() );
         final CompositeType type = m_openType.getRowType();
 
         final Iterator<Map.Entry<Object, Object>> iterator = map.entrySet().iterator();
@@ -86,12 +85,10 @@ class MapConverter
             final Map.Entry entry = iterator.next();
             final Object key = m_keyConverter.toOpenType( entry.getKey() );
             final Object value = m_valueConverter.toOpenType( entry.getValue() );
-            final CompositeDataSupport rowSupport =
-                new CompositeDataSupport( type, ITEMS, new Object[]{key, value} );
-            support.put( rowSupport );
+            data.appendDistinct( new RMXCompositeData( type, ITEMS, new Object[]{key, value} ) );
         }
 
-        return support;
+        return data;
     }
 
     public Object toJavaType( final Object object )
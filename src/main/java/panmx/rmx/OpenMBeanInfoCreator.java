@@ -8,6 +8,7 @@ import java.util.Map;
 import javax.management.MBeanInfo;
 import javax.management.MBeanNotificationInfo;
 import javax.management.MBeanOperationInfo;
+import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenMBeanAttributeInfo;
 import javax.management.openmbean.OpenMBeanAttributeInfoSupport;
@@ -33,6 +34,14 @@ final class OpenMBeanInfoCreator
     private static final String EMPTY_STRING = "";
     /** Constant used to prefix unamed parameters. */
     private static final String PARAM_NAME_PREFIX = "param";
+    /** The parameter of cursor operations that identifies the cursor. */
+    private static final OpenMBeanParameterInfo CURSOR_PARAMETER =
+        new OpenMBeanParameterInfoSupport( "cursor", "The cursor", SimpleType.LONG );
+    /** The parameter of cursor operations that is the number of elements to return. */
+    private static final OpenMBeanParameterInfo COUNT_PARAMETER =
+        new OpenMBeanParameterInfoSupport( "count",
+                                           "The number of elements to return or 0 for the default page size",
+                                           SimpleType.INTEGER );
 
     /**
      * Create a MBeanInfo for supplied management specification.
@@ -41,6 +50,8 @@ final class OpenMBeanInfoCreator
      * @param accessors the attribute accessors.
      * @param mutators the attribute mutators.
      * @param operations the operations.
+     * @param changesType the type returned by the changes operation or null if changes are not tracked.
+     * @param pageables the pageable attribute accessors and operations.
      * @return the MBeanInfo.
      * @throws OpenDataException if managed resource does not conform to
      *                           OpenMBean specification.
@@ -48,35 +59,81 @@ final class OpenMBeanInfoCreator
     static MBeanInfo createMBeanInfo( final Class<?> type,
                                       final Map<String, InvocationTarget> accessors,
                                       final Map<String, InvocationTarget> mutators,
-                                      final Map<String, InvocationTarget> operations )
+                                      final Map<String, InvocationTarget> operations,
+                                      final CompositeType changesType,
+                                      final Map<String, InvocationTarget> pageables )
         throws OpenDataException
     {
         final OpenMBeanAttributeInfo[] attributeInfos = collectAttributes( accessors, mutators );
-        final OpenMBeanOperationInfo[] operationInfos = collectOperations( operations );
+        final OpenMBeanOperationInfo[] operationInfos = collectOperations( operations, changesType, pageables );
 
-        final String name = type.getName();
-        final MBean annotation = type.getAnnotation( MBean.class );
-        final String description = ( null != annotation ) ? annotation.description() : EMPTY_STRING;
-        return new OpenMBeanInfoSupport( name,
-                                         fixDescription( description, name ),
+        return new OpenMBeanInfoSupport( type.getName(),
+                                         getDescription( type ),
                                          attributeInfos,
                                          new OpenMBeanConstructorInfo[0],
                                          operationInfos,
                                          new MBeanNotificationInfo[0] );
     }
 
+    /**
+     * Return the description of the managed type.
+     *
+     * @param type the managed type.
+     * @return the description.
+     */
+    static String getDescription( final Class<?> type )
+    {
+        final String name = type.getName();
+        final MBean annotation = type.getAnnotation( MBean.class );
+        final String description = ( null != annotation ) ? annotation.description() : EMPTY_STRING;
+        return fixDescription( description, name );
+    }
+
     /**
      * Collect operation definitions from specified operations.
      *
      * @param operations the operations.
+     * @param changesType the type returned by the changes operation or null if changes are not tracked.
+     * @param pageables the pageable attribute accessors and operations.
      * @return the infos representing operation.
      */
-    private static OpenMBeanOperationInfo[] collectOperations( final Map<String, InvocationTarget> operations )
+    private static OpenMBeanOperationInfo[] collectOperations( final Map<String, InvocationTarget> operations,
+                                                               final CompositeType changesType,
+                                                               final Map<String, InvocationTarget> pageables )
         throws OpenDataException
     {
+        final int cursorOperations = pageables.isEmpty() ? 0 : pageables.size() * 2 + 1;
+        final int extra = ( ( null != changesType ) ? 1 : 0 ) + cursorOperations;
         final OpenMBeanOperationInfo[] infos =
-            new OpenMBeanOperationInfo[operations.size()];
+            new OpenMBeanOperationInfo[operations.size() + extra];
         int index = 0;
+        if( null != changesType )
+        {
+            final OpenMBeanParameterInfo[] params = new OpenMBeanParameterInfo[]
+                {new OpenMBeanParameterInfoSupport( "version",
+                                                    "The version last received by the caller",
+                                                    SimpleType.LONG )};
+            infos[index++] =
+                new OpenMBeanOperationInfoSupport( RMXBeanType.CHANGES_OPERATION,
+                                                   "Return the attributes changed since a version",
+                                                   params,
+                                                   changesType,
+                                                   MBeanOperationInfo.INFO );
+        }
+        for( final InvocationTarget member : pageables.values() )
+        {
+            index = collectCursorOperations( member, infos, index );
+        }
+        if( !pageables.isEmpty() )
+        {
+            final OpenMBeanParameterInfo[] params = new OpenMBeanParameterInfo[]{CURSOR_PARAMETER};
+            infos[index++] =
+                new OpenMBeanOperationInfoSupport( RMXBeanType.CLOSE_CURSOR_OPERATION,
+                                                   "Close a cursor before the last page has been fetched",
+                                                   params,
+                                                   SimpleType.VOID,
+                                                   MBeanOperationInfo.ACTION );
+        }
         for( final InvocationTarget target : operations.values() )
         {
             final Method method = target.getMethod();
@@ -97,6 +154,40 @@ final class OpenMBeanInfoCreator
         return infos;
     }
 
+    /**
+     * Add the operations that open, and fetch from, a cursor over the value of a pageable member.
+     *
+     * @param member the pageable attribute accessor or operation.
+     * @param infos the operation infos. (OUT)
+     * @param index the index at which to add the operations.
+     * @return the index after the added operations.
+     */
+    private static int collectCursorOperations( final InvocationTarget member,
+                                                final OpenMBeanOperationInfo[] infos,
+                                                final int index )
+        throws OpenDataException
+    {
+        final String name = member.getPageName();
+        final CompositeType pageType = member.getPageType();
+        final OpenMBeanParameterInfo[] memberParams = getParameters( member.getMethod() );
+        final OpenMBeanParameterInfo[] openParams = new OpenMBeanParameterInfo[memberParams.length + 1];
+        System.arraycopy( memberParams, 0, openParams, 0, memberParams.length );
+        openParams[memberParams.length] = COUNT_PARAMETER;
+        infos[index] =
+            new OpenMBeanOperationInfoSupport( RMXBeanType.getOpenCursorName( name ),
+                                               "Open a cursor over " + name + " and return the first page",
+                                               openParams,
+                                               pageType,
+                                               MBeanOperationInfo.INFO );
+        infos[index + 1] =
+            new OpenMBeanOperationInfoSupport( RMXBeanType.getFetchCursorName( name ),
+                                               "Return the next page from a cursor over " + name,
+                                               new OpenMBeanParameterInfo[]{CURSOR_PARAMETER, COUNT_PARAMETER},
+                                               pageType,
+                                               MBeanOperationInfo.INFO );
+        return index + 2;
+    }
+
     /**
      * Return the parameter infos for specified method.
      *
@@ -169,6 +260,7 @@ final class OpenMBeanInfoCreator
      */
     private static OpenMBeanAttributeInfo[] collectAttributes( final Map<String, InvocationTarget> accessors,
                                                                final Map<String, InvocationTarget> mutators )
+        throws OpenDataException
     {
         final HashSet<String> names = new HashSet<String>();
         names.addAll( accessors.keySet() );
@@ -0,0 +1,157 @@
+package panmx.rmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import javax.management.NotCompliantMBeanException;
+
+/**
+ * Handler for proxies that implement a companion interface of a management
+ * interface whose methods return futures. Each method is dispatched on an
+ * executor by invoking the corresponding method of a synchronous proxy so
+ * values are converted exactly as they are by synchronous proxies.
+ */
+class RMXAsyncInvocationHandler
+    implements InvocationHandler
+{
+    /** The synchronous proxy. */
+    private final Object m_proxy;
+    /** The handler of the synchronous proxy. */
+    private final RMXBeanInvocationHandler m_handler;
+    private final Executor m_executor;
+    /** The methods of the synchronous proxy keyed by the methods of the companion interface. */
+    private final Map<Method, Method> m_methods;
+
+    private RMXAsyncInvocationHandler( final Object proxy,
+                                       final RMXBeanInvocationHandler handler,
+                                       final Executor executor,
+                                       final Map<Method, Method> methods )
+    {
+        m_proxy = proxy;
+        m_handler = handler;
+        m_executor = executor;
+        m_methods = methods;
+    }
+
+    static Object newProxyInstance( final Object proxy,
+                                    final Class<?> asyncType,
+                                    final Executor executor )
+        throws NotCompliantMBeanException
+    {
+        final RMXBeanInvocationHandler handler = RMXBeanInvocationHandler.getHandler( proxy );
+        final Map<Method, Method> methods = mapMethods( proxy.getClass(), asyncType );
+        final RMXAsyncInvocationHandler asyncHandler =
+            new RMXAsyncInvocationHandler( proxy, handler, executor, methods );
+        return Proxy.newProxyInstance( asyncType.getClassLoader(), new Class[]{asyncType}, asyncHandler );
+    }
+
+    /**
+     * Map each method of asyncType to the method of the synchronous proxy
+     * with the same name and parameter types.
+     *
+     * @param proxyClass the class of the synchronous proxy.
+     * @param asyncType the companion interface.
+     * @return the methods of the synchronous proxy keyed by the methods of asyncType.
+     * @throws NotCompliantMBeanException if a method does not return a Future or has no counterpart.
+     */
+    private static Map<Method, Method> mapMethods( final Class<?> proxyClass, final Class<?> asyncType )
+        throws NotCompliantMBeanException
+    {
+        if( !asyncType.isInterface() )
+        {
+            final String message = "Async type " + asyncType.getName() + " must be an interface.";
+            throw new NotCompliantMBeanException( message );
+        }
+        final Map<Method, Method> methods = new HashMap<Method, Method>();
+        for( final Method method : asyncType.getMethods() )
+        {
+            if( !method.getReturnType().isAssignableFrom( FutureTask.class ) )
+            {
+                final String message =
+                    "Method " + method.getName() + " of " + asyncType.getName() + " must return a Future.";
+                throw new NotCompliantMBeanException( message );
+            }
+            final Method target = findMethod( proxyClass, method );
+            if( null == target )
+            {
+                final String message =
+                    "Method " + method.getName() + Arrays.asList( method.getParameterTypes() ) +
+                    " of " + asyncType.getName() + " has no counterpart in the management interface.";
+                throw new NotCompliantMBeanException( message );
+            }
+            methods.put( method, target );
+        }
+        return methods;
+    }
+
+    private static Method findMethod( final Class<?> proxyClass, final Method method )
+    {
+        for( final Class<?> mxType : proxyClass.getInterfaces() )
+        {
+            try
+            {
+                return mxType.getMethod( method.getName(), method.getParameterTypes() );
+            }
+            catch( final NoSuchMethodException nsme )
+            {
+                //Try the next interface
+            }
+        }
+        return null;
+    }
+
+    public Object invoke( final Object proxy, final Method method, final Object[] params )
+        throws Throwable
+    {
+        final Method target = m_methods.get( method );
+        if( null == target )
+        {
+            //Methods of Object
+            final String name = method.getName();
+            if( "equals".equals( name ) )
+            {
+                return proxy == params[0];
+            }
+            else if( "hashCode".equals( name ) )
+            {
+                return System.identityHashCode( proxy );
+            }
+            else
+            {
+                return "RMXAsyncProxy[" + m_handler.getObjectName() + "]";
+            }
+        }
+        final FutureTask<Object> task = new FutureTask<Object>( new Callable<Object>()
+        {
+            public Object call()
+                throws Exception
+            {
+                try
+                {
+                    return m_handler.invoke( m_proxy, target, params );
+                }
+                catch( final Exception e )
+                {
+                    throw e;
+                }
+                catch( final Error error )
+                {
+                    throw error;
+                }
+                catch( final Throwable t )
+                {
+                    throw new UndeclaredThrowableException( t );
+                }
+            }
+        } );
+        m_executor.execute( task );
+        return task;
+    }
+}
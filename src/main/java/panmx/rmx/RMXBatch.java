@@ -0,0 +1,322 @@
+package panmx.rmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import panmx.util.BeanUtil;
+
+/**
+ * A batch of attribute reads against RMXBean proxies.
+ *
+ * <p>Proxies created by {@link RMXBeanFactory#newProxyInstance} are added to
+ * the batch via {@link #add(Object)} which returns a batched view of the
+ * proxy. Attributes read through the batched view before the batch is
+ * executed are recorded and return a default value (null, zero or false).
+ * {@link #execute()} then retrieves all the recorded attributes with a
+ * single getAttributes call per ObjectName and management interface. If
+ * the batch was created with an Executor then the calls are made
+ * concurrently, and any call the Executor rejects is made in the calling
+ * thread.
+ * After the batch has executed, reading a recorded attribute through the
+ * batched view returns the retrieved value. Reading any other attribute or
+ * invoking any other method is passed through to the proxy.</p>
+ *
+ * <pre>
+ *   final RMXBatch batch = RMXBeanFactory.newBatch( executor );
+ *   final LiverRMXBean liver = batch.add( liverProxy );
+ *   liver.getToxicity();
+ *   liver.getChemical();
+ *   batch.execute();
+ *   final float toxicity = liver.getToxicity();
+ * </pre>
+ *
+ * <p>A batch must only be used by a single thread.</p>
+ */
+public final class RMXBatch
+{
+    /** Default values returned for primitive types during recording. */
+    private static final Map<Class<?>, Object> DEFAULT_VALUES = new HashMap<Class<?>, Object>();
+
+    static
+    {
+        DEFAULT_VALUES.put( Boolean.TYPE, Boolean.FALSE );
+        DEFAULT_VALUES.put( Character.TYPE, Character.valueOf( (char)0 ) );
+        DEFAULT_VALUES.put( Byte.TYPE, Byte.valueOf( (byte)0 ) );
+        DEFAULT_VALUES.put( Short.TYPE, Short.valueOf( (short)0 ) );
+        DEFAULT_VALUES.put( Integer.TYPE, Integer.valueOf( 0 ) );
+        DEFAULT_VALUES.put( Long.TYPE, Long.valueOf( 0L ) );
+        DEFAULT_VALUES.put( Float.TYPE, Float.valueOf( 0F ) );
+        DEFAULT_VALUES.put( Double.TYPE, Double.valueOf( 0D ) );
+    }
+
+    /** The executor used to fan out requests or null to make requests in calling thread. */
+    private final Executor m_executor;
+    /** The requests keyed by remote bean. */
+    private final Map<Target, Request> m_requests = new LinkedHashMap<Target, Request>();
+    /** Flag indicating whether batch has been executed. */
+    private boolean m_executed;
+
+    RMXBatch( final Executor executor )
+    {
+        m_executor = executor;
+    }
+
+    /**
+     * Add proxy to batch and return the batched view of the proxy.
+     *
+     * @param proxy the proxy created by {@link RMXBeanFactory#newProxyInstance}.
+     * @return the batched view of proxy.
+     * @throws IllegalArgumentException if proxy is not a RMXBean proxy.
+     * @throws IllegalStateException if the batch has already been executed.
+     */
+    public <T> T add( final T proxy )
+    {
+        if( null == proxy )
+        {
+            throw new NullPointerException( "proxy" );
+        }
+        if( m_executed )
+        {
+            throw new IllegalStateException( "Batch has already been executed." );
+        }
+        final RMXBeanInvocationHandler handler = RMXBeanInvocationHandler.getHandler( proxy );
+        final Target target = new Target( handler.getConnection(), handler.getObjectName(), handler.getType() );
+        Request request = m_requests.get( target );
+        if( null == request )
+        {
+            request = new Request( target );
+            m_requests.put( target, request );
+        }
+        final Class<?> type = proxy.getClass();
+        final Object batched =
+            Proxy.newProxyInstance( type.getClassLoader(),
+                                    type.getInterfaces(),
+                                    new BatchInvocationHandler( proxy, handler, request ) );
+        @SuppressWarnings( value = {"unchecked"} ) final T result = (T)batched;
+        return result;
+    }
+
+    /**
+     * Retrieve all recorded attributes.
+     * Failures to retrieve attributes are not reported by this method but
+     * are instead reported when the attribute is read through a batched view.
+     *
+     * @throws InterruptedException if interrupted while waiting for requests to complete.
+     * @throws IllegalStateException if the batch has already been executed.
+     */
+    public void execute()
+        throws InterruptedException
+    {
+        if( m_executed )
+        {
+            throw new IllegalStateException( "Batch has already been executed." );
+        }
+        m_executed = true;
+        if( null == m_executor )
+        {
+            for( final Request request : m_requests.values() )
+            {
+                request.run();
+            }
+        }
+        else
+        {
+            final CountDownLatch latch = new CountDownLatch( m_requests.size() );
+            for( final Request request : m_requests.values() )
+            {
+                final Runnable counted = new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            request.run();
+                        }
+                        finally
+                        {
+                            latch.countDown();
+                        }
+                    }
+                };
+                try
+                {
+                    m_executor.execute( counted );
+                }
+                catch( final RejectedExecutionException ree )
+                {
+                    counted.run();
+                }
+            }
+            latch.await();
+        }
+    }
+
+    /**
+     * Return the default value for specified type.
+     *
+     * @param type the type.
+     * @return the default value.
+     */
+    private static Object getDefaultValue( final Class<?> type )
+    {
+        return DEFAULT_VALUES.get( type );
+    }
+
+    /**
+     * A remote bean identified by connection and ObjectName, viewed through
+     * the type of a proxy. Proxies of different types for the same bean are
+     * separate targets as each type decodes attribute values differently.
+     */
+    private static final class Target
+    {
+        private final MBeanServerConnection m_connection;
+        private final ObjectName m_objectName;
+        private final RMXBeanType m_type;
+
+        Target( final MBeanServerConnection connection, final ObjectName objectName, final RMXBeanType type )
+        {
+            m_connection = connection;
+            m_objectName = objectName;
+            m_type = type;
+        }
+
+        public boolean equals( final Object object )
+        {
+            if( !( object instanceof Target ) )
+            {
+                return false;
+            }
+            final Target other = (Target)object;
+            return m_connection == other.m_connection &&
+                   m_type == other.m_type &&
+                   m_objectName.equals( other.m_objectName );
+        }
+
+        public int hashCode()
+        {
+            return ( System.identityHashCode( m_connection ) * 31 + m_objectName.hashCode() ) * 31 +
+                   System.identityHashCode( m_type );
+        }
+    }
+
+    /**
+     * The attributes to read from a single remote bean and the results.
+     */
+    private final class Request
+        implements Runnable
+    {
+        /** The remote bean. */
+        private final Target m_target;
+        /** The names of attributes to read. */
+        private final LinkedHashSet<String> m_names = new LinkedHashSet<String>();
+        /** The decoded attribute values. Only valid after executed. */
+        private final Map<String, Object> m_values = new HashMap<String, Object>();
+        /** The error that occurred while retrieving attributes, if any. */
+        private Throwable m_failure;
+
+        Request( final Target target )
+        {
+            m_target = target;
+        }
+
+        void record( final String name )
+        {
+            m_names.add( name );
+        }
+
+        public void run()
+        {
+            if( m_names.isEmpty() )
+            {
+                return;
+            }
+            try
+            {
+                final String[] names = m_names.toArray( new String[m_names.size()] );
+                final AttributeList attributes =
+                    m_target.m_type.getAttributes( m_target.m_connection, m_target.m_objectName, names );
+                for( final Object element : attributes )
+                {
+                    final Attribute attribute = (Attribute)element;
+                    m_values.put( attribute.getName(), attribute.getValue() );
+                }
+            }
+            catch( final Throwable t )
+            {
+                m_failure = t;
+            }
+        }
+
+        boolean hasValue( final String name )
+        {
+            return m_values.containsKey( name );
+        }
+
+        Object getValue( final String name )
+        {
+            return m_values.get( name );
+        }
+
+        Throwable getFailure()
+        {
+            return m_failure;
+        }
+    }
+
+    /**
+     * Handler for the batched view of a proxy.
+     */
+    private final class BatchInvocationHandler
+        implements InvocationHandler
+    {
+        /** The underlying proxy. */
+        private final Object m_proxy;
+        /** The handler of the underlying proxy. */
+        private final RMXBeanInvocationHandler m_handler;
+        /** The request for remote bean. */
+        private final Request m_request;
+
+        BatchInvocationHandler( final Object proxy,
+                                final RMXBeanInvocationHandler handler,
+                                final Request request )
+        {
+            m_proxy = proxy;
+            m_handler = handler;
+            m_request = request;
+        }
+
+        public Object invoke( final Object proxy, final Method method, final Object[] params )
+            throws Throwable
+        {
+            if( BeanUtil.isAccessor( method ) )
+            {
+                final String name = BeanUtil.getAttributeName( method );
+                if( !m_executed )
+                {
+                    m_request.record( name );
+                    return getDefaultValue( method.getReturnType() );
+                }
+                else if( null != m_request.getFailure() )
+                {
+                    throw m_request.getFailure();
+                }
+                else if( m_request.hasValue( name ) )
+                {
+                    return m_request.getValue( name );
+                }
+            }
+            return m_handler.invoke( m_proxy, method, params );
+        }
+    }
+}
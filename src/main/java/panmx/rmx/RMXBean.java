@@ -1,6 +1,13 @@
 package panmx.rmx;
 
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.management.Attribute;
 import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
@@ -12,16 +19,49 @@ import javax.management.MBeanRegistration;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import panmx.stats.TraceKind;
+import panmx.stats.Tracer;
 
 class RMXBean
     implements DynamicMBean, MBeanRegistration
 {
+    /** Logger used to report attributes that could not be accessed in bulk operations. */
+    private static final Logger LOGGER = Logger.getLogger( RMXBean.class.getName() );
     /** The Java type for bean. */
     private final RMXBeanType m_type;
-    /** The target object that methods are invoked on. */
+    /** The target object that methods are invoked on or null if the target is held weakly. */
     private final Object m_target;
+    /** The weak reference to the target or null if the target is held strongly. */
+    private final TargetReaper.TargetReference m_reference;
+    /** The cache of attribute values or null if no attributes are cached. */
+    private final AttributeCache m_cache;
+    /** The name the bean is registered under or null if not registered. Used when tracing calls. */
+    private volatile ObjectName m_objectName;
+    /** The server the bean is being registered with. Only set between preRegister and postRegister. */
+    private MBeanServer m_server;
+    /** The concurrent reads of attributes that are in progress keyed by accessor. */
+    private final ConcurrentMap<InvocationTarget, Future<Object>> m_pendingReads =
+        new ConcurrentHashMap<InvocationTarget, Future<Object>>( 4, 0.75F, 1 );
+    /** The tracker of attribute changes or null if the target does not implement ChangeTracked. */
+    private final ChangeTracker m_tracker;
+    /** The open cursors over pageable values or null if the type has no pageable members. */
+    private final CursorTable m_cursors;
 
     RMXBean( final RMXBeanType type, final Object target )
+    {
+        this( type, target, false );
+    }
+
+    /**
+     * Create a bean. If weak is true the bean does not prevent the target
+     * from being collected and once the target is collected the bean fails
+     * every request and is unregistered by the {@link TargetReaper}.
+     *
+     * @param type the type of bean.
+     * @param target the target.
+     * @param weak true if the target is held weakly.
+     */
+    RMXBean( final RMXBeanType type, final Object target, final boolean weak )
     {
         if( null == type )
         {
@@ -32,7 +72,16 @@ class RMXBean
             throw new NullPointerException( "target" );
         }
         m_type = type;
-        m_target = target;
+        m_target = weak ? null : target;
+        m_reference = weak ? TargetReaper.newReference( target ) : null;
+        m_cache = type.createAttributeCache();
+        m_tracker = type.createChangeTracker();
+        m_cursors = type.createCursorTable();
+        if( null != m_tracker )
+        {
+            ( (ChangeTracked)target ).setChangeTracker( m_tracker );
+        }
+        type.enableStatistics();
     }
 
     /**
@@ -45,20 +94,51 @@ class RMXBean
         return m_type;
     }
 
+    /**
+     * Return the target or null if the target has been collected.
+     *
+     * @return the target or null.
+     */
+    private Object peekTarget()
+    {
+        return ( null != m_reference ) ? m_reference.get() : m_target;
+    }
+
+    /**
+     * Return the target.
+     *
+     * @return the target.
+     * @throws MBeanException wrapping an IllegalStateException if the target has been collected.
+     */
+    private Object getTarget()
+        throws MBeanException
+    {
+        final Object target = peekTarget();
+        if( null == target )
+        {
+            final String message = "The target of " + m_objectName + " has been collected.";
+            throw new MBeanException( new IllegalStateException( message ), message );
+        }
+        return target;
+    }
+
     /**
      * {@inheritDoc}
      */
     public ObjectName preRegister( MBeanServer server, ObjectName name )
         throws Exception
     {
-        if( m_target instanceof MBeanRegistration )
+        final Object target = peekTarget();
+        if( target instanceof MBeanRegistration )
         {
-            return ( (MBeanRegistration)m_target ).preRegister( server, name );
+            m_objectName = ( (MBeanRegistration)target ).preRegister( server, name );
         }
         else
         {
-            return name;
+            m_objectName = name;
         }
+        m_server = server;
+        return m_objectName;
     }
 
     /**
@@ -66,10 +146,16 @@ class RMXBean
      */
     public void postRegister( Boolean registrationDone )
     {
-        if( m_target instanceof MBeanRegistration )
+        final Object target = peekTarget();
+        if( target instanceof MBeanRegistration )
         {
-            ( (MBeanRegistration)m_target ).postRegister( registrationDone );
+            ( (MBeanRegistration)target ).postRegister( registrationDone );
         }
+        if( null != m_reference && Boolean.TRUE.equals( registrationDone ) )
+        {
+            TargetReaper.track( m_reference, m_server, m_objectName );
+        }
+        m_server = null;
     }
 
     /**
@@ -78,9 +164,11 @@ class RMXBean
     public void preDeregister()
         throws Exception
     {
-        if( m_target instanceof MBeanRegistration )
+        TargetReaper.checkDeregister( m_reference );
+        final Object target = peekTarget();
+        if( target instanceof MBeanRegistration )
         {
-            ( (MBeanRegistration)m_target ).preDeregister();
+            ( (MBeanRegistration)target ).preDeregister();
         }
     }
 
@@ -89,9 +177,18 @@ class RMXBean
      */
     public void postDeregister()
     {
-        if( m_target instanceof MBeanRegistration )
+        if( null != m_cursors )
+        {
+            m_cursors.clear();
+        }
+        if( null != m_reference )
+        {
+            TargetReaper.untrack( m_reference );
+        }
+        final Object target = peekTarget();
+        if( target instanceof MBeanRegistration )
         {
-            ( (MBeanRegistration)m_target ).postDeregister();
+            ( (MBeanRegistration)target ).postDeregister();
         }
     }
 
@@ -108,19 +205,36 @@ class RMXBean
      */
     public AttributeList getAttributes( final String[] names )
     {
-        final AttributeList list = new AttributeList();
-        for( final String name : names )
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
         {
-            try
-            {
-                final Object value = getAttribute( name );
-                list.add( new Attribute( name, value ) );
-            }
-            catch( final Exception e )
-            {
-                //Ignore.
-            }
+            return doGetAttributes( names );
+        }
+        final long start = System.nanoTime();
+        final ObjectName previous = tracer.enter( m_objectName );
+        AttributeList list = null;
+        try
+        {
+            list = doGetAttributes( names );
+            return list;
+        }
+        finally
+        {
+            tracer.exit( previous );
+            tracer.trace( TraceKind.GET_ATTRIBUTES, m_objectName, names, list, start );
+        }
+    }
+
+    private AttributeList doGetAttributes( final String[] names )
+    {
+        final Object target = peekTarget();
+        if( null == target )
+        {
+            return new AttributeList();
         }
+        final Map<String, Exception> failures = new HashMap<String, Exception>();
+        final AttributeList list = m_type.getAttributes( target, names, m_cache, m_pendingReads, failures );
+        reportFailures( "get", failures );
         return list;
     }
 
@@ -129,23 +243,64 @@ class RMXBean
      */
     public AttributeList setAttributes( final AttributeList attributes )
     {
-        final AttributeList result = new AttributeList();
-        final Iterator iterator = attributes.iterator();
-        while( iterator.hasNext() )
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
         {
-            final Attribute attribute = (Attribute)iterator.next();
-            try
+            return doSetAttributes( attributes );
+        }
+        final long start = System.nanoTime();
+        final ObjectName previous = tracer.enter( m_objectName );
+        try
+        {
+            return doSetAttributes( attributes );
+        }
+        finally
+        {
+            tracer.exit( previous );
+            tracer.trace( TraceKind.SET_ATTRIBUTES, m_objectName, getNames( attributes ), attributes, start );
+        }
+    }
+
+    private AttributeList doSetAttributes( final AttributeList attributes )
+    {
+        final Object target = peekTarget();
+        if( null == target )
+        {
+            return new AttributeList();
+        }
+        final Map<String, Exception> failures = new HashMap<String, Exception>();
+        final AttributeList list = m_type.setAttributes( target, attributes, m_cache, failures );
+        if( null != m_tracker )
+        {
+            for( final Object element : list )
             {
-                setAttribute( attribute );
-                final String name = attribute.getName();
-                final Object value = getAttribute( name );
-                result.add( new Attribute( name, value ) );
+                m_tracker.attributeWritten( ( (Attribute)element ).getName() );
             }
-            catch( final Exception e )
+        }
+        reportFailures( "set", failures );
+        return list;
+    }
+
+    /**
+     * Report the attributes that could not be accessed in a bulk operation.
+     * The JMX specification requires such attributes to be omitted from the
+     * result so the reasons are logged instead.
+     *
+     * @param action the action that failed.
+     * @param failures the map of attribute name to reason for failure.
+     */
+    private void reportFailures( final String action, final Map<String, Exception> failures )
+    {
+        if( !failures.isEmpty() && LOGGER.isLoggable( Level.FINE ) )
+        {
+            for( final Map.Entry<String, Exception> entry : failures.entrySet() )
             {
+                final String message =
+                    "Unable to " + action + " attribute " + entry.getKey() +
+                    " of " + m_type.getType().getName();
+                LOGGER.log( Level.FINE, message, entry.getValue() );
             }
         }
-        return result;
     }
 
     /**
@@ -154,7 +309,24 @@ class RMXBean
     public Object getAttribute( final String name )
         throws AttributeNotFoundException, MBeanException, ReflectionException
     {
-        return m_type.getAttribute( m_target, name );
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
+        {
+            return m_type.getAttribute( getTarget(), name, m_cache );
+        }
+        final long start = System.nanoTime();
+        final ObjectName previous = tracer.enter( m_objectName );
+        Object value = null;
+        try
+        {
+            value = m_type.getAttribute( getTarget(), name, m_cache );
+            return value;
+        }
+        finally
+        {
+            tracer.exit( previous );
+            tracer.trace( TraceKind.GET_ATTRIBUTE, m_objectName, name, value, start );
+        }
     }
 
     /**
@@ -163,7 +335,33 @@ class RMXBean
     public void setAttribute( final Attribute attribute )
         throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException
     {
-        m_type.setAttribute( m_target, attribute );
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
+        {
+            doSetAttribute( attribute );
+            return;
+        }
+        final long start = System.nanoTime();
+        final ObjectName previous = tracer.enter( m_objectName );
+        try
+        {
+            doSetAttribute( attribute );
+        }
+        finally
+        {
+            tracer.exit( previous );
+            tracer.trace( TraceKind.SET_ATTRIBUTE, m_objectName, attribute.getName(), attribute.getValue(), start );
+        }
+    }
+
+    private void doSetAttribute( final Attribute attribute )
+        throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException
+    {
+        m_type.setAttribute( getTarget(), attribute, m_cache );
+        if( null != m_tracker )
+        {
+            m_tracker.attributeWritten( attribute.getName() );
+        }
     }
 
     /**
@@ -174,6 +372,59 @@ class RMXBean
                           final String[] signature )
         throws MBeanException, ReflectionException
     {
-        return m_type.invoke( m_target, actionName, params, signature );
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
+        {
+            return doInvoke( actionName, params, signature );
+        }
+        final long start = System.nanoTime();
+        final ObjectName previous = tracer.enter( m_objectName );
+        Object value = null;
+        try
+        {
+            value = doInvoke( actionName, params, signature );
+            return value;
+        }
+        finally
+        {
+            tracer.exit( previous );
+            tracer.trace( TraceKind.INVOKE, m_objectName, actionName, value, start );
+        }
+    }
+
+    /**
+     * Invoke the operation on target. The changes operation is handled by
+     * the bean if the target implements {@link ChangeTracked} and the
+     * operations on cursors are handled by the bean if the type has
+     * pageable members.
+     */
+    private Object doInvoke( final String actionName,
+                             final Object[] params,
+                             final String[] signature )
+        throws MBeanException, ReflectionException
+    {
+        final Object target = getTarget();
+        if( null != m_tracker &&
+            RMXBeanType.CHANGES_OPERATION.equals( actionName ) &&
+            Arrays.equals( RMXBeanType.CHANGES_SIGNATURE, signature ) &&
+            null != params && 1 == params.length && params[0] instanceof Long )
+        {
+            return m_type.getChangesSince( target, m_cache, m_tracker, (Long)params[0] );
+        }
+        if( null != m_cursors && m_type.isCursorOperation( actionName ) )
+        {
+            return m_type.invokeCursorOperation( target, m_cursors, actionName, params, signature );
+        }
+        return m_type.invoke( target, actionName, params, signature );
+    }
+
+    private static String[] getNames( final AttributeList attributes )
+    {
+        final String[] names = new String[attributes.size()];
+        for( int i = 0; i < names.length; i++ )
+        {
+            names[ i ] = ( (Attribute)attributes.get( i ) ).getName();
+        }
+        return names;
     }
 }
@@ -1,5 +1,10 @@
 package panmx.rmx;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import javax.management.JMException;
+import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
@@ -110,6 +115,11 @@ import javax.management.ObjectName;
  *   void set[name]( [Type] t ) { ... }
  * </pre>
  *
+ * <p>Immutable types may instead annotate a constructor, or a static factory
+ * method, with {@link panmx.annotations.MxConstructor MxConstructor} and each of
+ * its parameters with {@link panmx.annotations.MxParameter MxParameter} naming
+ * the field it receives. Fields passed to the constructor do not need mutators.</p>
+ *
  * <h3>Usage Patterns</h3>
  *
  * <p>There are two techniques for creating RMXBean beans. One is to create a RMXBean
@@ -122,6 +132,67 @@ import javax.management.ObjectName;
  * <p>The other technique is to annotate the MBean using the annotations defined in
  * the {@link panmx.annotations annotations} package and use the
  * RMXBeanFactory.createAnnotatedRMXBean(...) method.</p>
+ *
+ * <h3>Attribute Caching</h3>
+ *
+ * <p>By default the accessor is invoked every time an attribute is read. If the
+ * accessor is annotated with {@link panmx.annotations.MxAttribute MxAttribute}
+ * then the converted value may be cached for the number of seconds specified by
+ * the currencyTimeLimit parameter. Setting the attribute through the RMXBean
+ * discards the cached value.</p>
+ *
+ * <h3>Change Tracking</h3>
+ *
+ * <p>If the component implements {@link ChangeTracked} the RMXBean keeps a version
+ * for each readable attribute and adds the operation "getAttributesChangedSince(long)"
+ * that returns only the attributes that changed since a version. Collectors that
+ * poll many beans can use {@link #getChangesSince(Object, long)} to avoid reading
+ * and transferring attributes that have not changed.</p>
+ *
+ * <h3>Concurrent Reads</h3>
+ *
+ * <p>A bulk read of attributes invokes each accessor in turn. If
+ * {@link ConcurrentReads} is enabled the accessors are invoked concurrently
+ * and a slow accessor only delays the read until its deadline.</p>
+ *
+ * <h3>Paging</h3>
+ *
+ * <p>An attribute or operation that returns a large List, Map or array can
+ * be annotated with {@link panmx.annotations.MxPageable}. The bean then also
+ * exposes operations to open a cursor over the value and fetch it a page at
+ * a time, so that only one page is converted and transferred at once, and
+ * proxies can iterate over it via {@link #openCursor(Object, String, Object[])}.</p>
+ *
+ * <h3>Lazy Introspection</h3>
+ *
+ * <p>Creating a RMXBean prepares the converters and MBeanInfo of its type. If
+ * {@link LazyIntrospection} is enabled they are prepared on first use instead
+ * and {@link #validate(Object)} checks compliance on demand.</p>
+ *
+ * <h3>Compile Time Metadata</h3>
+ *
+ * <p>If the panmx-processor jar is on the compile classpath each class annotated
+ * with {@link panmx.annotations.MBean MBean} gets a generated
+ * {@link panmx.util.MxMetadata MxMetadata} class. Annotated RMXBeans use it
+ * automatically to find their management methods and to call them without
+ * reflection or runtime code generation.</p>
+ *
+ * <h3>Bulk Registration</h3>
+ *
+ * <p>{@link #registerAll(MBeanServer, Map, Executor)} creates and registers
+ * RMXBeans for many objects at once. Each distinct class is introspected once
+ * and the beans are registered in chunks, both concurrently on the supplied
+ * Executor, and failures are reported per bean rather than aborting the
+ * remaining registrations. {@link #unregisterAll(MBeanServer, ObjectName, Executor)}
+ * removes them again.</p>
+ *
+ * <h3>Weak Targets</h3>
+ *
+ * <p>A RMXBean normally keeps its object reachable until it is unregistered.
+ * RMXBeans created by {@link #createWeakAnnotatedRMXBean(Object)} or
+ * {@link #createWeakStandardRMXBean(Object)} hold the object weakly instead
+ * and are unregistered automatically once the object has been collected,
+ * which suits short lived objects such as sessions.</p>
  */
 public final class RMXBeanFactory
 {
@@ -213,6 +284,52 @@ public final class RMXBeanFactory
         return new RMXBean( beanType, object );
     }
 
+    /**
+     * Create RMXBean from annotated object that holds the object weakly.
+     * Once the object has been collected every request to the RMXBean fails
+     * with an IllegalStateException and, if registered, the RMXBean is
+     * unregistered by a background thread.
+     *
+     * @param object the object.
+     * @return the RMXBean.
+     * @throws NotCompliantMBeanException if the object does not conform to
+     *                                    RMXBean specification.
+     */
+    public static Object createWeakAnnotatedRMXBean( final Object object )
+        throws NotCompliantMBeanException
+    {
+        if( null == object )
+        {
+            throw new NullPointerException( "object" );
+        }
+        final AnnotatedRMXBeanType beanType =
+            AnnotatedRMXBeanType.getAnnotatedRMXBeanType( object.getClass() );
+        return new RMXBean( beanType, object, true );
+    }
+
+    /**
+     * Create StandardRMXBean using "default" management interface that
+     * holds the object weakly.
+     *
+     * @param object the object.
+     * @return the RMXBean.
+     * @throws NotCompliantMBeanException if the object does not conform to
+     *                                    RMXBean specification.
+     * @see #createWeakAnnotatedRMXBean(Object)
+     */
+    public static Object createWeakStandardRMXBean( final Object object )
+        throws NotCompliantMBeanException
+    {
+        if( null == object )
+        {
+            throw new NullPointerException( "object" );
+        }
+        final Class type = object.getClass();
+        final StandardRMXBeanType beanType =
+            new StandardRMXBeanType( type, new Class[]{findMxTypeFor( type )} );
+        return new RMXBean( beanType, object, true );
+    }
+
     /**
      * Create proxy object for interacting with RMXBean.
      *
@@ -252,6 +369,229 @@ public final class RMXBeanFactory
             newProxyInstance( connection, objectName, classLoader, mxTypes );
     }
 
+    /**
+     * Create a proxy that makes the calls of proxy asynchronously.
+     * The asyncType is a companion interface whose methods have the same name
+     * and parameter types as methods of the management interfaces of proxy but
+     * return a {@link java.util.concurrent.Future Future} of the result. For example;
+     *
+     * <pre>
+     * public interface GaugeAsync
+     * {
+     *     Future&lt;Integer&gt; getValue();
+     *
+     *     Future&lt;Void&gt; setValue( int value );
+     *
+     *     Future&lt;Integer&gt; scale( int factor );
+     * }
+     * </pre>
+     *
+     * <p>Each call is submitted to executor and completes with the value, or
+     * the exception, of the corresponding call on proxy. The number of calls
+     * in flight is bounded by the executor rather than by the caller.</p>
+     *
+     * @param proxy the proxy created by newProxyInstance.
+     * @param asyncType the companion interface.
+     * @param executor the executor that makes the calls.
+     * @return the asynchronous proxy.
+     * @throws IllegalArgumentException if proxy is not a RMXBean proxy.
+     * @throws NotCompliantMBeanException if a method of asyncType does not
+     *                                    return a Future or has no counterpart.
+     */
+    public static Object newAsyncProxyInstance( final Object proxy,
+                                                final Class<?> asyncType,
+                                                final Executor executor )
+        throws NotCompliantMBeanException
+    {
+        if( null == proxy )
+        {
+            throw new NullPointerException( "proxy" );
+        }
+        if( null == asyncType )
+        {
+            throw new NullPointerException( "asyncType" );
+        }
+        if( null == executor )
+        {
+            throw new NullPointerException( "executor" );
+        }
+        return RMXAsyncInvocationHandler.newProxyInstance( proxy, asyncType, executor );
+    }
+
+    /**
+     * Return the attributes of the bean behind proxy that changed after version.
+     * The bean must implement {@link ChangeTracked}. Pass 0 to receive every
+     * attribute and then the version of the previous result to receive only
+     * later changes. Attributes not exposed by the proxy are omitted.
+     *
+     * @param proxy the proxy created by newProxyInstance.
+     * @param version the version last received by the caller.
+     * @return the changes.
+     * @throws IllegalArgumentException if proxy is not a RMXBean proxy.
+     * @throws JMException if the bean does not track changes or the request fails.
+     * @throws IOException if a communication problem occurs.
+     */
+    public static RMXChanges getChangesSince( final Object proxy, final long version )
+        throws JMException, IOException
+    {
+        if( null == proxy )
+        {
+            throw new NullPointerException( "proxy" );
+        }
+        final RMXBeanInvocationHandler handler = RMXBeanInvocationHandler.getHandler( proxy );
+        return handler.getType().getChangesSince( handler.getConnection(), handler.getObjectName(), version );
+    }
+
+    /**
+     * Open a cursor over the value of a pageable attribute or operation of
+     * the bean behind proxy. The member must be annotated with
+     * {@link panmx.annotations.MxPageable} in the interface of proxy and of
+     * the bean. The first page is fetched before returning and later pages
+     * are fetched as the cursor is iterated.
+     *
+     * @param proxy the proxy created by newProxyInstance.
+     * @param name the name of the attribute or operation.
+     * @param params the parameters of the operation.
+     * @return the cursor.
+     * @throws IllegalArgumentException if proxy is not a RMXBean proxy, no
+     *                                  attribute or operation with name is
+     *                                  pageable or the number of parameters is wrong.
+     * @throws JMException if the request fails.
+     * @throws IOException if a communication problem occurs.
+     */
+    public static RMXCursor openCursor( final Object proxy, final String name, final Object... params )
+        throws JMException, IOException
+    {
+        if( null == proxy )
+        {
+            throw new NullPointerException( "proxy" );
+        }
+        if( null == name )
+        {
+            throw new NullPointerException( "name" );
+        }
+        return RMXBeanInvocationHandler.getHandler( proxy ).openCursor( name, params );
+    }
+
+    /**
+     * Check that the type of a RMXBean or proxy conforms to the RMXBean
+     * specification. Types created while {@link LazyIntrospection} is
+     * enabled are only checked as their members are used, this reports a
+     * non-compliant member with the exception that would otherwise have
+     * been thrown when the RMXBean or proxy was created.
+     *
+     * @param object the RMXBean or the proxy.
+     * @throws IllegalArgumentException if object is not a RMXBean or a RMXBean proxy.
+     * @throws NotCompliantMBeanException if the type does not conform to the RMXBean specification.
+     */
+    public static void validate( final Object object )
+        throws NotCompliantMBeanException
+    {
+        if( null == object )
+        {
+            throw new NullPointerException( "object" );
+        }
+        if( object instanceof RMXBean )
+        {
+            ( (RMXBean)object ).getType().validate();
+        }
+        else
+        {
+            RMXBeanInvocationHandler.getHandler( object ).getType().validate();
+        }
+    }
+
+    /**
+     * Create a batch for reading attributes of proxies in bulk.
+     * Requests are made in the thread that executes the batch.
+     *
+     * @return the batch.
+     * @see RMXBatch
+     */
+    public static RMXBatch newBatch()
+    {
+        return new RMXBatch( null );
+    }
+
+    /**
+     * Create a batch for reading attributes of proxies in bulk.
+     * The requests for each ObjectName are submitted to the executor.
+     *
+     * @param executor the executor used to make requests.
+     * @return the batch.
+     * @see RMXBatch
+     */
+    public static RMXBatch newBatch( final Executor executor )
+    {
+        if( null == executor )
+        {
+            throw new NullPointerException( "executor" );
+        }
+        return new RMXBatch( executor );
+    }
+
+    /**
+     * Create and register a RMXBean for each object. Objects whose class is
+     * annotated with {@link panmx.annotations.MBean MBean} are exposed as if by
+     * {@link #createAnnotatedRMXBean(Object)}, other objects as if by
+     * {@link #createStandardRMXBean(Object)}. The type of each distinct class
+     * is created once and shared by every object of the class.
+     *
+     * <p>Introspection of the classes and registration of the beans is
+     * submitted to the executor, if not null, and this method waits for it
+     * to complete. Any Executor may be used, including a ForkJoinPool.</p>
+     *
+     * @param server the MBeanServer.
+     * @param objects the objects keyed by the name to register them under.
+     * @param executor the executor used to run tasks or null to run them in calling thread.
+     * @return the exceptions of the objects that could not be registered keyed
+     *         by name, in the order of objects. Empty if every object was registered.
+     * @throws InterruptedException if interrupted while waiting for tasks to complete.
+     */
+    public static Map<ObjectName, Exception> registerAll( final MBeanServer server,
+                                                          final Map<ObjectName, ?> objects,
+                                                          final Executor executor )
+        throws InterruptedException
+    {
+        if( null == server )
+        {
+            throw new NullPointerException( "server" );
+        }
+        if( null == objects )
+        {
+            throw new NullPointerException( "objects" );
+        }
+        return new BulkRegistration( server, executor ).registerAll( objects );
+    }
+
+    /**
+     * Unregister every bean with a name matching pattern. The beans are
+     * unregistered in chunks submitted to the executor, if not null, and this
+     * method waits for them to complete.
+     *
+     * @param server the MBeanServer.
+     * @param pattern the ObjectName pattern.
+     * @param executor the executor used to run tasks or null to run them in calling thread.
+     * @return the exceptions of the beans that could not be unregistered keyed
+     *         by name. Empty if every bean was unregistered.
+     * @throws InterruptedException if interrupted while waiting for tasks to complete.
+     */
+    public static Map<ObjectName, Exception> unregisterAll( final MBeanServer server,
+                                                            final ObjectName pattern,
+                                                            final Executor executor )
+        throws InterruptedException
+    {
+        if( null == server )
+        {
+            throw new NullPointerException( "server" );
+        }
+        if( null == pattern )
+        {
+            throw new NullPointerException( "pattern" );
+        }
+        return new BulkRegistration( server, executor ).unregisterAll( pattern );
+    }
+
     /**
      * Return MXType for specified class.
      * The MXType is just the class name of the type + "RMXBean".
@@ -260,7 +600,7 @@ public final class RMXBeanFactory
      * @return the MX type.
      * @throws javax.management.NotCompliantMBeanException if unable to locate mx type class.
      */
-    private static Class findMxTypeFor( final Class type )
+    static Class findMxTypeFor( final Class type )
         throws NotCompliantMBeanException
     {
         final String name = type.getName() + RMXBEAN_SUFFIX;
@@ -1,21 +1,36 @@
 package panmx.rmx;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 import javax.management.Attribute;
+import javax.management.JMException;
 import javax.management.MBeanException;
 import javax.management.MBeanServerConnection;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
+import panmx.stats.TraceKind;
+import panmx.stats.Tracer;
 import panmx.util.BeanUtil;
+import panmx.util.WeakCache;
 
 class RMXBeanInvocationHandler
     implements InvocationHandler
 {
+    /**
+     * Cache of proxy types keyed by proxy class. The JVM defines one proxy
+     * class per set of interfaces and ClassLoader so all proxies for the
+     * same interfaces share the type.
+     */
+    private static final WeakCache<Class<?>, ProxyType> c_proxyTypes =
+        new WeakCache<Class<?>, ProxyType>();
+
     private final MBeanServerConnection m_connection;
     private final ObjectName m_objectName;
-    private RMXBeanType m_type;
+    private ProxyType m_proxyType;
 
     RMXBeanInvocationHandler( final MBeanServerConnection connection,
                               final ObjectName objectName )
@@ -34,23 +49,125 @@ class RMXBeanInvocationHandler
             new RMXBeanInvocationHandler( connection, objectName );
         final Object proxy =
             Proxy.newProxyInstance( classLoader, mxTypes, handler );
-        handler.m_type = new StandardRMXBeanType( proxy.getClass(), mxTypes );
+        handler.m_proxyType = getProxyType( proxy.getClass(), mxTypes );
         return proxy;
     }
 
+    /**
+     * Return the cached type for proxy class, creating it if necessary.
+     *
+     * @param proxyClass the proxy class.
+     * @param mxTypes the interfaces implemented by proxy class.
+     * @return the proxy type.
+     * @throws NotCompliantMBeanException if the interfaces are not compliant.
+     */
+    private static ProxyType getProxyType( final Class<?> proxyClass, final Class<?>[] mxTypes )
+        throws NotCompliantMBeanException
+    {
+        final ProxyType proxyType = c_proxyTypes.get( proxyClass );
+        if( null != proxyType )
+        {
+            return proxyType;
+        }
+        return c_proxyTypes.get( proxyClass, new WeakCache.Factory<Class<?>, ProxyType, NotCompliantMBeanException>()
+        {
+            public ProxyType create( final Class<?> key )
+                throws NotCompliantMBeanException
+            {
+                return new ProxyType( new StandardRMXBeanType( key, mxTypes ), mxTypes );
+            }
+        } );
+    }
+
+    /**
+     * Return the handler for specified proxy.
+     *
+     * @param proxy the proxy created by newProxyInstance.
+     * @return the handler.
+     * @throws IllegalArgumentException if proxy was not created by newProxyInstance.
+     */
+    static RMXBeanInvocationHandler getHandler( final Object proxy )
+    {
+        if( Proxy.isProxyClass( proxy.getClass() ) )
+        {
+            final InvocationHandler handler = Proxy.getInvocationHandler( proxy );
+            if( handler instanceof RMXBeanInvocationHandler )
+            {
+                return (RMXBeanInvocationHandler)handler;
+            }
+        }
+        throw new IllegalArgumentException( "Object " + proxy + " is not a RMXBean proxy." );
+    }
+
+    MBeanServerConnection getConnection()
+    {
+        return m_connection;
+    }
+
+    ObjectName getObjectName()
+    {
+        return m_objectName;
+    }
+
+    RMXBeanType getType()
+    {
+        return m_proxyType.m_type;
+    }
+
+    /**
+     * Open a cursor over the value of a pageable attribute or operation of the remote bean.
+     *
+     * @param name the name of the attribute or operation.
+     * @param params the parameters of the operation.
+     * @return the cursor.
+     * @throws IllegalArgumentException if no attribute or operation with name is pageable
+     *                                  or the number of parameters is wrong.
+     */
+    RMXCursor openCursor( final String name, final Object[] params )
+        throws JMException, IOException
+    {
+        return m_proxyType.m_type.openCursor( m_connection, m_objectName, name, params );
+    }
+
     public Object invoke( final Object proxy, final Method method, final Object[] params )
         throws Throwable
     {
+        final RMXBeanType type = m_proxyType.m_type;
+        final Dispatch dispatch = m_proxyType.m_dispatches.get( method );
+        if( null != dispatch )
+        {
+            final Tracer tracer = Tracer.getTracer();
+            if( null == tracer )
+            {
+                return dispatch( type, dispatch, params );
+            }
+            final long start = System.nanoTime();
+            final ObjectName previous = tracer.enter( m_objectName );
+            Object value = null;
+            try
+            {
+                value = dispatch( type, dispatch, params );
+                return value;
+            }
+            finally
+            {
+                tracer.exit( previous );
+                final Object payload = ( Dispatch.MUTATOR == dispatch.m_kind ) ? params[0] : value;
+                tracer.trace( dispatch.m_traceKind, m_objectName, dispatch.m_name, payload, start );
+            }
+        }
+
+        //Methods not declared by the management interfaces, such as those of Object
         if( BeanUtil.isAccessor( method ) )
         {
             final String name = BeanUtil.getAttributeName( method );
-            return m_type.getAttribute( m_connection, m_objectName, name );
+            return type.getAttribute( m_connection, m_objectName, name );
         }
         else if( BeanUtil.isMutator( method ) )
         {
             final String name = BeanUtil.getAttributeName( method );
             final Attribute attribute = new Attribute( name, params[0] );
-            m_type.setAttribute( m_connection, m_objectName, attribute );
+            type.setAttribute( m_connection, m_objectName, attribute );
             return null;
         }
         else
@@ -58,7 +175,7 @@ class RMXBeanInvocationHandler
             final String[] signature = BeanUtil.getSignature( method );
             try
             {
-                return m_type.invoke( m_connection, m_objectName, method.getName(), params, signature );
+                return type.invoke( m_connection, m_objectName, method.getName(), params, signature );
             }
             catch( final MBeanException mbe )
             {
@@ -66,4 +183,132 @@ class RMXBeanInvocationHandler
             }
         }
     }
+
+    private Object dispatch( final RMXBeanType type, final Dispatch dispatch, final Object[] params )
+        throws Throwable
+    {
+        switch( dispatch.m_kind )
+        {
+            case Dispatch.ACCESSOR:
+                return type.getAttribute( m_connection, m_objectName, dispatch.m_name, dispatch.m_target );
+            case Dispatch.MUTATOR:
+                final Attribute attribute = new Attribute( dispatch.m_name, params[0] );
+                type.setAttribute( m_connection, m_objectName, attribute, dispatch.m_target );
+                return null;
+            default:
+                try
+                {
+                    return type.invoke( m_connection,
+                                        m_objectName,
+                                        dispatch.m_name,
+                                        params,
+                                        dispatch.m_signature,
+                                        dispatch.m_target );
+                }
+                catch( final MBeanException mbe )
+                {
+                    throw mbe.getTargetException();
+                }
+        }
+    }
+
+    /**
+     * The type of a proxy class and the dispatch records for its methods.
+     */
+    private static final class ProxyType
+    {
+        /** The type used to convert values. */
+        final RMXBeanType m_type;
+        /** The dispatch records keyed by interface method. */
+        final Map<Method, Dispatch> m_dispatches = new HashMap<Method, Dispatch>();
+
+        ProxyType( final RMXBeanType type, final Class<?>[] mxTypes )
+        {
+            m_type = type;
+            for( final Class<?> mxType : mxTypes )
+            {
+                for( final Method method : mxType.getMethods() )
+                {
+                    if( !m_dispatches.containsKey( method ) )
+                    {
+                        final Dispatch dispatch = createDispatch( method );
+                        if( null != dispatch )
+                        {
+                            m_dispatches.put( method, dispatch );
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Create dispatch record for method.
+         *
+         * @param method the method.
+         * @return the dispatch record or null if method is not part of type.
+         */
+        private Dispatch createDispatch( final Method method )
+        {
+            try
+            {
+                if( BeanUtil.isAccessor( method ) )
+                {
+                    final String name = BeanUtil.getAttributeName( method );
+                    return new Dispatch( Dispatch.ACCESSOR, name, null, m_type.getAccessor( name ) );
+                }
+                else if( BeanUtil.isMutator( method ) )
+                {
+                    final String name = BeanUtil.getAttributeName( method );
+                    return new Dispatch( Dispatch.MUTATOR, name, null, m_type.getMutator( name ) );
+                }
+                else
+                {
+                    final String name = method.getName();
+                    final String[] signature = BeanUtil.getSignature( method );
+                    return new Dispatch( Dispatch.OPERATION, name, signature, m_type.getOperation( name, signature ) );
+                }
+            }
+            catch( final JMException jme )
+            {
+                //Leave method to be resolved, and the error reported, when invoked
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The precomputed information required to dispatch a method.
+     */
+    private static final class Dispatch
+    {
+        static final int ACCESSOR = 0;
+        static final int MUTATOR = 1;
+        static final int OPERATION = 2;
+
+        /** The kind of method. */
+        final int m_kind;
+        /** The attribute name for accessors and mutators or the action name for operations. */
+        final String m_name;
+        /** The signature of operation. Null for accessors and mutators. */
+        final String[] m_signature;
+        /** The invocation target holding the converters. */
+        final InvocationTarget m_target;
+        /** The kind reported when tracing calls. */
+        final TraceKind m_traceKind;
+
+        Dispatch( final int kind,
+                  final String name,
+                  final String[] signature,
+                  final InvocationTarget target )
+        {
+            m_kind = kind;
+            m_name = name;
+            m_signature = signature;
+            m_target = target;
+            m_traceKind =
+                ( ACCESSOR == kind ) ? TraceKind.PROXY_GET_ATTRIBUTE :
+                ( MUTATOR == kind ) ? TraceKind.PROXY_SET_ATTRIBUTE :
+                TraceKind.PROXY_INVOKE;
+        }
+    }
 }
@@ -3,25 +3,67 @@ package panmx.rmx;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.InvalidAttributeValueException;
 import javax.management.MBeanException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanServerConnection;
+import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxPageable;
+import panmx.stats.BeanStatistics;
+import panmx.stats.MemberStatistics;
+import panmx.stats.Statistics;
+import panmx.stats.TraceKind;
+import panmx.stats.Tracer;
 import panmx.util.BeanUtil;
+import panmx.util.Invoker;
+import panmx.util.InvokerFactory;
 
 class RMXBeanType
 {
     /** Empty args constant used in getters. */
     private static final Object[] EMPTY_ARGS = new Object[0];
+    /** Time used to indicate that the target object was not invoked. */
+    private static final long NOT_INVOKED = Long.MIN_VALUE;
+    /** The name of the operation that returns the attributes changed since a version. */
+    static final String CHANGES_OPERATION = "getAttributesChangedSince";
+    /** The signature of the operation that returns the attributes changed since a version. */
+    static final String[] CHANGES_SIGNATURE = new String[]{Long.TYPE.getName()};
+    /** The items of the value returned by the changes operation. */
+    private static final String[] CHANGES_ITEMS = new String[]{"version", "changed", "values"};
+    /** The name of the operation that closes a cursor over a pageable value. */
+    static final String CLOSE_CURSOR_OPERATION = "closeCursor";
+    /** The signature of the operation that closes a cursor. */
+    static final String[] CLOSE_CURSOR_SIGNATURE = new String[]{Long.TYPE.getName()};
+    /** The signature of the operations that fetch the next page from a cursor. */
+    static final String[] FETCH_CURSOR_SIGNATURE = new String[]{Long.TYPE.getName(), Integer.TYPE.getName()};
     /** The MBeanInfo for bean. */
     private MBeanInfo m_mBeanInfo;
     /** The Java type for bean. */
@@ -35,8 +77,54 @@ class RMXBeanType
     /** The map of operation invocation targets. */
     private final Map<String, InvocationTarget> m_operations =
         new HashMap<String, InvocationTarget>();
+    /** The map of pageable attribute accessors and operations keyed by attribute or action name. */
+    private final Map<String, InvocationTarget> m_pageables =
+        new HashMap<String, InvocationTarget>();
+    /**
+     * The pageable members keyed by the names of the operations that open
+     * and fetch from cursors over their values.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private Map<String, InvocationTarget> m_cursorOperations;
+    /**
+     * The operations grouped by action name. Used to look up operations
+     * without building the fully qualified name.
+     * This is null until {@link #freeze()} is called. Volatile as it is read without locking.
+     */
+    private volatile Map<String, InvocationTarget[]> m_operationsByAction;
     /** Flag indicating whether the type is "frozen". */
     private boolean m_frozen;
+    /**
+     * The methods indexed by {@link InvocationTarget#getIndex()}.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private Method[] m_methods;
+    /** The generated invoker. Null if not yet created or if generation was not possible. */
+    private volatile Invoker m_invoker;
+    /** Flag indicating whether an attempt has been made to create invoker. */
+    private volatile boolean m_invokerCreated;
+    /**
+     * Flag indicating whether statistics are collected for the members of type.
+     * Volatile so that beans created after statistics are enabled skip the lock.
+     */
+    private volatile boolean m_statisticsEnabled;
+    /**
+     * Flag indicating whether the type implements {@link ChangeTracked} and has attributes to track.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private boolean m_changesTracked;
+    /**
+     * The type of the value returned by the changes operation. Created on
+     * first use and null if changes are not tracked.
+     */
+    private volatile CompositeType m_changesType;
+    /** Flag indicating whether converters and the MBeanInfo are created on first use. */
+    private final boolean m_lazy;
+    /**
+     * The invocation targets in the order they were defined. Used to resolve
+     * converters when validating a lazy type. Null if the type is not lazy.
+     */
+    private final ArrayList<InvocationTarget> m_definitions;
 
     RMXBeanType( final Class type )
     {
@@ -45,102 +133,1136 @@ class RMXBeanType
             throw new NullPointerException( "type" );
         }
         m_type = type;
+        m_lazy = LazyIntrospection.isEnabled();
+        m_definitions = m_lazy ? new ArrayList<InvocationTarget>() : null;
     }
 
     MBeanInfo getMBeanInfo()
     {
-        return m_mBeanInfo;
+        return m_mBeanInfo;
+    }
+
+    Class getType()
+    {
+        return m_type;
+    }
+
+    Object getAttribute( final MBeanServerConnection connection,
+                         final ObjectName objectName,
+                         final String name )
+        throws MBeanException, AttributeNotFoundException,
+               InstanceNotFoundException, ReflectionException,
+               IOException
+    {
+        return getAttribute( connection, objectName, name, getAccessor( name ) );
+    }
+
+    Object getAttribute( final MBeanServerConnection connection,
+                         final ObjectName objectName,
+                         final String name,
+                         final InvocationTarget accessor )
+        throws MBeanException, AttributeNotFoundException,
+               InstanceNotFoundException, ReflectionException,
+               IOException
+    {
+        final Object value = connection.getAttribute( objectName, name );
+        return convertToJavaReturnValue( accessor, value );
+    }
+
+    /**
+     * Retrieve attributes from remote bean in a single request and convert
+     * them to java values. Attributes that the server could not retrieve
+     * are omitted from the result.
+     *
+     * @param connection the connection.
+     * @param objectName the name of remote bean.
+     * @param names the names of attributes.
+     * @return the list of attributes with java values.
+     */
+    AttributeList getAttributes( final MBeanServerConnection connection,
+                                 final ObjectName objectName,
+                                 final String[] names )
+        throws MBeanException, AttributeNotFoundException,
+               InstanceNotFoundException, ReflectionException,
+               IOException
+    {
+        final AttributeList values = connection.getAttributes( objectName, names );
+        final AttributeList results = new AttributeList( values.size() );
+        for( final Object element : values )
+        {
+            final Attribute attribute = (Attribute)element;
+            final String name = attribute.getName();
+            final InvocationTarget invocationTarget = getAccessor( name );
+            results.add( new Attribute( name, convertToJavaReturnValue( invocationTarget, attribute.getValue() ) ) );
+        }
+        return results;
+    }
+
+    void setAttribute( final MBeanServerConnection connection,
+                       final ObjectName objectName,
+                       final Attribute attribute )
+        throws InstanceNotFoundException, AttributeNotFoundException,
+               InvalidAttributeValueException, MBeanException,
+               ReflectionException, IOException
+    {
+        setAttribute( connection, objectName, attribute, getMutator( attribute.getName() ) );
+    }
+
+    void setAttribute( final MBeanServerConnection connection,
+                       final ObjectName objectName,
+                       final Attribute attribute,
+                       final InvocationTarget mutator )
+        throws InstanceNotFoundException, AttributeNotFoundException,
+               InvalidAttributeValueException, MBeanException,
+               ReflectionException, IOException
+    {
+        final Object value = convertAttributeValueToOpenType( mutator, attribute );
+        connection.setAttribute( objectName, new Attribute( attribute.getName(), value ) );
+    }
+
+    Object invoke( final MBeanServerConnection connection,
+                   final ObjectName objectName,
+                   final String actionName,
+                   final Object[] params,
+                   final String[] signature )
+        throws InstanceNotFoundException, MBeanException,
+               ReflectionException, IOException
+    {
+        final InvocationTarget operation = getOperation( actionName, signature );
+        return invoke( connection, objectName, actionName, params, signature, operation );
+    }
+
+    Object invoke( final MBeanServerConnection connection,
+                   final ObjectName objectName,
+                   final String actionName,
+                   final Object[] params,
+                   final String[] signature,
+                   final InvocationTarget operation )
+        throws InstanceNotFoundException, MBeanException,
+               ReflectionException, IOException
+    {
+        final Object[] args = convertParametersToOpenType( operation, params );
+        final Object returnValue = connection.invoke( objectName, actionName, args, signature );
+        return convertToJavaReturnValue( operation, returnValue );
+    }
+
+    /**
+     * Return the open value of attribute of target.
+     *
+     * @param target the target object.
+     * @param name the name of the attribute.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     * @return the open value of attribute.
+     */
+    Object getAttribute( final Object target, final String name, final AttributeCache cache )
+        throws AttributeNotFoundException, MBeanException, ReflectionException
+    {
+        final InvocationTarget invocationTarget = getAccessor( name );
+        return getAttribute( target, invocationTarget, cache );
+    }
+
+    private Object getAttribute( final Object target,
+                                 final InvocationTarget invocationTarget,
+                                 final AttributeCache cache )
+        throws MBeanException, ReflectionException
+    {
+        if( null != cache && 0 != invocationTarget.getCurrencyTimeLimit() )
+        {
+            return cache.get( this, target, invocationTarget );
+        }
+        else
+        {
+            return readAttribute( target, invocationTarget );
+        }
+    }
+
+    /**
+     * Invoke accessor on target and convert the result to open value.
+     *
+     * @param target the target object.
+     * @param accessor the accessor.
+     * @return the open value of attribute.
+     */
+    Object readAttribute( final Object target, final InvocationTarget accessor )
+        throws MBeanException, ReflectionException
+    {
+        final MemberStatistics statistics = accessor.getStatistics();
+        if( null != statistics )
+        {
+            return readAttribute( target, accessor, statistics );
+        }
+        final Object value = performInvocation( accessor, target, EMPTY_ARGS );
+        return convertToOpenTypeReturnValue( accessor, value );
+    }
+
+    private Object readAttribute( final Object target,
+                                  final InvocationTarget accessor,
+                                  final MemberStatistics statistics )
+        throws MBeanException, ReflectionException
+    {
+        final boolean timed = statistics.recordCall();
+        final long start = now( timed );
+        long invoked = NOT_INVOKED;
+        boolean failed = true;
+        try
+        {
+            final Object value = performInvocation( accessor, target, EMPTY_ARGS );
+            invoked = now( timed );
+            final Object result = convertToOpenTypeReturnValue( accessor, value );
+            failed = false;
+            return result;
+        }
+        finally
+        {
+            record( statistics, timed, start, start, invoked, failed );
+        }
+    }
+
+    /**
+     * Return a new cache for the attribute values of a bean of this type or
+     * null if no attributes of this type may be cached.
+     *
+     * @return the cache or null.
+     */
+    AttributeCache createAttributeCache()
+    {
+        for( final InvocationTarget accessor : m_accessors.values() )
+        {
+            if( 0 != accessor.getCurrencyTimeLimit() )
+            {
+                return new AttributeCache( m_accessors.size() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the values of the specified attributes from target in a single pass.
+     * Attributes that can not be retrieved are omitted from the result and the
+     * reason is recorded in failures.
+     *
+     * @param target the target object.
+     * @param names the names of the attributes.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     * @param failures the map in which to record the failure for each attribute that could not be retrieved. (OUT)
+     * @return the list of attributes retrieved.
+     */
+    AttributeList getAttributes( final Object target,
+                                 final String[] names,
+                                 final AttributeCache cache,
+                                 final Map<String, Exception> failures )
+    {
+        final AttributeList list = new AttributeList( names.length );
+        for( final String name : names )
+        {
+            try
+            {
+                final InvocationTarget invocationTarget = getAccessor( name );
+                list.add( new Attribute( name, getAttribute( target, invocationTarget, cache ) ) );
+            }
+            catch( final Exception e )
+            {
+                failures.put( name, e );
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Retrieve the values of the specified attributes from target, invoking
+     * the accessors concurrently if {@link ConcurrentReads} is enabled.
+     * Attributes that can not be retrieved are omitted from the result and the
+     * reason is recorded in failures.
+     *
+     * @param target the target object.
+     * @param names the names of the attributes.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     * @param pending the reads of target that are in progress keyed by accessor. (IN/OUT)
+     * @param failures the map in which to record the failure for each attribute that could not be retrieved. (OUT)
+     * @return the list of attributes retrieved.
+     */
+    AttributeList getAttributes( final Object target,
+                                 final String[] names,
+                                 final AttributeCache cache,
+                                 final ConcurrentMap<InvocationTarget, Future<Object>> pending,
+                                 final Map<String, Exception> failures )
+    {
+        final ConcurrentReads reads = ConcurrentReads.getConcurrentReads();
+        if( null == reads || names.length < 2 )
+        {
+            return getAttributes( target, names, cache, failures );
+        }
+        final long start = System.nanoTime();
+        final InvocationTarget[] accessors = new InvocationTarget[names.length];
+        final Future[] futures = new Future[names.length];
+        for( int i = 0; i < names.length; i++ )
+        {
+            accessors[i] = m_accessors.get( names[i] );
+            if( null == accessors[i] )
+            {
+                failures.put( names[i], new AttributeNotFoundException( names[i] ) );
+            }
+            else
+            {
+                futures[i] = submitRead( reads.getExecutor(), target, accessors[i], cache, pending );
+            }
+        }
+
+        final AttributeList list = new AttributeList( names.length );
+        for( int i = 0; i < names.length; i++ )
+        {
+            if( null == futures[i] )
+            {
+                continue;
+            }
+            final String name = names[i];
+            final long timeout = reads.getTimeout( accessors[i] );
+            try
+            {
+                final Object value;
+                if( timeout < 0 )
+                {
+                    value = futures[i].get();
+                }
+                else
+                {
+                    value = futures[i].get( start + timeout - System.nanoTime(), TimeUnit.NANOSECONDS );
+                }
+                list.add( new Attribute( name, value ) );
+            }
+            catch( final TimeoutException te )
+            {
+                final Object value = ( null != cache ) ? cache.getStaleValue( accessors[i] ) : AttributeCache.NO_VALUE;
+                if( AttributeCache.NO_VALUE != value )
+                {
+                    list.add( new Attribute( name, value ) );
+                }
+                else
+                {
+                    failures.put( name, te );
+                }
+            }
+            catch( final ExecutionException ee )
+            {
+                final Throwable cause = ee.getCause();
+                failures.put( name, ( cause instanceof Exception ) ? (Exception)cause : ee );
+            }
+            catch( final InterruptedException ie )
+            {
+                Thread.currentThread().interrupt();
+                failures.put( name, ie );
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Start reading attribute of target on executor or return the read that
+     * is already in progress. The attribute is read in the calling thread
+     * if the executor rejects the read.
+     *
+     * @return the read.
+     */
+    private Future<Object> submitRead( final Executor executor,
+                                       final Object target,
+                                       final InvocationTarget accessor,
+                                       final AttributeCache cache,
+                                       final ConcurrentMap<InvocationTarget, Future<Object>> pending )
+    {
+        final Future<Object> existing = pending.get( accessor );
+        if( null != existing )
+        {
+            return existing;
+        }
+        final FutureTask<Object> read = new FutureTask<Object>( new Callable<Object>()
+        {
+            public Object call()
+                throws Exception
+            {
+                return getAttribute( target, accessor, cache );
+            }
+        } )
+        {
+            protected void done()
+            {
+                pending.remove( accessor, this );
+            }
+        };
+        final Future<Object> other = pending.putIfAbsent( accessor, read );
+        if( null != other )
+        {
+            return other;
+        }
+        try
+        {
+            executor.execute( read );
+        }
+        catch( final RejectedExecutionException ree )
+        {
+            read.run();
+        }
+        return read;
+    }
+
+    /**
+     * Set the values of the specified attributes on target in a single pass.
+     * Attributes that can not be set are omitted from the result and the
+     * reason is recorded in failures.
+     *
+     * <p>The value of each attribute that was set is re-read so that the
+     * result reflects any change made by the mutator, such as a value that
+     * was clamped or normalized. The re-read is skipped if there is no
+     * accessor.</p>
+     *
+     * @param target the target object.
+     * @param attributes the attributes to set.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     * @param failures the map in which to record the failure for each attribute that could not be set. (OUT)
+     * @return the list of attributes that were set, with their new values.
+     */
+    AttributeList setAttributes( final Object target,
+                                 final AttributeList attributes,
+                                 final AttributeCache cache,
+                                 final Map<String, Exception> failures )
+    {
+        final AttributeList result = new AttributeList( attributes.size() );
+        for( final Object element : attributes )
+        {
+            final Attribute attribute = (Attribute)element;
+            final String name = attribute.getName();
+            try
+            {
+                final InvocationTarget mutator = getMutator( name );
+                final InvocationTarget accessor = setAttribute( target, mutator, attribute, cache );
+                if( null == accessor )
+                {
+                    result.add( attribute );
+                }
+                else
+                {
+                    result.add( new Attribute( name, getAttribute( target, accessor, cache ) ) );
+                }
+            }
+            catch( final Exception e )
+            {
+                failures.put( name, e );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Set the value of attribute of target.
+     *
+     * @param target the target object.
+     * @param attribute the attribute.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     */
+    void setAttribute( final Object target, final Attribute attribute, final AttributeCache cache )
+        throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException
+    {
+        final InvocationTarget invocationTarget = getMutator( attribute.getName() );
+        setAttribute( target, invocationTarget, attribute, cache );
+    }
+
+    /**
+     * Invoke mutator on target and discard any cached value of attribute.
+     *
+     * @return the accessor for the attribute or null if attribute is write-only.
+     */
+    private InvocationTarget setAttribute( final Object target,
+                                           final InvocationTarget mutator,
+                                           final Attribute attribute,
+                                           final AttributeCache cache )
+        throws InvalidAttributeValueException, MBeanException, ReflectionException
+    {
+        final MemberStatistics statistics = mutator.getStatistics();
+        final InvocationTarget accessor = m_accessors.get( attribute.getName() );
+        try
+        {
+            if( null != statistics )
+            {
+                writeAttribute( target, mutator, attribute, statistics );
+            }
+            else
+            {
+                final Object value = convertAttributeValueToJava( mutator, attribute );
+                performInvocation( mutator, target, new Object[]{value} );
+            }
+        }
+        finally
+        {
+            if( null != cache && null != accessor && 0 != accessor.getCurrencyTimeLimit() )
+            {
+                cache.invalidate( accessor );
+            }
+        }
+        return accessor;
+    }
+
+    private void writeAttribute( final Object target,
+                                 final InvocationTarget mutator,
+                                 final Attribute attribute,
+                                 final MemberStatistics statistics )
+        throws InvalidAttributeValueException, MBeanException, ReflectionException
+    {
+        final boolean timed = statistics.recordCall();
+        final long start = now( timed );
+        long invoking = NOT_INVOKED;
+        long invoked = NOT_INVOKED;
+        boolean failed = true;
+        try
+        {
+            final Object value = convertAttributeValueToJava( mutator, attribute );
+            invoking = now( timed );
+            performInvocation( mutator, target, new Object[]{value} );
+            invoked = now( timed );
+            failed = false;
+        }
+        finally
+        {
+            record( statistics, timed, start, invoking, invoked, failed );
+        }
+    }
+
+    Object invoke( final Object target,
+                   final String actionName,
+                   final Object[] params,
+                   final String[] signature )
+        throws MBeanException, ReflectionException
+    {
+        final InvocationTarget invocationTarget = getOperation( actionName, signature );
+        final MemberStatistics statistics = invocationTarget.getStatistics();
+        if( null != statistics )
+        {
+            return invoke( target, invocationTarget, params, statistics );
+        }
+
+        final Object[] args = convertParametersToJava( invocationTarget, params );
+        final Object returnValue = performInvocation( invocationTarget, target, args );
+        return convertToOpenTypeReturnValue( invocationTarget, returnValue );
+    }
+
+    private Object invoke( final Object target,
+                           final InvocationTarget operation,
+                           final Object[] params,
+                           final MemberStatistics statistics )
+        throws MBeanException, ReflectionException
+    {
+        final boolean timed = statistics.recordCall();
+        final long start = now( timed );
+        long invoking = NOT_INVOKED;
+        long invoked = NOT_INVOKED;
+        boolean failed = true;
+        try
+        {
+            final Object[] args = convertParametersToJava( operation, params );
+            invoking = now( timed );
+            final Object returnValue = performInvocation( operation, target, args );
+            invoked = now( timed );
+            final Object result = convertToOpenTypeReturnValue( operation, returnValue );
+            failed = false;
+            return result;
+        }
+        finally
+        {
+            record( statistics, timed, start, invoking, invoked, failed );
+        }
+    }
+
+    /**
+     * Return the current time if the call is timed.
+     *
+     * @param timed true if the call is timed.
+     * @return the current time or 0 if the call is not timed.
+     */
+    private static long now( final boolean timed )
+    {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the outcome of a call in statistics. For timed calls the time
+     * between start and the end of the call that was not spent in the
+     * target object is attributed to conversion.
+     *
+     * @param statistics the statistics.
+     * @param timed true if the call is timed.
+     * @param start the time the call started.
+     * @param invoking the time the target object was invoked or NOT_INVOKED.
+     * @param invoked the time the target object returned or NOT_INVOKED if it failed.
+     * @param failed true if the call failed.
+     */
+    private static void record( final MemberStatistics statistics,
+                                final boolean timed,
+                                final long start,
+                                final long invoking,
+                                final long invoked,
+                                final boolean failed )
+    {
+        if( failed )
+        {
+            statistics.recordError();
+        }
+        if( !timed )
+        {
+            return;
+        }
+        final long end = System.nanoTime();
+        final long targetTime;
+        if( NOT_INVOKED == invoking )
+        {
+            targetTime = 0;
+        }
+        else
+        {
+            targetTime = ( ( NOT_INVOKED == invoked ) ? end : invoked ) - invoking;
+        }
+        statistics.recordTimes( targetTime, end - start - targetTime );
+    }
+
+    /**
+     * Start collecting statistics for the members of type if statistics are enabled.
+     * This is only invoked for types that back an RMXBean so that types used
+     * to proxy remote beans are never instrumented. It is invoked for every
+     * bean created so the common cases do not lock.
+     */
+    final void enableStatistics()
+    {
+        if( m_statisticsEnabled || !Statistics.isEnabled() )
+        {
+            return;
+        }
+        synchronized( this )
+        {
+            if( m_statisticsEnabled )
+            {
+                return;
+            }
+            final BeanStatistics statistics = Statistics.getBeanStatistics( m_type.getName() );
+            if( null == statistics )
+            {
+                return;
+            }
+            enableStatistics( statistics, "get ", m_accessors );
+            enableStatistics( statistics, "set ", m_mutators );
+            enableStatistics( statistics, "invoke ", m_operations );
+            m_statisticsEnabled = true;
+        }
+    }
+
+    private static void enableStatistics( final BeanStatistics statistics,
+                                          final String prefix,
+                                          final Map<String, InvocationTarget> invocationTargets )
+    {
+        for( final Map.Entry<String, InvocationTarget> entry : invocationTargets.entrySet() )
+        {
+            entry.getValue().setStatistics( statistics.getMember( prefix + entry.getKey() ) );
+        }
+    }
+
+    final synchronized void freeze()
+        throws OpenDataException
+    {
+        if( m_frozen )
+        {
+            return;
+        }
+        m_frozen = true;
+        m_changesTracked = ChangeTracked.class.isAssignableFrom( m_type ) && !m_accessors.isEmpty();
+        if( m_lazy )
+        {
+            m_mBeanInfo = new LazyOpenMBeanInfo( this, m_type );
+        }
+        else
+        {
+            m_mBeanInfo = createMBeanInfo();
+        }
+        final ArrayList<Method> methods = new ArrayList<Method>();
+        indexMethods( m_accessors, methods );
+        indexMethods( m_mutators, methods );
+        indexMethods( m_operations, methods );
+        m_methods = methods.toArray( new Method[methods.size()] );
+        m_operationsByAction = groupOperationsByAction( m_operations );
+        m_cursorOperations = new HashMap<String, InvocationTarget>();
+        for( final InvocationTarget member : m_pageables.values() )
+        {
+            m_cursorOperations.put( getOpenCursorName( member.getPageName() ), member );
+            m_cursorOperations.put( getFetchCursorName( member.getPageName() ), member );
+        }
+        if( !m_pageables.isEmpty() )
+        {
+            for( final String actionName : m_operationsByAction.keySet() )
+            {
+                if( CLOSE_CURSOR_OPERATION.equals( actionName ) || m_cursorOperations.containsKey( actionName ) )
+                {
+                    final String message =
+                        "Operation " + actionName + " clashes with an operation on cursors over a pageable value.";
+                    throw new OpenDataException( message );
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the MBeanInfo describing this type.
+     * This is only valid after {@link #freeze()} is called.
+     *
+     * @return the MBeanInfo.
+     * @throws OpenDataException if a member does not conform to the OpenMBean specification.
+     */
+    MBeanInfo createMBeanInfo()
+        throws OpenDataException
+    {
+        return OpenMBeanInfoCreator.createMBeanInfo( m_type,
+                                                     m_accessors,
+                                                     m_mutators,
+                                                     m_operations,
+                                                     getChangesType(),
+                                                     m_pageables );
+    }
+
+    /**
+     * Resolve every converter and create the MBeanInfo of a lazy type so
+     * that a non-compliant member is reported as it is when a type that
+     * is not lazy is created. Members are resolved in the order they were
+     * defined. This is only valid after {@link #freeze()} is called.
+     *
+     * @throws NotCompliantMBeanException if a member does not conform to the OpenMBean specification.
+     */
+    final void validate()
+        throws NotCompliantMBeanException
+    {
+        if( !m_lazy )
+        {
+            return;
+        }
+        try
+        {
+            for( final InvocationTarget invocationTarget : m_definitions )
+            {
+                invocationTarget.resolve();
+            }
+            ( (LazyOpenMBeanInfo)m_mBeanInfo ).getMBeanInfo();
+        }
+        catch( final OpenDataException ode )
+        {
+            final NotCompliantMBeanException e =
+                new NotCompliantMBeanException( ode.getMessage() );
+            e.initCause( ode );
+            throw e;
+        }
+    }
+
+    /**
+     * Return the type of the value returned by the changes operation,
+     * creating it on first use.
+     *
+     * @return the type or null if changes are not tracked.
+     */
+    private CompositeType getChangesType()
+        throws OpenDataException
+    {
+        if( m_changesTracked && null == m_changesType )
+        {
+            synchronized( this )
+            {
+                if( null == m_changesType )
+                {
+                    m_changesType = createChangesType( m_type, m_accessors );
+                }
+            }
+        }
+        return m_changesType;
+    }
+
+    /**
+     * Create the type of the value returned by the changes operation.
+     * The "values" item holds the open value of every readable attribute
+     * and is null for attributes that have not changed.
+     *
+     * @param type the managed type.
+     * @param accessors the attribute accessors.
+     * @return the type.
+     */
+    private static CompositeType createChangesType( final Class type,
+                                                    final Map<String, InvocationTarget> accessors )
+        throws OpenDataException
+    {
+        final String[] names = accessors.keySet().toArray( new String[accessors.size()] );
+        final OpenType[] types = new OpenType[names.length];
+        for( int i = 0; i < names.length; i++ )
+        {
+            types[i] = accessors.get( names[i] ).getReturnValueConverter().getOpenType();
+        }
+        final String valuesTypeName = type.getName() + ".Values";
+        final CompositeType valuesType =
+            new CompositeType( valuesTypeName, valuesTypeName, names, names, types );
+        final String changesTypeName = type.getName() + ".Changes";
+        final String[] descriptions =
+            new String[]{"The latest version",
+                         "The attributes changed since the requested version",
+                         "The values of the changed attributes"};
+        final OpenType[] itemTypes =
+            new OpenType[]{SimpleType.LONG, new ArrayType( 1, SimpleType.STRING ), valuesType};
+        return new CompositeType( changesTypeName, changesTypeName, CHANGES_ITEMS, descriptions, itemTypes );
+    }
+
+    /**
+     * Return a new tracker for the attributes of a bean of this type or
+     * null if the type does not implement {@link ChangeTracked}.
+     *
+     * @return the tracker or null.
+     */
+    ChangeTracker createChangeTracker()
+    {
+        return m_changesTracked ? new ChangeTracker( m_accessors.keySet() ) : null;
+    }
+
+    /**
+     * Return the open values of the attributes of target that changed after since.
+     * Attributes compared when sampled are read first so that their changes are
+     * included. The returned version is read before the changed attributes so an
+     * attribute that changes during the call is reported again by the next call,
+     * ie changes are delivered at least once.
+     *
+     * @param target the target object.
+     * @param cache the cache of attribute values for target or null if attributes are not cached.
+     * @param tracker the tracker for target.
+     * @param since the version last received by the caller.
+     * @return the changes.
+     */
+    CompositeData getChangesSince( final Object target,
+                                   final AttributeCache cache,
+                                   final ChangeTracker tracker,
+                                   final long since )
+        throws MBeanException, ReflectionException
+    {
+        final CompositeType changesType;
+        try
+        {
+            changesType = getChangesType();
+        }
+        catch( final OpenDataException ode )
+        {
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
+        for( final String name : tracker.getComparedAttributes() )
+        {
+            tracker.sample( name, getAttribute( target, m_accessors.get( name ), cache ) );
+        }
+        final HashMap<String, Long> versions = new HashMap<String, Long>();
+        final long version = tracker.snapshot( versions );
+        final CompositeType valuesType = (CompositeType)changesType.getType( CHANGES_ITEMS[2] );
+        final ArrayList<String> changed = new ArrayList<String>();
+        final HashMap<String, Object> values = new HashMap<String, Object>();
+        for( final String name : valuesType.keySet() )
+        {
+            if( versions.get( name ) > since )
+            {
+                changed.add( name );
+                values.put( name, getAttribute( target, m_accessors.get( name ), cache ) );
+            }
+            else
+            {
+                values.put( name, null );
+            }
+        }
+        try
+        {
+            final Object[] items =
+                new Object[]{version,
+                             changed.toArray( new String[changed.size()] ),
+                             new CompositeDataSupport( valuesType, values )};
+            return new CompositeDataSupport( changesType, CHANGES_ITEMS, items );
+        }
+        catch( final OpenDataException ode )
+        {
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
+    }
+
+    /**
+     * Retrieve the attributes of remote bean that changed after since and
+     * convert them to java values. Attributes that are not part of this type
+     * are omitted from the result.
+     *
+     * @param connection the connection.
+     * @param objectName the name of remote bean.
+     * @param since the version last received by the caller.
+     * @return the changes.
+     */
+    RMXChanges getChangesSince( final MBeanServerConnection connection,
+                                final ObjectName objectName,
+                                final long since )
+        throws InstanceNotFoundException, MBeanException,
+               ReflectionException, IOException
+    {
+        final CompositeData data =
+            (CompositeData)connection.invoke( objectName, CHANGES_OPERATION, new Object[]{since}, CHANGES_SIGNATURE );
+        final String[] changed = (String[])data.get( CHANGES_ITEMS[1] );
+        final CompositeData values = (CompositeData)data.get( CHANGES_ITEMS[2] );
+        final HashMap<String, Object> results = new HashMap<String, Object>();
+        for( final String name : changed )
+        {
+            final InvocationTarget accessor = m_accessors.get( name );
+            if( null != accessor )
+            {
+                results.put( name, convertToJavaReturnValue( accessor, values.get( name ) ) );
+            }
+        }
+        return new RMXChanges( (Long)data.get( CHANGES_ITEMS[0] ), results );
+    }
+
+    /**
+     * Return a new table for the cursors over the pageable values of a bean
+     * of this type or null if the type has no pageable members.
+     *
+     * @return the table or null.
+     */
+    CursorTable createCursorTable()
+    {
+        return m_pageables.isEmpty() ? null : new CursorTable();
     }
 
-    Class getType()
+    /**
+     * Return true if actionName is the name of an operation on cursors over the pageable values of this type.
+     *
+     * @param actionName the name of the action.
+     * @return true if actionName is the name of a cursor operation.
+     */
+    boolean isCursorOperation( final String actionName )
     {
-        return m_type;
+        return !m_pageables.isEmpty() &&
+               ( CLOSE_CURSOR_OPERATION.equals( actionName ) || m_cursorOperations.containsKey( actionName ) );
     }
 
-    Object getAttribute( final MBeanServerConnection connection,
-                         final ObjectName objectName,
-                         final String name )
-        throws MBeanException, AttributeNotFoundException,
-               InstanceNotFoundException, ReflectionException,
-               IOException
+    /**
+     * Invoke an operation on cursors over the pageable values of target.
+     * Opening a cursor invokes the pageable member and returns the first
+     * page. The cursor is closed once the last page has been returned.
+     *
+     * @param target the target object.
+     * @param cursors the cursors of target.
+     * @param actionName the name of the cursor operation.
+     * @param params the parameters.
+     * @param signature the signature.
+     * @return the page or null when closing a cursor.
+     * @throws MBeanException if the member throws an exception or the cursor is closed or expired.
+     * @throws ReflectionException if no such operation exists.
+     */
+    Object invokeCursorOperation( final Object target,
+                                  final CursorTable cursors,
+                                  final String actionName,
+                                  final Object[] params,
+                                  final String[] signature )
+        throws MBeanException, ReflectionException
     {
-        final InvocationTarget invocationTarget = getAccessor( name );
-        final Object value = connection.getAttribute( objectName, name );
-        return convertToJavaReturnValue( invocationTarget, value );
+        if( CLOSE_CURSOR_OPERATION.equals( actionName ) )
+        {
+            if( Arrays.equals( CLOSE_CURSOR_SIGNATURE, signature ) && null != params && 1 == params.length )
+            {
+                cursors.close( (Long)params[0] );
+                return null;
+            }
+        }
+        else
+        {
+            final InvocationTarget member = m_cursorOperations.get( actionName );
+            final String[] openSignature = getOpenCursorSignature( member );
+            if( actionName.equals( getOpenCursorName( member.getPageName() ) ) &&
+                Arrays.equals( openSignature, signature ) &&
+                null != params && openSignature.length == params.length )
+            {
+                final Object[] memberParams = new Object[params.length - 1];
+                System.arraycopy( params, 0, memberParams, 0, memberParams.length );
+                final Object[] args = convertParametersToJava( member, memberParams );
+                final Object value = performInvocation( member, target, args );
+                final CursorTable.Cursor cursor = cursors.open( member, value );
+                return nextPage( cursors, cursor, (Integer)params[memberParams.length] );
+            }
+            else if( Arrays.equals( FETCH_CURSOR_SIGNATURE, signature ) && null != params && 2 == params.length )
+            {
+                final long id = (Long)params[0];
+                final CursorTable.Cursor cursor = cursors.get( id, member );
+                if( null == cursor )
+                {
+                    final String message = "Cursor " + id + " has been closed or has expired.";
+                    throw new MBeanException( new IllegalStateException( message ) );
+                }
+                return nextPage( cursors, cursor, (Integer)params[1] );
+            }
+        }
+        final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
+        throw new ReflectionException( new NoSuchMethodException( name ) );
     }
 
-    void setAttribute( final MBeanServerConnection connection,
-                       final ObjectName objectName,
-                       final Attribute attribute )
-        throws InstanceNotFoundException, AttributeNotFoundException,
-               InvalidAttributeValueException, MBeanException,
-               ReflectionException, IOException
+    /**
+     * Return the next page from cursor, closing the cursor if it is exhausted.
+     *
+     * @param cursors the cursors of target.
+     * @param cursor the cursor.
+     * @param count the number of elements requested or 0 for the default page size.
+     * @return the page.
+     */
+    private CompositeData nextPage( final CursorTable cursors,
+                                    final CursorTable.Cursor cursor,
+                                    final int count )
+        throws MBeanException
     {
-        final String name = attribute.getName();
-        final InvocationTarget invocationTarget = getMutator( name );
-        final Object value = convertAttributeValueToOpenType( invocationTarget, attribute );
-
-        connection.setAttribute( objectName, new Attribute( name, value ) );
+        final InvocationTarget member = cursor.m_member;
+        try
+        {
+            final Object page = cursor.next( count > 0 ? count : member.getPageSize() );
+            final Object values = toOpenType( member, member.getPageConverter(), page );
+            final long id;
+            if( cursor.isExhausted() )
+            {
+                cursors.close( cursor.m_id );
+                id = 0;
+            }
+            else
+            {
+                id = cursor.m_id;
+            }
+            return new RMXCompositeData( member.getPageType(), InvocationTarget.PAGE_ITEMS, new Object[]{id, values} );
+        }
+        catch( final OpenDataException ode )
+        {
+            cursors.close( cursor.m_id );
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
     }
 
-    Object invoke( final MBeanServerConnection connection,
-                   final ObjectName objectName,
-                   final String actionName,
-                   final Object[] params,
-                   final String[] signature )
+    /**
+     * Open a cursor over the value of a pageable attribute or operation of
+     * remote bean. The first page is retrieved immediately.
+     *
+     * @param connection the connection.
+     * @param objectName the name of remote bean.
+     * @param name the name of the attribute or operation.
+     * @param params the java parameters of the operation.
+     * @return the cursor.
+     * @throws IllegalArgumentException if no attribute or operation with name is pageable
+     *                                  or the number of parameters is wrong.
+     */
+    RMXCursor openCursor( final MBeanServerConnection connection,
+                          final ObjectName objectName,
+                          final String name,
+                          final Object[] params )
         throws InstanceNotFoundException, MBeanException,
                ReflectionException, IOException
     {
-        final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
-        final InvocationTarget invocationTarget = getOperation( name );
-        final Object[] args = convertParametersToOpenType( invocationTarget, params );
-        final Object returnValue = connection.invoke( objectName, actionName, args, signature );
-        return convertToJavaReturnValue( invocationTarget, returnValue );
+        final InvocationTarget member = m_pageables.get( name );
+        if( null == member )
+        {
+            throw new IllegalArgumentException( "No attribute or operation named " + name + " is pageable." );
+        }
+        final String[] openSignature = getOpenCursorSignature( member );
+        final int length = ( null == params ) ? 0 : params.length;
+        if( length != openSignature.length - 1 )
+        {
+            final String message =
+                "Expected " + ( openSignature.length - 1 ) + " parameters for " + name + " but got " + length + ".";
+            throw new IllegalArgumentException( message );
+        }
+        final Object[] openParams = new Object[openSignature.length];
+        if( 0 != length )
+        {
+            System.arraycopy( convertParametersToOpenType( member, params ), 0, openParams, 0, length );
+        }
+        openParams[length] = member.getPageSize();
+        final Object page =
+            connection.invoke( objectName, getOpenCursorName( name ), openParams, openSignature );
+        return new RMXCursor( this, connection, objectName, member, (CompositeData)page );
     }
 
-    Object getAttribute( final Object target, final String name )
-        throws AttributeNotFoundException, MBeanException, ReflectionException
+    /**
+     * Retrieve the next page from a cursor over the value of a pageable member of remote bean.
+     *
+     * @param connection the connection.
+     * @param objectName the name of remote bean.
+     * @param member the pageable member.
+     * @param id the identifier of the cursor.
+     * @return the page.
+     */
+    CompositeData fetchCursor( final MBeanServerConnection connection,
+                               final ObjectName objectName,
+                               final InvocationTarget member,
+                               final long id )
+        throws InstanceNotFoundException, MBeanException,
+               ReflectionException, IOException
     {
-        final InvocationTarget invocationTarget = getAccessor( name );
-        final Object value = performInvocation( invocationTarget, target, EMPTY_ARGS );
-        return convertToOpenTypeReturnValue( invocationTarget, value );
+        final Object[] params = new Object[]{id, member.getPageSize()};
+        final String actionName = getFetchCursorName( member.getPageName() );
+        return (CompositeData)connection.invoke( objectName, actionName, params, FETCH_CURSOR_SIGNATURE );
     }
 
-    void setAttribute( final Object target, final Attribute attribute )
-        throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException
+    /**
+     * Convert the elements of a page retrieved from a pageable member to a java value.
+     *
+     * @param member the pageable member.
+     * @param values the open value holding the elements.
+     * @return the java value, a List, Map or array.
+     */
+    Object convertPageToJava( final InvocationTarget member, final Object values )
+        throws MBeanException
     {
-        final InvocationTarget invocationTarget = getMutator( attribute.getName() );
-        final Object value = convertAttributeValueToJava( invocationTarget, attribute );
-        performInvocation( invocationTarget, target, new Object[]{value} );
+        try
+        {
+            return toJavaType( member, member.getPageConverter(), values );
+        }
+        catch( final OpenDataException ode )
+        {
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
     }
 
-    Object invoke( final Object target,
-                   final String actionName,
-                   final Object[] params,
-                   final String[] signature )
-        throws MBeanException, ReflectionException
+    /**
+     * Assign each invocation target an index into the list of methods.
+     *
+     * @param invocationTargets the invocation targets.
+     * @param methods the list of methods. (IN/OUT)
+     */
+    private void indexMethods( final Map<String, InvocationTarget> invocationTargets,
+                               final ArrayList<Method> methods )
     {
-        final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
-
-        final InvocationTarget invocationTarget = getOperation( name );
-
-        final Object[] args = convertParametersToJava( invocationTarget, params );
-        final Object returnValue = performInvocation( invocationTarget, target, args );
-        return convertToOpenTypeReturnValue( invocationTarget, returnValue );
+        for( final InvocationTarget invocationTarget : invocationTargets.values() )
+        {
+            invocationTarget.setIndex( methods.size() );
+            methods.add( invocationTarget.getMethod() );
+        }
     }
 
-    final synchronized void freeze()
-        throws OpenDataException
+    /**
+     * Return the Invoker for type, generating it on first use.
+     * Generation is deferred until the first local invocation so that types
+     * only used to proxy remote beans never generate an invoker.
+     *
+     * @return the Invoker or null if type must be invoked via reflection.
+     */
+    private Invoker getInvoker()
     {
-        if( m_frozen )
+        if( !m_invokerCreated )
         {
-            return;
+            synchronized( this )
+            {
+                if( !m_invokerCreated && null != m_methods )
+                {
+                    m_invoker = InvokerFactory.createInvoker( m_type, m_methods );
+                    m_invokerCreated = true;
+                }
+            }
         }
-        m_frozen = true;
-        m_mBeanInfo = OpenMBeanInfoCreator.createMBeanInfo( m_type,
-                                                            m_accessors,
-                                                            m_mutators,
-                                                            m_operations );
+        return m_invoker;
     }
 
     final synchronized void defineAttribute( final Method method )
@@ -154,21 +1276,22 @@ class RMXBeanType
         }
         if( BeanUtil.isMutator( method ) )
         {
-            final Type[] types = method.getGenericParameterTypes();
-            final Converter converter = ConverterManager.getConverterFor( types[0] );
-            final Converter[] converters = new Converter[]{converter};
-            final InvocationTarget invocationTarget =
-                new InvocationTarget( method, converters, null );
             final String name = BeanUtil.getAttributeName( method );
+            final InvocationTarget invocationTarget =
+                createInvocationTarget( method, InvocationTarget.MUTATOR, null );
             m_mutators.put( name, invocationTarget );
         }
         else if( BeanUtil.isAccessor( method ) )
         {
-            final Type type = method.getGenericReturnType();
-            final Converter converter = ConverterManager.getConverterFor( type );
-            final InvocationTarget invocationTarget =
-                new InvocationTarget( method, null, converter );
             final String name = BeanUtil.getAttributeName( method );
+            final InvocationTarget invocationTarget =
+                createInvocationTarget( method, InvocationTarget.ACCESSOR, name );
+            final MxAttribute attribute = method.getAnnotation( MxAttribute.class );
+            if( null != attribute )
+            {
+                invocationTarget.setCurrencyTimeLimit( toNanos( attribute.currencyTimeLimit() ) );
+                invocationTarget.setReadTimeout( TimeUnit.MILLISECONDS.toNanos( attribute.readTimeout() ) );
+            }
             m_accessors.put( name, invocationTarget );
         }
         else
@@ -188,84 +1311,150 @@ class RMXBeanType
                 "Type has been frozen and no more attributes can be defined.";
             throw new OpenDataException( message );
         }
-        final Converter[] converters = getConverters( method.getGenericParameterTypes() );
-        final Converter rvConverter = getConverter( method.getGenericReturnType() );
-
         final InvocationTarget invocationTarget =
-            new InvocationTarget( method, converters, rvConverter );
+            createInvocationTarget( method, InvocationTarget.OPERATION, method.getName() );
 
         final String name = BeanUtil.makeFullyQualifiedName( method );
         m_operations.put( name, invocationTarget );
     }
 
     /**
-     * Return converter for specified type if type is not a SimpleType.
-     * This method will return null if type is void, null or a SimpleType.
+     * Mark the value returned by the member as pageable if the method is annotated with {@link MxPageable}.
      *
-     * @param type the type.
-     * @return the Converter.
-     * @throws OpenDataException if unable to get converter for type.
+     * @param name the name of the attribute or operation.
+     * @param invocationTarget the accessor or operation.
+     * @throws OpenDataException if the value is not a List, Map or array or the name is already pageable.
      */
-    private Converter getConverter( final Type type )
+    private void definePageable( final String name, final InvocationTarget invocationTarget )
         throws OpenDataException
     {
-        if( null == type || Void.TYPE == type )
+        final Method method = invocationTarget.getMethod();
+        final MxPageable pageable = method.getAnnotation( MxPageable.class );
+        if( null == pageable )
+        {
+            return;
+        }
+        final Class<?> type = method.getReturnType();
+        if( List.class != type && Map.class != type && !type.isArray() )
         {
-            return null;
+            final String message =
+                "Method (" + method.getName() + ") is pageable but does not return a List, Map or array.";
+            throw new OpenDataException( message );
         }
-        final Converter converter = ConverterManager.getConverterFor( type );
-        if( converter instanceof SimpleTypeConverter )
+        if( pageable.pageSize() <= 0 )
         {
-            return null;
+            final String message =
+                "Method (" + method.getName() + ") has a page size that is not positive.";
+            throw new OpenDataException( message );
         }
-        else
+        if( m_pageables.containsKey( name ) )
         {
-            return converter;
+            final String message =
+                "More than one pageable attribute or operation is named " + name + ".";
+            throw new OpenDataException( message );
         }
+        invocationTarget.setPageable( name,
+                                      pageable.pageSize(),
+                                      TimeUnit.SECONDS.toNanos( pageable.cursorTimeout() ) );
+        m_pageables.put( name, invocationTarget );
+    }
+
+    /**
+     * Return the name of the operation that opens a cursor over the value of a pageable member.
+     *
+     * @param name the name of the attribute or operation.
+     * @return the name of the operation.
+     */
+    static String getOpenCursorName( final String name )
+    {
+        return "open" + Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 ) + "Cursor";
+    }
+
+    /**
+     * Return the name of the operation that fetches the next page from a cursor over the value of a pageable member.
+     *
+     * @param name the name of the attribute or operation.
+     * @return the name of the operation.
+     */
+    static String getFetchCursorName( final String name )
+    {
+        return "fetch" + Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 ) + "Cursor";
+    }
+
+    /**
+     * Return the signature of the operation that opens a cursor over the
+     * value of member. It is the signature of member followed by the page size.
+     *
+     * @param member the pageable member.
+     * @return the signature.
+     */
+    static String[] getOpenCursorSignature( final InvocationTarget member )
+    {
+        final String[] signature = member.getSignature();
+        final String[] result = new String[signature.length + 1];
+        System.arraycopy( signature, 0, result, 0, signature.length );
+        result[signature.length] = Integer.TYPE.getName();
+        return result;
     }
 
     /**
-     * Return an array of converters for specified types.
-     * This method will return null if all the types are SimpleTypes.
+     * Create the invocation target for method. The converters of the
+     * target are resolved immediately unless the type is lazy.
      *
-     * @param types the types.
-     * @return the Converters.
-     * @throws OpenDataException if unable to get converter for an element.
+     * @param method the method.
+     * @param kind the kind of target.
+     * @param name the name of the attribute or operation if the value returned by method may be pageable, otherwise null.
+     * @return the invocation target.
+     * @throws OpenDataException if unable to get a converter for a type of method.
      */
-    private Converter[] getConverters( final Type[] types )
+    private InvocationTarget createInvocationTarget( final Method method, final int kind, final String name )
         throws OpenDataException
     {
-        if( 0 == types.length )
+        final InvocationTarget invocationTarget = new InvocationTarget( method, kind );
+        if( null != name )
+        {
+            definePageable( name, invocationTarget );
+        }
+        if( m_lazy )
         {
-            return null;
+            m_definitions.add( invocationTarget );
         }
         else
         {
-            final Converter[] converters = new Converter[types.length];
-            boolean nonSimpleTypes = false;
-
-            for( int i = 0; i < converters.length; i++ )
-            {
-                converters[i] = ConverterManager.getConverterFor( types[i] );
-                nonSimpleTypes = nonSimpleTypes ||
-                                 !( converters[i] instanceof SimpleTypeConverter );
-            }
+            invocationTarget.resolve();
+        }
+        return invocationTarget;
+    }
 
-            if( nonSimpleTypes )
-            {
-                return converters;
-            }
-            else
-            {
-                return null;
-            }
+    /**
+     * Convert a currencyTimeLimit in seconds to nanoseconds. As for the
+     * "currencyTimeLimit" descriptor field a negative value, including
+     * {@link MxAttribute#DEFAULT_CURRENCY_TIME_LIMIT}, means the value is
+     * never cached and 0 means the value is cached until the attribute is set.
+     *
+     * @param currencyTimeLimit the currencyTimeLimit in seconds.
+     * @return the currencyTimeLimit in nanoseconds, 0 if never cached or Long.MAX_VALUE if cached forever.
+     */
+    private static long toNanos( final int currencyTimeLimit )
+    {
+        if( currencyTimeLimit < 0 )
+        {
+            return 0;
+        }
+        else if( 0 == currencyTimeLimit )
+        {
+            return Long.MAX_VALUE;
+        }
+        else
+        {
+            return TimeUnit.SECONDS.toNanos( currencyTimeLimit );
         }
     }
 
     private Object[] convertParametersToJava( final InvocationTarget invocationTarget, final Object[] params )
         throws ReflectionException, MBeanException
     {
-        final Converter[] converters = invocationTarget.getParameterConverters();
+        final Converter[] converters = getParameterConverters( invocationTarget );
         final Object[] args;
         if( null == converters )
         {
@@ -283,7 +1472,7 @@ class RMXBeanType
             {
                 try
                 {
-                    args[i] = converters[i].toJavaType( params[i] );
+                    args[i] = toJavaType( invocationTarget, converters[i], params[i] );
                 }
                 catch( final OpenDataException ode )
                 {
@@ -299,7 +1488,7 @@ class RMXBeanType
     private Object[] convertParametersToOpenType( final InvocationTarget invocationTarget, final Object[] params )
         throws ReflectionException, MBeanException
     {
-        final Converter[] converters = invocationTarget.getParameterConverters();
+        final Converter[] converters = getParameterConverters( invocationTarget );
         final Object[] args;
         if( null == converters )
         {
@@ -317,7 +1506,7 @@ class RMXBeanType
             {
                 try
                 {
-                    args[i] = converters[i].toOpenType( params[i] );
+                    args[i] = toOpenType( invocationTarget, converters[i], params[i] );
                 }
                 catch( final OpenDataException ode )
                 {
@@ -337,7 +1526,15 @@ class RMXBeanType
     {
         try
         {
-            return invocationTarget.getMethod().invoke( target, args );
+            final Invoker invoker = getInvoker();
+            if( null != invoker )
+            {
+                return invoker.invoke( invocationTarget.getIndex(), target, args );
+            }
+            else
+            {
+                return invocationTarget.getMethod().invoke( target, args );
+            }
         }
         catch( final IllegalAccessException iae )
         {
@@ -371,14 +1568,14 @@ class RMXBeanType
 
     private Object convertAttributeValueToJava( final InvocationTarget invocationTarget,
                                                 final Attribute attribute )
-        throws InvalidAttributeValueException
+        throws InvalidAttributeValueException, MBeanException
     {
-        final Converter[] converters = invocationTarget.getParameterConverters();
+        final Converter[] converters = getParameterConverters( invocationTarget );
         if( null != converters )
         {
             try
             {
-                return converters[0].toJavaType( attribute.getValue() );
+                return toJavaType( invocationTarget, converters[0], attribute.getValue() );
             }
             catch( final OpenDataException ode )
             {
@@ -396,14 +1593,14 @@ class RMXBeanType
 
     private Object convertAttributeValueToOpenType( final InvocationTarget invocationTarget,
                                                     final Attribute attribute )
-        throws InvalidAttributeValueException
+        throws InvalidAttributeValueException, MBeanException
     {
-        final Converter[] converters = invocationTarget.getParameterConverters();
+        final Converter[] converters = getParameterConverters( invocationTarget );
         if( null != converters )
         {
             try
             {
-                return converters[0].toOpenType( attribute.getValue() );
+                return toOpenType( invocationTarget, converters[0], attribute.getValue() );
             }
             catch( final OpenDataException ode )
             {
@@ -422,12 +1619,12 @@ class RMXBeanType
     private Object convertToJavaReturnValue( final InvocationTarget invocationTarget, final Object value )
         throws MBeanException
     {
-        final Converter converter = invocationTarget.getReturnValueConverter();
+        final Converter converter = getReturnValueConverter( invocationTarget );
         if( null != converter )
         {
             try
             {
-                return converter.toJavaType( value );
+                return toJavaType( invocationTarget, converter, value );
             }
             catch( final OpenDataException ode )
             {
@@ -445,12 +1642,12 @@ class RMXBeanType
     private Object convertToOpenTypeReturnValue( final InvocationTarget invocationTarget, final Object value )
         throws MBeanException
     {
-        final Converter converter = invocationTarget.getReturnValueConverter();
+        final Converter converter = getReturnValueConverter( invocationTarget );
         if( null != converter )
         {
             try
             {
-                return converter.toOpenType( value );
+                return toOpenType( invocationTarget, converter, value );
             }
             catch( final OpenDataException ode )
             {
@@ -465,7 +1662,99 @@ class RMXBeanType
         }
     }
 
-    private InvocationTarget getAccessor( final String name )
+    /**
+     * Return the parameter converters of invocationTarget, resolving them if required.
+     *
+     * @param invocationTarget the invocation target.
+     * @return the converters or null if no parameter needs conversion.
+     * @throws MBeanException if unable to resolve a converter.
+     */
+    private static Converter[] getParameterConverters( final InvocationTarget invocationTarget )
+        throws MBeanException
+    {
+        try
+        {
+            return invocationTarget.getParameterConverters();
+        }
+        catch( final OpenDataException ode )
+        {
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
+    }
+
+    /**
+     * Return the return value converter of invocationTarget, resolving it if required.
+     *
+     * @param invocationTarget the invocation target.
+     * @return the converter or null if the return value needs no conversion.
+     * @throws MBeanException if unable to resolve the converter.
+     */
+    private static Converter getReturnValueConverter( final InvocationTarget invocationTarget )
+        throws MBeanException
+    {
+        try
+        {
+            return invocationTarget.getReturnValueConverter();
+        }
+        catch( final OpenDataException ode )
+        {
+            final MBeanException exception = new MBeanException( ode );
+            exception.initCause( ode );
+            throw exception;
+        }
+    }
+
+    /**
+     * Convert value to an open value, tracing the conversion if a tracer is installed.
+     *
+     * @param invocationTarget the invocation target the value belongs to.
+     * @param converter the converter.
+     * @param value the java value.
+     * @return the open value.
+     */
+    private static Object toOpenType( final InvocationTarget invocationTarget,
+                                      final Converter converter,
+                                      final Object value )
+        throws OpenDataException
+    {
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
+        {
+            return converter.toOpenType( value );
+        }
+        final long start = System.nanoTime();
+        final Object result = converter.toOpenType( value );
+        tracer.traceConversion( TraceKind.TO_OPEN_TYPE, invocationTarget.getMethod().getName(), result, start );
+        return result;
+    }
+
+    /**
+     * Convert value to a java value, tracing the conversion if a tracer is installed.
+     *
+     * @param invocationTarget the invocation target the value belongs to.
+     * @param converter the converter.
+     * @param value the open value.
+     * @return the java value.
+     */
+    private static Object toJavaType( final InvocationTarget invocationTarget,
+                                      final Converter converter,
+                                      final Object value )
+        throws OpenDataException
+    {
+        final Tracer tracer = Tracer.getTracer();
+        if( null == tracer )
+        {
+            return converter.toJavaType( value );
+        }
+        final long start = System.nanoTime();
+        final Object result = converter.toJavaType( value );
+        tracer.traceConversion( TraceKind.TO_JAVA_TYPE, invocationTarget.getMethod().getName(), value, start );
+        return result;
+    }
+
+    InvocationTarget getAccessor( final String name )
         throws AttributeNotFoundException
     {
         final InvocationTarget invocationTarget = m_accessors.get( name );
@@ -476,7 +1765,7 @@ class RMXBeanType
         return invocationTarget;
     }
 
-    private InvocationTarget getMutator( final String name )
+    InvocationTarget getMutator( final String name )
         throws AttributeNotFoundException
     {
         final InvocationTarget invocationTarget = m_mutators.get( name );
@@ -487,14 +1776,79 @@ class RMXBeanType
         return invocationTarget;
     }
 
-    private InvocationTarget getOperation( final String name )
+    /**
+     * Return the operation with specified action name and signature.
+     * Overloads of an action are few so they are scanned linearly which
+     * avoids building a key for every invocation. Before the type is frozen
+     * the operations have not been grouped so all of them are scanned.
+     *
+     * @param actionName the name of the action.
+     * @param signature the signature of the action.
+     * @return the operation.
+     * @throws ReflectionException if no such operation exists.
+     */
+    InvocationTarget getOperation( final String actionName, final String[] signature )
         throws ReflectionException
     {
-        final InvocationTarget invocationTarget = m_operations.get( name );
-        if( null == invocationTarget )
+        final Map<String, InvocationTarget[]> operationsByAction = m_operationsByAction;
+        if( null != operationsByAction )
         {
-            throw new ReflectionException( new NoSuchMethodException( name ) );
+            final InvocationTarget[] candidates = operationsByAction.get( actionName );
+            if( null != candidates )
+            {
+                for( final InvocationTarget candidate : candidates )
+                {
+                    if( candidate.matches( signature ) )
+                    {
+                        return candidate;
+                    }
+                }
+            }
         }
-        return invocationTarget;
+        else
+        {
+            synchronized( this )
+            {
+                for( final InvocationTarget candidate : m_operations.values() )
+                {
+                    if( candidate.getMethod().getName().equals( actionName ) && candidate.matches( signature ) )
+                    {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        final String name = BeanUtil.makeFullyQualifiedName( actionName, signature );
+        throw new ReflectionException( new NoSuchMethodException( name ) );
+    }
+
+    /**
+     * Group operations by the name of the underlying method.
+     *
+     * @param operations the operations.
+     * @return the operations grouped by action name.
+     */
+    private static Map<String, InvocationTarget[]> groupOperationsByAction( final Map<String, InvocationTarget> operations )
+    {
+        final HashMap<String, ArrayList<InvocationTarget>> groups =
+            new HashMap<String, ArrayList<InvocationTarget>>();
+        for( final InvocationTarget operation : operations.values() )
+        {
+            final String actionName = operation.getMethod().getName();
+            ArrayList<InvocationTarget> group = groups.get( actionName );
+            if( null == group )
+            {
+                group = new ArrayList<InvocationTarget>();
+                groups.put( actionName, group );
+            }
+            group.add( operation );
+        }
+        final HashMap<String, InvocationTarget[]> results = new HashMap<String, InvocationTarget[]>();
+        for( final Map.Entry<String, ArrayList<InvocationTarget>> entry : groups.entrySet() )
+        {
+            final ArrayList<InvocationTarget> group = entry.getValue();
+            results.put( entry.getKey(), group.toArray( new InvocationTarget[group.size()] ) );
+        }
+        return results;
     }
 }
@@ -0,0 +1,42 @@
+package panmx.rmx;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The attributes of an RMXBean that changed since a version.
+ *
+ * @see RMXBeanFactory#getChangesSince(Object, long)
+ */
+public final class RMXChanges
+{
+    private final long m_version;
+    private final Map<String, Object> m_values;
+
+    RMXChanges( final long version, final Map<String, Object> values )
+    {
+        m_version = version;
+        m_values = Collections.unmodifiableMap( values );
+    }
+
+    /**
+     * Return the version of the bean when the changes were collected.
+     * Pass this version to the next poll to receive only later changes.
+     *
+     * @return the version.
+     */
+    public long getVersion()
+    {
+        return m_version;
+    }
+
+    /**
+     * Return the java values of the attributes that changed keyed by attribute name.
+     *
+     * @return the values of the changed attributes.
+     */
+    public Map<String, Object> getValues()
+    {
+        return m_values;
+    }
+}
@@ -0,0 +1,212 @@
+package panmx.rmx;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.OpenDataException;
+
+/**
+ * A CompositeData implementation for values created by RMXCompositeType.
+ *
+ * <p>Unlike CompositeDataSupport the values are not copied into a sorted map
+ * and are not validated against the CompositeType as the converters are
+ * guaranteed to produce values of the correct type. The item names are
+ * shared between all instances of a type and must be in the same (sorted)
+ * order as the keys of the CompositeType.</p>
+ *
+ * <p>Instances are serialized as CompositeDataSupport so that remote
+ * clients do not need PanMX on their classpath.</p>
+ */
+final class RMXCompositeData
+    implements CompositeData, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The CompositeType of data. */
+    private final CompositeType m_compositeType;
+    /** The sorted names of items. */
+    private final String[] m_names;
+    /** The values of items in same order as names. */
+    private final Object[] m_values;
+
+    RMXCompositeData( final CompositeType compositeType,
+                      final String[] names,
+                      final Object[] values )
+    {
+        m_compositeType = compositeType;
+        m_names = names;
+        m_values = values;
+    }
+
+    /**
+     * Return the values of items in the same order as the keys of the CompositeType.
+     * The array MUST NOT be modified.
+     *
+     * @return the values of items.
+     */
+    Object[] getValues()
+    {
+        return m_values;
+    }
+
+    public CompositeType getCompositeType()
+    {
+        return m_compositeType;
+    }
+
+    public Object get( final String key )
+    {
+        return m_values[ indexOf( key ) ];
+    }
+
+    public Object[] getAll( final String[] keys )
+    {
+        if( null == keys || 0 == keys.length )
+        {
+            return new Object[0];
+        }
+        final Object[] results = new Object[keys.length];
+        for( int i = 0; i < keys.length; i++ )
+        {
+            results[ i ] = get( keys[ i ] );
+        }
+        return results;
+    }
+
+    public boolean containsKey( final String key )
+    {
+        return null != key && 0 != key.length() && Arrays.binarySearch( m_names, key ) >= 0;
+    }
+
+    public boolean containsValue( final Object value )
+    {
+        for( final Object candidate : m_values )
+        {
+            if( null == value ? null == candidate : value.equals( candidate ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Collection<?> values()
+    {
+        return Collections.unmodifiableList( Arrays.asList( m_values ) );
+    }
+
+    /**
+     * Return true if object is a CompositeData with the same type and values.
+     * This is compatible with the definition in CompositeDataSupport.
+     */
+    public boolean equals( final Object object )
+    {
+        if( this == object )
+        {
+            return true;
+        }
+        else if( !( object instanceof CompositeData ) )
+        {
+            return false;
+        }
+        final CompositeData other = (CompositeData)object;
+        if( !m_compositeType.equals( other.getCompositeType() ) ||
+            m_values.length != other.values().size() )
+        {
+            return false;
+        }
+        final Object[] otherValues = other.getAll( m_names );
+        for( int i = 0; i < m_values.length; i++ )
+        {
+            if( !Arrays.deepEquals( new Object[]{m_values[ i ]}, new Object[]{otherValues[ i ]} ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return hash code for data. This is compatible with the definition in
+     * CompositeDataSupport.
+     */
+    public int hashCode()
+    {
+        int hashCode = m_compositeType.hashCode();
+        for( final Object value : m_values )
+        {
+            if( null != value )
+            {
+                //Wrapping the value hashes arrays by content. Subtract the
+                //contribution of the wrapper to get the hash of the value.
+                hashCode += Arrays.deepHashCode( new Object[]{value} ) - 31;
+            }
+        }
+        return hashCode;
+    }
+
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( getClass().getName() );
+        sb.append( "(compositeType=" );
+        sb.append( m_compositeType );
+        sb.append( ",contents={" );
+        for( int i = 0; i < m_names.length; i++ )
+        {
+            if( 0 != i )
+            {
+                sb.append( ", " );
+            }
+            sb.append( m_names[ i ] );
+            sb.append( '=' );
+            sb.append( Arrays.deepToString( new Object[]{m_values[ i ]} ) );
+        }
+        sb.append( "})" );
+        return sb.toString();
+    }
+
+    private int indexOf( final String key )
+    {
+        if( null == key || 0 == key.length() )
+        {
+            throw new IllegalArgumentException( "Argument key cannot be a null or empty String." );
+        }
+        final int index = Arrays.binarySearch( m_names, key );
+        if( index < 0 )
+        {
+            final String message =
+                "Argument key=\"" + key + "\" is not an existing item name for this CompositeData instance.";
+            throw new InvalidKeyException( message );
+        }
+        return index;
+    }
+
+    /**
+     * Replace this object with a CompositeDataSupport during serialization.
+     *
+     * @return the CompositeDataSupport.
+     * @throws ObjectStreamException if unable to create CompositeDataSupport.
+     */
+    private Object writeReplace()
+        throws ObjectStreamException
+    {
+        try
+        {
+            return new CompositeDataSupport( m_compositeType, m_names, m_values );
+        }
+        catch( final OpenDataException ode )
+        {
+            final InvalidObjectException exception = new InvalidObjectException( ode.getMessage() );
+            exception.initCause( ode );
+            throw exception;
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package panmx.rmx;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import javax.management.openmbean.CompositeData;
-import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
+import panmx.annotations.MxConstructor;
+import panmx.annotations.MxParameter;
 import panmx.util.BeanUtil;
+import panmx.util.Invoker;
+import panmx.util.InvokerFactory;
 
 /**
  * RMXCompositeType adapt java types to Open MBeans CompositeData type.
@@ -23,6 +30,20 @@ import panmx.util.BeanUtil;
  * {@link #getCompositeType()}, {@link #toCompositeData(Object)} and
  * {@link #fromCompositeData(Object, javax.management.openmbean.CompositeData)}
  * methods.</p>
+ *
+ * <p>When frozen the fields are ordered in the same order as the items of
+ * the CompositeType so that values can be converted directly into an array
+ * and wrapped in a {@link RMXCompositeData} without further validation.
+ * Public accessors and mutators are invoked through a generated
+ * {@link Invoker} if possible.</p>
+ *
+ * <p>If the type has a constructor, or a static factory method, annotated
+ * with {@link MxConstructor} then objects are created from CompositeData by
+ * passing the values of fields to it rather than by invoking the no-arg
+ * constructor and a mutator per field. Each parameter must be annotated
+ * with {@link MxParameter} naming the field it receives and fields that are
+ * passed to the constructor do not need a mutator. This allows immutable
+ * types to be used as CompositeData.</p>
  */
 class RMXCompositeType
 {
@@ -45,19 +66,102 @@ class RMXCompositeType
      * This is only valid after {@link #freeze()} is called.
      */
     private DataFieldDescriptor[] m_descriptors;
+    /**
+     * The sorted names of fields. Descriptors are in the same order.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private String[] m_items;
+    /**
+     * The methods and constructors that are invoked through the invoker.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private Member[] m_methods;
+    /** The generated invoker. Null if not yet created or if generation was not possible. */
+    private volatile Invoker m_invoker;
+    /** Flag indicating whether an attempt has been made to create invoker. */
+    private volatile boolean m_invokerCreated;
+    /**
+     * The constructor or static factory method annotated with {@link MxConstructor}
+     * or null if objects are created by the no-arg constructor.
+     */
+    private final Member m_creator;
+    /**
+     * The index of creator in the invoker or -1 if it must be invoked via reflection.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private int m_creatorIndex = -1;
+    /**
+     * The index of the field passed as each parameter of creator.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private int[] m_creatorFields;
+    /**
+     * The fields that are set by mutators after the object is created.
+     * This is only valid after {@link #freeze()} is called.
+     */
+    private int[] m_mutatedFields;
 
     /**
      * Create composite type for specified type.
      *
      * @param type the java type.
+     * @throws OpenDataException if type has more than one constructor annotated with MxConstructor.
      */
     RMXCompositeType( final Class type )
+        throws OpenDataException
     {
         if( null == type )
         {
             throw new NullPointerException( "type" );
         }
         m_type = type;
+        m_creator = findCreator( type );
+    }
+
+    /**
+     * Return the constructor or static factory method of type that is
+     * annotated with {@link MxConstructor}.
+     *
+     * @param type the type.
+     * @return the constructor or method, or null if none is annotated.
+     * @throws OpenDataException if more than one is annotated or the method is not a factory for type.
+     */
+    private static Member findCreator( final Class<?> type )
+        throws OpenDataException
+    {
+        Member creator = null;
+        for( final Constructor<?> constructor : type.getDeclaredConstructors() )
+        {
+            if( null != constructor.getAnnotation( MxConstructor.class ) )
+            {
+                creator = checkUnique( type, creator, constructor );
+            }
+        }
+        for( final Method method : type.getDeclaredMethods() )
+        {
+            if( null != method.getAnnotation( MxConstructor.class ) )
+            {
+                if( !Modifier.isStatic( method.getModifiers() ) || type != method.getReturnType() )
+                {
+                    final String message =
+                        "MxConstructor method " + method.getName() + " must be static and return " + type.getName();
+                    throw new OpenDataException( message );
+                }
+                creator = checkUnique( type, creator, method );
+            }
+        }
+        return creator;
+    }
+
+    private static Member checkUnique( final Class<?> type, final Member existing, final Member creator )
+        throws OpenDataException
+    {
+        if( null != existing )
+        {
+            final String message = "Type " + type.getName() + " has more than one MxConstructor.";
+            throw new OpenDataException( message );
+        }
+        return creator;
     }
 
     /**
@@ -75,24 +179,157 @@ class RMXCompositeType
         m_frozen = true;
         final String name = m_type.getName();
         final int size = m_fields.size();
-        final String[] items = new String[size];
+        //CompositeType sorts items so use the same order for values
+        final String[] items = m_fields.keySet().toArray( new String[size] );
+        Arrays.sort( items );
         final OpenType[] types = new OpenType[size];
+        final ArrayList<Member> methods = new ArrayList<Member>();
         m_descriptors = new DataFieldDescriptor[size];
 
-        int index = 0;
-        final Set<Map.Entry<String, DataFieldDescriptor>> entries = m_fields.entrySet();
-        for ( final Entry<String, DataFieldDescriptor> entry : entries )
+        for( int i = 0; i < size; i++ )
         {
-            items[ index ] = entry.getKey();
-            final DataFieldDescriptor descriptor = entry.getValue();
-            m_descriptors[ index ] = descriptor;
-            types[ index ] = descriptor.getConverter().getOpenType();
-            index++;
+            final DataFieldDescriptor descriptor = m_fields.get( items[ i ] );
+            m_descriptors[ i ] = descriptor;
+            types[ i ] = descriptor.getConverter().getOpenType();
+            descriptor.setAccessorIndex( addMethod( methods, descriptor.getAccessor() ) );
+            descriptor.setMutatorIndex( addMethod( methods, descriptor.getMutator() ) );
         }
         m_compositeType = new CompositeType( name, name, items, items, types );
+        m_items = items;
+        if( null != m_creator )
+        {
+            mapCreator( items );
+            m_creatorIndex = addMethod( methods, m_creator );
+        }
+        m_methods = methods.toArray( new Member[methods.size()] );
         m_fields = null;
     }
 
+    /**
+     * Determine the field passed as each parameter of the creator and the
+     * fields that must be set by mutators after the object is created.
+     *
+     * @param items the sorted names of fields.
+     * @throws OpenDataException if a parameter does not name a field of the same type
+     *                           or a field is neither a parameter nor has a mutator.
+     */
+    private void mapCreator( final String[] items )
+        throws OpenDataException
+    {
+        final Class<?>[] parameterTypes;
+        final Annotation[][] annotations;
+        if( m_creator instanceof Constructor )
+        {
+            parameterTypes = ( (Constructor<?>)m_creator ).getParameterTypes();
+            annotations = ( (Constructor<?>)m_creator ).getParameterAnnotations();
+        }
+        else
+        {
+            parameterTypes = ( (Method)m_creator ).getParameterTypes();
+            annotations = ( (Method)m_creator ).getParameterAnnotations();
+        }
+        final boolean[] passed = new boolean[items.length];
+        m_creatorFields = new int[parameterTypes.length];
+        for( int i = 0; i < parameterTypes.length; i++ )
+        {
+            final MxParameter parameter = getParameter( annotations[ i ] );
+            if( null == parameter )
+            {
+                final String message =
+                    "Parameter " + i + " of MxConstructor of " + m_type.getName() + " must be annotated with MxParameter.";
+                throw new OpenDataException( message );
+            }
+            final int index = Arrays.binarySearch( items, parameter.name() );
+            if( index < 0 || passed[ index ] )
+            {
+                final String message =
+                    "Parameter " + parameter.name() + " of MxConstructor of " + m_type.getName() +
+                    " does not name a field or names a field more than once.";
+                throw new OpenDataException( message );
+            }
+            if( parameterTypes[ i ] != m_descriptors[ index ].getAccessor().getReturnType() )
+            {
+                final String message =
+                    "Parameter " + parameter.name() + " of MxConstructor of " + m_type.getName() +
+                    " does not match the type of the field.";
+                throw new OpenDataException( message );
+            }
+            passed[ index ] = true;
+            m_creatorFields[ i ] = index;
+        }
+        final ArrayList<Integer> mutated = new ArrayList<Integer>();
+        for( int i = 0; i < items.length; i++ )
+        {
+            if( !passed[ i ] )
+            {
+                if( null == m_descriptors[ i ].getMutator() )
+                {
+                    final String message = "Missing mutator for field " + items[ i ];
+                    throw new OpenDataException( message );
+                }
+                mutated.add( i );
+            }
+        }
+        m_mutatedFields = new int[mutated.size()];
+        for( int i = 0; i < m_mutatedFields.length; i++ )
+        {
+            m_mutatedFields[ i ] = mutated.get( i );
+        }
+    }
+
+    private static MxParameter getParameter( final Annotation[] annotations )
+    {
+        for( final Annotation annotation : annotations )
+        {
+            if( annotation instanceof MxParameter )
+            {
+                return (MxParameter)annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add method to list of methods invoked through invoker if it is public.
+     *
+     * @param methods the list of methods.
+     * @param method the method or null if the field has no such method.
+     * @return the index of method in list or -1 if method must be invoked via reflection.
+     */
+    private static int addMethod( final ArrayList<Member> methods, final Member method )
+    {
+        if( null != method && Modifier.isPublic( method.getModifiers() ) )
+        {
+            methods.add( method );
+            return methods.size() - 1;
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Return the invoker for type, creating it on first use.
+     *
+     * @return the Invoker or null if fields must be accessed via reflection.
+     */
+    private Invoker getInvoker()
+    {
+        if( !m_invokerCreated )
+        {
+            synchronized( this )
+            {
+                if( !m_invokerCreated && null != m_methods )
+                {
+                    m_invoker = InvokerFactory.createInvoker( m_type, m_methods );
+                    m_invokerCreated = true;
+                }
+            }
+        }
+        return m_invoker;
+    }
+
     /**
      * Add a field to adapted.
      * The field should follow the <a href="#Field">Field</a> conventions.
@@ -117,7 +354,7 @@ class RMXCompositeType
 
         final Method accessor = BeanUtil.getAccessor( m_type, baseName );
         final Class type = accessor.getReturnType();
-        final Method mutator = BeanUtil.getMutator( m_type, baseName, type, false );
+        final Method mutator = getMutator( baseName, type );
 
         final Type returnType = accessor.getGenericReturnType();
         final Converter converter = ConverterManager.getConverterFor( returnType );
@@ -127,6 +364,32 @@ class RMXCompositeType
         m_fields.put( name, descriptor );
     }
 
+    /**
+     * Return the mutator for field. The mutator is optional if the type has
+     * a creator as the field may be passed to the creator.
+     *
+     * @param baseName the capitalized name of the field.
+     * @param type the type of the field.
+     * @return the mutator or null if there is none and type has a creator.
+     * @throws OpenDataException if there is no valid mutator and type has no creator.
+     */
+    private Method getMutator( final String baseName, final Class type )
+        throws OpenDataException
+    {
+        try
+        {
+            return BeanUtil.getMutator( m_type, baseName, type, false );
+        }
+        catch( final OpenDataException ode )
+        {
+            if( null == m_creator )
+            {
+                throw ode;
+            }
+            return null;
+        }
+    }
+
     /**
      * Return the type that this class works with.
      *
@@ -157,6 +420,10 @@ class RMXCompositeType
     final Object fromCompositeData( final CompositeData compositeData )
         throws OpenDataException
     {
+        if( null != m_creator )
+        {
+            return create( compositeData );
+        }
         final Object object;
         try
         {
@@ -173,6 +440,74 @@ class RMXCompositeType
         return object;
     }
 
+    /**
+     * Create object by passing the fields to the creator and then
+     * setting any remaining fields via mutators.
+     *
+     * @param compositeData the CompositeData representation of object.
+     * @return the object.
+     * @throws OpenDataException if there is an error creating object.
+     */
+    private Object create( final CompositeData compositeData )
+        throws OpenDataException
+    {
+        final Object[] values = getValues( compositeData );
+        final Object[] args = new Object[m_creatorFields.length];
+        for( int i = 0; i < args.length; i++ )
+        {
+            final int index = m_creatorFields[ i ];
+            args[ i ] = m_descriptors[ index ].getConverter().toJavaType( values[ index ] );
+        }
+        final Invoker invoker = getInvoker();
+        final Object object;
+        try
+        {
+            if( null != invoker && -1 != m_creatorIndex )
+            {
+                object = invoker.invoke( m_creatorIndex, null, args );
+            }
+            else if( m_creator instanceof Constructor )
+            {
+                object = ( (Constructor<?>)m_creator ).newInstance( args );
+            }
+            else
+            {
+                object = ( (Method)m_creator ).invoke( null, args );
+            }
+        }
+        catch( final Exception e )
+        {
+            final String message = "Error creating object of type " + m_type.getName();
+            final OpenDataException exception = new OpenDataException( message );
+            exception.initCause( e );
+            throw exception;
+        }
+        for( final int index : m_mutatedFields )
+        {
+            setField( invoker, object, m_descriptors[ index ], values[ index ] );
+        }
+        return object;
+    }
+
+    /**
+     * Return the values of fields from compositeData in the order of the descriptors.
+     *
+     * @param compositeData the CompositeData.
+     * @return the values.
+     */
+    private Object[] getValues( final CompositeData compositeData )
+    {
+        if( compositeData instanceof RMXCompositeData &&
+            m_compositeType == compositeData.getCompositeType() )
+        {
+            return ( (RMXCompositeData)compositeData ).getValues();
+        }
+        else
+        {
+            return compositeData.getAll( m_items );
+        }
+    }
+
     /**
      * Synchronize the state of the specified object with the specified
      * CompositeData representation. This object should be an instance
@@ -185,23 +520,54 @@ class RMXCompositeType
     final void fromCompositeData( final Object object, final CompositeData compositeData )
         throws OpenDataException
     {
-        for( final DataFieldDescriptor descriptor : m_descriptors )
+        final Object[] values = getValues( compositeData );
+        final Invoker invoker = getInvoker();
+        for( int i = 0; i < m_descriptors.length; i++ )
         {
-            final String name = descriptor.getName();
-            final Object value = compositeData.get( name );
-            final Object javaValue = descriptor.getConverter().toJavaType( value );
-            try
+            setField( invoker, object, m_descriptors[ i ], values[ i ] );
+        }
+    }
+
+    /**
+     * Convert value to java type and set it on object via the mutator for field.
+     *
+     * @param invoker the invoker or null if fields must be set via reflection.
+     * @param object the object.
+     * @param descriptor the field.
+     * @param value the open value.
+     * @throws OpenDataException if there is an error converting or setting value.
+     */
+    private void setField( final Invoker invoker,
+                           final Object object,
+                           final DataFieldDescriptor descriptor,
+                           final Object value )
+        throws OpenDataException
+    {
+        if( null == descriptor.getMutator() )
+        {
+            final String message = "Missing mutator for field " + descriptor.getName();
+            throw new OpenDataException( message );
+        }
+        final Object javaValue = descriptor.getConverter().toJavaType( value );
+        try
+        {
+            final int index = descriptor.getMutatorIndex();
+            if( null != invoker && -1 != index )
             {
-                descriptor.getMutator().invoke( object, javaValue );
+                invoker.invoke( index, object, new Object[]{javaValue} );
             }
-            catch( final Exception e )
+            else
             {
-                final String message = "Error mutating field " + name;
-                final OpenDataException exception = new OpenDataException( message );
-                exception.initCause( e );
-                throw exception;
+                descriptor.getMutator().invoke( object, javaValue );
             }
         }
+        catch( final Exception e )
+        {
+            final String message = "Error mutating field " + descriptor.getName();
+            final OpenDataException exception = new OpenDataException( message );
+            exception.initCause( e );
+            throw exception;
+        }
     }
 
     /**
@@ -215,26 +581,34 @@ class RMXCompositeType
     final CompositeData toCompositeData( final Object object )
         throws OpenDataException
     {
-        final HashMap<String, Object> map = new HashMap<String, Object>();
-        for( final DataFieldDescriptor descriptor : m_descriptors )
+        final Object[] values = new Object[m_descriptors.length];
+        final Invoker invoker = getInvoker();
+        for( int i = 0; i < m_descriptors.length; i++ )
         {
-            final String name = descriptor.getName();
+            final DataFieldDescriptor descriptor = m_descriptors[ i ];
             final Object value;
             try
             {
-                value = descriptor.getAccessor().invoke( object );
+                final int index = descriptor.getAccessorIndex();
+                if( null != invoker && -1 != index )
+                {
+                    value = invoker.invoke( index, object, null );
+                }
+                else
+                {
+                    value = descriptor.getAccessor().invoke( object );
+                }
             }
             catch( final Exception e )
             {
-                final String message = "Error accessing field " + name;
+                final String message = "Error accessing field " + descriptor.getName();
                 final OpenDataException exception = new OpenDataException( message );
                 exception.initCause( e );
                 throw exception;
             }
 
-            final Object openValue = descriptor.getConverter().toOpenType( value );
-            map.put( name, openValue );
+            values[ i ] = descriptor.getConverter().toOpenType( value );
         }
-        return new CompositeDataSupport( m_compositeType, map );
+        return new RMXCompositeData( m_compositeType, m_items, values );
     }
 }
@@ -0,0 +1,179 @@
+package panmx.rmx;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.management.JMException;
+import javax.management.MBeanException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Iterator over the value of a pageable attribute or operation of a remote
+ * RMXBean that fetches the elements a page at a time. The elements of a
+ * List or array are returned as java values and the entries of a Map as
+ * Map.Entry instances holding java values.
+ *
+ * <p>The remote cursor is closed once the last page has been fetched. A
+ * caller that stops iterating early should call {@link #close()} so that
+ * the bean can release the value rather than wait for the cursor to expire.
+ * Failures to fetch a page are reported as an IllegalStateException as the
+ * methods of Iterator may not throw checked exceptions.</p>
+ *
+ * @see RMXBeanFactory#openCursor(Object, String, Object[])
+ * @see panmx.annotations.MxPageable
+ */
+public final class RMXCursor
+    implements Iterator<Object>
+{
+    private final RMXBeanType m_type;
+    private final MBeanServerConnection m_connection;
+    private final ObjectName m_objectName;
+    /** The pageable member. */
+    private final InvocationTarget m_member;
+    /** The identifier of the remote cursor or 0 if there are no more pages. */
+    private long m_id;
+    /** The elements of the current page. */
+    private Iterator<?> m_elements;
+
+    RMXCursor( final RMXBeanType type,
+               final MBeanServerConnection connection,
+               final ObjectName objectName,
+               final InvocationTarget member,
+               final CompositeData page )
+        throws MBeanException
+    {
+        m_type = type;
+        m_connection = connection;
+        m_objectName = objectName;
+        m_member = member;
+        setPage( page );
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if unable to fetch the next page.
+     */
+    public boolean hasNext()
+    {
+        while( !m_elements.hasNext() && 0 != m_id )
+        {
+            try
+            {
+                setPage( m_type.fetchCursor( m_connection, m_objectName, m_member, m_id ) );
+            }
+            catch( final MBeanException mbe )
+            {
+                m_id = 0;
+                final Exception cause = mbe.getTargetException();
+                if( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException)cause;
+                }
+                throw newFetchException( mbe );
+            }
+            catch( final Exception e )
+            {
+                m_id = 0;
+                throw newFetchException( e );
+            }
+        }
+        return m_elements.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if unable to fetch the next page.
+     */
+    public Object next()
+    {
+        if( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        return m_elements.next();
+    }
+
+    /**
+     * Unsupported as the value can not be modified through a cursor.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Close the remote cursor if there are pages that have not been fetched.
+     * Elements of the current page may still be returned.
+     *
+     * @throws JMException if the request fails.
+     * @throws IOException if a communication problem occurs.
+     */
+    public void close()
+        throws JMException, IOException
+    {
+        if( 0 != m_id )
+        {
+            final long id = m_id;
+            m_id = 0;
+            m_connection.invoke( m_objectName,
+                                 RMXBeanType.CLOSE_CURSOR_OPERATION,
+                                 new Object[]{id},
+                                 RMXBeanType.CLOSE_CURSOR_SIGNATURE );
+        }
+    }
+
+    private void setPage( final CompositeData page )
+        throws MBeanException
+    {
+        final Object[] items = page.getAll( InvocationTarget.PAGE_ITEMS );
+        m_id = (Long)items[0];
+        m_elements = iterator( m_type.convertPageToJava( m_member, items[1] ) );
+    }
+
+    private IllegalStateException newFetchException( final Exception e )
+    {
+        final IllegalStateException exception =
+            new IllegalStateException( "Unable to fetch next page of " + m_member.getPageName() +
+                                       " from " + m_objectName + ": " + e.getMessage() );
+        exception.initCause( e );
+        return exception;
+    }
+
+    /**
+     * Return an iterator over the elements of a page.
+     *
+     * @param page the java value of the page, a List, Map or array.
+     * @return the iterator.
+     */
+    private static Iterator<?> iterator( final Object page )
+    {
+        if( page instanceof List )
+        {
+            return ( (List<?>)page ).iterator();
+        }
+        else if( page instanceof Map )
+        {
+            return ( (Map<?, ?>)page ).entrySet().iterator();
+        }
+        else
+        {
+            final int length = ( null == page ) ? 0 : Array.getLength( page );
+            final ArrayList<Object> elements = new ArrayList<Object>( length );
+            for( int i = 0; i < length; i++ )
+            {
+                elements.add( Array.get( page, i ) );
+            }
+            return elements.iterator();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package panmx.rmx;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.InvalidOpenTypeException;
+import javax.management.openmbean.KeyAlreadyExistsException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * A TabularData implementation for values created by the converters.
+ *
+ * <p>Unlike TabularDataSupport the rows are held in an array sized when the
+ * data is created and rows added by the converters via {@link #append} are
+ * neither validated against the row type nor indexed. The converters are
+ * guaranteed to produce rows of the correct type and the caller of append
+ * must guarantee that the rows have distinct keys. Converters that can not
+ * guarantee distinct keys add rows via {@link #appendDistinct} which checks
+ * the key but not the type. The index used to look up rows by key is
+ * created when first required, which a reader that only iterates over the
+ * values never does. The index is built before it is published so readers
+ * on other threads see either no index or a complete one.</p>
+ *
+ * <p>Rows added through the TabularData interface are validated in the same
+ * way as TabularDataSupport. Instances are serialized as TabularDataSupport
+ * so that remote clients do not need PanMX on their classpath.</p>
+ */
+final class RMXTabularData
+    implements TabularData, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** The TabularType of data. */
+    private final TabularType m_tabularType;
+    /** The names of the items that make up the index. */
+    private final String[] m_indexNames;
+    /** The rows. Only the first m_size elements are used. */
+    private CompositeData[] m_rows;
+    /** The number of rows. */
+    private int m_size;
+    /** Map from the index of a row to its position in m_rows or null if not yet created. */
+    private volatile HashMap<List<?>, Integer> m_index;
+
+    RMXTabularData( final TabularType tabularType, final int capacity )
+    {
+        m_tabularType = tabularType;
+        final List<String> indexNames = tabularType.getIndexNames();
+        m_indexNames = indexNames.toArray( new String[indexNames.size()] );
+        m_rows = new CompositeData[capacity];
+    }
+
+    /**
+     * Add a row produced by a converter without validating it. The row MUST
+     * be of the row type and its key MUST differ from the keys of all other rows.
+     *
+     * @param row the row.
+     */
+    void append( final CompositeData row )
+    {
+        ensureCapacity( m_size + 1 );
+        final HashMap<List<?>, Integer> map = m_index;
+        if( null != map )
+        {
+            map.put( indexOf( row ), m_size );
+        }
+        m_rows[ m_size++ ] = row;
+    }
+
+    /**
+     * Add a row produced by a converter without validating its type. The row
+     * MUST be of the row type.
+     *
+     * @param row the row.
+     * @throws KeyAlreadyExistsException if the key of row is the key of another row.
+     */
+    void appendDistinct( final CompositeData row )
+    {
+        if( getIndex().containsKey( indexOf( row ) ) )
+        {
+            final String message =
+                "Argument value's index, calculated according to this TabularData instance's tabularType, " +
+                "already refers to a value in this table.";
+            throw new KeyAlreadyExistsException( message );
+        }
+        append( row );
+    }
+
+    public TabularType getTabularType()
+    {
+        return m_tabularType;
+    }
+
+    public Object[] calculateIndex( final CompositeData value )
+    {
+        checkValueType( value );
+        return indexOf( value ).toArray();
+    }
+
+    public int size()
+    {
+        return m_size;
+    }
+
+    public boolean isEmpty()
+    {
+        return 0 == m_size;
+    }
+
+    public boolean containsKey( final Object[] key )
+    {
+        return null != key && getIndex().containsKey( Arrays.asList( key ) );
+    }
+
+    public boolean containsValue( final CompositeData value )
+    {
+        for( int i = 0; i < m_size; i++ )
+        {
+            if( m_rows[ i ].equals( value ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public CompositeData get( final Object[] key )
+    {
+        checkKeyType( key );
+        final Integer position = getIndex().get( Arrays.asList( key ) );
+        return null == position ? null : m_rows[ position ];
+    }
+
+    public void put( final CompositeData value )
+    {
+        checkValueType( value );
+        final List<?> index = indexOf( value );
+        if( getIndex().containsKey( index ) )
+        {
+            final String message =
+                "Argument value's index, calculated according to this TabularData instance's tabularType, " +
+                "already refers to a value in this table.";
+            throw new KeyAlreadyExistsException( message );
+        }
+        append( value );
+    }
+
+    public CompositeData remove( final Object[] key )
+    {
+        checkKeyType( key );
+        final HashMap<List<?>, Integer> map = getIndex();
+        final Integer position = map.remove( Arrays.asList( key ) );
+        if( null == position )
+        {
+            return null;
+        }
+        final CompositeData row = m_rows[ position ];
+        final int last = m_size - 1;
+        if( position != last )
+        {
+            //Move the last row into the hole so rows stay contiguous
+            m_rows[ position ] = m_rows[ last ];
+            map.put( indexOf( m_rows[ position ] ), position );
+        }
+        m_rows[ last ] = null;
+        m_size = last;
+        return row;
+    }
+
+    public void putAll( final CompositeData[] values )
+    {
+        if( null == values || 0 == values.length )
+        {
+            return;
+        }
+        //Validate all values before adding any as TabularDataSupport does
+        final HashMap<List<?>, Integer> map = getIndex();
+        final HashMap<List<?>, Integer> added = new HashMap<List<?>, Integer>();
+        for( final CompositeData value : values )
+        {
+            checkValueType( value );
+            final List<?> index = indexOf( value );
+            if( map.containsKey( index ) || null != added.put( index, 0 ) )
+            {
+                final String message =
+                    "Argument elements values[i] and values[j] (i != j) have the same indexes, " +
+                    "calculated according to this TabularData instance's tabularType.";
+                throw new KeyAlreadyExistsException( message );
+            }
+        }
+        ensureCapacity( m_size + values.length );
+        for( final CompositeData value : values )
+        {
+            append( value );
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill( m_rows, 0, m_size, null );
+        m_size = 0;
+        m_index = null;
+    }
+
+    public Set<?> keySet()
+    {
+        return Collections.unmodifiableSet( getIndex().keySet() );
+    }
+
+    public Collection<?> values()
+    {
+        return new AbstractList<CompositeData>()
+        {
+            public CompositeData get( final int index )
+            {
+                if( index >= m_size )
+                {
+                    throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + m_size );
+                }
+                return m_rows[ index ];
+            }
+
+            public int size()
+            {
+                return m_size;
+            }
+        };
+    }
+
+    /**
+     * Return true if object is a TabularData with the same type and rows.
+     * This is compatible with the definition in TabularDataSupport.
+     */
+    public boolean equals( final Object object )
+    {
+        if( this == object )
+        {
+            return true;
+        }
+        else if( !( object instanceof TabularData ) )
+        {
+            return false;
+        }
+        final TabularData other = (TabularData)object;
+        if( !m_tabularType.equals( other.getTabularType() ) || m_size != other.size() )
+        {
+            return false;
+        }
+        //Look rows up by key rather than scanning all rows for each row
+        final HashMap<List<?>, Integer> map = getIndex();
+        for( final Object value : other.values() )
+        {
+            final CompositeData row = (CompositeData)value;
+            final Integer position = map.get( indexOf( row ) );
+            if( null == position || !m_rows[ position ].equals( row ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return hash code for data. This is compatible with the definition in
+     * TabularDataSupport.
+     */
+    public int hashCode()
+    {
+        int hashCode = m_tabularType.hashCode();
+        for( int i = 0; i < m_size; i++ )
+        {
+            hashCode += m_rows[ i ].hashCode();
+        }
+        return hashCode;
+    }
+
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( getClass().getName() );
+        sb.append( "(tabularType=" );
+        sb.append( m_tabularType );
+        sb.append( ",contents={" );
+        for( int i = 0; i < m_size; i++ )
+        {
+            if( 0 != i )
+            {
+                sb.append( ", " );
+            }
+            sb.append( indexOf( m_rows[ i ] ) );
+            sb.append( '=' );
+            sb.append( m_rows[ i ] );
+        }
+        sb.append( "})" );
+        return sb.toString();
+    }
+
+    /**
+     * Return the index that maps the key of each row to its position, creating it if required.
+     *
+     * @return the index.
+     */
+    private HashMap<List<?>, Integer> getIndex()
+    {
+        HashMap<List<?>, Integer> index = m_index;
+        if( null == index )
+        {
+            final HashMap<List<?>, Integer> map =
+                new HashMap<List<?>, Integer>( Math.max( 16, m_size * 4 / 3 + 1 ) );
+            for( int i = 0; i < m_size; i++ )
+            {
+                if( null != map.put( indexOf( m_rows[ i ] ), i ) )
+                {
+                    final String message =
+                        "Rows " + map.get( indexOf( m_rows[ i ] ) ) + " and " + i + " have the same index.";
+                    throw new IllegalStateException( message );
+                }
+            }
+            index = map;
+            m_index = index;
+        }
+        return index;
+    }
+
+    /**
+     * Return the index of row.
+     *
+     * @param row the row.
+     * @return the index.
+     */
+    private List<?> indexOf( final CompositeData row )
+    {
+        return Collections.unmodifiableList( Arrays.asList( row.getAll( m_indexNames ) ) );
+    }
+
+    private void ensureCapacity( final int capacity )
+    {
+        if( capacity > m_rows.length )
+        {
+            final CompositeData[] rows = new CompositeData[Math.max( capacity, m_rows.length * 3 / 2 + 1 )];
+            System.arraycopy( m_rows, 0, rows, 0, m_size );
+            m_rows = rows;
+        }
+    }
+
+    private void checkValueType( final CompositeData value )
+    {
+        if( null == value )
+        {
+            throw new NullPointerException( "Argument value cannot be null." );
+        }
+        final CompositeType rowType = m_tabularType.getRowType();
+        if( rowType != value.getCompositeType() && !rowType.isValue( value ) )
+        {
+            final String message =
+                "Argument value's composite type [" + value.getCompositeType() +
+                "] is not assignable to this TabularData instance's row type [" + rowType + "].";
+            throw new InvalidOpenTypeException( message );
+        }
+    }
+
+    private void checkKeyType( final Object[] key )
+    {
+        if( null == key || 0 == key.length )
+        {
+            throw new NullPointerException( "Argument key cannot be null or empty." );
+        }
+        if( key.length != m_indexNames.length )
+        {
+            final String message =
+                "Argument key's length=" + key.length + " is different from the number of item values, which is " +
+                m_indexNames.length + ", specified for the indexing rows in this TabularData instance.";
+            throw new InvalidKeyException( message );
+        }
+        final CompositeType rowType = m_tabularType.getRowType();
+        for( int i = 0; i < key.length; i++ )
+        {
+            final OpenType type = rowType.getType( m_indexNames[ i ] );
+            if( null != key[ i ] && !type.isValue( key[ i ] ) )
+            {
+                final String message =
+                    "Argument element key[" + i + "] is not a value for the open type expected for this element " +
+                    "of the index, whose name is \"" + m_indexNames[ i ] + "\" and whose open type is " + type;
+                throw new InvalidKeyException( message );
+            }
+        }
+    }
+
+    /**
+     * Replace this object with a TabularDataSupport during serialization.
+     *
+     * @return the TabularDataSupport.
+     * @throws ObjectStreamException if rows have the same index.
+     */
+    private Object writeReplace()
+        throws ObjectStreamException
+    {
+        final TabularDataSupport support =
+            new TabularDataSupport( m_tabularType, Math.max( 16, m_size * 4 / 3 + 1 ), 0.75F );
+        try
+        {
+            for( int i = 0; i < m_size; i++ )
+            {
+                support.put( m_rows[ i ] );
+            }
+        }
+        catch( final KeyAlreadyExistsException kaee )
+        {
+            final InvalidObjectException exception = new InvalidObjectException( kaee.getMessage() );
+            exception.initCause( kaee );
+            throw exception;
+        }
+        return support;
+    }
+}
@@ -13,7 +13,6 @@ import javax.management.openmbean.CompositeType;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.TabularData;
-import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
 /**
@@ -68,7 +67,8 @@ class TabularDataConverter
       {
          final int length = Array.getLength( object );
 
-         final TabularDataSupport td = new TabularDataSupport( m_openType );
+         //Rows are put rather than appended as elements of the array may have the same key
+         final RMXTabularData td = new RMXTabularData( m_openType, length );
          for ( int i = 0; i < length; i++ )
          {
             final Object v = Array.get( object, i );
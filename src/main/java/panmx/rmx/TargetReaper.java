@@ -0,0 +1,236 @@
+package panmx.rmx;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Unregisters RMXBeans whose weakly held targets have been collected.
+ *
+ * <p>The reference to the target of each registered weak RMXBean is
+ * tracked until the bean is unregistered. A single daemon thread, started
+ * when the first bean is registered, waits on the ReferenceQueue and
+ * unregisters the beans of the references enqueued by the garbage
+ * collector. References are drained from the queue in batches so a
+ * collection that clears many targets wakes the thread once.</p>
+ *
+ * <p>Beans are unregistered by name so before a bean is unregistered the
+ * reaper checks that the name still refers to a RMXBean and the RMXBean
+ * vetoes the unregistration in preDeregister if it is not the bean of the
+ * collected target. A bean registered later under the same name is
+ * therefore never unregistered by mistake.</p>
+ *
+ * <p>Each tracked reference holds the MBeanServer the bean is registered
+ * with, so the static set of tracked references keeps every such
+ * MBeanServer strongly reachable until its weak RMXBeans are unregistered
+ * or their targets are collected and reaped.</p>
+ */
+final class TargetReaper
+{
+    /** Logger used to report beans that could not be unregistered. */
+    private static final Logger LOGGER = Logger.getLogger( TargetReaper.class.getName() );
+    /** The maximum number of references removed from the queue before beans are unregistered. */
+    private static final int BATCH_SIZE = 1024;
+    /** The queue that collected targets are enqueued on. */
+    private static final ReferenceQueue<Object> c_queue = new ReferenceQueue<Object>();
+    /**
+     * The references of registered beans. Keeps the references reachable
+     * until enqueued, and through them the MBeanServers they are registered with.
+     */
+    private static final ConcurrentMap<TargetReference, Boolean> c_references =
+        new ConcurrentHashMap<TargetReference, Boolean>();
+    /** The reference whose bean the current thread is unregistering, if any. */
+    private static final ThreadLocal<TargetReference> c_reaping = new ThreadLocal<TargetReference>();
+    /** The thread that unregisters beans or null if not yet started. */
+    private static Thread c_thread;
+
+    /**
+     * Create a reference to the target of a weak RMXBean.
+     *
+     * @param target the target.
+     * @return the reference.
+     */
+    static TargetReference newReference( final Object target )
+    {
+        return new TargetReference( target, c_queue );
+    }
+
+    /**
+     * Return the number of registered beans whose targets are tracked.
+     *
+     * @return the number of tracked beans.
+     */
+    static int getTrackedCount()
+    {
+        return c_references.size();
+    }
+
+    /**
+     * Start tracking reference as the bean has been registered.
+     *
+     * @param reference the reference.
+     * @param server the server the bean is registered with.
+     * @param name the name the bean is registered under.
+     */
+    static void track( final TargetReference reference, final MBeanServer server, final ObjectName name )
+    {
+        reference.m_server = server;
+        reference.m_name = name;
+        c_references.put( reference, Boolean.TRUE );
+        startThread();
+        if( null == reference.get() )
+        {
+            // Collected before it was tracked, so it may already have been dequeued.
+            reap( reference );
+        }
+    }
+
+    /**
+     * Stop tracking reference as the bean has been unregistered.
+     *
+     * @param reference the reference.
+     */
+    static void untrack( final TargetReference reference )
+    {
+        c_references.remove( reference );
+    }
+
+    /**
+     * Check that a bean about to be unregistered is not being unregistered
+     * by the reaper in place of the bean of another reference. Called from
+     * preDeregister of every RMXBean.
+     *
+     * @param reference the reference of the bean or null if the bean is not weak.
+     * @throws IllegalStateException if the reaper is unregistering the bean of another reference.
+     */
+    static void checkDeregister( final TargetReference reference )
+    {
+        final TargetReference reaping = c_reaping.get();
+        if( null != reaping )
+        {
+            // Only the bean registered under the reaped name is checked.
+            c_reaping.remove();
+            if( reaping != reference )
+            {
+                final String message =
+                    "Bean registered as " + reaping.m_name + " is not the bean of the collected target.";
+                throw new IllegalStateException( message );
+            }
+        }
+    }
+
+    private static synchronized void startThread()
+    {
+        if( null == c_thread )
+        {
+            c_thread = new Thread( "PanMX-TargetReaper" )
+            {
+                public void run()
+                {
+                    reapForever();
+                }
+            };
+            c_thread.setDaemon( true );
+            c_thread.setContextClassLoader( null );
+            c_thread.start();
+        }
+    }
+
+    private static void reapForever()
+    {
+        final ArrayList<Reference<?>> batch = new ArrayList<Reference<?>>( BATCH_SIZE );
+        while( true )
+        {
+            try
+            {
+                batch.add( c_queue.remove() );
+                Reference<?> reference = c_queue.poll();
+                while( null != reference && batch.size() < BATCH_SIZE )
+                {
+                    batch.add( reference );
+                    reference = c_queue.poll();
+                }
+                if( null != reference )
+                {
+                    batch.add( reference );
+                }
+                for( final Reference<?> element : batch )
+                {
+                    reap( (TargetReference)element );
+                }
+                batch.clear();
+            }
+            catch( final InterruptedException ie )
+            {
+                // Ignore, the reaper runs until the JVM exits.
+            }
+        }
+    }
+
+    /**
+     * Unregister the bean of reference if it is still tracked. A bean that
+     * has already been unregistered is no longer tracked and is ignored. A
+     * bean that has since been registered under the same name is not
+     * unregistered.
+     *
+     * @param reference the reference.
+     */
+    private static void reap( final TargetReference reference )
+    {
+        if( null != c_references.remove( reference ) )
+        {
+            try
+            {
+                final MBeanServer server = reference.m_server;
+                if( server.isInstanceOf( reference.m_name, RMXBean.class.getName() ) )
+                {
+                    c_reaping.set( reference );
+                    try
+                    {
+                        server.unregisterMBean( reference.m_name );
+                    }
+                    finally
+                    {
+                        c_reaping.remove();
+                    }
+                }
+            }
+            catch( final InstanceNotFoundException infe )
+            {
+                // Unregistered concurrently.
+            }
+            catch( final Exception e )
+            {
+                if( LOGGER.isLoggable( Level.FINE ) )
+                {
+                    LOGGER.log( Level.FINE, "Unable to unregister " + reference.m_name, e );
+                }
+            }
+        }
+    }
+
+    /**
+     * A weak reference to the target of a RMXBean that records where the bean is registered.
+     */
+    static final class TargetReference
+        extends WeakReference<Object>
+    {
+        /** The server the bean is registered with. */
+        volatile MBeanServer m_server;
+        /** The name the bean is registered under. */
+        volatile ObjectName m_name;
+
+        TargetReference( final Object target, final ReferenceQueue<Object> queue )
+        {
+            super( target, queue );
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package panmx.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The statistics collected for the members of a bean type.
+ * Instances are obtained from {@link Statistics#getBeanStatistics(String)}.
+ */
+public final class BeanStatistics
+    implements BeanStatisticsRMXBean
+{
+    /** Orders summaries by member name. */
+    private static final Comparator<MemberSummary> BY_NAME = new Comparator<MemberSummary>()
+    {
+        public int compare( final MemberSummary o1, final MemberSummary o2 )
+        {
+            return o1.getName().compareTo( o2.getName() );
+        }
+    };
+
+    private final String m_bean;
+    private final ConcurrentHashMap<String, MemberStatistics> m_members =
+        new ConcurrentHashMap<String, MemberStatistics>();
+
+    BeanStatistics( final String bean )
+    {
+        m_bean = bean;
+    }
+
+    /**
+     * Return the statistics for member, creating them if necessary.
+     *
+     * @param name the name of member prefixed by the kind of access. i.e. "get rate".
+     * @return the statistics for member.
+     */
+    public MemberStatistics getMember( final String name )
+    {
+        final MemberStatistics member = m_members.get( name );
+        if( null != member )
+        {
+            return member;
+        }
+        final MemberStatistics candidate = new MemberStatistics( name );
+        final MemberStatistics existing = m_members.putIfAbsent( name, candidate );
+        return ( null != existing ) ? existing : candidate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getBean()
+    {
+        return m_bean;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getCalls()
+    {
+        long calls = 0;
+        for( final MemberSummary summary : getMembers() )
+        {
+            calls += summary.getCalls();
+        }
+        return calls;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getErrors()
+    {
+        long errors = 0;
+        for( final MemberSummary summary : getMembers() )
+        {
+            errors += summary.getErrors();
+        }
+        return errors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public MemberSummary[] getMembers()
+    {
+        final ArrayList<MemberSummary> summaries = new ArrayList<MemberSummary>();
+        for( final MemberStatistics member : m_members.values() )
+        {
+            summaries.add( member.getSummary() );
+        }
+        final MemberSummary[] results = summaries.toArray( new MemberSummary[summaries.size()] );
+        Arrays.sort( results, BY_NAME );
+        return results;
+    }
+}
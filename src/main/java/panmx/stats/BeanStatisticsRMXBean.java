@@ -0,0 +1,21 @@
+package panmx.stats;
+
+import panmx.annotations.MxAttribute;
+
+/**
+ * The management interface of the statistics collected for a bean type.
+ */
+public interface BeanStatisticsRMXBean
+{
+    @MxAttribute( description = "The name of the bean type" )
+    String getBean();
+
+    @MxAttribute( description = "The number of calls to all members" )
+    long getCalls();
+
+    @MxAttribute( description = "The number of calls to all members that failed" )
+    long getErrors();
+
+    @MxAttribute( description = "The statistics for each member" )
+    MemberSummary[] getMembers();
+}
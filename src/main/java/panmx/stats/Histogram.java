@@ -0,0 +1,171 @@
+package panmx.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with a fixed set of
+ * buckets. Each power of two is split into four buckets so that a
+ * percentile is reported to within 25% of the recorded value. Durations
+ * longer than 2^41 nanoseconds (roughly 36 minutes) fall in the last bucket
+ * and are reported as the upper bound of that bucket.
+ *
+ * <p>Updates are spread over a stripe per thread. Each stripe holds the
+ * bucket counts followed by the sum of the recorded durations.</p>
+ */
+final class Histogram
+{
+    /** The number of buckets per power of two. */
+    private static final int SUB_BUCKETS = 4;
+    /** The number of bits used to select the sub bucket. */
+    private static final int SUB_BUCKET_BITS = 2;
+    /** The number of buckets. */
+    static final int BUCKETS = 40 * SUB_BUCKETS;
+    /** The offset of the sum within a stripe. */
+    private static final int SUM = BUCKETS;
+    /** The number of longs between the start of each stripe. */
+    private static final int STRIDE = BUCKETS + Stripes.PADDING;
+
+    private final AtomicLongArray m_stripes = new AtomicLongArray( Stripes.COUNT * STRIDE );
+
+    /**
+     * Record a duration.
+     *
+     * @param duration the duration in nanoseconds.
+     */
+    void record( final long duration )
+    {
+        final long value = Math.max( duration, 0 );
+        final int base = Stripes.current() * STRIDE;
+        m_stripes.incrementAndGet( base + getBucket( value ) );
+        m_stripes.addAndGet( base + SUM, value );
+    }
+
+    /**
+     * Return a snapshot of the histogram.
+     *
+     * @return the snapshot.
+     */
+    Snapshot snapshot()
+    {
+        final long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for( int i = 0; i < Stripes.COUNT; i++ )
+        {
+            final int base = i * STRIDE;
+            for( int j = 0; j < BUCKETS; j++ )
+            {
+                counts[ j ] += m_stripes.get( base + j );
+            }
+            sum += m_stripes.get( base + SUM );
+        }
+        return new Snapshot( counts, sum );
+    }
+
+    /**
+     * Return the bucket that value is recorded in.
+     *
+     * @param value the non-negative value.
+     * @return the bucket.
+     */
+    static int getBucket( final long value )
+    {
+        if( value < SUB_BUCKETS )
+        {
+            return (int)value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+        final int subBucket = (int)( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        final int bucket = ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS + subBucket;
+        return Math.min( bucket, BUCKETS - 1 );
+    }
+
+    /**
+     * Return the largest value recorded in bucket.
+     *
+     * @param bucket the bucket.
+     * @return the largest value recorded in bucket.
+     */
+    static long getUpperBound( final int bucket )
+    {
+        if( bucket < SUB_BUCKETS )
+        {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long)( SUB_BUCKETS + bucket % SUB_BUCKETS ) << shift;
+        return lower + ( 1L << shift ) - 1;
+    }
+
+    /**
+     * A point in time copy of the histogram.
+     */
+    static final class Snapshot
+    {
+        private final long[] m_counts;
+        private final long m_sum;
+        private final long m_count;
+
+        Snapshot( final long[] counts, final long sum )
+        {
+            m_counts = counts;
+            m_sum = sum;
+            long count = 0;
+            for( final long value : counts )
+            {
+                count += value;
+            }
+            m_count = count;
+        }
+
+        long getCount()
+        {
+            return m_count;
+        }
+
+        /**
+         * Return the mean of the recorded values or 0 if no values were recorded.
+         *
+         * @return the mean.
+         */
+        long getMean()
+        {
+            return ( 0 == m_count ) ? 0 : m_sum / m_count;
+        }
+
+        /**
+         * Return the value that percentile of the recorded values do not exceed.
+         * The value is the upper bound of the bucket containing the percentile.
+         *
+         * @param percentile the percentile in the range (0, 100].
+         * @return the value or 0 if no values were recorded.
+         */
+        long getPercentile( final double percentile )
+        {
+            if( 0 == m_count )
+            {
+                return 0;
+            }
+            final long rank = Math.max( 1, (long)Math.ceil( m_count * percentile / 100 ) );
+            long seen = 0;
+            for( int i = 0; i < m_counts.length; i++ )
+            {
+                seen += m_counts[ i ];
+                if( seen >= rank )
+                {
+                    return getUpperBound( i );
+                }
+            }
+            return getUpperBound( m_counts.length - 1 );
+        }
+
+        /**
+         * Return the upper bound of the highest bucket containing a value.
+         *
+         * @return the maximum or 0 if no values were recorded.
+         */
+        long getMax()
+        {
+            return getPercentile( 100 );
+        }
+    }
+}
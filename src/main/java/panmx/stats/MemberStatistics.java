@@ -0,0 +1,87 @@
+package panmx.stats;
+
+/**
+ * The statistics collected for a single member of a managed bean.
+ * Recording is lock-free and safe to call from any thread.
+ *
+ * <p>Every call and every failure is counted but reading the clock costs
+ * more than the rest of the bookkeeping so only a sample of the calls is
+ * timed. The first call and every sixteenth call thereafter on each stripe
+ * is timed and the time histograms are built from those calls.</p>
+ */
+public final class MemberStatistics
+{
+    /** Mask applied to the call count to select the calls that are timed. */
+    private static final long SAMPLE_MASK = 15;
+
+    private final String m_name;
+    private final StripedCounter m_calls = new StripedCounter();
+    private final StripedCounter m_errors = new StripedCounter();
+    private final Histogram m_targetTimes = new Histogram();
+    private final Histogram m_converterTimes = new Histogram();
+
+    MemberStatistics( final String name )
+    {
+        m_name = name;
+    }
+
+    public String getName()
+    {
+        return m_name;
+    }
+
+    /**
+     * Record a call to member.
+     *
+     * @return true if the call should be timed and the times passed to
+     *         {@link #recordTimes(long, long)}.
+     */
+    public boolean recordCall()
+    {
+        return 1 == ( m_calls.increment() & SAMPLE_MASK );
+    }
+
+    /**
+     * Record the times of a call selected by {@link #recordCall()}.
+     *
+     * @param targetTime the time in nanoseconds spent in the target object.
+     * @param converterTime the time in nanoseconds spent outside the target object,
+     *                      chiefly converting values to and from open types.
+     */
+    public void recordTimes( final long targetTime, final long converterTime )
+    {
+        m_targetTimes.record( targetTime );
+        m_converterTimes.record( converterTime );
+    }
+
+    /**
+     * Record that a call to member failed.
+     */
+    public void recordError()
+    {
+        m_errors.increment();
+    }
+
+    /**
+     * Return a summary of the statistics collected so far.
+     *
+     * @return the summary.
+     */
+    public MemberSummary getSummary()
+    {
+        final Histogram.Snapshot targetTimes = m_targetTimes.snapshot();
+        final Histogram.Snapshot converterTimes = m_converterTimes.snapshot();
+        final MemberSummary summary = new MemberSummary();
+        summary.setName( m_name );
+        summary.setCalls( m_calls.get() );
+        summary.setErrors( m_errors.get() );
+        summary.setMeanTargetTime( targetTimes.getMean() );
+        summary.setTargetTime50( targetTimes.getPercentile( 50 ) );
+        summary.setTargetTime90( targetTimes.getPercentile( 90 ) );
+        summary.setTargetTime99( targetTimes.getPercentile( 99 ) );
+        summary.setMaxTargetTime( targetTimes.getMax() );
+        summary.setMeanConverterTime( converterTimes.getMean() );
+        summary.setConverterTime99( converterTimes.getPercentile( 99 ) );
+        return summary;
+    }
+}
@@ -0,0 +1,145 @@
+package panmx.stats;
+
+import panmx.annotations.MxTabularData;
+
+/**
+ * A summary of the statistics collected for a member of a managed bean.
+ * All times are in nanoseconds and are derived from the sample of calls
+ * that were timed. Percentiles are the upper bound of the histogram bucket
+ * containing the percentile and are thus accurate to within 25%.
+ */
+@MxTabularData( keys = {"name"} )
+public class MemberSummary
+{
+    private String m_name;
+    private long m_calls;
+    private long m_errors;
+    private long m_meanTargetTime;
+    private long m_targetTime50;
+    private long m_targetTime90;
+    private long m_targetTime99;
+    private long m_maxTargetTime;
+    private long m_meanConverterTime;
+    private long m_converterTime99;
+
+    /**
+     * Return the name of member. The name is prefixed by the kind of access;
+     * "get", "set" or "invoke". i.e. "get rate" or "invoke beat(int)".
+     *
+     * @return the name of member.
+     */
+    public String getName()
+    {
+        return m_name;
+    }
+
+    public void setName( final String name )
+    {
+        m_name = name;
+    }
+
+    /**
+     * Return the number of calls including calls that failed.
+     *
+     * @return the number of calls.
+     */
+    public long getCalls()
+    {
+        return m_calls;
+    }
+
+    public void setCalls( final long calls )
+    {
+        m_calls = calls;
+    }
+
+    public long getErrors()
+    {
+        return m_errors;
+    }
+
+    public void setErrors( final long errors )
+    {
+        m_errors = errors;
+    }
+
+    /**
+     * Return the mean time spent in the target object.
+     *
+     * @return the mean time spent in the target object.
+     */
+    public long getMeanTargetTime()
+    {
+        return m_meanTargetTime;
+    }
+
+    public void setMeanTargetTime( final long meanTargetTime )
+    {
+        m_meanTargetTime = meanTargetTime;
+    }
+
+    public long getTargetTime50()
+    {
+        return m_targetTime50;
+    }
+
+    public void setTargetTime50( final long targetTime50 )
+    {
+        m_targetTime50 = targetTime50;
+    }
+
+    public long getTargetTime90()
+    {
+        return m_targetTime90;
+    }
+
+    public void setTargetTime90( final long targetTime90 )
+    {
+        m_targetTime90 = targetTime90;
+    }
+
+    public long getTargetTime99()
+    {
+        return m_targetTime99;
+    }
+
+    public void setTargetTime99( final long targetTime99 )
+    {
+        m_targetTime99 = targetTime99;
+    }
+
+    public long getMaxTargetTime()
+    {
+        return m_maxTargetTime;
+    }
+
+    public void setMaxTargetTime( final long maxTargetTime )
+    {
+        m_maxTargetTime = maxTargetTime;
+    }
+
+    /**
+     * Return the mean time spent converting values to and from open types.
+     *
+     * @return the mean time spent converting values.
+     */
+    public long getMeanConverterTime()
+    {
+        return m_meanConverterTime;
+    }
+
+    public void setMeanConverterTime( final long meanConverterTime )
+    {
+        m_meanConverterTime = meanConverterTime;
+    }
+
+    public long getConverterTime99()
+    {
+        return m_converterTime99;
+    }
+
+    public void setConverterTime99( final long converterTime99 )
+    {
+        m_converterTime99 = converterTime99;
+    }
+}
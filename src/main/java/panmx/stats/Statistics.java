@@ -0,0 +1,182 @@
+package panmx.stats;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import panmx.rmx.RMXBeanFactory;
+
+/**
+ * Opt-in collection of call statistics for RMXBeans and ModelMBeans.
+ *
+ * <p>Statistics are disabled by default and beans created while disabled
+ * carry no instrumentation at all. Once {@link #enable(MBeanServer)} is
+ * called each bean type that is subsequently exposed records the number
+ * of calls, the number of failed calls and histograms of the time spent
+ * in the target object and in converting values for every attribute and
+ * operation. The statistics for each bean type are published to the
+ * MBeanServer as an RMXBean named "panmx:type=Statistics,bean=&lt;type&gt;".</p>
+ *
+ * <p>Statistics are aggregated by the name of the bean type so every
+ * bean of the same type shares the same statistics. Only invocations of
+ * the target object are recorded; attribute reads served from a cache
+ * are not counted.</p>
+ */
+public final class Statistics
+{
+    /** Logger used to report statistics beans that could not be published. */
+    private static final Logger LOGGER = Logger.getLogger( Statistics.class.getName() );
+    /** The domain of the statistics beans. */
+    private static final String DOMAIN = "panmx";
+    /** The statistics keyed by bean type name. */
+    private static final Map<String, BeanStatistics> c_beans = new HashMap<String, BeanStatistics>();
+    /** The server statistics are published to or null if statistics are disabled. */
+    private static volatile MBeanServer c_server;
+
+    private Statistics()
+    {
+    }
+
+    /**
+     * Start collecting statistics for bean types exposed from now on and
+     * publish them to server.
+     *
+     * @param server the MBeanServer to publish statistics beans to.
+     */
+    public static synchronized void enable( final MBeanServer server )
+    {
+        if( null == server )
+        {
+            throw new NullPointerException( "server" );
+        }
+        if( server == c_server )
+        {
+            return;
+        }
+        disable();
+        c_server = server;
+        for( final BeanStatistics statistics : c_beans.values() )
+        {
+            publish( statistics );
+        }
+    }
+
+    /**
+     * Stop instrumenting bean types and remove the statistics beans from
+     * the MBeanServer. Beans that were instrumented while statistics were
+     * enabled continue to record calls so their statistics are published
+     * again if statistics are re-enabled.
+     */
+    public static synchronized void disable()
+    {
+        final MBeanServer server = c_server;
+        if( null == server )
+        {
+            return;
+        }
+        c_server = null;
+        for( final String bean : c_beans.keySet() )
+        {
+            try
+            {
+                server.unregisterMBean( getObjectName( bean ) );
+            }
+            catch( final JMException jme )
+            {
+                //Bean was never published or has been removed
+            }
+        }
+    }
+
+    /**
+     * Return true if bean types exposed now are instrumented.
+     *
+     * @return true if statistics are enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return null != c_server;
+    }
+
+    /**
+     * Return the statistics for bean type, creating and publishing them if necessary.
+     * This method returns null if statistics are disabled, in which case the
+     * bean type should not be instrumented.
+     *
+     * @param bean the name of the bean type.
+     * @return the statistics or null if statistics are disabled.
+     */
+    public static BeanStatistics getBeanStatistics( final String bean )
+    {
+        if( null == c_server || BeanStatistics.class.getName().equals( bean ) )
+        {
+            return null;
+        }
+        synchronized( Statistics.class )
+        {
+            if( null == c_server )
+            {
+                return null;
+            }
+            BeanStatistics statistics = c_beans.get( bean );
+            if( null == statistics )
+            {
+                statistics = new BeanStatistics( bean );
+                c_beans.put( bean, statistics );
+                publish( statistics );
+            }
+            return statistics;
+        }
+    }
+
+    /**
+     * Return the name of the statistics bean for bean type. The name of the
+     * bean type is quoted if it contains characters that are not valid in
+     * an unquoted value, as may be the case for a ModelMBean class name.
+     *
+     * @param bean the name of the bean type.
+     * @return the ObjectName.
+     * @throws MalformedObjectNameException if unable to create name.
+     */
+    public static ObjectName getObjectName( final String bean )
+        throws MalformedObjectNameException
+    {
+        try
+        {
+            final ObjectName name = new ObjectName( DOMAIN + ":type=Statistics,bean=" + bean );
+            if( !name.isPattern() )
+            {
+                return name;
+            }
+        }
+        catch( final MalformedObjectNameException mone )
+        {
+            //Fall through to quote name
+        }
+        return new ObjectName( DOMAIN + ":type=Statistics,bean=" + ObjectName.quote( bean ) );
+    }
+
+    /**
+     * Register the bean for statistics with the server.
+     * Statistics beans are not themselves instrumented.
+     *
+     * @param statistics the statistics.
+     */
+    private static void publish( final BeanStatistics statistics )
+    {
+        final String bean = statistics.getBean();
+        try
+        {
+            final Object rmxBean = RMXBeanFactory.createStandardRMXBean( statistics );
+            c_server.registerMBean( rmxBean, getObjectName( bean ) );
+        }
+        catch( final JMException jme )
+        {
+            LOGGER.log( Level.WARNING, "Unable to publish statistics for " + bean, jme );
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package panmx.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter that spreads updates over a stripe per thread.
+ * Updates are cheap under contention at the cost of summing the stripes
+ * when the value is read.
+ */
+final class StripedCounter
+{
+    private final AtomicLongArray m_stripes =
+        new AtomicLongArray( Stripes.COUNT * Stripes.PADDING );
+
+    /**
+     * Increment the counter.
+     *
+     * @return the value of the stripe for the current thread after the increment.
+     */
+    long increment()
+    {
+        return m_stripes.incrementAndGet( Stripes.current() * Stripes.PADDING );
+    }
+
+    /**
+     * Return the sum of all stripes. The value is not an atomic snapshot
+     * if the counter is concurrently updated.
+     *
+     * @return the value of counter.
+     */
+    long get()
+    {
+        long sum = 0;
+        for( int i = 0; i < Stripes.COUNT; i++ )
+        {
+            sum += m_stripes.get( i * Stripes.PADDING );
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,45 @@
+package panmx.stats;
+
+/**
+ * Utility methods used to spread updates from concurrent threads over
+ * separate slots so that threads do not contend on a single counter.
+ */
+final class Stripes
+{
+    /** The maximum number of stripes. */
+    private static final int MAX_STRIPES = 8;
+    /** The number of stripes. A power of two. */
+    static final int COUNT = getStripeCount();
+    /** The mask applied to derive stripe from thread id. */
+    private static final int MASK = COUNT - 1;
+    /**
+     * The number of longs between the start of each stripe in a counter.
+     * Padding each stripe to a cache line avoids false sharing.
+     */
+    static final int PADDING = 16;
+
+    private Stripes()
+    {
+    }
+
+    /**
+     * Return the stripe for the current thread.
+     *
+     * @return the stripe in the range [0, COUNT).
+     */
+    static int current()
+    {
+        return (int)Thread.currentThread().getId() & MASK;
+    }
+
+    private static int getStripeCount()
+    {
+        final int processors = Math.min( Runtime.getRuntime().availableProcessors(), MAX_STRIPES );
+        int count = 1;
+        while( count < processors )
+        {
+            count <<= 1;
+        }
+        return count;
+    }
+}
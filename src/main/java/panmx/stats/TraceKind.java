@@ -0,0 +1,28 @@
+package panmx.stats;
+
+/**
+ * The kinds of calls reported to a {@link TraceListener}.
+ */
+public enum TraceKind
+{
+    /** An attribute read from an RMXBean. */
+    GET_ATTRIBUTE,
+    /** A bulk attribute read from an RMXBean. The member lists the attributes. */
+    GET_ATTRIBUTES,
+    /** An attribute written to an RMXBean. */
+    SET_ATTRIBUTE,
+    /** A bulk attribute write to an RMXBean. The member lists the attributes. */
+    SET_ATTRIBUTES,
+    /** An operation invoked on an RMXBean. */
+    INVOKE,
+    /** An attribute read through an RMXBean proxy, including the round trip to the server. */
+    PROXY_GET_ATTRIBUTE,
+    /** An attribute written through an RMXBean proxy, including the round trip to the server. */
+    PROXY_SET_ATTRIBUTE,
+    /** An operation invoked through an RMXBean proxy, including the round trip to the server. */
+    PROXY_INVOKE,
+    /** A conversion of a java value to an open value. The member is the method the value belongs to. */
+    TO_OPEN_TYPE,
+    /** A conversion of an open value to a java value. The member is the method the value belongs to. */
+    TO_JAVA_TYPE
+}
@@ -0,0 +1,26 @@
+package panmx.stats;
+
+import javax.management.ObjectName;
+
+/**
+ * Listener notified of calls that took at least the threshold specified
+ * when the listener was installed via {@link Tracer#install(TraceListener, long, java.util.concurrent.TimeUnit)}.
+ *
+ * <p>The listener is invoked synchronously on the thread that made the
+ * call so it should do little more than hand the event to a recorder
+ * such as the JDK Flight Recorder.</p>
+ */
+public interface TraceListener
+{
+    /**
+     * Notify listener of a call.
+     *
+     * @param kind the kind of call.
+     * @param objectName the name of the bean or null if unknown.
+     * @param member the name of the attribute, operation or method.
+     * @param payloadSize the number of simple values in the value read, written or returned.
+     * @param start the time (as per System.nanoTime()) the call started.
+     * @param duration the duration of the call in nanoseconds.
+     */
+    void trace( TraceKind kind, ObjectName objectName, String member, int payloadSize, long start, long duration );
+}
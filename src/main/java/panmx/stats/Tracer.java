@@ -0,0 +1,269 @@
+package panmx.stats;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Reports calls that exceed a threshold to a {@link TraceListener}.
+ *
+ * <p>No tracer is installed by default, in which case instrumented code
+ * pays for a single volatile read per call. Once installed, each traced
+ * call reads the clock twice and only calls that take at least the
+ * threshold are reported, so the payload size is only computed for calls
+ * that are reported. This makes it practical to leave tracing enabled in
+ * production with a threshold of a few milliseconds.</p>
+ *
+ * <p>Conversions do not know which bean they are performed for so the
+ * bean being accessed is recorded per thread for the duration of each
+ * traced RMXBean and proxy call via {@link #enter(ObjectName)}.</p>
+ */
+public final class Tracer
+{
+    /** Logger used to report listeners that fail. */
+    private static final Logger LOGGER = Logger.getLogger( Tracer.class.getName() );
+    /** The maximum depth that values are descended when computing payload size. */
+    private static final int MAX_DEPTH = 32;
+    /** The name of the bean being accessed by the current thread. */
+    private static final ThreadLocal<ObjectName> c_objectName = new ThreadLocal<ObjectName>();
+    /** The installed tracer or null if tracing is disabled. */
+    private static volatile Tracer c_tracer;
+
+    private final TraceListener m_listener;
+    private final long m_threshold;
+
+    private Tracer( final TraceListener listener, final long threshold )
+    {
+        m_listener = listener;
+        m_threshold = threshold;
+    }
+
+    /**
+     * Install a listener to be notified of calls that take at least threshold.
+     * Any previously installed listener is replaced.
+     *
+     * @param listener the listener.
+     * @param threshold the minimum duration of calls reported.
+     * @param unit the unit of threshold.
+     */
+    public static void install( final TraceListener listener, final long threshold, final TimeUnit unit )
+    {
+        if( null == listener )
+        {
+            throw new NullPointerException( "listener" );
+        }
+        if( null == unit )
+        {
+            throw new NullPointerException( "unit" );
+        }
+        c_tracer = new Tracer( listener, unit.toNanos( threshold ) );
+    }
+
+    /**
+     * Remove the installed listener if any.
+     */
+    public static void uninstall()
+    {
+        c_tracer = null;
+    }
+
+    /**
+     * Return the installed tracer.
+     *
+     * @return the tracer or null if tracing is disabled.
+     */
+    public static Tracer getTracer()
+    {
+        return c_tracer;
+    }
+
+    /**
+     * Record that the current thread is accessing bean.
+     *
+     * @param objectName the name of the bean.
+     * @return the name of the bean previously being accessed, to be passed to {@link #exit(ObjectName)}.
+     */
+    public ObjectName enter( final ObjectName objectName )
+    {
+        final ObjectName previous = c_objectName.get();
+        c_objectName.set( objectName );
+        return previous;
+    }
+
+    /**
+     * Record that the current thread has finished accessing bean.
+     *
+     * @param previous the value returned by the matching {@link #enter(ObjectName)}.
+     */
+    public void exit( final ObjectName previous )
+    {
+        c_objectName.set( previous );
+    }
+
+    /**
+     * Report a call if it took at least the threshold.
+     *
+     * @param kind the kind of call.
+     * @param objectName the name of the bean or null if unknown.
+     * @param member the name of the attribute, operation or method.
+     * @param payload the value read, written or returned.
+     * @param start the time (as per System.nanoTime()) the call started.
+     */
+    public void trace( final TraceKind kind,
+                       final ObjectName objectName,
+                       final String member,
+                       final Object payload,
+                       final long start )
+    {
+        final long duration = System.nanoTime() - start;
+        if( duration >= m_threshold )
+        {
+            report( kind, objectName, member, payload, start, duration );
+        }
+    }
+
+    /**
+     * Report a bulk call if it took at least the threshold.
+     * The names of the members are only joined if the call is reported.
+     *
+     * @param kind the kind of call.
+     * @param objectName the name of the bean or null if unknown.
+     * @param members the names of the attributes.
+     * @param payload the values read or written.
+     * @param start the time (as per System.nanoTime()) the call started.
+     */
+    public void trace( final TraceKind kind,
+                       final ObjectName objectName,
+                       final String[] members,
+                       final Object payload,
+                       final long start )
+    {
+        final long duration = System.nanoTime() - start;
+        if( duration >= m_threshold )
+        {
+            final StringBuilder sb = new StringBuilder();
+            for( int i = 0; null != members && i < members.length; i++ )
+            {
+                if( 0 != i )
+                {
+                    sb.append( ',' );
+                }
+                sb.append( members[ i ] );
+            }
+            report( kind, objectName, sb.toString(), payload, start, duration );
+        }
+    }
+
+    /**
+     * Report a conversion if it took at least the threshold.
+     * The conversion is attributed to the bean the current thread is accessing.
+     *
+     * @param kind the kind of conversion.
+     * @param member the name of the method the value belongs to.
+     * @param payload the converted value.
+     * @param start the time (as per System.nanoTime()) the conversion started.
+     */
+    public void traceConversion( final TraceKind kind,
+                                 final String member,
+                                 final Object payload,
+                                 final long start )
+    {
+        final long duration = System.nanoTime() - start;
+        if( duration >= m_threshold )
+        {
+            report( kind, c_objectName.get(), member, payload, start, duration );
+        }
+    }
+
+    private void report( final TraceKind kind,
+                         final ObjectName objectName,
+                         final String member,
+                         final Object payload,
+                         final long start,
+                         final long duration )
+    {
+        try
+        {
+            m_listener.trace( kind, objectName, member, getPayloadSize( payload, 0 ), start, duration );
+        }
+        catch( final RuntimeException re )
+        {
+            LOGGER.log( Level.WARNING, "TraceListener failed to trace " + kind + " of " + member, re );
+        }
+    }
+
+    /**
+     * Return the number of simple values in value.
+     * Attribute, composite, tabular, array, collection and map values are descended.
+     *
+     * @param value the value.
+     * @param depth the depth of value in the payload.
+     * @return the number of simple values.
+     */
+    static int getPayloadSize( final Object value, final int depth )
+    {
+        if( null == value )
+        {
+            return 0;
+        }
+        else if( depth >= MAX_DEPTH )
+        {
+            return 1;
+        }
+        else if( value instanceof Attribute )
+        {
+            return getPayloadSize( ( (Attribute)value ).getValue(), depth + 1 );
+        }
+        else if( value instanceof CompositeData )
+        {
+            return getPayloadSize( ( (CompositeData)value ).values(), depth + 1 );
+        }
+        else if( value instanceof TabularData )
+        {
+            return getPayloadSize( ( (TabularData)value ).values(), depth + 1 );
+        }
+        else if( value instanceof Collection )
+        {
+            int size = 0;
+            for( final Object element : (Collection<?>)value )
+            {
+                size += getPayloadSize( element, depth + 1 );
+            }
+            return size;
+        }
+        else if( value instanceof Map )
+        {
+            int size = 0;
+            for( final Map.Entry<?, ?> entry : ( (Map<?, ?>)value ).entrySet() )
+            {
+                size += getPayloadSize( entry.getKey(), depth + 1 );
+                size += getPayloadSize( entry.getValue(), depth + 1 );
+            }
+            return size;
+        }
+        else if( value instanceof Object[] )
+        {
+            int size = 0;
+            for( final Object element : (Object[])value )
+            {
+                size += getPayloadSize( element, depth + 1 );
+            }
+            return size;
+        }
+        else if( value.getClass().isArray() )
+        {
+            return Array.getLength( value );
+        }
+        else
+        {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package panmx.util;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * An Invoker dispatches to one of a fixed set of methods selected by index.
+ * Instances are created by {@link InvokerFactory} and are used in place of
+ * {@link java.lang.reflect.Method#invoke(Object, Object[])} on hot paths.
+ * This interface SHOULD NOT be used outside the PanMX package as it
+ * is likely to change without notice.
+ */
+public interface Invoker
+{
+    /**
+     * Invoke the method with specified index.
+     * Primitive return values are boxed and void methods return null.
+     *
+     * @param index the index of method as passed to the {@link InvokerFactory}.
+     * @param target the object to invoke method on. Ignored for static methods.
+     * @param args the arguments to method. May be null if method takes no arguments.
+     * @return the return value of method.
+     * @throws IllegalAccessException if unable to access the method.
+     * @throws InvocationTargetException if the method throws an exception.
+     */
+    Object invoke( int index, Object target, Object[] args )
+        throws IllegalAccessException, InvocationTargetException;
+}
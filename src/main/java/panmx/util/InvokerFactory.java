@@ -0,0 +1,192 @@
+package panmx.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Factory that generates {@link Invoker} classes that directly call a
+ * set of methods rather than going through reflection.
+ *
+ * <p>Generation is only possible if every method and every type that
+ * needs to be cast to is public. If generation is not possible, is
+ * prohibited by a SecurityManager or is disabled by setting the system
+ * property "panmx.util.InvokerFactory.disable" to "true" then the
+ * factory returns null and the caller should fall back to reflection.</p>
+ *
+ * <p>If the type has {@link MxMetadata} generated at compile time that
+ * covers every method then the metadata dispatches the calls and no class
+ * is generated, even when generation is disabled.</p>
+ *
+ * <p>This class SHOULD NOT be used outside the PanMX package as it
+ * is likely to change without notice.</p>
+ */
+public final class InvokerFactory
+{
+    /** System property used to disable generation of invokers. */
+    private static final String DISABLE_PROPERTY = InvokerFactory.class.getName() + ".disable";
+    /** Package into which invokers are generated. */
+    private static final String PACKAGE_PREFIX = "panmx.generated.";
+    /** Suffix for generated class names. */
+    private static final String CLASS_SUFFIX = "$$Invoker";
+    /** Counter used to generate unique class names. */
+    private static int c_counter;
+
+    /**
+     * Return an Invoker for specified methods or null if unable to generate an Invoker.
+     * The index passed to {@link Invoker#invoke(int, Object, Object[])} is the index
+     * of the method in the array. The methods may include constructors, which
+     * ignore the target and return the object created.
+     *
+     * @param type the type on whose behalf the invoker is generated. Used to name the class.
+     * @param methods the methods and constructors.
+     * @return the Invoker or null.
+     */
+    public static Invoker createInvoker( final Class<?> type, final Member[] methods )
+    {
+        if( 0 == methods.length )
+        {
+            return null;
+        }
+        final MxMetadata metadata = MxMetadata.getMetadata( type );
+        if( null != metadata )
+        {
+            final Invoker invoker = metadata.createInvoker( methods );
+            if( null != invoker )
+            {
+                return invoker;
+            }
+        }
+        if( isGenerationDisabled() )
+        {
+            return null;
+        }
+        final Map<String, Class<?>> types = new HashMap<String, Class<?>>();
+        for( final Member method : methods )
+        {
+            final Class<?> owner = method.getDeclaringClass();
+            final int modifiers = method.getModifiers();
+            final boolean isConstructor = method instanceof Constructor;
+            if( !Modifier.isPublic( modifiers ) ||
+                ( Modifier.isStatic( modifiers ) && owner.isInterface() ) ||
+                ( isConstructor && Modifier.isAbstract( owner.getModifiers() ) ) ||
+                !addType( types, owner ) )
+            {
+                return null;
+            }
+            final Class<?>[] parameterTypes =
+                isConstructor ?
+                ( (Constructor<?>)method ).getParameterTypes() :
+                ( (Method)method ).getParameterTypes();
+            for( final Class<?> parameterType : parameterTypes )
+            {
+                if( !addType( types, parameterType ) )
+                {
+                    return null;
+                }
+            }
+        }
+
+        final String name = PACKAGE_PREFIX + type.getSimpleName() + CLASS_SUFFIX + nextId();
+        try
+        {
+            final byte[] bytes = new InvokerGenerator( name, methods ).generate();
+            types.put( Invoker.class.getName(), Invoker.class );
+            final InvokerClassLoader classLoader = new InvokerClassLoader( types );
+            return (Invoker)classLoader.define( name, bytes ).newInstance();
+        }
+        catch( final Exception e )
+        {
+            return null;
+        }
+        catch( final LinkageError le )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Record type as referenced by the generated class.
+     *
+     * @param types the referenced types. (IN/OUT)
+     * @param type the type.
+     * @return false if type is not accessible from generated class.
+     */
+    private static boolean addType( final Map<String, Class<?>> types, final Class<?> type )
+    {
+        Class<?> baseType = type;
+        while( baseType.isArray() )
+        {
+            baseType = baseType.getComponentType();
+        }
+        if( baseType.isPrimitive() )
+        {
+            return true;
+        }
+        else if( !Modifier.isPublic( baseType.getModifiers() ) )
+        {
+            return false;
+        }
+        else
+        {
+            types.put( baseType.getName(), baseType );
+            return true;
+        }
+    }
+
+    private static synchronized int nextId()
+    {
+        return c_counter++;
+    }
+
+    private static boolean isGenerationDisabled()
+    {
+        try
+        {
+            return Boolean.getBoolean( DISABLE_PROPERTY );
+        }
+        catch( final SecurityException se )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * ClassLoader that defines a generated invoker and resolves the
+     * referenced types to exactly the classes that were used to generate it.
+     */
+    private static final class InvokerClassLoader
+        extends ClassLoader
+    {
+        /** The types referenced by the generated class. */
+        private final Map<String, Class<?>> m_types;
+
+        InvokerClassLoader( final Map<String, Class<?>> types )
+        {
+            super( Invoker.class.getClassLoader() );
+            m_types = types;
+        }
+
+        Class<?> define( final String name, final byte[] bytes )
+        {
+            return defineClass( name, bytes, 0, bytes.length );
+        }
+
+        protected synchronized Class<?> loadClass( final String name, final boolean resolve )
+            throws ClassNotFoundException
+        {
+            final Class<?> type = m_types.get( name );
+            if( null != type )
+            {
+                return type;
+            }
+            else
+            {
+                return super.loadClass( name, resolve );
+            }
+        }
+    }
+}
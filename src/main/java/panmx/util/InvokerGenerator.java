@@ -0,0 +1,647 @@
+package panmx.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generates the class file for an {@link Invoker} implementation.
+ *
+ * <p>The generated class has a single invoke method that switches on the
+ * method index, casts the target and arguments, unboxes primitive arguments,
+ * calls the method directly and boxes the return value. Constructors are
+ * called in the same way and return the new object. Only exceptions thrown
+ * by the call itself are wrapped in an InvocationTargetException. A target
+ * or argument of the wrong type, a null primitive argument or too few
+ * arguments cause an IllegalArgumentException instead, so that callers see
+ * the same exceptions as they would from reflection. The class is
+ * generated in the Java 5 class file format which does not require stack
+ * map frames.</p>
+ */
+final class InvokerGenerator
+{
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE = 0x3a;
+    private static final int DUP = 0x59;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int NEW = 0xbb;
+    private static final int ATHROW = 0xbf;
+    private static final int CHECKCAST = 0xc0;
+
+    /** Local variable holding the caught exception in the handler. */
+    private static final int EXCEPTION_LOCAL = 4;
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String INIT = "<init>";
+    private static final String INVOKE_DESCRIPTOR =
+        "(ILjava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    /** The name of class to generate. */
+    private final String m_name;
+    /** The methods and constructors to dispatch to. */
+    private final Member[] m_methods;
+    /** The constant pool entries. */
+    private final ByteArrayOutputStream m_pool = new ByteArrayOutputStream();
+    /** Output stream for constant pool. */
+    private final DataOutputStream m_poolOutput = new DataOutputStream( m_pool );
+    /** Map of constant to index used to share constants. */
+    private final Map<String, Integer> m_constants = new HashMap<String, Integer>();
+    /** Index of next constant pool entry. */
+    private int m_poolSize = 1;
+    /** The code buffer for method currently being generated. */
+    private byte[] m_code = new byte[256];
+    /** The length of code in buffer. */
+    private int m_codeLength;
+    /** The exception table entries of method currently being generated, as start, end, handler and type. */
+    private final ArrayList<int[]> m_handlers = new ArrayList<int[]>();
+    /** The offset of the call instruction last emitted by emitCall or emitNew. */
+    private int m_callStart;
+    /** The offset after the call instruction last emitted by emitCall or emitNew. */
+    private int m_callEnd;
+
+    InvokerGenerator( final String name, final Member[] methods )
+    {
+        m_name = name;
+        m_methods = methods;
+    }
+
+    /**
+     * Generate the class file.
+     *
+     * @return the bytes of class file.
+     * @throws IOException never but declared by the underlying streams.
+     */
+    byte[] generate()
+        throws IOException
+    {
+        final int thisClass = classRef( m_name.replace( '.', '/' ) );
+        final int superClass = classRef( OBJECT );
+        final int invokerClass = classRef( Invoker.class.getName().replace( '.', '/' ) );
+
+        final byte[] constructor = generateConstructor();
+        final byte[] invoke = generateInvoke();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream( bytes );
+        output.writeInt( MAGIC );
+        output.writeShort( 0 );
+        output.writeShort( MAJOR_VERSION );
+        output.writeShort( m_poolSize );
+        m_poolOutput.flush();
+        m_pool.writeTo( output );
+        output.writeShort( ACC_PUBLIC | ACC_FINAL | ACC_SUPER );
+        output.writeShort( thisClass );
+        output.writeShort( superClass );
+        output.writeShort( 1 );
+        output.writeShort( invokerClass );
+        output.writeShort( 0 );
+        output.writeShort( 2 );
+        output.write( constructor );
+        output.write( invoke );
+        output.writeShort( 0 );
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] generateConstructor()
+        throws IOException
+    {
+        final int name = utf8( INIT );
+        final int descriptor = utf8( "()V" );
+        m_codeLength = 0;
+        m_handlers.clear();
+        emit( ALOAD_0 );
+        emit( INVOKESPECIAL );
+        emit2( methodRef( OBJECT, INIT, "()V", false ) );
+        emit( RETURN );
+        return method( name, descriptor, 1, 1 );
+    }
+
+    private byte[] generateInvoke()
+        throws IOException
+    {
+        final int name = utf8( "invoke" );
+        final int descriptor = utf8( INVOKE_DESCRIPTOR );
+        final int count = m_methods.length;
+        final int[] offsets = new int[count];
+        int maxStack = 3;
+
+        m_codeLength = 0;
+        m_handlers.clear();
+        final int[] setupStarts = new int[count];
+        final int[] callStarts = new int[count];
+        final int[] callEnds = new int[count];
+        emit( ILOAD_1 );
+        final int switchStart = m_codeLength;
+        emit( TABLESWITCH );
+        while( 0 != m_codeLength % 4 )
+        {
+            emit( 0 );
+        }
+        final int defaultOffset = m_codeLength;
+        emit4( 0 );
+        emit4( 0 );
+        emit4( count - 1 );
+        final int tableStart = m_codeLength;
+        for( int i = 0; i < count; i++ )
+        {
+            emit4( 0 );
+        }
+
+        for( int i = 0; i < count; i++ )
+        {
+            offsets[i] = m_codeLength - switchStart;
+            setupStarts[i] = m_codeLength;
+            final Member member = m_methods[i];
+            final int depth =
+                ( member instanceof Method ) ? emitCall( (Method)member ) : emitNew( (Constructor<?>)member );
+            callStarts[i] = m_callStart;
+            callEnds[i] = m_callEnd;
+            maxStack = Math.max( maxStack, depth );
+        }
+
+        final int defaultStart = m_codeLength;
+        patch4( defaultOffset, defaultStart - switchStart );
+        for( int i = 0; i < count; i++ )
+        {
+            patch4( tableStart + i * 4, offsets[i] );
+        }
+        emitThrow( "java/lang/IllegalArgumentException", false );
+
+        //Exceptions from casting and unboxing the target and arguments
+        final int setupHandler = m_codeLength;
+        emit( ASTORE );
+        emit( EXCEPTION_LOCAL );
+        emitThrow( "java/lang/IllegalArgumentException", true );
+
+        //Exceptions from the call itself
+        final int callHandler = m_codeLength;
+        emit( ASTORE );
+        emit( EXCEPTION_LOCAL );
+        emitThrow( "java/lang/reflect/InvocationTargetException", true );
+
+        final int runtimeException = classRef( "java/lang/RuntimeException" );
+        for( int i = 0; i < count; i++ )
+        {
+            if( setupStarts[i] != callStarts[i] )
+            {
+                m_handlers.add( new int[]{setupStarts[i], callStarts[i], setupHandler, runtimeException} );
+            }
+            m_handlers.add( new int[]{callStarts[i], callEnds[i], callHandler, 0} );
+        }
+
+        return method( name, descriptor, maxStack, EXCEPTION_LOCAL + 1 );
+    }
+
+    /**
+     * Emit code to call method and return its boxed result.
+     *
+     * @param method the method.
+     * @return the maximum stack depth required.
+     */
+    private int emitCall( final Method method )
+        throws IOException
+    {
+        final Class<?> owner = method.getDeclaringClass();
+        final boolean isStatic = Modifier.isStatic( method.getModifiers() );
+        final boolean isInterface = owner.isInterface();
+        int depth = 0;
+        if( !isStatic )
+        {
+            emit( ALOAD_2 );
+            emitCheckcast( owner );
+            depth++;
+        }
+
+        depth += emitArguments( method.getParameterTypes() );
+        final int maxStack = depth + 2;
+
+        final String descriptor = methodDescriptor( method );
+        final int ref = methodRef( internalName( owner ), method.getName(), descriptor, isInterface );
+        m_callStart = m_codeLength;
+        if( isStatic )
+        {
+            emit( INVOKESTATIC );
+            emit2( ref );
+        }
+        else if( isInterface )
+        {
+            emit( INVOKEINTERFACE );
+            emit2( ref );
+            emit( depth );
+            emit( 0 );
+        }
+        else
+        {
+            emit( INVOKEVIRTUAL );
+            emit2( ref );
+        }
+        m_callEnd = m_codeLength;
+
+        final Class<?> returnType = method.getReturnType();
+        if( Void.TYPE == returnType )
+        {
+            emit( ACONST_NULL );
+        }
+        else if( returnType.isPrimitive() )
+        {
+            final Class<?> wrapper = getWrapper( returnType );
+            emit( INVOKESTATIC );
+            emit2( methodRef( internalName( wrapper ),
+                              "valueOf",
+                              "(" + descriptor( returnType ) + ")" + descriptor( wrapper ),
+                              false ) );
+        }
+        emit( ARETURN );
+        return Math.max( maxStack, 2 );
+    }
+
+    /**
+     * Emit code to call constructor and return the new object.
+     *
+     * @param constructor the constructor.
+     * @return the maximum stack depth required.
+     */
+    private int emitNew( final Constructor<?> constructor )
+        throws IOException
+    {
+        final String owner = internalName( constructor.getDeclaringClass() );
+        emit( NEW );
+        emit2( classRef( owner ) );
+        emit( DUP );
+        final Class<?>[] parameterTypes = constructor.getParameterTypes();
+        final int depth = 2 + emitArguments( parameterTypes );
+        final StringBuilder sb = new StringBuilder();
+        sb.append( '(' );
+        for( final Class<?> type : parameterTypes )
+        {
+            sb.append( descriptor( type ) );
+        }
+        sb.append( ")V" );
+        final int ref = methodRef( owner, INIT, sb.toString(), false );
+        m_callStart = m_codeLength;
+        emit( INVOKESPECIAL );
+        emit2( ref );
+        m_callEnd = m_codeLength;
+        emit( ARETURN );
+        return depth + 2;
+    }
+
+    /**
+     * Emit code to push the elements of the argument array, cast and
+     * unboxed to the parameter types.
+     *
+     * @param parameterTypes the parameter types.
+     * @return the stack depth occupied by the arguments.
+     */
+    private int emitArguments( final Class<?>[] parameterTypes )
+        throws IOException
+    {
+        int depth = 0;
+        for( int i = 0; i < parameterTypes.length; i++ )
+        {
+            emit( ALOAD_3 );
+            emitInt( i );
+            emit( AALOAD );
+            final Class<?> type = parameterTypes[i];
+            if( type.isPrimitive() )
+            {
+                final Class<?> wrapper = getWrapper( type );
+                emitCheckcast( wrapper );
+                emit( INVOKEVIRTUAL );
+                emit2( methodRef( internalName( wrapper ),
+                                  type.getName() + "Value",
+                                  "()" + descriptor( type ),
+                                  false ) );
+            }
+            else if( Object.class != type )
+            {
+                emitCheckcast( type );
+            }
+            depth += slots( type );
+        }
+        return depth;
+    }
+
+    private void emitThrow( final String exceptionType, final boolean withCause )
+        throws IOException
+    {
+        emit( NEW );
+        emit2( classRef( exceptionType ) );
+        emit( DUP );
+        if( withCause )
+        {
+            emit( ALOAD );
+            emit( EXCEPTION_LOCAL );
+        }
+        emit( INVOKESPECIAL );
+        emit2( methodRef( exceptionType, INIT, withCause ? "(Ljava/lang/Throwable;)V" : "()V", false ) );
+        emit( ATHROW );
+    }
+
+    private void emitCheckcast( final Class<?> type )
+        throws IOException
+    {
+        emit( CHECKCAST );
+        emit2( classRef( internalName( type ) ) );
+    }
+
+    private void emitInt( final int value )
+    {
+        if( value <= 5 )
+        {
+            emit( ICONST_0 + value );
+        }
+        else if( value <= Byte.MAX_VALUE )
+        {
+            emit( BIPUSH );
+            emit( value );
+        }
+        else
+        {
+            emit( SIPUSH );
+            emit2( value );
+        }
+    }
+
+    /**
+     * Create method structure from the code in buffer.
+     *
+     * @param name the index of name constant.
+     * @param descriptor the index of descriptor constant.
+     * @param maxStack the max stack depth.
+     * @param maxLocals the number of locals.
+     * @return the method structure.
+     */
+    private byte[] method( final int name,
+                           final int descriptor,
+                           final int maxStack,
+                           final int maxLocals )
+        throws IOException
+    {
+        final int code = utf8( "Code" );
+        final int handlers = m_handlers.size();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream( bytes );
+        output.writeShort( ACC_PUBLIC );
+        output.writeShort( name );
+        output.writeShort( descriptor );
+        output.writeShort( 1 );
+        output.writeShort( code );
+        output.writeInt( 12 + m_codeLength + handlers * 8 );
+        output.writeShort( maxStack );
+        output.writeShort( maxLocals );
+        output.writeInt( m_codeLength );
+        output.write( m_code, 0, m_codeLength );
+        output.writeShort( handlers );
+        for( final int[] handler : m_handlers )
+        {
+            for( final int value : handler )
+            {
+                output.writeShort( value );
+            }
+        }
+        output.writeShort( 0 );
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private void emit( final int value )
+    {
+        if( m_codeLength == m_code.length )
+        {
+            final byte[] code = new byte[m_code.length * 2];
+            System.arraycopy( m_code, 0, code, 0, m_codeLength );
+            m_code = code;
+        }
+        m_code[m_codeLength++] = (byte)value;
+    }
+
+    private void emit2( final int value )
+    {
+        emit( value >> 8 );
+        emit( value );
+    }
+
+    private void emit4( final int value )
+    {
+        emit2( value >> 16 );
+        emit2( value );
+    }
+
+    private void patch4( final int offset, final int value )
+    {
+        m_code[offset] = (byte)( value >> 24 );
+        m_code[offset + 1] = (byte)( value >> 16 );
+        m_code[offset + 2] = (byte)( value >> 8 );
+        m_code[offset + 3] = (byte)value;
+    }
+
+    private int utf8( final String value )
+        throws IOException
+    {
+        final String key = CONSTANT_UTF8 + value;
+        final Integer index = m_constants.get( key );
+        if( null != index )
+        {
+            return index;
+        }
+        m_poolOutput.writeByte( CONSTANT_UTF8 );
+        m_poolOutput.writeUTF( value );
+        return addConstant( key );
+    }
+
+    private int classRef( final String internalName )
+        throws IOException
+    {
+        final String key = CONSTANT_CLASS + internalName;
+        final Integer index = m_constants.get( key );
+        if( null != index )
+        {
+            return index;
+        }
+        final int name = utf8( internalName );
+        m_poolOutput.writeByte( CONSTANT_CLASS );
+        m_poolOutput.writeShort( name );
+        return addConstant( key );
+    }
+
+    private int methodRef( final String owner,
+                           final String name,
+                           final String descriptor,
+                           final boolean isInterface )
+        throws IOException
+    {
+        final int tag = isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF;
+        final String key = tag + owner + '.' + name + descriptor;
+        final Integer index = m_constants.get( key );
+        if( null != index )
+        {
+            return index;
+        }
+        final int ownerRef = classRef( owner );
+        final int nameRef = utf8( name );
+        final int descriptorRef = utf8( descriptor );
+        final String nameAndTypeKey = CONSTANT_NAME_AND_TYPE + name + descriptor;
+        Integer nameAndType = m_constants.get( nameAndTypeKey );
+        if( null == nameAndType )
+        {
+            m_poolOutput.writeByte( CONSTANT_NAME_AND_TYPE );
+            m_poolOutput.writeShort( nameRef );
+            m_poolOutput.writeShort( descriptorRef );
+            nameAndType = addConstant( nameAndTypeKey );
+        }
+        m_poolOutput.writeByte( tag );
+        m_poolOutput.writeShort( ownerRef );
+        m_poolOutput.writeShort( nameAndType );
+        return addConstant( key );
+    }
+
+    private int addConstant( final String key )
+    {
+        final int index = m_poolSize++;
+        m_constants.put( key, index );
+        return index;
+    }
+
+    private static String methodDescriptor( final Method method )
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( '(' );
+        for( final Class<?> type : method.getParameterTypes() )
+        {
+            sb.append( descriptor( type ) );
+        }
+        sb.append( ')' );
+        sb.append( descriptor( method.getReturnType() ) );
+        return sb.toString();
+    }
+
+    private static String internalName( final Class<?> type )
+    {
+        return type.getName().replace( '.', '/' );
+    }
+
+    private static String descriptor( final Class<?> type )
+    {
+        if( Void.TYPE == type )
+        {
+            return "V";
+        }
+        else if( Boolean.TYPE == type )
+        {
+            return "Z";
+        }
+        else if( Byte.TYPE == type )
+        {
+            return "B";
+        }
+        else if( Character.TYPE == type )
+        {
+            return "C";
+        }
+        else if( Short.TYPE == type )
+        {
+            return "S";
+        }
+        else if( Integer.TYPE == type )
+        {
+            return "I";
+        }
+        else if( Long.TYPE == type )
+        {
+            return "J";
+        }
+        else if( Float.TYPE == type )
+        {
+            return "F";
+        }
+        else if( Double.TYPE == type )
+        {
+            return "D";
+        }
+        else if( type.isArray() )
+        {
+            return internalName( type );
+        }
+        else
+        {
+            return "L" + internalName( type ) + ";";
+        }
+    }
+
+    private static int slots( final Class<?> type )
+    {
+        return ( Long.TYPE == type || Double.TYPE == type ) ? 2 : 1;
+    }
+
+    private static Class<?> getWrapper( final Class<?> type )
+    {
+        if( Boolean.TYPE == type )
+        {
+            return Boolean.class;
+        }
+        else if( Byte.TYPE == type )
+        {
+            return Byte.class;
+        }
+        else if( Character.TYPE == type )
+        {
+            return Character.class;
+        }
+        else if( Short.TYPE == type )
+        {
+            return Short.class;
+        }
+        else if( Integer.TYPE == type )
+        {
+            return Integer.class;
+        }
+        else if( Long.TYPE == type )
+        {
+            return Long.class;
+        }
+        else if( Float.TYPE == type )
+        {
+            return Float.class;
+        }
+        else
+        {
+            return Double.class;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package panmx.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import javax.management.NotCompliantMBeanException;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+
+/**
+ * The management methods of a class annotated with {@link MBean}.
+ *
+ * <p>The class is introspected once and the result is shared by every
+ * consumer so a class exposed as both a ModelMBean and an RMXBean is only
+ * scanned once. Results are cached without preventing the class, and thus
+ * its ClassLoader, from being collected.</p>
+ *
+ * <p>If the class has {@link MxMetadata} generated at compile time the
+ * management methods are looked up from the metadata rather than found
+ * by scanning every public method of the class and its interfaces.</p>
+ *
+ * <p>This class SHOULD NOT be used outside the PanMX package as it
+ * is likely to change without notice.</p>
+ */
+public final class ManagedType
+{
+    /** Cache of managed types keyed by class. */
+    private static final WeakCache<Class<?>, ManagedType> c_types =
+        new WeakCache<Class<?>, ManagedType>();
+    /** Factory used to introspect classes not yet in cache. */
+    private static final WeakCache.Factory<Class<?>, ManagedType, NotCompliantMBeanException> FACTORY =
+        new WeakCache.Factory<Class<?>, ManagedType, NotCompliantMBeanException>()
+        {
+            public ManagedType create( final Class<?> type )
+                throws NotCompliantMBeanException
+            {
+                return new ManagedType( type );
+            }
+        };
+
+    /** The MBean annotation of class. */
+    private final MBean m_mBean;
+    /** The candidate management methods. */
+    private final ManagedMethod[] m_methods;
+
+    /**
+     * Return the ManagedType for specified class.
+     *
+     * @param type the class.
+     * @return the ManagedType.
+     * @throws NotCompliantMBeanException if class is missing MBean annotation
+     *                                    or has invalid management interfaces.
+     */
+    public static ManagedType getManagedType( final Class<?> type )
+        throws NotCompliantMBeanException
+    {
+        if( null == type )
+        {
+            throw new NullPointerException( "type" );
+        }
+        return c_types.get( type, FACTORY );
+    }
+
+    private ManagedType( final Class<?> type )
+        throws NotCompliantMBeanException
+    {
+        m_mBean = type.getAnnotation( MBean.class );
+        if( null == m_mBean )
+        {
+            final String message =
+                "Class " + type.getName() + " is missing the MBean annotation.";
+            throw new NotCompliantMBeanException( message );
+        }
+
+        final ArrayList<ManagedMethod> methods = new ArrayList<ManagedMethod>();
+        final MxMetadata metadata = MxMetadata.getMetadata( type );
+        final boolean scan = null == metadata || !addMethods( methods, metadata );
+        if( scan )
+        {
+            methods.clear();
+            addMethods( methods, type.getMethods(), false );
+        }
+        for( final Class<?> mx : m_mBean.interfaces() )
+        {
+            if( !mx.isInterface() )
+            {
+                final String message =
+                    "Management interface " + mx.getName() + " of class " +
+                    type.getName() + " is not a java interface.";
+                throw new NotCompliantMBeanException( message );
+            }
+            if( !mx.isAssignableFrom( type ) )
+            {
+                final String message =
+                    "Class " + type.getName() + " is not assignable from " +
+                    "management interface " + mx.getName() + ".";
+                throw new NotCompliantMBeanException( message );
+            }
+            if( scan )
+            {
+                addMethods( methods, mx.getMethods(), true );
+            }
+        }
+        m_methods = methods.toArray( new ManagedMethod[methods.size()] );
+    }
+
+    /**
+     * Return the MBean annotation of class.
+     *
+     * @return the MBean annotation.
+     */
+    public MBean getMBean()
+    {
+        return m_mBean;
+    }
+
+    /**
+     * Return the management methods. The methods of the class are listed
+     * first followed by the methods of each management interface in the
+     * order they are declared in the MBean annotation.
+     * The array MUST NOT be modified.
+     *
+     * @return the management methods.
+     */
+    public ManagedMethod[] getMethods()
+    {
+        return m_methods;
+    }
+
+    /**
+     * Add methods that are annotated or are forced to be managed.
+     *
+     * @param results the list of management methods. (IN/OUT)
+     * @param methods the candidate methods.
+     * @param force true if methods are declared by a management interface.
+     */
+    private static void addMethods( final ArrayList<ManagedMethod> results,
+                                    final Method[] methods,
+                                    final boolean force )
+    {
+        for( final Method method : methods )
+        {
+            final MxAttribute attribute = method.getAnnotation( MxAttribute.class );
+            final MxOperation operation = method.getAnnotation( MxOperation.class );
+            if( force || null != attribute || null != operation )
+            {
+                results.add( new ManagedMethod( method, attribute, operation, force ) );
+            }
+        }
+    }
+
+    /**
+     * Add the management methods listed in metadata. The methods of the
+     * management interfaces are included so that the interfaces do not
+     * need to be scanned either.
+     *
+     * @param results the list of management methods. (IN/OUT)
+     * @param metadata the metadata generated for class.
+     * @return false if a method in metadata no longer exists.
+     */
+    private static boolean addMethods( final ArrayList<ManagedMethod> results, final MxMetadata metadata )
+    {
+        final int count = metadata.getMethodCount();
+        for( int i = 0; i < count; i++ )
+        {
+            final Method method;
+            try
+            {
+                method = metadata.getMethod( i );
+            }
+            catch( final NoSuchMethodException nsme )
+            {
+                return false;
+            }
+            final MxAttribute attribute = method.getAnnotation( MxAttribute.class );
+            final MxOperation operation = method.getAnnotation( MxOperation.class );
+            results.add( new ManagedMethod( method, attribute, operation, metadata.isForced( i ) ) );
+        }
+        return true;
+    }
+
+    /**
+     * A method that is part of the management interface.
+     */
+    public static final class ManagedMethod
+    {
+        private final Method m_method;
+        private final MxAttribute m_attribute;
+        private final MxOperation m_operation;
+        private final boolean m_forced;
+
+        ManagedMethod( final Method method,
+                       final MxAttribute attribute,
+                       final MxOperation operation,
+                       final boolean forced )
+        {
+            m_method = method;
+            m_attribute = attribute;
+            m_operation = operation;
+            m_forced = forced;
+        }
+
+        public Method getMethod()
+        {
+            return m_method;
+        }
+
+        /**
+         * Return the MxAttribute annotation of method if any.
+         *
+         * @return the annotation or null.
+         */
+        public MxAttribute getAttribute()
+        {
+            return m_attribute;
+        }
+
+        /**
+         * Return the MxOperation annotation of method if any.
+         *
+         * @return the annotation or null.
+         */
+        public MxOperation getOperation()
+        {
+            return m_operation;
+        }
+
+        /**
+         * Return true if the method is declared by a management interface
+         * and thus managed even when it is not annotated.
+         *
+         * @return true if method is managed even when not annotated.
+         */
+        public boolean isForced()
+        {
+            return m_forced;
+        }
+    }
+}
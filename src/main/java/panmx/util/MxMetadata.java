@@ -0,0 +1,229 @@
+package panmx.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Base class of the metadata generated at compile time for classes
+ * annotated with {@link panmx.annotations.MBean} by the PanMX annotation
+ * processor (panmx.processor.MxMetadataProcessor).
+ *
+ * <p>The metadata of a class named "Foo" is a class named "Foo$MxMetadata"
+ * in the same package. It lists the management methods of the class in the
+ * order {@link ManagedType} would find them, so the class does not have to
+ * be scanned, and dispatches to them with direct calls so no Invoker has to
+ * be generated at runtime. Classes without metadata are introspected as
+ * before.</p>
+ *
+ * <p>This class SHOULD NOT be used outside the PanMX package as it
+ * is likely to change without notice.</p>
+ */
+public abstract class MxMetadata
+    implements Invoker
+{
+    /** Suffix appended to the name of a class to get the name of its metadata class. */
+    public static final String CLASS_SUFFIX = "$MxMetadata";
+    /** Cache of metadata keyed by class. */
+    private static final WeakCache<Class<?>, MxMetadata> c_metadata =
+        new WeakCache<Class<?>, MxMetadata>();
+    /** Value cached for classes without metadata. */
+    private static final MxMetadata NONE =
+        new MxMetadata( Object.class, new Class<?>[0], new String[0], new Class<?>[0][], new boolean[0] )
+        {
+            public Object invoke( final int index, final Object target, final Object[] args )
+            {
+                throw new IndexOutOfBoundsException( String.valueOf( index ) );
+            }
+        };
+    /** Factory used to load metadata not yet in cache. */
+    private static final WeakCache.Factory<Class<?>, MxMetadata, RuntimeException> FACTORY =
+        new WeakCache.Factory<Class<?>, MxMetadata, RuntimeException>()
+        {
+            public MxMetadata create( final Class<?> type )
+            {
+                final MxMetadata metadata = loadMetadata( type );
+                return ( null != metadata ) ? metadata : NONE;
+            }
+        };
+
+    /** The class described. */
+    private final Class<?> m_type;
+    /** The class or management interface that declares each method. */
+    private final Class<?>[] m_declaringTypes;
+    /** The name of each method. */
+    private final String[] m_names;
+    /** The parameter types of each method. */
+    private final Class<?>[][] m_parameterTypes;
+    /** Flag for each method indicating whether it is declared by a management interface. */
+    private final boolean[] m_forced;
+
+    /**
+     * Create metadata. The arrays are indexed by the index passed to
+     * {@link #invoke(int, Object, Object[])}.
+     *
+     * @param type the class described.
+     * @param declaringTypes the class or management interface that declares each method.
+     * @param names the name of each method.
+     * @param parameterTypes the parameter types of each method.
+     * @param forced flag for each method indicating whether it is declared by a management interface.
+     */
+    protected MxMetadata( final Class<?> type,
+                          final Class<?>[] declaringTypes,
+                          final String[] names,
+                          final Class<?>[][] parameterTypes,
+                          final boolean[] forced )
+    {
+        m_type = type;
+        m_declaringTypes = declaringTypes;
+        m_names = names;
+        m_parameterTypes = parameterTypes;
+        m_forced = forced;
+    }
+
+    /**
+     * Return the metadata generated for type.
+     *
+     * @param type the type.
+     * @return the metadata or null if none was generated.
+     */
+    public static MxMetadata getMetadata( final Class<?> type )
+    {
+        if( null == type || null == type.getClassLoader() )
+        {
+            return null;
+        }
+        final MxMetadata metadata = c_metadata.get( type, FACTORY );
+        return ( NONE != metadata ) ? metadata : null;
+    }
+
+    /**
+     * Load the metadata class of type. The class must extend MxMetadata and
+     * describe type, otherwise it is ignored.
+     *
+     * @param type the type.
+     * @return the metadata or null.
+     */
+    private static MxMetadata loadMetadata( final Class<?> type )
+    {
+        try
+        {
+            final Class<?> clazz = Class.forName( type.getName() + CLASS_SUFFIX, true, type.getClassLoader() );
+            if( MxMetadata.class.isAssignableFrom( clazz ) )
+            {
+                final MxMetadata metadata = (MxMetadata)clazz.newInstance();
+                if( type == metadata.m_type )
+                {
+                    return metadata;
+                }
+            }
+            return null;
+        }
+        catch( final LinkageError le )
+        {
+            return null;
+        }
+        catch( final Exception e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Return the number of management methods.
+     *
+     * @return the number of management methods.
+     */
+    public int getMethodCount()
+    {
+        return m_names.length;
+    }
+
+    /**
+     * Return the management method with index.
+     *
+     * @param index the index.
+     * @return the method.
+     * @throws NoSuchMethodException if the method no longer exists, ie the
+     *                               class changed since the metadata was generated.
+     */
+    public Method getMethod( final int index )
+        throws NoSuchMethodException
+    {
+        return m_declaringTypes[ index ].getMethod( m_names[ index ], m_parameterTypes[ index ] );
+    }
+
+    /**
+     * Return true if the method with index is declared by a management interface.
+     *
+     * @param index the index.
+     * @return true if declared by a management interface.
+     */
+    public boolean isForced( final int index )
+    {
+        return m_forced[ index ];
+    }
+
+    /**
+     * Return an Invoker for specified methods that dispatches via this
+     * metadata or null if any of the methods is not a management method.
+     *
+     * @param methods the methods.
+     * @return the Invoker or null.
+     */
+    public Invoker createInvoker( final Member[] methods )
+    {
+        final int[] indexes = new int[methods.length];
+        for( int i = 0; i < methods.length; i++ )
+        {
+            indexes[ i ] = ( methods[ i ] instanceof Method ) ? indexOf( (Method)methods[ i ] ) : -1;
+            if( -1 == indexes[ i ] )
+            {
+                return null;
+            }
+        }
+        return new IndexedInvoker( this, indexes );
+    }
+
+    private int indexOf( final Method method )
+    {
+        if( !method.getDeclaringClass().isAssignableFrom( m_type ) )
+        {
+            return -1;
+        }
+        final String name = method.getName();
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for( int i = 0; i < m_names.length; i++ )
+        {
+            if( m_names[ i ].equals( name ) && Arrays.equals( m_parameterTypes[ i ], parameterTypes ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Invoker that maps the index of a method in the array passed to the
+     * factory to the index of the method in the metadata.
+     */
+    private static final class IndexedInvoker
+        implements Invoker
+    {
+        private final MxMetadata m_metadata;
+        private final int[] m_indexes;
+
+        IndexedInvoker( final MxMetadata metadata, final int[] indexes )
+        {
+            m_metadata = metadata;
+            m_indexes = indexes;
+        }
+
+        public Object invoke( final int index, final Object target, final Object[] args )
+            throws IllegalAccessException, InvocationTargetException
+        {
+            return m_metadata.invoke( m_indexes[ index ], target, args );
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package panmx.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A concurrent cache with weakly referenced keys and values.
+ *
+ * <p>Lookups of existing entries do not acquire any locks. When an entry is
+ * missing exactly one thread creates the value while other threads requesting
+ * the same key wait for it. Creation of a value may recursively request other
+ * keys from the cache. If such requests form a cycle, either within one thread
+ * or across several threads, a {@link CircularCreationException} is thrown rather
+ * than deadlocking.</p>
+ *
+ * <p>Both keys and values are weakly referenced so that a value that refers
+ * back to its key (such as a Class) does not prevent the key, and thus its
+ * ClassLoader, from being collected. Values should be strongly referenced
+ * by their users for as long as they are needed. A value that is collected
+ * is created again when next requested, so a factory whose result depends
+ * on which values are being created at the time, such as one that handles
+ * a CircularCreationException, may create a different value.</p>
+ *
+ * <p>This class SHOULD NOT be used outside the PanMX package as it
+ * is likely to change without notice.</p>
+ */
+public final class WeakCache<K, V>
+{
+    /** The entries. Values are either ValueReference or Pending objects. */
+    private final ConcurrentHashMap<Object, Object> m_entries =
+        new ConcurrentHashMap<Object, Object>();
+    /** Map of thread to the pending creation it is waiting on. Used to detect cycles. */
+    private final ConcurrentHashMap<Thread, Pending> m_waiting =
+        new ConcurrentHashMap<Thread, Pending>();
+    /** Queue of cleared keys and values. */
+    private final ReferenceQueue<Object> m_queue = new ReferenceQueue<Object>();
+
+    /**
+     * Factory used to create values that are not in cache.
+     */
+    public interface Factory<K, V, E extends Exception>
+    {
+        /**
+         * Create value for key.
+         *
+         * @param key the key.
+         * @return the value. Must not be null.
+         * @throws E if unable to create value.
+         */
+        V create( K key )
+            throws E;
+    }
+
+    /**
+     * Exception thrown when the creation of a value requires itself.
+     */
+    public static final class CircularCreationException
+        extends IllegalStateException
+    {
+        private static final long serialVersionUID = 1L;
+
+        CircularCreationException( final Object key )
+        {
+            super( "Circular creation of value for key " + key );
+        }
+    }
+
+    /**
+     * Return value for key if present in cache.
+     *
+     * @param key the key.
+     * @return the value or null if not present.
+     */
+    public V get( final K key )
+    {
+        final Object entry = m_entries.get( new LookupKey( key ) );
+        if( entry instanceof ValueReference )
+        {
+            return this.<V>cast( entry );
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Return value for key, using factory to create it if not present in cache.
+     *
+     * @param key the key.
+     * @param factory the factory.
+     * @return the value.
+     * @throws E if factory fails to create value.
+     * @throws CircularCreationException if creating value requires itself.
+     */
+    public <E extends Exception> V get( final K key, final Factory<? super K, ? extends V, E> factory )
+        throws E
+    {
+        final LookupKey lookupKey = new LookupKey( key );
+        while( true )
+        {
+            final Object entry = m_entries.get( lookupKey );
+            if( entry instanceof ValueReference )
+            {
+                final V value = this.<V>cast( entry );
+                if( null != value )
+                {
+                    return value;
+                }
+                m_entries.remove( lookupKey, entry );
+            }
+            else if( entry instanceof Pending )
+            {
+                final V value = this.<E>await( key, (Pending)entry );
+                if( null != value )
+                {
+                    return value;
+                }
+            }
+            else
+            {
+                expungeStaleEntries();
+                final WeakKey weakKey = new WeakKey( key, m_queue );
+                final Pending pending = new Pending( Thread.currentThread() );
+                if( null == m_entries.putIfAbsent( weakKey, pending ) )
+                {
+                    return create( key, weakKey, pending, factory );
+                }
+            }
+        }
+    }
+
+    /**
+     * Place value in cache.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put( final K key, final V value )
+    {
+        expungeStaleEntries();
+        final WeakKey weakKey = new WeakKey( key, m_queue );
+        m_entries.put( weakKey, new ValueReference( value, weakKey, m_queue ) );
+    }
+
+    /**
+     * Remove all entries from cache.
+     */
+    public void clear()
+    {
+        m_entries.clear();
+    }
+
+    private <E extends Exception> V create( final K key,
+                                            final WeakKey weakKey,
+                                            final Pending pending,
+                                            final Factory<? super K, ? extends V, E> factory )
+        throws E
+    {
+        final V value;
+        try
+        {
+            value = factory.create( key );
+        }
+        catch( final RuntimeException re )
+        {
+            abort( weakKey, pending, re );
+            throw re;
+        }
+        catch( final Error error )
+        {
+            abort( weakKey, pending, error );
+            throw error;
+        }
+        catch( final Exception e )
+        {
+            abort( weakKey, pending, e );
+            final @SuppressWarnings(value = {"unchecked"}) E exception = (E)e;
+            throw exception;
+        }
+        m_entries.replace( weakKey, pending, new ValueReference( value, weakKey, m_queue ) );
+        pending.complete( value, null );
+        return value;
+    }
+
+    private void abort( final WeakKey weakKey, final Pending pending, final Throwable failure )
+    {
+        m_entries.remove( weakKey, pending );
+        pending.complete( null, failure );
+    }
+
+    /**
+     * Wait for another thread to create the value.
+     *
+     * @param key the key.
+     * @param pending the pending creation.
+     * @return the value or null if creation was abandoned and should be retried.
+     */
+    private <E extends Exception> V await( final K key, final Pending pending )
+        throws E
+    {
+        final Thread current = Thread.currentThread();
+        m_waiting.put( current, pending );
+        try
+        {
+            Pending next = pending;
+            for( int i = m_waiting.size(); null != next && i >= 0; i-- )
+            {
+                if( current == next.m_owner )
+                {
+                    throw new CircularCreationException( key );
+                }
+                next = m_waiting.get( next.m_owner );
+            }
+
+            final Throwable failure = pending.await();
+            if( null == failure )
+            {
+                return this.<V>cast( pending.m_value );
+            }
+            else if( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException)failure;
+            }
+            else if( failure instanceof Error )
+            {
+                throw (Error)failure;
+            }
+            else
+            {
+                final @SuppressWarnings(value = {"unchecked"}) E exception = (E)failure;
+                throw exception;
+            }
+        }
+        catch( final InterruptedException ie )
+        {
+            current.interrupt();
+            throw new IllegalStateException( "Interrupted waiting for value of key " + key );
+        }
+        finally
+        {
+            m_waiting.remove( current );
+        }
+    }
+
+    @SuppressWarnings(value = {"unchecked"})
+    private <T> T cast( final Object entry )
+    {
+        if( entry instanceof ValueReference )
+        {
+            return (T)( (ValueReference)entry ).get();
+        }
+        else
+        {
+            return (T)entry;
+        }
+    }
+
+    private void expungeStaleEntries()
+    {
+        Reference<?> reference;
+        while( null != ( reference = m_queue.poll() ) )
+        {
+            if( reference instanceof ValueReference )
+            {
+                final ValueReference value = (ValueReference)reference;
+                m_entries.remove( value.m_key, value );
+            }
+            else
+            {
+                m_entries.remove( reference );
+            }
+        }
+    }
+
+    /**
+     * Key that is used to look up entries without creating a weak reference.
+     */
+    private static final class LookupKey
+    {
+        private final Object m_key;
+        private final int m_hashCode;
+
+        LookupKey( final Object key )
+        {
+            m_key = key;
+            m_hashCode = key.hashCode();
+        }
+
+        public int hashCode()
+        {
+            return m_hashCode;
+        }
+
+        public boolean equals( final Object other )
+        {
+            if( other instanceof WeakKey )
+            {
+                final Object key = ( (WeakKey)other ).get();
+                return null != key && m_key.equals( key );
+            }
+            else
+            {
+                return other instanceof LookupKey && m_key.equals( ( (LookupKey)other ).m_key );
+            }
+        }
+    }
+
+    /**
+     * Weak reference to key as stored in the map.
+     */
+    private static final class WeakKey
+        extends WeakReference<Object>
+    {
+        private final int m_hashCode;
+
+        WeakKey( final Object key, final ReferenceQueue<Object> queue )
+        {
+            super( key, queue );
+            m_hashCode = key.hashCode();
+        }
+
+        public int hashCode()
+        {
+            return m_hashCode;
+        }
+
+        public boolean equals( final Object other )
+        {
+            if( this == other )
+            {
+                return true;
+            }
+            final Object key = get();
+            if( null == key )
+            {
+                return false;
+            }
+            else if( other instanceof WeakKey )
+            {
+                return key.equals( ( (WeakKey)other ).get() );
+            }
+            else
+            {
+                return other instanceof LookupKey && key.equals( ( (LookupKey)other ).m_key );
+            }
+        }
+    }
+
+    /**
+     * Weak reference to value as stored in the map.
+     */
+    private static final class ValueReference
+        extends WeakReference<Object>
+    {
+        /** The key for value, used to remove entry when value is collected. */
+        private final WeakKey m_key;
+
+        ValueReference( final Object value,
+                        final WeakKey key,
+                        final ReferenceQueue<Object> queue )
+        {
+            super( value, queue );
+            m_key = key;
+        }
+    }
+
+    /**
+     * Placeholder for a value that is being created.
+     */
+    private static final class Pending
+    {
+        /** The thread creating the value. */
+        private final Thread m_owner;
+        /** Latch released when creation completes. */
+        private final CountDownLatch m_latch = new CountDownLatch( 1 );
+        /** The created value. */
+        private volatile Object m_value;
+        /** The failure if unable to create value. */
+        private volatile Throwable m_failure;
+
+        Pending( final Thread owner )
+        {
+            m_owner = owner;
+        }
+
+        void complete( final Object value, final Throwable failure )
+        {
+            m_value = value;
+            m_failure = failure;
+            m_latch.countDown();
+        }
+
+        Throwable await()
+            throws InterruptedException
+        {
+            m_latch.await();
+            return m_failure;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package panmx.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.management.remote.MBeanServerForwarder;
+import junit.framework.TestCase;
+import panmx.annotations.MxTabularData;
+import panmx.rmx.RMXBeanFactory;
+
+public class OpenValueCodecTestCase
+    extends TestCase
+{
+    @MxTabularData( keys = {"name"} )
+    public static class Nerve
+    {
+        private String m_name;
+        private int m_signals;
+        private double[] m_voltages;
+
+        public String getName()
+        {
+            return m_name;
+        }
+
+        public void setName( final String name )
+        {
+            m_name = name;
+        }
+
+        public int getSignals()
+        {
+            return m_signals;
+        }
+
+        public void setSignals( final int signals )
+        {
+            m_signals = signals;
+        }
+
+        public double[] getVoltages()
+        {
+            return m_voltages;
+        }
+
+        public void setVoltages( final double[] voltages )
+        {
+            m_voltages = voltages;
+        }
+    }
+
+    public interface SpineRMXBean
+    {
+        Nerve getRoot();
+
+        Nerve[] getNerves();
+
+        void setNerves( Nerve[] nerves );
+
+        int count( Nerve[] nerves );
+    }
+
+    public static class Spine
+        implements SpineRMXBean
+    {
+        private Nerve[] m_nerves;
+
+        public Spine( final int size )
+        {
+            m_nerves = new Nerve[size];
+            for( int i = 0; i < size; i++ )
+            {
+                m_nerves[i] = new Nerve();
+                m_nerves[i].setName( "nerve" + i );
+                m_nerves[i].setSignals( i * 1000 );
+                m_nerves[i].setVoltages( new double[]{i, -i * 0.5} );
+            }
+        }
+
+        public Nerve getRoot()
+        {
+            return m_nerves[0];
+        }
+
+        public Nerve[] getNerves()
+        {
+            return m_nerves;
+        }
+
+        public void setNerves( final Nerve[] nerves )
+        {
+            m_nerves = nerves;
+        }
+
+        public int count( final Nerve[] nerves )
+        {
+            return nerves.length;
+        }
+    }
+
+    public void testSimpleValues()
+        throws Exception
+    {
+        final Object[] values = new Object[]
+            {null, Boolean.TRUE, Boolean.FALSE, 'x', (byte)-3, (short)-300,
+             0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, 1234567890123L,
+             1.5F, Double.NaN, -0.25D, "", "pan", "\u00e9t\u00e9 \u65e5\u672c",
+             new BigDecimal( "-12345.6789" ), new BigInteger( "123456789012345678901234567890" ),
+             new Date( 1234567L ), new ObjectName( "panmx:type=Spine,name=\"a,b\"" )};
+        for( final Object value : values )
+        {
+            assertEquals( String.valueOf( value ), value, OpenValueCodec.decode( OpenValueCodec.encode( value ) ) );
+        }
+    }
+
+    public void testArrays()
+        throws Exception
+    {
+        final Object[] arrays = new Object[]
+            {new int[]{1, -2, 300000}, new long[]{Long.MAX_VALUE, -1}, new double[]{0.5, -2},
+             new float[]{1.25F}, new short[]{-7}, new byte[]{1, 2, 3}, new char[]{'a', '\u00e9'},
+             new boolean[]{true, false, true, true, false, false, true, false, true},
+             new Integer[]{1, 2, 3}, new Long[]{4L, null}, new Boolean[]{true, false},
+             new Double[]{}, new String[]{"a", null, "a"}, new String[][]{{"a"}, {"b", "c"}},
+             new Object[]{1, "two", new long[]{3}}, new Locale[]{Locale.UK}};
+        for( final Object array : arrays )
+        {
+            final Object result = OpenValueCodec.decode( OpenValueCodec.encode( array ) );
+            assertEquals( "class of " + array, array.getClass(), result.getClass() );
+            assertTrue( "value of " + array, Arrays.deepEquals( new Object[]{array}, new Object[]{result} ) );
+        }
+    }
+
+    public void testSerializableFallback()
+        throws Exception
+    {
+        final HashMap<String, Integer> map = new HashMap<String, Integer>();
+        map.put( "a", 1 );
+        assertEquals( "map", map, OpenValueCodec.decode( OpenValueCodec.encode( map ) ) );
+    }
+
+    public void testCompositeAndTabularData()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Spine" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Spine( 20 ) ), name );
+        final CompositeData root = (CompositeData)server.getAttribute( name, "root" );
+        final TabularData nerves = (TabularData)server.getAttribute( name, "nerves" );
+
+        final CompositeData rootResult = (CompositeData)OpenValueCodec.decode( OpenValueCodec.encode( root ) );
+        assertEquals( "root.type", root.getCompositeType(), rootResult.getCompositeType() );
+        assertEquals( "root.name", "nerve0", rootResult.get( "name" ) );
+        assertTrue( "root.voltages", Arrays.equals( (Object[])root.get( "voltages" ),
+                                                    (Object[])rootResult.get( "voltages" ) ) );
+
+        final byte[] encoded = OpenValueCodec.encode( nerves );
+        final TabularData nervesResult = (TabularData)OpenValueCodec.decode( encoded );
+        assertEquals( "nerves.type", nerves.getTabularType(), nervesResult.getTabularType() );
+        assertEquals( "nerves.size()", 20, nervesResult.size() );
+        final CompositeData row = nervesResult.get( new Object[]{"nerve7"} );
+        assertEquals( "row.signals", 7000, row.get( "signals" ) );
+
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( serialized );
+        output.writeObject( nerves );
+        output.close();
+        assertTrue( "encoded " + encoded.length + " < serialized " + serialized.size() / 4,
+                    encoded.length < serialized.size() / 4 );
+    }
+
+    public void testTypesWrittenOncePerStream()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Spine" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Spine( 1 ) ), name );
+        final Object root = server.getAttribute( name, "root" );
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OpenValueOutput output = new OpenValueOutput( bytes );
+        output.writeObject( root );
+        output.flush();
+        final int first = bytes.size();
+        output.writeObject( server.getAttribute( name, "root" ) );
+        output.flush();
+        final int second = bytes.size() - first;
+        assertTrue( "second " + second + " < first " + first / 4, second < first / 4 );
+
+        final OpenValueInput input = new OpenValueInput( new ByteArrayInputStream( bytes.toByteArray() ) );
+        assertEquals( "first value", root, input.readObject() );
+        assertEquals( "second value", root, input.readObject() );
+    }
+
+    public void testConnections()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Spine" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Spine( 3 ) ), name );
+        final MBeanServerForwarder forwarder = CodecConnections.newForwarder();
+        forwarder.setMBeanServer( server );
+        assertSame( "getMBeanServer()", server, forwarder.getMBeanServer() );
+
+        final Object encoded = forwarder.getAttribute( name, "nerves" );
+        assertTrue( "forwarder encodes", encoded instanceof EncodedValue );
+        final AttributeList encodedList = forwarder.getAttributes( name, new String[]{"root"} );
+        assertTrue( "forwarder encodes list", ( (Attribute)encodedList.get( 0 ) ).getValue() instanceof EncodedValue );
+
+        final MBeanServerConnection connection = CodecConnections.wrap( forwarder );
+        final TabularData nerves = (TabularData)connection.getAttribute( name, "nerves" );
+        assertEquals( "nerves.size()", 3, nerves.size() );
+        assertTrue( "root", connection.getAttributes( name, new String[]{"root"} ).get( 0 ) instanceof Attribute );
+        assertEquals( "count", 3, connection.invoke( name, "count", new Object[]{nerves}, new String[]{Nerve[].class.getName()} ) );
+
+        final SpineRMXBean proxy = (SpineRMXBean)RMXBeanFactory.newProxyInstance( connection, name, SpineRMXBean.class );
+        proxy.setNerves( new Spine( 5 ).getNerves() );
+        assertEquals( "proxy.getNerves().length", 5, proxy.getNerves().length );
+        assertEquals( "proxy.getRoot().getName()", "nerve0", proxy.getRoot().getName() );
+    }
+
+    public void testEncodedValueSerialization()
+        throws Exception
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( new EncodedValue( new long[]{1, 2, 3} ) );
+        output.close();
+        final EncodedValue value = (EncodedValue)new ObjectInputStream(
+            new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertTrue( "value", Arrays.equals( new long[]{1, 2, 3}, (long[])value.getValue() ) );
+    }
+
+    public void testEncodedValueSerializesNestedValuesThroughEnclosingStream()
+        throws Exception
+    {
+        final HashMap<String, Integer> map = new HashMap<String, Integer>();
+        map.put( "a", 1 );
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( new EncodedValue( new Object[]{"one", map} ) );
+        output.close();
+
+        final ArrayList<String> resolved = new ArrayList<String>();
+        final InputStream in = new ByteArrayInputStream( bytes.toByteArray() );
+        final ObjectInputStream input = new ObjectInputStream( in )
+        {
+            protected Class<?> resolveClass( final ObjectStreamClass descriptor )
+                throws IOException, ClassNotFoundException
+            {
+                resolved.add( descriptor.getName() );
+                return super.resolveClass( descriptor );
+            }
+        };
+        final EncodedValue value = (EncodedValue)input.readObject();
+        assertEquals( "value", Arrays.asList( "one", map ), Arrays.asList( (Object[])value.getValue() ) );
+        assertTrue( "resolved by enclosing stream: " + resolved, resolved.contains( HashMap.class.getName() ) );
+    }
+
+    public void testCorruptLengthRejected()
+        throws Exception
+    {
+        //A packed byte array claiming Integer.MAX_VALUE elements
+        final byte[] data = new byte[]{23, 3, -1, -1, -1, -1, 7, 0};
+        try
+        {
+            OpenValueCodec.decode( data );
+            fail( "Expected decode to reject length that exceeds the data" );
+        }
+        catch( final StreamCorruptedException sce )
+        {
+        }
+    }
+}
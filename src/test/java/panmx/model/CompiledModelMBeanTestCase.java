@@ -0,0 +1,416 @@
+package panmx.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.Descriptor;
+import javax.management.InvalidAttributeValueException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.RuntimeOperationsException;
+import javax.management.modelmbean.ModelMBean;
+import javax.management.modelmbean.ModelMBeanAttributeInfo;
+import javax.management.modelmbean.ModelMBeanInfo;
+import javax.management.modelmbean.ModelMBeanInfoSupport;
+import javax.management.modelmbean.ModelMBeanOperationInfo;
+import javax.management.modelmbean.RequiredModelMBean;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+
+public class CompiledModelMBeanTestCase
+    extends TestCase
+{
+    @MBean
+    public static class Heart
+    {
+        private int m_rate = 60;
+        private int m_reads;
+
+        @MxAttribute
+        public int getRate()
+        {
+            m_reads++;
+            return m_rate;
+        }
+
+        @MxAttribute
+        public void setRate( final int rate )
+        {
+            m_rate = rate;
+        }
+
+        @MxAttribute( currencyTimeLimit = MxAttribute.NEVER_CACHE )
+        public int getReads()
+        {
+            return ++m_reads;
+        }
+
+        @MxOperation
+        public int beat( final int count )
+        {
+            return count * m_rate;
+        }
+
+        @MxOperation
+        public void stop()
+            throws Exception
+        {
+            throw new Exception( "Flatline" );
+        }
+    }
+
+    @MBean
+    public static class Lung
+    {
+        private int m_breaths;
+
+        @MxAttribute( currencyTimeLimit = MxAttribute.CACHE_FOREVER )
+        public int getCapacity()
+        {
+            return ++m_breaths;
+        }
+
+        @MxAttribute( currencyTimeLimit = MxAttribute.NEVER_CACHE )
+        public int getBreaths()
+        {
+            return ++m_breaths;
+        }
+
+        @MxAttribute
+        public int getVolume()
+        {
+            return ++m_breaths;
+        }
+    }
+
+    public void testGetSetAndInvoke()
+        throws Exception
+    {
+        final Heart heart = new Heart();
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( heart );
+
+        assertEquals( "getAttribute(rate)", 60, bean.getAttribute( "rate" ) );
+        bean.setAttribute( new Attribute( "rate", 72 ) );
+        assertEquals( "heart.rate", 72, heart.m_rate );
+        assertEquals( "getAttribute(rate) after set", 72, bean.getAttribute( "rate" ) );
+        assertEquals( "invoke(beat)", 144, bean.invoke( "beat", new Object[]{2}, new String[]{"int"} ) );
+        assertEquals( "getAttributes().size()", 2, bean.getAttributes( new String[]{"rate", "reads", "x"} ).size() );
+
+        try
+        {
+            bean.getAttribute( "x" );
+            fail( "Expected getAttribute(x) to fail" );
+        }
+        catch( final AttributeNotFoundException anfe )
+        {
+        }
+        try
+        {
+            bean.setAttribute( new Attribute( "reads", 1 ) );
+            fail( "Expected to fail setting read-only attribute" );
+        }
+        catch( final AttributeNotFoundException anfe )
+        {
+        }
+        try
+        {
+            bean.setAttribute( new Attribute( "rate", "fast" ) );
+            fail( "Expected to fail setting attribute with wrong type" );
+        }
+        catch( final InvalidAttributeValueException iave )
+        {
+        }
+        try
+        {
+            bean.invoke( "beat", new Object[]{2L}, new String[]{"long"} );
+            fail( "Expected to fail invoking operation with wrong signature" );
+        }
+        catch( final ReflectionException re )
+        {
+        }
+        try
+        {
+            bean.invoke( "stop", null, null );
+            fail( "Expected operation to fail" );
+        }
+        catch( final MBeanException mbe )
+        {
+            assertEquals( "mbe.targetException.message", "Flatline", mbe.getTargetException().getMessage() );
+        }
+    }
+
+    public void testCurrencyTimeLimit()
+        throws Exception
+    {
+        final Heart heart = new Heart();
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( heart );
+
+        //Attributes are cached for 1 second by default
+        bean.getAttribute( "rate" );
+        bean.getAttribute( "rate" );
+        assertEquals( "reads of cached attribute", 1, heart.m_reads );
+
+        bean.setAttribute( new Attribute( "rate", 90 ) );
+        assertEquals( "getAttribute(rate) after set", 90, bean.getAttribute( "rate" ) );
+        assertEquals( "reads after set", 1, heart.m_reads );
+
+        assertEquals( "getAttribute(reads)", 2, bean.getAttribute( "reads" ) );
+        assertEquals( "getAttribute(reads) never cached", 3, bean.getAttribute( "reads" ) );
+    }
+
+    public void testCurrencyTimeLimitMatchesRequiredModelMBean()
+        throws Exception
+    {
+        final ModelMBeanInfo info = ModelMBeanFactory.getMBeanInfo( Heart.class );
+        for( final String currencyTimeLimit : new String[]{"-1", "0", "60", null} )
+        {
+            final ModelMBeanInfo limited = withCurrencyTimeLimit( info, currencyTimeLimit );
+            final RequiredModelMBean required = new RequiredModelMBean( limited );
+            required.setManagedResource( new Heart(), "ObjectReference" );
+            final CompiledModelMBean compiled = new CompiledModelMBean( limited );
+            compiled.setManagedResource( new Heart(), "ObjectReference" );
+            for( int i = 0; i < 3; i++ )
+            {
+                assertEquals( "getAttribute(reads) " + i + " with currencyTimeLimit " + currencyTimeLimit,
+                              required.getAttribute( "reads" ),
+                              compiled.getAttribute( "reads" ) );
+            }
+        }
+    }
+
+    public void testAnnotatedCurrencyTimeLimitInDescriptor()
+        throws Exception
+    {
+        final ModelMBeanInfo info = ModelMBeanFactory.getMBeanInfo( Lung.class );
+        assertEquals( "capacity.currencyTimeLimit", "0", getCurrencyTimeLimit( info, "capacity" ) );
+        assertEquals( "breaths.currencyTimeLimit", "-1", getCurrencyTimeLimit( info, "breaths" ) );
+        assertEquals( "volume.currencyTimeLimit", "1", getCurrencyTimeLimit( info, "volume" ) );
+
+        final RequiredModelMBean required = new RequiredModelMBean( info );
+        required.setManagedResource( new Lung(), "ObjectReference" );
+        final Object capacity = required.getAttribute( "capacity" );
+        assertEquals( "capacity cached forever", capacity, required.getAttribute( "capacity" ) );
+        final Object breaths = required.getAttribute( "breaths" );
+        assertFalse( "breaths never cached", breaths.equals( required.getAttribute( "breaths" ) ) );
+    }
+
+    private static String getCurrencyTimeLimit( final ModelMBeanInfo info, final String name )
+        throws Exception
+    {
+        return String.valueOf( info.getAttribute( name ).getDescriptor().getFieldValue( "currencyTimeLimit" ) );
+    }
+
+    /**
+     * Return a copy of info with the currencyTimeLimit of the reads attribute
+     * set to the specified value or removed if the value is null.
+     */
+    private static ModelMBeanInfo withCurrencyTimeLimit( final ModelMBeanInfo info, final String currencyTimeLimit )
+        throws Exception
+    {
+        final ModelMBeanAttributeInfo reads = info.getAttribute( "reads" );
+        final Descriptor descriptor = reads.getDescriptor();
+        if( null == currencyTimeLimit )
+        {
+            descriptor.removeField( "currencyTimeLimit" );
+        }
+        else
+        {
+            descriptor.setField( "currencyTimeLimit", currencyTimeLimit );
+        }
+        final ModelMBeanAttributeInfo limitedReads =
+            new ModelMBeanAttributeInfo( "reads",
+                                         reads.getType(),
+                                         reads.getDescription(),
+                                         reads.isReadable(),
+                                         reads.isWritable(),
+                                         reads.isIs(),
+                                         descriptor );
+        return new ModelMBeanInfoSupport( info.getClassName(),
+                                          info.getDescription(),
+                                          new ModelMBeanAttributeInfo[]{limitedReads},
+                                          null,
+                                          (ModelMBeanOperationInfo[])info.getOperations(),
+                                          null );
+    }
+
+    public void testSetModelMBeanInfoRecompiles()
+        throws Exception
+    {
+        final Heart heart = new Heart();
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( heart );
+
+        final ModelMBeanInfo info = (ModelMBeanInfo)bean.getMBeanInfo();
+        final ModelMBeanAttributeInfo rate = info.getAttribute( "rate" );
+        final ModelMBeanAttributeInfo readOnlyRate =
+            new ModelMBeanAttributeInfo( "rate",
+                                         rate.getType(),
+                                         rate.getDescription(),
+                                         true,
+                                         false,
+                                         false,
+                                         rate.getDescriptor() );
+        final ModelMBeanInfo newInfo =
+            new ModelMBeanInfoSupport( info.getClassName(),
+                                       info.getDescription(),
+                                       new ModelMBeanAttributeInfo[]{readOnlyRate},
+                                       null,
+                                       (ModelMBeanOperationInfo[])info.getOperations(),
+                                       null );
+        bean.setModelMBeanInfo( newInfo );
+
+        assertEquals( "getAttribute(rate)", 60, bean.getAttribute( "rate" ) );
+        try
+        {
+            bean.setAttribute( new Attribute( "rate", 72 ) );
+            fail( "Expected to fail setting attribute made read-only" );
+        }
+        catch( final AttributeNotFoundException anfe )
+        {
+        }
+        try
+        {
+            bean.getAttribute( "reads" );
+            fail( "Expected to fail reading removed attribute" );
+        }
+        catch( final AttributeNotFoundException anfe )
+        {
+        }
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:testcase=testSetModelMBeanInfoRecompiles" );
+        server.registerMBean( bean, name );
+        try
+        {
+            bean.setModelMBeanInfo( info );
+            fail( "Expected to fail setting ModelMBeanInfo while registered" );
+        }
+        catch( final RuntimeOperationsException roe )
+        {
+        }
+        finally
+        {
+            server.unregisterMBean( name );
+        }
+    }
+
+    public void testAttributeChangeNotification()
+        throws Exception
+    {
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( new Heart() );
+        final ArrayList<Notification> notifications = new ArrayList<Notification>();
+        bean.addAttributeChangeNotificationListener( new NotificationListener()
+        {
+            public void handleNotification( final Notification notification, final Object handback )
+            {
+                notifications.add( notification );
+            }
+        }, "rate", null );
+
+        bean.setAttribute( new Attribute( "rate", 80 ) );
+
+        assertEquals( "notifications.size()", 1, notifications.size() );
+        final AttributeChangeNotification notification = (AttributeChangeNotification)notifications.get( 0 );
+        assertEquals( "notification.attributeName", "rate", notification.getAttributeName() );
+        assertEquals( "notification.oldValue", 60, notification.getOldValue() );
+        assertEquals( "notification.newValue", 80, notification.getNewValue() );
+    }
+
+    public void testRemoveAttributeChangeNotificationListenerByName()
+        throws Exception
+    {
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( new Heart() );
+        final ArrayList<Notification> notifications = new ArrayList<Notification>();
+        final NotificationListener listener = new NotificationListener()
+        {
+            public void handleNotification( final Notification notification, final Object handback )
+            {
+                notifications.add( notification );
+            }
+        };
+        bean.addAttributeChangeNotificationListener( listener, "rate", null );
+        bean.addAttributeChangeNotificationListener( listener, "reads", null );
+
+        bean.removeAttributeChangeNotificationListener( listener, "reads" );
+        bean.setAttribute( new Attribute( "rate", 80 ) );
+        assertEquals( "notifications.size() after removing other attribute", 1, notifications.size() );
+
+        try
+        {
+            bean.removeAttributeChangeNotificationListener( listener, "reads" );
+            fail( "Expected listener to be already removed" );
+        }
+        catch( final ListenerNotFoundException lnfe )
+        {
+        }
+        try
+        {
+            bean.removeAttributeChangeNotificationListener( listener, "x" );
+            fail( "Expected unknown attribute to be rejected" );
+        }
+        catch( final RuntimeOperationsException roe )
+        {
+        }
+
+        bean.removeAttributeChangeNotificationListener( listener, "rate" );
+        bean.setAttribute( new Attribute( "rate", 90 ) );
+        assertEquals( "notifications.size() after removing attribute", 1, notifications.size() );
+    }
+
+    public void testBulkFailuresLogged()
+        throws Exception
+    {
+        final ModelMBean bean = ModelMBeanFactory.createAnnotatedModelMBean( new Heart() );
+        final ArrayList<LogRecord> records = new ArrayList<LogRecord>();
+        final Handler handler = new Handler()
+        {
+            public void publish( final LogRecord record )
+            {
+                records.add( record );
+            }
+
+            public void flush()
+            {
+            }
+
+            public void close()
+            {
+            }
+        };
+        final Logger logger = Logger.getLogger( CompiledModelMBean.class.getName() );
+        final Level level = logger.getLevel();
+        logger.setLevel( Level.FINE );
+        logger.addHandler( handler );
+        try
+        {
+            bean.getAttributes( new String[]{"rate", "x"} );
+            final AttributeList list = new AttributeList();
+            list.add( new Attribute( "rate", 70 ) );
+            list.add( new Attribute( "reads", 3 ) );
+            bean.setAttributes( list );
+        }
+        finally
+        {
+            logger.removeHandler( handler );
+            logger.setLevel( level );
+        }
+
+        assertEquals( "records.size()", 2, records.size() );
+        assertTrue( "get failure", records.get( 0 ).getMessage().indexOf( "get attribute x" ) != -1 );
+        assertTrue( "get reason", records.get( 0 ).getThrown() instanceof AttributeNotFoundException );
+        assertTrue( "set failure", records.get( 1 ).getMessage().indexOf( "set attribute reads" ) != -1 );
+    }
+}
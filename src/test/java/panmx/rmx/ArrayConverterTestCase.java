@@ -1,6 +1,7 @@
 package panmx.rmx;
 
 import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.SimpleType;
 import junit.framework.TestCase;
 
@@ -172,4 +173,42 @@ public class ArrayConverterTestCase
         assertEquals( "toOpenType(null)", null, converter.toOpenType( null ) );
     }
 
+    public void testConvertingMultiDimensionalPrimitiveArray()
+        throws Exception
+    {
+        final ArrayConverter converter =
+            new ArrayConverter( double[][].class, 2, SimpleTypeConverter.DOUBLE );
+        assertEquals( "getOpenType()",
+                      new ArrayType( 2, SimpleType.DOUBLE ),
+                      converter.getOpenType() );
+
+        final double[][] javaValue = new double[][]{new double[]{1.5, 2.5}, null};
+        final Object converterJavaValue = converter.toOpenType( javaValue );
+        assertTrue( "toOpenType(...) type", converterJavaValue instanceof Double[][] );
+        final Double[][] openValue = (Double[][])converterJavaValue;
+        assertEquals( "toOpenType(...).length", 2, openValue.length );
+        assertEquals( "toOpenType(...)[0][1]", 2.5, openValue[0][1] );
+        assertEquals( "toOpenType(...)[1]", null, openValue[1] );
+        assertTrue( "isValue(toOpenType(...))", converter.getOpenType().isValue( openValue ) );
+
+        final Object convertedOpenValue = converter.toJavaType( openValue );
+        assertTrue( "toJavaType(...) type", convertedOpenValue instanceof double[][] );
+        assertEquals( "toJavaType(...)[0][0]", 1.5, ( (double[][])convertedOpenValue )[0][0] );
+        assertEquals( "toJavaType(...)[1]", null, ( (double[][])convertedOpenValue )[1] );
+    }
+
+    public void testConvertingPrimitiveArrayWithNullElement()
+        throws Exception
+    {
+        final ArrayConverter converter =
+            new ArrayConverter( long[].class, 1, SimpleTypeConverter.LONG );
+        try
+        {
+            converter.toJavaType( new Long[]{1L, null} );
+            fail( "Expected OpenDataException" );
+        }
+        catch( final OpenDataException ode )
+        {
+        }
+    }
 }
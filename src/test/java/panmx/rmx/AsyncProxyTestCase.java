@@ -0,0 +1,147 @@
+package panmx.rmx;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+
+public class AsyncProxyTestCase
+    extends TestCase
+{
+    public interface HeartRMXBean
+    {
+        int getRate();
+
+        void setRate( int rate );
+
+        int beat( int count );
+    }
+
+    public interface HeartAsync
+    {
+        Future<Integer> getRate();
+
+        Future<Void> setRate( int rate );
+
+        Future<Integer> beat( int count );
+    }
+
+    public interface BadHeartAsync
+    {
+        Future<Integer> getPressure();
+    }
+
+    public interface BlockingHeartAsync
+    {
+        int getRate();
+    }
+
+    public static class Heart
+        implements HeartRMXBean
+    {
+        volatile int m_rate = 60;
+
+        public int getRate()
+        {
+            return m_rate;
+        }
+
+        public void setRate( final int rate )
+        {
+            m_rate = rate;
+        }
+
+        public int beat( final int count )
+        {
+            if( count < 0 )
+            {
+                throw new IllegalArgumentException( "count" );
+            }
+            return count * m_rate;
+        }
+    }
+
+    private final ExecutorService m_executor = Executors.newSingleThreadExecutor();
+
+    protected void tearDown()
+        throws Exception
+    {
+        m_executor.shutdownNow();
+    }
+
+    private HeartRMXBean newProxy()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Heart" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Heart() ), name );
+        return (HeartRMXBean)RMXBeanFactory.newProxyInstance( server, name, HeartRMXBean.class );
+    }
+
+    public void testAsyncCalls()
+        throws Exception
+    {
+        final HeartRMXBean proxy = newProxy();
+        final HeartAsync async =
+            (HeartAsync)RMXBeanFactory.newAsyncProxyInstance( proxy, HeartAsync.class, m_executor );
+
+        assertEquals( "getRate()", new Integer( 60 ), async.getRate().get() );
+        assertNull( "setRate(70)", async.setRate( 70 ).get() );
+        assertEquals( "proxy.getRate()", 70, proxy.getRate() );
+        assertEquals( "beat(2)", new Integer( 140 ), async.beat( 2 ).get() );
+        assertTrue( "toString()", async.toString().contains( "rmxtest:type=Heart" ) );
+        assertTrue( "equals", async.equals( async ) );
+    }
+
+    public void testExceptionsCompleteFuture()
+        throws Exception
+    {
+        final HeartAsync async =
+            (HeartAsync)RMXBeanFactory.newAsyncProxyInstance( newProxy(), HeartAsync.class, m_executor );
+        final Future<Integer> future = async.beat( -1 );
+        try
+        {
+            future.get();
+            fail( "Expected get() to fail" );
+        }
+        catch( final ExecutionException ee )
+        {
+            assertTrue( "cause", ee.getCause() instanceof IllegalArgumentException );
+        }
+    }
+
+    public void testNonCompliantAsyncType()
+        throws Exception
+    {
+        final HeartRMXBean proxy = newProxy();
+        try
+        {
+            RMXBeanFactory.newAsyncProxyInstance( proxy, BadHeartAsync.class, m_executor );
+            fail( "Expected method without counterpart to be rejected" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.newAsyncProxyInstance( proxy, BlockingHeartAsync.class, m_executor );
+            fail( "Expected method not returning a Future to be rejected" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.newAsyncProxyInstance( new Heart(), HeartAsync.class, m_executor );
+            fail( "Expected non proxy to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package panmx.rmx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+
+public class BulkRegistrationTestCase
+    extends TestCase
+{
+    public interface KidneyRMXBean
+    {
+        int getIndex();
+    }
+
+    public static class Kidney
+        implements KidneyRMXBean
+    {
+        private final int m_index;
+
+        public Kidney( final int index )
+        {
+            m_index = index;
+        }
+
+        public int getIndex()
+        {
+            return m_index;
+        }
+    }
+
+    @MBean
+    public static class Nephron
+    {
+        private final int m_index;
+
+        public Nephron( final int index )
+        {
+            m_index = index;
+        }
+
+        @MxAttribute
+        public int getIndex()
+        {
+            return m_index;
+        }
+    }
+
+    public static class Appendix
+    {
+    }
+
+    public static class Missing
+    {
+    }
+
+    public interface GallbladderRMXBean
+    {
+        Missing getMissing();
+    }
+
+    public static class Gallbladder
+        implements GallbladderRMXBean
+    {
+        public Missing getMissing()
+        {
+            return null;
+        }
+    }
+
+    /**
+     * ClassLoader that defines its own copy of Gallbladder and its management
+     * interface but can not load Missing, so introspecting Gallbladder fails
+     * with a NoClassDefFoundError.
+     */
+    static class BrokenClassLoader
+        extends ClassLoader
+    {
+        BrokenClassLoader()
+        {
+            super( Gallbladder.class.getClassLoader() );
+        }
+
+        protected synchronized Class<?> loadClass( final String name, final boolean resolve )
+            throws ClassNotFoundException
+        {
+            if( name.equals( Missing.class.getName() ) )
+            {
+                throw new ClassNotFoundException( name );
+            }
+            if( !name.startsWith( Gallbladder.class.getName() ) )
+            {
+                return super.loadClass( name, resolve );
+            }
+            Class<?> type = findLoadedClass( name );
+            if( null == type )
+            {
+                final byte[] bytes = readClass( name );
+                type = defineClass( name, bytes, 0, bytes.length );
+            }
+            if( resolve )
+            {
+                resolveClass( type );
+            }
+            return type;
+        }
+
+        private byte[] readClass( final String name )
+            throws ClassNotFoundException
+        {
+            final String resource = name.replace( '.', '/' ) + ".class";
+            final InputStream input = getParent().getResourceAsStream( resource );
+            if( null == input )
+            {
+                throw new ClassNotFoundException( name );
+            }
+            try
+            {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int count;
+                while( -1 != ( count = input.read( buffer ) ) )
+                {
+                    output.write( buffer, 0, count );
+                }
+                input.close();
+                return output.toByteArray();
+            }
+            catch( final Exception e )
+            {
+                final ClassNotFoundException exception = new ClassNotFoundException( name );
+                exception.initCause( e );
+                throw exception;
+            }
+        }
+    }
+
+    private MBeanServer m_server;
+    private ExecutorService m_executor;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_server = MBeanServerFactory.newMBeanServer();
+        m_executor = Executors.newFixedThreadPool( 4 );
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        m_executor.shutdownNow();
+    }
+
+    public void testRegisterAll()
+        throws Exception
+    {
+        final LinkedHashMap<ObjectName, Object> objects = new LinkedHashMap<ObjectName, Object>();
+        for( int i = 0; i < 1000; i++ )
+        {
+            final Object object = ( 0 == i % 2 ) ? new Kidney( i ) : new Nephron( i );
+            objects.put( new ObjectName( "bulk:type=Organ,index=" + i ), object );
+        }
+
+        final Map<ObjectName, Exception> failures = RMXBeanFactory.registerAll( m_server, objects, m_executor );
+        assertTrue( "failures: " + failures, failures.isEmpty() );
+        assertEquals( "registered", 1000, m_server.queryNames( new ObjectName( "bulk:*" ), null ).size() );
+        assertEquals( "Kidney index", 10, m_server.getAttribute( new ObjectName( "bulk:type=Organ,index=10" ), "index" ) );
+        assertEquals( "Nephron index", 11, m_server.getAttribute( new ObjectName( "bulk:type=Organ,index=11" ), "index" ) );
+    }
+
+    public void testFailuresReportedPerBean()
+        throws Exception
+    {
+        final ObjectName existing = new ObjectName( "bulk:name=existing" );
+        m_server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Kidney( 0 ) ), existing );
+
+        final LinkedHashMap<ObjectName, Object> objects = new LinkedHashMap<ObjectName, Object>();
+        objects.put( new ObjectName( "bulk:name=appendix1" ), new Appendix() );
+        objects.put( new ObjectName( "bulk:name=kidney" ), new Kidney( 1 ) );
+        objects.put( existing, new Kidney( 2 ) );
+        objects.put( new ObjectName( "bulk:name=appendix2" ), new Appendix() );
+        objects.put( new ObjectName( "bulk:name=missing" ), null );
+
+        final Map<ObjectName, Exception> failures = RMXBeanFactory.registerAll( m_server, objects, null );
+        assertEquals( "failures", 4, failures.size() );
+        final Iterator<Map.Entry<ObjectName, Exception>> iterator = failures.entrySet().iterator();
+        Map.Entry<ObjectName, Exception> failure = iterator.next();
+        assertEquals( "appendix1", "appendix1", failure.getKey().getKeyProperty( "name" ) );
+        assertTrue( "appendix1 exception", failure.getValue() instanceof NotCompliantMBeanException );
+        failure = iterator.next();
+        assertEquals( "existing", existing, failure.getKey() );
+        assertTrue( "existing exception", failure.getValue() instanceof InstanceAlreadyExistsException );
+        failure = iterator.next();
+        assertEquals( "appendix2", "appendix2", failure.getKey().getKeyProperty( "name" ) );
+        assertTrue( "appendix2 exception", failure.getValue() instanceof NotCompliantMBeanException );
+        failure = iterator.next();
+        assertTrue( "missing exception", failure.getValue() instanceof NullPointerException );
+
+        assertTrue( "kidney registered", m_server.isRegistered( new ObjectName( "bulk:name=kidney" ) ) );
+    }
+
+    public void testIntrospectionErrorReportedPerBean()
+        throws Exception
+    {
+        final Class<?> type = new BrokenClassLoader().loadClass( Gallbladder.class.getName() );
+        final LinkedHashMap<ObjectName, Object> objects = new LinkedHashMap<ObjectName, Object>();
+        objects.put( new ObjectName( "bulk:name=gallbladder1" ), type.newInstance() );
+        objects.put( new ObjectName( "bulk:name=kidney" ), new Kidney( 1 ) );
+        objects.put( new ObjectName( "bulk:name=gallbladder2" ), type.newInstance() );
+
+        for( final ExecutorService executor : new ExecutorService[]{null, m_executor} )
+        {
+            final Map<ObjectName, Exception> failures = RMXBeanFactory.registerAll( m_server, objects, executor );
+            assertEquals( "failures", 2, failures.size() );
+            final Exception gallbladder = failures.get( new ObjectName( "bulk:name=gallbladder1" ) );
+            assertTrue( "gallbladder1 exception: " + gallbladder, gallbladder instanceof NotCompliantMBeanException );
+            assertTrue( "gallbladder1 cause", gallbladder.getCause() instanceof LinkageError );
+            assertSame( "gallbladder2 exception",
+                        gallbladder,
+                        failures.get( new ObjectName( "bulk:name=gallbladder2" ) ) );
+            assertTrue( "kidney registered", m_server.isRegistered( new ObjectName( "bulk:name=kidney" ) ) );
+            assertFalse( "gallbladder1 registered", m_server.isRegistered( new ObjectName( "bulk:name=gallbladder1" ) ) );
+            m_server.unregisterMBean( new ObjectName( "bulk:name=kidney" ) );
+        }
+    }
+
+    public void testUnregisterAll()
+        throws Exception
+    {
+        final LinkedHashMap<ObjectName, Object> objects = new LinkedHashMap<ObjectName, Object>();
+        for( int i = 0; i < 600; i++ )
+        {
+            final String type = ( i < 500 ) ? "Kidney" : "Spare";
+            objects.put( new ObjectName( "bulk:type=" + type + ",index=" + i ), new Kidney( i ) );
+        }
+        assertTrue( "registered", RMXBeanFactory.registerAll( m_server, objects, m_executor ).isEmpty() );
+
+        final Map<ObjectName, Exception> failures =
+            RMXBeanFactory.unregisterAll( m_server, new ObjectName( "bulk:type=Kidney,*" ), m_executor );
+        assertTrue( "failures: " + failures, failures.isEmpty() );
+        assertEquals( "Kidney", 0, m_server.queryNames( new ObjectName( "bulk:type=Kidney,*" ), null ).size() );
+        assertEquals( "Spare", 100, m_server.queryNames( new ObjectName( "bulk:type=Spare,*" ), null ).size() );
+        assertTrue( "no matches",
+                    RMXBeanFactory.unregisterAll( m_server, new ObjectName( "bulk:type=Kidney,*" ), null ).isEmpty() );
+    }
+}
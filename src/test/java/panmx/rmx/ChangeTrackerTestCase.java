@@ -0,0 +1,193 @@
+package panmx.rmx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+
+public class ChangeTrackerTestCase
+    extends TestCase
+{
+    public interface KidneyRMXBean
+    {
+        int getFiltrationRate();
+
+        void setFiltrationRate( int filtrationRate );
+
+        List<String> getStones();
+
+        long getVolume();
+    }
+
+    public static class Kidney
+        implements KidneyRMXBean, ChangeTracked
+    {
+        private ChangeTracker m_tracker;
+        private int m_filtrationRate = 90;
+        private List<String> m_stones = Arrays.asList( "small" );
+        private long m_volume = 150;
+
+        public void setChangeTracker( final ChangeTracker tracker )
+        {
+            m_tracker = tracker;
+            tracker.compareWhenSampled( "volume" );
+        }
+
+        public int getFiltrationRate()
+        {
+            return m_filtrationRate;
+        }
+
+        public void setFiltrationRate( final int filtrationRate )
+        {
+            m_filtrationRate = filtrationRate;
+        }
+
+        public List<String> getStones()
+        {
+            return m_stones;
+        }
+
+        public void addStone( final String stone )
+        {
+            m_stones = Arrays.asList( m_stones.get( 0 ), stone );
+            m_tracker.markChanged( "stones" );
+        }
+
+        public long getVolume()
+        {
+            return m_volume;
+        }
+    }
+
+    public void testChangesSince()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Kidney" );
+        final Kidney kidney = new Kidney();
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( kidney ), name );
+        final KidneyRMXBean proxy =
+            (KidneyRMXBean)RMXBeanFactory.newProxyInstance( server, name, KidneyRMXBean.class );
+
+        final MBeanOperationInfo[] operations = server.getMBeanInfo( name ).getOperations();
+        assertEquals( "operations.length", 1, operations.length );
+        assertEquals( "operations[0].name", "getAttributesChangedSince", operations[0].getName() );
+
+        final RMXChanges all = RMXBeanFactory.getChangesSince( proxy, 0 );
+        final Map<String, Object> values = all.getValues();
+        assertEquals( "values.size()", 3, values.size() );
+        assertEquals( "filtrationRate", 90, values.get( "filtrationRate" ) );
+        assertEquals( "stones", Arrays.asList( "small" ), values.get( "stones" ) );
+        assertEquals( "volume", 150L, values.get( "volume" ) );
+
+        final RMXChanges none = RMXBeanFactory.getChangesSince( proxy, all.getVersion() );
+        assertEquals( "none.getValues().size()", 0, none.getValues().size() );
+        assertEquals( "none.getVersion()", all.getVersion(), none.getVersion() );
+
+        proxy.setFiltrationRate( 60 );
+        final RMXChanges written = RMXBeanFactory.getChangesSince( proxy, none.getVersion() );
+        assertEquals( "written.getValues()", 1, written.getValues().size() );
+        assertEquals( "filtrationRate", 60, written.getValues().get( "filtrationRate" ) );
+        assertTrue( "written.getVersion() > none.getVersion()", written.getVersion() > none.getVersion() );
+
+        server.setAttributes( name, new AttributeList( Arrays.asList(
+            new Attribute( "filtrationRate", 70 ) ) ) );
+        kidney.addStone( "large" );
+        kidney.m_volume = 140;
+        final RMXChanges changes = RMXBeanFactory.getChangesSince( proxy, written.getVersion() );
+        assertEquals( "changes.getValues().size()", 3, changes.getValues().size() );
+        assertEquals( "filtrationRate", 70, changes.getValues().get( "filtrationRate" ) );
+        assertEquals( "stones", Arrays.asList( "small", "large" ), changes.getValues().get( "stones" ) );
+        assertEquals( "volume", 140L, changes.getValues().get( "volume" ) );
+
+        assertEquals( "final poll", 0, RMXBeanFactory.getChangesSince( proxy, changes.getVersion() ).getValues().size() );
+    }
+
+    public void testMarkChangedRejectsUnknownAttribute()
+    {
+        final ChangeTracker tracker = new ChangeTracker( Collections.singleton( "volume" ) );
+        try
+        {
+            tracker.markChanged( "pressure" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        final long version = tracker.getVersion();
+        tracker.markAllChanged();
+        assertEquals( "getVersion()", version + 1, tracker.getVersion() );
+        assertEquals( "getVersion( volume )", version + 1, tracker.getVersion( "volume" ) );
+    }
+
+    public void testConcurrentChangesAreNotLost()
+        throws Exception
+    {
+        final ChangeTracker tracker =
+            new ChangeTracker( new HashSet<String>( Arrays.asList( "left", "right" ) ) );
+        final Thread[] writers = new Thread[2];
+        for( int i = 0; i < writers.length; i++ )
+        {
+            final String attribute = ( 0 == i ) ? "left" : "right";
+            writers[ i ] = new Thread()
+            {
+                public void run()
+                {
+                    for( int j = 0; j < 500000; j++ )
+                    {
+                        tracker.markChanged( attribute );
+                    }
+                }
+            };
+            writers[ i ].start();
+        }
+
+        // A change is lost if an attribute is stamped with a version no greater
+        // than a version already returned by a poll that did not report it.
+        Map<String, Long> previous = new HashMap<String, Long>();
+        long since = tracker.snapshot( previous );
+        while( writers[ 0 ].isAlive() || writers[ 1 ].isAlive() )
+        {
+            final Map<String, Long> versions = new HashMap<String, Long>();
+            final long version = tracker.snapshot( versions );
+            for( final Map.Entry<String, Long> entry : versions.entrySet() )
+            {
+                final long attributeVersion = entry.getValue();
+                assertTrue( "version of " + entry.getKey() + " <= latest", attributeVersion <= version );
+                if( attributeVersion != previous.get( entry.getKey() ) )
+                {
+                    assertTrue( "change to " + entry.getKey() + " lost", attributeVersion > since );
+                }
+            }
+            previous = versions;
+            since = version;
+        }
+        for( final Thread writer : writers )
+        {
+            writer.join();
+        }
+    }
+
+    public void testUntrackedBeanHasNoChangesOperation()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Liver" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new RMXBeanInvocationHandlerTestCase.Liver() ), name );
+        final MBeanOperationInfo[] operations = server.getMBeanInfo( name ).getOperations();
+        for( final MBeanOperationInfo operation : operations )
+        {
+            assertFalse( "operation.name", "getAttributesChangedSince".equals( operation.getName() ) );
+        }
+    }
+}
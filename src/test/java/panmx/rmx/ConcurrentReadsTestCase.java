@@ -0,0 +1,181 @@
+package panmx.rmx;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+import panmx.annotations.MxAttribute;
+
+public class ConcurrentReadsTestCase
+    extends TestCase
+{
+    public interface LungRMXBean
+    {
+        int getLeft();
+
+        int getRight();
+
+        @MxAttribute( readTimeout = 100 )
+        int getBlocked();
+
+        @MxAttribute( readTimeout = 100, currencyTimeLimit = 1 )
+        int getCapacity();
+
+        int getBroken();
+    }
+
+    public static class Lung
+        implements LungRMXBean
+    {
+        final CountDownLatch m_release = new CountDownLatch( 1 );
+        volatile boolean m_blockCapacity;
+        int m_blockedReads;
+
+        public int getLeft()
+        {
+            pause( 300 );
+            return 1;
+        }
+
+        public int getRight()
+        {
+            pause( 300 );
+            return 2;
+        }
+
+        public int getBlocked()
+        {
+            synchronized( this )
+            {
+                m_blockedReads++;
+            }
+            await();
+            return 3;
+        }
+
+        public int getCapacity()
+        {
+            if( m_blockCapacity )
+            {
+                await();
+            }
+            return 4;
+        }
+
+        public int getBroken()
+        {
+            throw new IllegalStateException( "broken" );
+        }
+
+        private void await()
+        {
+            try
+            {
+                m_release.await();
+            }
+            catch( final InterruptedException ie )
+            {
+                throw new IllegalStateException( ie );
+            }
+        }
+
+        private static void pause( final long millis )
+        {
+            try
+            {
+                Thread.sleep( millis );
+            }
+            catch( final InterruptedException ie )
+            {
+                throw new IllegalStateException( ie );
+            }
+        }
+    }
+
+    private final ExecutorService m_executor = Executors.newCachedThreadPool();
+
+    protected void tearDown()
+        throws Exception
+    {
+        ConcurrentReads.disable();
+        m_executor.shutdownNow();
+    }
+
+    public void testAccessorsReadConcurrently()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Lung" );
+        final Lung lung = new Lung();
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( lung ), name );
+        ConcurrentReads.enable( m_executor, 5, TimeUnit.SECONDS );
+        assertTrue( "isEnabled()", ConcurrentReads.isEnabled() );
+
+        final String[] names = new String[]{"left", "right", "blocked", "broken", "missing"};
+        final long start = System.nanoTime();
+        final AttributeList list = server.getAttributes( name, names );
+        final long duration = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        assertTrue( "duration " + duration + " < 550", duration < 550 );
+        assertEquals( "list.size()", 2, list.size() );
+        assertEquals( "left", new Attribute( "left", 1 ), list.get( 0 ) );
+        assertEquals( "right", new Attribute( "right", 2 ), list.get( 1 ) );
+
+        // The blocked accessor is still running so it is not invoked again
+        server.getAttributes( name, new String[]{"blocked", "left"} );
+        synchronized( lung )
+        {
+            assertEquals( "blockedReads", 1, lung.m_blockedReads );
+        }
+        lung.m_release.countDown();
+    }
+
+    public void testStaleValueReturnedOnTimeout()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Lung" );
+        final Lung lung = new Lung();
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( lung ), name );
+        assertEquals( "capacity", 4, server.getAttribute( name, "capacity" ) );
+
+        ConcurrentReads.enable( m_executor, 5, TimeUnit.SECONDS );
+        lung.m_blockCapacity = true;
+        Thread.sleep( 1100 );
+        final AttributeList list = server.getAttributes( name, new String[]{"capacity", "blocked"} );
+        assertEquals( "list.size()", 1, list.size() );
+        assertEquals( "capacity", new Attribute( "capacity", 4 ), list.get( 0 ) );
+        lung.m_release.countDown();
+    }
+
+    public void testDisabledReadsSequentially()
+        throws Exception
+    {
+        final Lung lung = new Lung();
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Lung" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( lung ), name );
+        ConcurrentReads.enable( ConcurrentReads.newExecutor( 1 ), 5, TimeUnit.SECONDS );
+        ConcurrentReads.disable();
+        final long start = System.nanoTime();
+        server.getAttributes( name, new String[]{"left", "right"} );
+        final long duration = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        assertTrue( "duration " + duration + " >= 590", duration >= 590 );
+    }
+
+    public void testNewExecutorRunsRejectedReadsInCaller()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Lung" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Lung() ), name );
+        ConcurrentReads.enable( ConcurrentReads.newExecutor( 1 ), 5, TimeUnit.SECONDS );
+        final AttributeList list = server.getAttributes( name, new String[]{"left", "right"} );
+        assertEquals( "list.size()", 2, list.size() );
+    }
+}
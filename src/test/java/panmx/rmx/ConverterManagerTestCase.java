@@ -1,6 +1,9 @@
 package panmx.rmx;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +46,20 @@ public class ConverterManagerTestCase
         assertEquals( "converter.getOpenType()", SimpleType.STRING, converter.getOpenType() );
     }
 
+    public void testGetPrimitiveArrayConverter()
+        throws Exception
+    {
+        final Converter converter = ConverterManager.getConverterFor( long[].class );
+        assertTrue( "converter.class", converter instanceof ArrayConverter );
+        assertEquals( "converter.getJavaType()", long[].class, converter.getJavaType() );
+        assertEquals( "converter.getOpenType()", new ArrayType( 1, SimpleType.LONG ), converter.getOpenType() );
+        final Object openValue = converter.toOpenType( new long[]{1, 2} );
+        assertTrue( "isValue(toOpenType(...))", converter.getOpenType().isValue( openValue ) );
+
+        final Converter wrapperConverter = ConverterManager.getConverterFor( Long[].class );
+        assertTrue( "wrapperConverter.class", wrapperConverter instanceof SimpleTypeConverter );
+    }
+
     static enum MyEnum2
     {
         A, B, C;
@@ -159,4 +176,134 @@ public class ConverterManagerTestCase
       assertTrue( "converter.class", converter instanceof TabularDataConverter );
       assertEquals( "converter.getJavaType()", Magic[].class, converter.getJavaType() );
    }
+
+   static class Node
+   {
+      private String m_name;
+      private Node m_next;
+
+      public String getName()
+      {
+         return m_name;
+      }
+
+      public void setName( final String name )
+      {
+         m_name = name;
+      }
+
+      public Node getNext()
+      {
+         return m_next;
+      }
+
+      public void setNext( final Node next )
+      {
+         m_next = next;
+      }
+   }
+
+   public void testRecursiveTypeConverter()
+      throws Exception
+   {
+      final Converter converter = ConverterManager.getConverterFor( Node.class );
+      assertTrue( "converter.class", converter instanceof RMXCompositeTypeConverter );
+      final CompositeType type = (CompositeType)converter.getOpenType();
+      assertTrue( "type.containsKey(name)", type.containsKey( "name" ) );
+      assertFalse( "type.containsKey(next)", type.containsKey( "next" ) );
+      assertSame( "re-getConverterFor(Node.class)",
+                  converter,
+                  ConverterManager.getConverterFor( Node.class ) );
+   }
+
+   static class Heart
+   {
+      private int m_rate;
+      private Lung m_lung;
+
+      public int getRate()
+      {
+         return m_rate;
+      }
+
+      public void setRate( final int rate )
+      {
+         m_rate = rate;
+      }
+
+      public Lung getLung()
+      {
+         return m_lung;
+      }
+
+      public void setLung( final Lung lung )
+      {
+         m_lung = lung;
+      }
+   }
+
+   static class Lung
+   {
+      private int m_rate;
+      private Heart m_heart;
+
+      public int getRate()
+      {
+         return m_rate;
+      }
+
+      public void setRate( final int rate )
+      {
+         m_rate = rate;
+      }
+
+      public Heart getHeart()
+      {
+         return m_heart;
+      }
+
+      public void setHeart( final Heart heart )
+      {
+         m_heart = heart;
+      }
+   }
+
+   public void testMutuallyRecursiveConvertersSurviveCollection()
+      throws Exception
+   {
+      //Heart is converted first so Lung leaves out its heart
+      final WeakReference<Converter> heart =
+         new WeakReference<Converter>( ConverterManager.getConverterFor( Heart.class ) );
+      for( int i = 0; i < 5; i++ )
+      {
+         System.gc();
+      }
+      assertNotNull( "heart converter collected", heart.get() );
+      final CompositeType lungType = (CompositeType)ConverterManager.getConverterFor( Lung.class ).getOpenType();
+      assertFalse( "lungType.containsKey(heart)", lungType.containsKey( "heart" ) );
+      assertSame( "re-getConverterFor(Heart.class)", heart.get(), ConverterManager.getConverterFor( Heart.class ) );
+   }
+
+   public void testIsPinned()
+      throws Exception
+   {
+      final Method method =
+         ConverterManagerTestCase.class.getMethod( "myParametizedMapMethod", new Class[0] );
+      assertTrue( "isPinned(String)", ConverterManager.isPinned( String.class ) );
+      assertTrue( "isPinned(Node)", ConverterManager.isPinned( Node.class ) );
+      assertTrue( "isPinned(Map<String,Integer>)", ConverterManager.isPinned( method.getGenericReturnType() ) );
+
+      final ClassLoader classLoader = new ClassLoader( getClass().getClassLoader() )
+      {
+      };
+      final Class<?> proxyClass =
+         Proxy.newProxyInstance( classLoader, new Class[]{Runnable.class}, new InvocationHandler()
+         {
+            public Object invoke( final Object proxy, final Method method, final Object[] args )
+            {
+               return null;
+            }
+         } ).getClass();
+      assertFalse( "isPinned(proxyClass)", ConverterManager.isPinned( proxyClass ) );
+   }
 }
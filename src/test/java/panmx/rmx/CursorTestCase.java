@@ -0,0 +1,262 @@
+package panmx.rmx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.MBeanException;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.OpenMBeanOperationInfo;
+import junit.framework.TestCase;
+import panmx.annotations.MxPageable;
+
+public class CursorTestCase
+    extends TestCase
+{
+    public interface LedgerRMXBean
+    {
+        @MxPageable( pageSize = 3 )
+        List<String> getEntries();
+
+        @MxPageable( pageSize = 2 )
+        long[] getTotals();
+
+        @MxPageable( pageSize = 4 )
+        Map<String, Integer> balances( int count );
+
+        @MxPageable( pageSize = 2, cursorTimeout = 0 )
+        String[] getJournal();
+
+        int getSize();
+    }
+
+    public interface BadLedgerRMXBean
+    {
+        @MxPageable
+        int getSize();
+    }
+
+    public static class Ledger
+        implements LedgerRMXBean
+    {
+        public List<String> getEntries()
+        {
+            final ArrayList<String> entries = new ArrayList<String>();
+            for( int i = 0; i < 10; i++ )
+            {
+                entries.add( "entry" + i );
+            }
+            return entries;
+        }
+
+        public long[] getTotals()
+        {
+            return new long[]{1, 2, 3};
+        }
+
+        public Map<String, Integer> balances( final int count )
+        {
+            final HashMap<String, Integer> balances = new HashMap<String, Integer>();
+            for( int i = 0; i < count; i++ )
+            {
+                balances.put( "account" + i, i );
+            }
+            return balances;
+        }
+
+        public String[] getJournal()
+        {
+            return new String[]{"opened", "audited", "closed"};
+        }
+
+        public int getSize()
+        {
+            return 10;
+        }
+    }
+
+    public static class LiveLedger
+        extends Ledger
+    {
+        private final List<String> m_entries = super.getEntries();
+
+        public List<String> getEntries()
+        {
+            return m_entries;
+        }
+    }
+
+    public static class BadLedger
+        implements BadLedgerRMXBean
+    {
+        public int getSize()
+        {
+            return 0;
+        }
+    }
+
+    private MBeanServer m_server;
+    private ObjectName m_name;
+    private LedgerRMXBean m_proxy;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_server = MBeanServerFactory.newMBeanServer();
+        m_name = new ObjectName( "rmxtest:type=Ledger" );
+        m_server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Ledger() ), m_name );
+        m_proxy = (LedgerRMXBean)RMXBeanFactory.newProxyInstance( m_server, m_name, LedgerRMXBean.class );
+    }
+
+    public void testIterateAttribute()
+        throws Exception
+    {
+        final RMXCursor cursor = RMXBeanFactory.openCursor( m_proxy, "entries" );
+        final ArrayList<Object> entries = new ArrayList<Object>();
+        while( cursor.hasNext() )
+        {
+            entries.add( cursor.next() );
+        }
+        assertEquals( "entries", m_proxy.getEntries(), entries );
+
+        final RMXCursor totals = RMXBeanFactory.openCursor( m_proxy, "totals" );
+        assertEquals( "totals[0]", 1L, totals.next() );
+        assertEquals( "totals[1]", 2L, totals.next() );
+        assertEquals( "totals[2]", 3L, totals.next() );
+        assertFalse( "totals.hasNext()", totals.hasNext() );
+    }
+
+    public void testIterateOperation()
+        throws Exception
+    {
+        final RMXCursor cursor = RMXBeanFactory.openCursor( m_proxy, "balances", 10 );
+        final HashMap<Object, Object> balances = new HashMap<Object, Object>();
+        while( cursor.hasNext() )
+        {
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>)cursor.next();
+            balances.put( entry.getKey(), entry.getValue() );
+        }
+        assertEquals( "balances", m_proxy.balances( 10 ), balances );
+    }
+
+    public void testPagesFetchedFromServer()
+        throws Exception
+    {
+        final CompositeData first =
+            (CompositeData)m_server.invoke( m_name, "openEntriesCursor", new Object[]{4}, new String[]{"int"} );
+        final long id = (Long)first.get( "cursor" );
+        assertTrue( "cursor", 0 != id );
+        assertEquals( "first.values", 4, ( (String[])first.get( "values" ) ).length );
+
+        final CompositeData last =
+            (CompositeData)m_server.invoke( m_name,
+                                            "fetchEntriesCursor",
+                                            new Object[]{id, 10},
+                                            new String[]{"long", "int"} );
+        assertEquals( "last.cursor", 0L, last.get( "cursor" ) );
+        assertEquals( "last.values", 6, ( (String[])last.get( "values" ) ).length );
+        try
+        {
+            m_server.invoke( m_name, "fetchEntriesCursor", new Object[]{id, 0}, new String[]{"long", "int"} );
+            fail( "Expected exhausted cursor to be closed" );
+        }
+        catch( final MBeanException mbe )
+        {
+        }
+
+        final MBeanOperationInfo[] operations = m_server.getMBeanInfo( m_name ).getOperations();
+        int cursorOperations = 0;
+        for( final MBeanOperationInfo operation : operations )
+        {
+            if( operation.getName().endsWith( "Cursor" ) )
+            {
+                assertTrue( "open info", operation instanceof OpenMBeanOperationInfo );
+                cursorOperations++;
+            }
+        }
+        assertEquals( "cursor operations", 9, cursorOperations );
+    }
+
+    public void testValueModifiedWhilePaged()
+        throws Exception
+    {
+        final LiveLedger ledger = new LiveLedger();
+        final ObjectName name = new ObjectName( "rmxtest:type=LiveLedger" );
+        m_server.registerMBean( RMXBeanFactory.createStandardRMXBean( ledger, LedgerRMXBean.class ), name );
+
+        final CompositeData first =
+            (CompositeData)m_server.invoke( name, "openEntriesCursor", new Object[]{4}, new String[]{"int"} );
+        final long id = (Long)first.get( "cursor" );
+        ledger.getEntries().remove( 0 );
+        ledger.getEntries().add( "entry10" );
+
+        final CompositeData last =
+            (CompositeData)m_server.invoke( name,
+                                            "fetchEntriesCursor",
+                                            new Object[]{id, 10},
+                                            new String[]{"long", "int"} );
+        assertEquals( "last.cursor", 0L, last.get( "cursor" ) );
+        final String[] values = (String[])last.get( "values" );
+        assertEquals( "last.values.length", 6, values.length );
+        assertEquals( "last.values[0]", "entry4", values[ 0 ] );
+        assertEquals( "last.values[5]", "entry9", values[ 5 ] );
+    }
+
+    public void testCloseAndExpiry()
+        throws Exception
+    {
+        final RMXCursor cursor = RMXBeanFactory.openCursor( m_proxy, "entries" );
+        assertEquals( "next()", "entry0", cursor.next() );
+        cursor.close();
+        assertEquals( "next() of current page", "entry1", cursor.next() );
+        assertEquals( "next() of current page", "entry2", cursor.next() );
+        assertFalse( "hasNext() after close", cursor.hasNext() );
+
+        final RMXCursor expired = RMXBeanFactory.openCursor( m_proxy, "journal" );
+        assertEquals( "next()", "opened", expired.next() );
+        assertEquals( "next()", "audited", expired.next() );
+        Thread.sleep( 5 );
+        try
+        {
+            expired.hasNext();
+            fail( "Expected expired cursor to fail" );
+        }
+        catch( final IllegalStateException ise )
+        {
+        }
+    }
+
+    public void testInvalidCursors()
+        throws Exception
+    {
+        try
+        {
+            RMXBeanFactory.openCursor( m_proxy, "size" );
+            fail( "Expected member that is not pageable to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.openCursor( m_proxy, "balances" );
+            fail( "Expected missing parameter to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.createStandardRMXBean( new BadLedger() );
+            fail( "Expected pageable int to be rejected" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package panmx.rmx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.DynamicMBean;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.openmbean.OpenMBeanInfoSupport;
+import junit.framework.TestCase;
+
+public class LazyIntrospectionTestCase
+    extends TestCase
+{
+    public interface SpleenRMXBean
+    {
+        int getSize();
+
+        List<String> getCells();
+
+        String filter( int volume );
+    }
+
+    public static class Spleen
+        implements SpleenRMXBean
+    {
+        public int getSize()
+        {
+            return 12;
+        }
+
+        public List<String> getCells()
+        {
+            return Arrays.asList( "red", "white" );
+        }
+
+        public String filter( final int volume )
+        {
+            return "filtered " + volume;
+        }
+    }
+
+    public interface AppendixRMXBean
+    {
+        int getLength();
+
+        List<?> getContents();
+    }
+
+    public static class Appendix
+        implements AppendixRMXBean
+    {
+        public int getLength()
+        {
+            return 9;
+        }
+
+        public List<?> getContents()
+        {
+            return null;
+        }
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        LazyIntrospection.disable();
+    }
+
+    public void testLazyTypeBehavesAsEagerType()
+        throws Exception
+    {
+        final DynamicMBean eager = (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new Spleen() );
+        LazyIntrospection.enable();
+        assertTrue( "isEnabled()", LazyIntrospection.isEnabled() );
+        final DynamicMBean lazy = (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new Spleen() );
+
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Spleen" );
+        server.registerMBean( lazy, name );
+        assertEquals( "size", 12, server.getAttribute( name, "size" ) );
+        assertTrue( "cells",
+                    Arrays.equals( new String[]{"red", "white"}, (Object[])server.getAttribute( name, "cells" ) ) );
+        assertEquals( "filter",
+                      "filtered 3",
+                      server.invoke( name, "filter", new Object[]{3}, new String[]{"int"} ) );
+
+        final MBeanInfo info = server.getMBeanInfo( name );
+        assertEquals( "info", eager.getMBeanInfo(), info );
+        assertEquals( "info.hashCode()", eager.getMBeanInfo().hashCode(), info.hashCode() );
+        RMXBeanFactory.validate( lazy );
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( info );
+        output.close();
+        final Object copy =
+            new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( "copy.getClass()", OpenMBeanInfoSupport.class, copy.getClass() );
+        assertEquals( "copy", eager.getMBeanInfo(), copy );
+    }
+
+    public void testNonCompliantTypeReportedOnValidate()
+        throws Exception
+    {
+        String message = null;
+        try
+        {
+            RMXBeanFactory.createStandardRMXBean( new Appendix() );
+            fail( "Expected non-compliant type to be rejected" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+            message = ncme.getMessage();
+        }
+
+        LazyIntrospection.enable();
+        final DynamicMBean bean = (DynamicMBean)RMXBeanFactory.createStandardRMXBean( new Appendix() );
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Appendix" );
+        server.registerMBean( bean, name );
+        assertEquals( "length", 9, server.getAttribute( name, "length" ) );
+        try
+        {
+            bean.getAttribute( "contents" );
+            fail( "Expected non-compliant attribute to fail" );
+        }
+        catch( final MBeanException me )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.validate( bean );
+            fail( "Expected validate to fail" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+            assertEquals( "message", message, ncme.getMessage() );
+        }
+    }
+
+    public void testValidateProxy()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        LazyIntrospection.enable();
+        final Object proxy =
+            RMXBeanFactory.newProxyInstance( server, new ObjectName( "rmxtest:type=Appendix" ), AppendixRMXBean.class );
+        try
+        {
+            RMXBeanFactory.validate( proxy );
+            fail( "Expected validate to fail" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+        }
+        try
+        {
+            RMXBeanFactory.validate( new Appendix() );
+            fail( "Expected validate to reject object that is not a RMXBean" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+    }
+}
@@ -2,11 +2,13 @@ package panmx.rmx;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.KeyAlreadyExistsException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
 import javax.management.openmbean.TabularData;
@@ -60,7 +62,7 @@ public class MapConverterTestCase
         javaValue.put( "anger", 50 );
         final Object convertedJavaValue = converter.toOpenType( javaValue );
 
-        assertEquals( "toOpenType().class", TabularDataSupport.class, convertedJavaValue.getClass() );
+        assertEquals( "toOpenType().class", RMXTabularData.class, convertedJavaValue.getClass() );
         assertEquals( "toOpenType().size()", 1, ( (TabularData)convertedJavaValue ).size() );
         final CompositeData resultCompositeData =
             ( (TabularData)convertedJavaValue ).get( new Object[]{"anger"} );
@@ -68,4 +70,49 @@ public class MapConverterTestCase
         assertEquals( "toOpenType().get(anger).key", "anger", resultCompositeData.get("key") );
         assertEquals( "toOpenType().get(anger).value", 50, resultCompositeData.get("value") );
     }
+
+    public void testKeysThatConvertToSameOpenValue()
+        throws Exception
+    {
+        final Method method =
+            MapConverterTestCase.class.getMethod( "myMapMethod", new Class[0] );
+        final ParameterizedType type = (ParameterizedType)method.getGenericReturnType();
+
+        //Converts keys that differ only in case to the same open value
+        final Converter keyConverter = new Converter()
+        {
+            public Type getJavaType()
+            {
+                return String.class;
+            }
+
+            public OpenType getOpenType()
+            {
+                return SimpleType.STRING;
+            }
+
+            public Object toOpenType( final Object object )
+            {
+                return ( (String)object ).toLowerCase();
+            }
+
+            public Object toJavaType( final Object object )
+            {
+                return object;
+            }
+        };
+        final MapConverter converter = new MapConverter( type, keyConverter, SimpleTypeConverter.INTEGER );
+
+        final Map<String, Integer> javaValue = new HashMap<String, Integer>();
+        javaValue.put( "anger", 50 );
+        javaValue.put( "ANGER", 60 );
+        try
+        {
+            converter.toOpenType( javaValue );
+            fail( "Expected toOpenType to fail as keys convert to the same open value" );
+        }
+        catch( final KeyAlreadyExistsException kaee )
+        {
+        }
+    }
 }
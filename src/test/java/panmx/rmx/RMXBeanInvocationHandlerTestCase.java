@@ -1,6 +1,10 @@
 package panmx.rmx;
 
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import junit.framework.TestCase;
@@ -97,6 +101,11 @@ public class RMXBeanInvocationHandlerTestCase
         void clean();
     }
 
+    static interface ToxicityRMXBean
+    {
+        float getToxicity();
+    }
+
     public void testBasicInterfaceConstruction()
         throws Exception
     {
@@ -150,4 +159,144 @@ public class RMXBeanInvocationHandlerTestCase
                       true, mx.isChemicalCulprit( water ) );
 
     }
+
+    public void testProxyTypeIsShared()
+        throws Exception
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name1 = new ObjectName( "rmxtest:testcase=testProxyTypeIsShared,id=1" );
+        final ObjectName name2 = new ObjectName( "rmxtest:testcase=testProxyTypeIsShared,id=2" );
+        final Object proxy1 = RMXBeanFactory.newProxyInstance( server, name1, LiverRMXBean.class );
+        final Object proxy2 = RMXBeanFactory.newProxyInstance( server, name2, LiverRMXBean.class );
+
+        assertSame( "proxy1.type == proxy2.type",
+                    RMXBeanInvocationHandler.getHandler( proxy1 ).getType(),
+                    RMXBeanInvocationHandler.getHandler( proxy2 ).getType() );
+    }
+
+    public void testBatch()
+        throws Exception
+    {
+        final Chemical caffeine = new Chemical();
+        caffeine.setName( "Caffeine" );
+        caffeine.setQuantity( 99 );
+
+        final StandardRMXBeanType type =
+            new StandardRMXBeanType( Liver.class, new Class[]{LiverRMXBean.class} );
+        final Liver liver1 = new Liver();
+        liver1.setToxicity( 42.0F );
+        liver1.setChemical( caffeine );
+        final Liver liver2 = new Liver();
+        liver2.setToxicity( 7.0F );
+        liver2.setChemical( caffeine );
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final String prefix =
+            "rmxtest:class=RMXBeanInvocationHandlerTestCase,testcase=testBatch,id=";
+        final ObjectName name1 = new ObjectName( prefix + liver1.hashCode() );
+        final ObjectName name2 = new ObjectName( prefix + liver2.hashCode() );
+        server.registerMBean( new RMXBean( type, liver1 ), name1 );
+        server.registerMBean( new RMXBean( type, liver2 ), name2 );
+
+        final LiverRMXBean proxy1 =
+            (LiverRMXBean)RMXBeanFactory.newProxyInstance( server, name1, LiverRMXBean.class );
+        final LiverRMXBean proxy2 =
+            (LiverRMXBean)RMXBeanFactory.newProxyInstance( server, name2, LiverRMXBean.class );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final RMXBatch batch = RMXBeanFactory.newBatch( executor );
+            final LiverRMXBean mx1 = batch.add( proxy1 );
+            final LiverRMXBean mx2 = batch.add( proxy2 );
+
+            assertEquals( "recording mx1.getToxicity()", 0.0F, mx1.getToxicity() );
+            assertNull( "recording mx1.getChemical()", mx1.getChemical() );
+            assertEquals( "recording mx2.getToxicity()", 0.0F, mx2.getToxicity() );
+
+            batch.execute();
+
+            liver1.setToxicity( 1.0F );
+            liver2.setToxicity( 2.0F );
+
+            assertEquals( "batched mx1.getToxicity()", 42.0F, mx1.getToxicity() );
+            assertEquals( "batched mx1.getChemical()", caffeine, mx1.getChemical() );
+            assertEquals( "batched mx2.getToxicity()", 7.0F, mx2.getToxicity() );
+            assertEquals( "unrecorded mx2.getChemical()", caffeine, mx2.getChemical() );
+            assertEquals( "mx2.isChemicalCulprit()", true, mx2.isChemicalCulprit( caffeine ) );
+
+            try
+            {
+                batch.execute();
+                fail( "Expected to fail executing batch twice" );
+            }
+            catch( final IllegalStateException ise )
+            {
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+            server.unregisterMBean( name1 );
+            server.unregisterMBean( name2 );
+        }
+
+        try
+        {
+            RMXBeanFactory.newBatch().add( new Liver() );
+            fail( "Expected to fail adding non-proxy to batch" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+    }
+
+    public void testBatchOfDifferentTypesWithRejectingExecutor()
+        throws Exception
+    {
+        final Chemical caffeine = new Chemical();
+        caffeine.setName( "Caffeine" );
+        caffeine.setQuantity( 99 );
+
+        final StandardRMXBeanType type =
+            new StandardRMXBeanType( Liver.class, new Class[]{LiverRMXBean.class} );
+        final Liver liver = new Liver();
+        liver.setToxicity( 42.0F );
+        liver.setChemical( caffeine );
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name =
+            new ObjectName( "rmxtest:class=RMXBeanInvocationHandlerTestCase,testcase=testBatchOfDifferentTypes" );
+        server.registerMBean( new RMXBean( type, liver ), name );
+
+        final Executor executor = new Executor()
+        {
+            public void execute( final Runnable command )
+            {
+                throw new RejectedExecutionException();
+            }
+        };
+        try
+        {
+            final RMXBatch batch = RMXBeanFactory.newBatch( executor );
+            final ToxicityRMXBean toxicity =
+                batch.add( (ToxicityRMXBean)RMXBeanFactory.newProxyInstance( server, name, ToxicityRMXBean.class ) );
+            final LiverRMXBean mx =
+                batch.add( (LiverRMXBean)RMXBeanFactory.newProxyInstance( server, name, LiverRMXBean.class ) );
+
+            toxicity.getToxicity();
+            mx.getChemical();
+            batch.execute();
+
+            liver.setToxicity( 1.0F );
+            liver.setChemical( null );
+
+            assertEquals( "batched toxicity.getToxicity()", 42.0F, toxicity.getToxicity() );
+            assertEquals( "batched mx.getChemical()", caffeine, mx.getChemical() );
+        }
+        finally
+        {
+            server.unregisterMBean( name );
+        }
+    }
 }
@@ -1,8 +1,16 @@
 package panmx.rmx;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanException;
 import junit.framework.TestCase;
+import panmx.annotations.MxAttribute;
 
 public class RMXBeanTestCase
     extends TestCase
@@ -27,6 +35,208 @@ public class RMXBeanTestCase
         }
     }
 
+    public static class Kidney
+    {
+        private int m_stones;
+
+        public int getStones()
+        {
+            return m_stones;
+        }
+
+        public void setStones( final int stones )
+        {
+            m_stones = stones;
+        }
+
+        public void rupture()
+        {
+            throw new IllegalStateException( "Ouch" );
+        }
+    }
+
+    public static class Spleen
+    {
+        private int m_weight;
+        private String[] m_tags = new String[0];
+        private String m_secret;
+
+        public int getWeight()
+        {
+            return m_weight;
+        }
+
+        public void setWeight( final int weight )
+        {
+            m_weight = Math.max( 0, weight );
+        }
+
+        public String[] getTags()
+        {
+            return m_tags;
+        }
+
+        public void setTags( final String[] tags )
+        {
+            m_tags = tags.clone();
+            Arrays.sort( m_tags );
+        }
+
+        public void setSecret( final String secret )
+        {
+            m_secret = secret;
+        }
+
+        public String getBroken()
+        {
+            throw new IllegalStateException( "Broken" );
+        }
+    }
+
+    public void testBulkAttributes()
+        throws Exception
+    {
+        final RMXBeanType beanType = new RMXBeanType( Spleen.class );
+        beanType.defineAttribute( Spleen.class.getMethod( "getWeight" ) );
+        beanType.defineAttribute( Spleen.class.getMethod( "setWeight", Integer.TYPE ) );
+        beanType.defineAttribute( Spleen.class.getMethod( "getTags" ) );
+        beanType.defineAttribute( Spleen.class.getMethod( "setTags", String[].class ) );
+        beanType.defineAttribute( Spleen.class.getMethod( "setSecret", String.class ) );
+        beanType.defineAttribute( Spleen.class.getMethod( "getBroken" ) );
+        beanType.freeze();
+
+        final Spleen spleen = new Spleen();
+        final HashMap<String, Exception> failures = new HashMap<String, Exception>();
+
+        final AttributeList attributes = new AttributeList();
+        attributes.add( new Attribute( "weight", 3 ) );
+        attributes.add( new Attribute( "tags", new String[]{"b", "a"} ) );
+        attributes.add( new Attribute( "secret", "x" ) );
+        attributes.add( new Attribute( "missing", "x" ) );
+        final AttributeList set = beanType.setAttributes( spleen, attributes, null, failures );
+        assertEquals( "set.size()", 3, set.size() );
+        assertEquals( "set[0]", new Attribute( "weight", 3 ), set.get( 0 ) );
+        assertEquals( "set[1].value",
+                      "[a, b]",
+                      Arrays.asList( (String[])( (Attribute)set.get( 1 ) ).getValue() ).toString() );
+        assertEquals( "set[2]", new Attribute( "secret", "x" ), set.get( 2 ) );
+        assertEquals( "spleen.m_secret", "x", spleen.m_secret );
+        assertEquals( "failures.size()", 1, failures.size() );
+        assertTrue( "failures[missing]", failures.get( "missing" ) instanceof AttributeNotFoundException );
+
+        failures.clear();
+        final AttributeList negative = new AttributeList();
+        negative.add( new Attribute( "weight", -1 ) );
+        final AttributeList clamped = beanType.setAttributes( spleen, negative, null, failures );
+        assertEquals( "clamped[0]", new Attribute( "weight", 0 ), clamped.get( 0 ) );
+        assertEquals( "failures.size()", 0, failures.size() );
+        spleen.setWeight( 3 );
+
+        final AttributeList list =
+            beanType.getAttributes( spleen, new String[]{"weight", "broken", "secret"}, null, failures );
+        assertEquals( "list.size()", 1, list.size() );
+        assertEquals( "list[0]", new Attribute( "weight", 3 ), list.get( 0 ) );
+        assertEquals( "failures.size()", 2, failures.size() );
+        assertTrue( "failures[broken]", failures.get( "broken" ) instanceof MBeanException );
+        assertTrue( "failures[secret]", failures.get( "secret" ) instanceof AttributeNotFoundException );
+
+        final RMXBean bean = new RMXBean( beanType, spleen );
+        assertEquals( "bean.getAttributes(...).size()",
+                      1,
+                      bean.getAttributes( new String[]{"weight", "broken"} ).size() );
+    }
+
+    public static class Gallbladder
+    {
+        private final AtomicInteger m_reads = new AtomicInteger();
+        private int m_bile;
+
+        @MxAttribute( currencyTimeLimit = MxAttribute.CACHE_FOREVER )
+        public int getBile()
+        {
+            m_reads.incrementAndGet();
+            try
+            {
+                Thread.sleep( 20 );
+            }
+            catch( final InterruptedException ie )
+            {
+            }
+            return m_bile;
+        }
+
+        public void setBile( final int bile )
+        {
+            m_bile = bile;
+        }
+
+        @MxAttribute( currencyTimeLimit = MxAttribute.NEVER_CACHE )
+        public int getReads()
+        {
+            return m_reads.get();
+        }
+    }
+
+    public void testCachedAttribute()
+        throws Exception
+    {
+        final RMXBeanType beanType = new RMXBeanType( Gallbladder.class );
+        beanType.defineAttribute( Gallbladder.class.getMethod( "getBile" ) );
+        beanType.defineAttribute( Gallbladder.class.getMethod( "setBile", Integer.TYPE ) );
+        beanType.defineAttribute( Gallbladder.class.getMethod( "getReads" ) );
+        beanType.freeze();
+
+        final Gallbladder gallbladder = new Gallbladder();
+        gallbladder.setBile( 1 );
+        final RMXBean bean = new RMXBean( beanType, gallbladder );
+
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final Object[] results = new Object[8];
+        final Thread[] threads = new Thread[results.length];
+        for( int i = 0; i < threads.length; i++ )
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        results[index] = bean.getAttribute( "bile" );
+                    }
+                    catch( final Exception e )
+                    {
+                        results[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for( final Thread thread : threads )
+        {
+            thread.join();
+        }
+        for( final Object result : results )
+        {
+            assertEquals( "result", 1, result );
+        }
+        assertEquals( "reads after concurrent get", 1, bean.getAttribute( "reads" ) );
+
+        gallbladder.setBile( 2 );
+        assertEquals( "cached bean.getAttribute(bile)", 1, bean.getAttribute( "bile" ) );
+        assertEquals( "reads after cached get", 1, bean.getAttribute( "reads" ) );
+
+        bean.setAttribute( new Attribute( "bile", 3 ) );
+        assertEquals( "bean.getAttribute(bile) after set", 3, bean.getAttribute( "bile" ) );
+        assertEquals( "reads after set", 2, bean.getAttribute( "reads" ) );
+        assertEquals( "bean.getAttributes(bile)",
+                      new Attribute( "bile", 3 ),
+                      bean.getAttributes( new String[]{"bile"} ).get( 0 ) );
+        assertEquals( "reads after bulk get", 2, bean.getAttribute( "reads" ) );
+    }
+
     public void testSimpleAttribute()
         throws Exception
     {
@@ -79,4 +289,32 @@ public class RMXBeanTestCase
 
         assertEquals( "2. liver.getToxicity()", 0.0F, liver.getToxicity() );
     }
+
+    public void testGeneratedInvoker()
+        throws Exception
+    {
+        final RMXBeanType beanType = new RMXBeanType( Kidney.class );
+        beanType.defineAttribute( Kidney.class.getMethod( "getStones" ) );
+        beanType.defineAttribute( Kidney.class.getMethod( "setStones", Integer.TYPE ) );
+        beanType.defineOperation( Kidney.class.getMethod( "rupture" ) );
+        beanType.freeze();
+
+        final Kidney kidney = new Kidney();
+        final RMXBean bean = new RMXBean( beanType, kidney );
+
+        bean.setAttribute( new Attribute( "stones", 3 ) );
+        assertEquals( "kidney.getStones()", 3, kidney.getStones() );
+        assertEquals( "bean.getAttribute(stones)", 3, bean.getAttribute( "stones" ) );
+
+        try
+        {
+            bean.invoke( "rupture", null, null );
+            fail( "Expected MBeanException when invoking operation 'rupture'" );
+        }
+        catch( final MBeanException mbe )
+        {
+            assertTrue( "mbe.getTargetException()",
+                        mbe.getTargetException() instanceof IllegalStateException );
+        }
+    }
 }
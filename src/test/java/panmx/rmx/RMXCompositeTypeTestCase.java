@@ -1,18 +1,28 @@
 package panmx.rmx;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.management.openmbean.ArrayType;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.OpenType;
 import javax.management.openmbean.SimpleType;
 import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 import junit.framework.TestCase;
+import panmx.annotations.MxConstructor;
+import panmx.annotations.MxParameter;
 
 public class RMXCompositeTypeTestCase
     extends TestCase
@@ -318,4 +328,230 @@ public class RMXCompositeTypeTestCase
         adapter.fromCompositeData( chapterSetData, cd2 );
         assertEquals( "fromCompositeData() ==> getChapters().length", 0, chapterSetData.getChapters().size() );
     }
+
+    public static class PointData
+    {
+        private int m_x;
+        private int m_y;
+        private String[] m_labels;
+
+        public int getX()
+        {
+            return m_x;
+        }
+
+        public void setX( final int x )
+        {
+            m_x = x;
+        }
+
+        public int getY()
+        {
+            return m_y;
+        }
+
+        public void setY( final int y )
+        {
+            m_y = y;
+        }
+
+        public String[] getLabels()
+        {
+            return m_labels;
+        }
+
+        public void setLabels( final String[] labels )
+        {
+            m_labels = labels;
+        }
+    }
+
+    public void testCompiledCodecIsCompatibleWithCompositeDataSupport()
+        throws Exception
+    {
+        final RMXCompositeType adapter = new RMXCompositeType( PointData.class );
+        adapter.defineField( "y" );
+        adapter.defineField( "x" );
+        adapter.defineField( "labels" );
+        adapter.freeze();
+
+        final PointData pointData = new PointData();
+        pointData.setX( 1 );
+        pointData.setY( 2 );
+        pointData.setLabels( new String[]{"a", "b"} );
+
+        final CompositeType type = adapter.getCompositeType();
+        final CompositeData cd1 = adapter.toCompositeData( pointData );
+        assertEquals( "toCompositeData().get(x)", 1, cd1.get( "x" ) );
+        assertEquals( "toCompositeData().get(y)", 2, cd1.get( "y" ) );
+        assertEquals( "toCompositeData().values()",
+                      "[[a, b], 1, 2]",
+                      Arrays.deepToString( cd1.values().toArray() ) );
+        assertTrue( "toCompositeData().containsKey(x)", cd1.containsKey( "x" ) );
+        assertFalse( "toCompositeData().containsKey(z)", cd1.containsKey( "z" ) );
+        try
+        {
+            cd1.get( "z" );
+            fail( "Expected InvalidKeyException" );
+        }
+        catch( final InvalidKeyException ike )
+        {
+        }
+
+        final HashMap<String, Object> items = new HashMap<String, Object>();
+        items.put( "x", 1 );
+        items.put( "y", 2 );
+        items.put( "labels", new String[]{"a", "b"} );
+        final CompositeData expected = new CompositeDataSupport( type, items );
+        assertEquals( "expected.equals(cd1)", expected, cd1 );
+        assertEquals( "cd1.equals(expected)", cd1, expected );
+        assertEquals( "cd1.hashCode()", expected.hashCode(), cd1.hashCode() );
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOutput = new ObjectOutputStream( output );
+        objectOutput.writeObject( cd1 );
+        objectOutput.close();
+        final ObjectInputStream objectInput =
+            new ObjectInputStream( new ByteArrayInputStream( output.toByteArray() ) );
+        final Object deserialized = objectInput.readObject();
+        assertEquals( "deserialized.getClass()", CompositeDataSupport.class, deserialized.getClass() );
+        assertEquals( "deserialized", expected, deserialized );
+
+        final PointData result = (PointData)adapter.fromCompositeData( cd1 );
+        assertEquals( "fromCompositeData(cd1).getX()", 1, result.getX() );
+        assertEquals( "fromCompositeData(cd1).getY()", 2, result.getY() );
+        assertEquals( "fromCompositeData(cd1).getLabels().length", 2, result.getLabels().length );
+
+        items.put( "x", 7 );
+        adapter.fromCompositeData( result, new CompositeDataSupport( type, items ) );
+        assertEquals( "fromCompositeData(expected).getX()", 7, result.getX() );
+    }
+
+    public static class Interval
+    {
+        private final long m_start;
+        private final long m_end;
+        private String m_label;
+
+        @MxConstructor
+        public Interval( @MxParameter( name = "end" ) final long end,
+                         @MxParameter( name = "start" ) final long start )
+        {
+            m_start = start;
+            m_end = end;
+        }
+
+        public long getStart()
+        {
+            return m_start;
+        }
+
+        public long getEnd()
+        {
+            return m_end;
+        }
+
+        public String getLabel()
+        {
+            return m_label;
+        }
+
+        public void setLabel( final String label )
+        {
+            m_label = label;
+        }
+    }
+
+    public static class Temperature
+    {
+        private final double m_degrees;
+        private final TimeUnit m_unit;
+
+        private Temperature( final double degrees, final TimeUnit unit )
+        {
+            m_degrees = degrees;
+            m_unit = unit;
+        }
+
+        @MxConstructor
+        public static Temperature valueOf( @MxParameter( name = "degrees" ) final double degrees,
+                                           @MxParameter( name = "unit" ) final TimeUnit unit )
+        {
+            return new Temperature( degrees, unit );
+        }
+
+        public double getDegrees()
+        {
+            return m_degrees;
+        }
+
+        public TimeUnit getUnit()
+        {
+            return m_unit;
+        }
+    }
+
+    public static class Unnamed
+    {
+        private final int m_value;
+
+        @MxConstructor
+        public Unnamed( final int value )
+        {
+            m_value = value;
+        }
+
+        public int getValue()
+        {
+            return m_value;
+        }
+    }
+
+    public void testDataWithMxConstructor()
+        throws Exception
+    {
+        final StandardRMXCompositeType adapter = new StandardRMXCompositeType( Interval.class );
+        final CompositeType type = adapter.getCompositeType();
+        assertEquals( "keySet()", 3, type.keySet().size() );
+
+        final Interval interval = new Interval( 20, 10 );
+        interval.setLabel( "ten" );
+        final CompositeData data = adapter.toCompositeData( interval );
+        final Interval result = (Interval)adapter.fromCompositeData( data );
+        assertEquals( "getStart()", 10, result.getStart() );
+        assertEquals( "getEnd()", 20, result.getEnd() );
+        assertEquals( "getLabel()", "ten", result.getLabel() );
+
+        final HashMap<String, Object> items = new HashMap<String, Object>();
+        items.put( "start", 1L );
+        items.put( "end", 2L );
+        items.put( "label", null );
+        final Interval other = (Interval)adapter.fromCompositeData( new CompositeDataSupport( type, items ) );
+        assertEquals( "other.getStart()", 1, other.getStart() );
+        assertEquals( "other.getEnd()", 2, other.getEnd() );
+        assertNull( "other.getLabel()", other.getLabel() );
+    }
+
+    public void testDataWithMxConstructorFactoryMethod()
+        throws Exception
+    {
+        final StandardRMXCompositeType adapter = new StandardRMXCompositeType( Temperature.class );
+        final CompositeData data = adapter.toCompositeData( Temperature.valueOf( 21.5, TimeUnit.SECONDS ) );
+        final Temperature result = (Temperature)adapter.fromCompositeData( data );
+        assertEquals( "getDegrees()", 21.5, result.getDegrees(), 0 );
+        assertEquals( "getUnit()", TimeUnit.SECONDS, result.getUnit() );
+    }
+
+    public void testMxConstructorParametersMustBeNamed()
+        throws Exception
+    {
+        try
+        {
+            new StandardRMXCompositeType( Unnamed.class );
+            fail( "Expected OpenDataException" );
+        }
+        catch( final OpenDataException ode )
+        {
+        }
+    }
 }
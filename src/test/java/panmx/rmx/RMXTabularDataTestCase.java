@@ -0,0 +1,153 @@
+package panmx.rmx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.InvalidOpenTypeException;
+import javax.management.openmbean.KeyAlreadyExistsException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import junit.framework.TestCase;
+
+public class RMXTabularDataTestCase
+    extends TestCase
+{
+    private static final String[] ITEMS = new String[]{"key", "value"};
+
+    private CompositeType m_rowType;
+    private TabularType m_tabularType;
+
+    protected void setUp()
+        throws Exception
+    {
+        final OpenType[] types = new OpenType[]{SimpleType.STRING, SimpleType.LONG};
+        m_rowType = new CompositeType( "Row", "Row", ITEMS, ITEMS, types );
+        m_tabularType = new TabularType( "Table", "Table", m_rowType, new String[]{"key"} );
+    }
+
+    private CompositeData row( final String key, final long value )
+    {
+        return new RMXCompositeData( m_rowType, ITEMS, new Object[]{key, value} );
+    }
+
+    private RMXTabularData newData()
+    {
+        final RMXTabularData data = new RMXTabularData( m_tabularType, 2 );
+        data.append( row( "tenant1", 1L ) );
+        data.append( row( "tenant2", 2L ) );
+        data.append( row( "tenant3", 3L ) );
+        return data;
+    }
+
+    private TabularDataSupport newSupport()
+        throws Exception
+    {
+        final TabularDataSupport support = new TabularDataSupport( m_tabularType );
+        support.put( new CompositeDataSupport( m_rowType, ITEMS, new Object[]{"tenant3", 3L} ) );
+        support.put( new CompositeDataSupport( m_rowType, ITEMS, new Object[]{"tenant1", 1L} ) );
+        support.put( new CompositeDataSupport( m_rowType, ITEMS, new Object[]{"tenant2", 2L} ) );
+        return support;
+    }
+
+    public void testReadsMatchTabularDataSupport()
+        throws Exception
+    {
+        final RMXTabularData data = newData();
+        final TabularDataSupport support = newSupport();
+
+        assertEquals( "size()", 3, data.size() );
+        assertFalse( "isEmpty()", data.isEmpty() );
+        assertEquals( "values().size()", 3, data.values().size() );
+        assertEquals( "get(tenant2)", support.get( new Object[]{"tenant2"} ), data.get( new Object[]{"tenant2"} ) );
+        assertNull( "get(tenant4)", data.get( new Object[]{"tenant4"} ) );
+        assertTrue( "containsKey(tenant1)", data.containsKey( new Object[]{"tenant1"} ) );
+        assertFalse( "containsKey(null)", data.containsKey( null ) );
+        assertTrue( "containsValue()", data.containsValue( row( "tenant3", 3L ) ) );
+        assertFalse( "containsValue(other)", data.containsValue( row( "tenant3", 4L ) ) );
+        assertTrue( "calculateIndex()",
+                    Arrays.equals( new Object[]{"tenant1"}, data.calculateIndex( row( "tenant1", 7L ) ) ) );
+        assertEquals( "keySet()", new HashSet<Object>( support.keySet() ), new HashSet<Object>( data.keySet() ) );
+
+        assertEquals( "equals(support)", support, data );
+        assertEquals( "support.equals(data)", data, support );
+        assertEquals( "hashCode()", support.hashCode(), data.hashCode() );
+        final RMXTabularData other = newData();
+        other.remove( new Object[]{"tenant1"} );
+        other.put( row( "tenant1", 9L ) );
+        assertFalse( "equals(other)", data.equals( other ) );
+    }
+
+    public void testModificationsValidated()
+        throws Exception
+    {
+        final RMXTabularData data = newData();
+        try
+        {
+            data.put( row( "tenant1", 5L ) );
+            fail( "Expected duplicate index to be rejected" );
+        }
+        catch( final KeyAlreadyExistsException kaee )
+        {
+        }
+        final CompositeType otherType =
+            new CompositeType( "Other", "Other", ITEMS, ITEMS, new OpenType[]{SimpleType.STRING, SimpleType.STRING} );
+        try
+        {
+            data.put( new CompositeDataSupport( otherType, ITEMS, new Object[]{"tenant4", "x"} ) );
+            fail( "Expected value of wrong type to be rejected" );
+        }
+        catch( final InvalidOpenTypeException ioe )
+        {
+        }
+        try
+        {
+            data.get( new Object[]{1} );
+            fail( "Expected key of wrong type to be rejected" );
+        }
+        catch( final InvalidKeyException ike )
+        {
+        }
+        try
+        {
+            data.putAll( new CompositeData[]{row( "tenant4", 4L ), row( "tenant4", 5L )} );
+            fail( "Expected duplicate indexes to be rejected" );
+        }
+        catch( final KeyAlreadyExistsException kaee )
+        {
+        }
+        assertEquals( "size() after rejected putAll", 3, data.size() );
+
+        assertEquals( "remove(tenant1)", row( "tenant1", 1L ), data.remove( new Object[]{"tenant1"} ) );
+        assertNull( "remove(tenant1) again", data.remove( new Object[]{"tenant1"} ) );
+        assertEquals( "size() after remove", 2, data.size() );
+        assertEquals( "get(tenant3) after remove", row( "tenant3", 3L ), data.get( new Object[]{"tenant3"} ) );
+        data.put( row( "tenant1", 1L ) );
+        assertEquals( "equals(support)", newSupport(), data );
+
+        data.clear();
+        assertTrue( "isEmpty() after clear", data.isEmpty() );
+        assertNull( "get(tenant2) after clear", data.get( new Object[]{"tenant2"} ) );
+    }
+
+    public void testSerializedAsTabularDataSupport()
+        throws Exception
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( newData() );
+        output.close();
+        final Object copy =
+            new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+        assertEquals( "copy.getClass()", TabularDataSupport.class, copy.getClass() );
+        assertEquals( "copy", newSupport(), copy );
+    }
+}
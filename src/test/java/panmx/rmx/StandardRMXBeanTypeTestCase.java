@@ -1,6 +1,7 @@
 package panmx.rmx;
 
 import javax.management.Attribute;
+import javax.management.ReflectionException;
 import junit.framework.TestCase;
 
 public class StandardRMXBeanTypeTestCase
@@ -36,6 +37,34 @@ public class StandardRMXBeanTypeTestCase
         void clean();
     }
 
+    static class Kidney
+        implements KidneyRMXBean
+    {
+        public String filter()
+        {
+            return "none";
+        }
+
+        public String filter( int amount )
+        {
+            return "int:" + amount;
+        }
+
+        public String filter( String substance )
+        {
+            return "String:" + substance;
+        }
+    }
+
+    static interface KidneyRMXBean
+    {
+        String filter();
+
+        String filter( int amount );
+
+        String filter( String substance );
+    }
+
     public void testStandardRMXBeanType()
         throws Exception
     {
@@ -53,4 +82,60 @@ public class StandardRMXBeanTypeTestCase
         assertEquals( "2. liver.getToxicity()", 15.0F, liver.getToxicity() );
         assertEquals( "2. bean.getAttribute(toxicity)", 15.0F, bean.getAttribute( "toxicity" ) );
     }
+
+    public void testOverloadedOperations()
+        throws Exception
+    {
+        final StandardRMXBeanType type =
+            new StandardRMXBeanType( Kidney.class, new Class[]{KidneyRMXBean.class} );
+        final RMXBean bean = new RMXBean( type, new Kidney() );
+
+        assertEquals( "filter()", "none", bean.invoke( "filter", null, null ) );
+        assertEquals( "filter()", "none", bean.invoke( "filter", new Object[0], new String[0] ) );
+        assertEquals( "filter(int)", "int:3",
+                      bean.invoke( "filter", new Object[]{3}, new String[]{"int"} ) );
+        assertEquals( "filter(String)", "String:salt",
+                      bean.invoke( "filter", new Object[]{"salt"}, new String[]{String.class.getName()} ) );
+
+        try
+        {
+            bean.invoke( "filter", new Object[]{3L}, new String[]{"long"} );
+            fail( "Expected to fail invoking filter(long)" );
+        }
+        catch( final ReflectionException re )
+        {
+            assertEquals( "filter(long)", "filter(long)", re.getTargetException().getMessage() );
+        }
+        try
+        {
+            bean.invoke( "absorb", null, null );
+            fail( "Expected to fail invoking absorb()" );
+        }
+        catch( final ReflectionException re )
+        {
+        }
+    }
+
+    public void testGetOperationBeforeFreeze()
+        throws Exception
+    {
+        final RMXBeanType type = new RMXBeanType( Kidney.class );
+        type.defineOperation( KidneyRMXBean.class.getMethod( "filter" ) );
+        type.defineOperation( KidneyRMXBean.class.getMethod( "filter", Integer.TYPE ) );
+
+        assertEquals( "filter()",
+                      "filter",
+                      type.getOperation( "filter", new String[0] ).getMethod().getName() );
+        assertEquals( "filter(int)",
+                      Integer.TYPE,
+                      type.getOperation( "filter", new String[]{"int"} ).getMethod().getParameterTypes()[ 0 ] );
+        try
+        {
+            type.getOperation( "filter", new String[]{String.class.getName()} );
+            fail( "Expected to fail getting undefined operation filter(String)" );
+        }
+        catch( final ReflectionException re )
+        {
+        }
+    }
 }
@@ -0,0 +1,198 @@
+package panmx.rmx;
+
+import java.lang.ref.WeakReference;
+import javax.management.Attribute;
+import javax.management.DynamicMBean;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import junit.framework.TestCase;
+
+public class WeakTargetTestCase
+    extends TestCase
+{
+    public interface SessionRMXBean
+    {
+        int getId();
+
+        void setId( int id );
+
+        void touch();
+    }
+
+    public static class Session
+        implements SessionRMXBean
+    {
+        private int m_id;
+        private final byte[] m_data = new byte[256];
+
+        public Session( final int id )
+        {
+            m_id = id;
+        }
+
+        public int getId()
+        {
+            return m_id;
+        }
+
+        public void setId( final int id )
+        {
+            m_id = id;
+        }
+
+        public void touch()
+        {
+            m_data[ 0 ]++;
+        }
+    }
+
+    private MBeanServer m_server;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_server = MBeanServerFactory.newMBeanServer();
+    }
+
+    public void testTargetHeldWeakly()
+        throws Exception
+    {
+        Session session = new Session( 7 );
+        final WeakReference<Session> reference = new WeakReference<Session>( session );
+        final DynamicMBean bean = (DynamicMBean)RMXBeanFactory.createWeakStandardRMXBean( session );
+        assertEquals( "id", 7, bean.getAttribute( "id" ) );
+
+        session = null;
+        collect( reference );
+
+        try
+        {
+            bean.getAttribute( "id" );
+            fail( "Expected getAttribute to fail once target collected" );
+        }
+        catch( final MBeanException mbe )
+        {
+            assertTrue( "cause", mbe.getTargetException() instanceof IllegalStateException );
+        }
+        try
+        {
+            bean.setAttribute( new Attribute( "id", 3 ) );
+            fail( "Expected setAttribute to fail once target collected" );
+        }
+        catch( final MBeanException mbe )
+        {
+            assertTrue( "cause", mbe.getTargetException() instanceof IllegalStateException );
+        }
+        try
+        {
+            bean.invoke( "touch", new Object[0], new String[0] );
+            fail( "Expected invoke to fail once target collected" );
+        }
+        catch( final MBeanException mbe )
+        {
+            assertTrue( "cause", mbe.getTargetException() instanceof IllegalStateException );
+        }
+        assertEquals( "getAttributes", 0, bean.getAttributes( new String[]{"id"} ).size() );
+    }
+
+    public void testReaperUnregistersCollectedTargets()
+        throws Exception
+    {
+        final ObjectName name = new ObjectName( "weak:type=Session,id=1" );
+        Session session = new Session( 1 );
+        final WeakReference<Session> reference = new WeakReference<Session>( session );
+        m_server.registerMBean( RMXBeanFactory.createWeakStandardRMXBean( session ), name );
+        assertEquals( "id", 1, m_server.getAttribute( name, "id" ) );
+
+        session = null;
+        collect( reference );
+        for( int i = 0; i < 100 && m_server.isRegistered( name ); i++ )
+        {
+            Thread.sleep( 50 );
+        }
+        assertFalse( "registered after target collected", m_server.isRegistered( name ) );
+    }
+
+    public void testReaperKeepsBeansRegisteredUnderReusedName()
+        throws Exception
+    {
+        final ObjectName rmxName = new ObjectName( "weak:type=Session,id=3" );
+        final ObjectName standardName = new ObjectName( "weak:type=Session,id=4" );
+        m_server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Session( 3 ) ), rmxName );
+        m_server.registerMBean( new StandardMBean( new Session( 4 ), SessionRMXBean.class ), standardName );
+
+        // References of beans that were unregistered and replaced while their targets were being collected
+        final int tracked = TargetReaper.getTrackedCount();
+        Session session = new Session( 5 );
+        final WeakReference<Session> reference = new WeakReference<Session>( session );
+        TargetReaper.track( TargetReaper.newReference( session ), m_server, rmxName );
+        TargetReaper.track( TargetReaper.newReference( session ), m_server, standardName );
+
+        session = null;
+        collect( reference );
+        for( int i = 0; i < 100 && TargetReaper.getTrackedCount() != tracked; i++ )
+        {
+            Thread.sleep( 50 );
+        }
+        assertEquals( "tracked after reaping", tracked, TargetReaper.getTrackedCount() );
+        assertTrue( "RMXBean registered under reused name", m_server.isRegistered( rmxName ) );
+        assertTrue( "MBean registered under reused name", m_server.isRegistered( standardName ) );
+    }
+
+    public void testUnregisterStopsTracking()
+        throws Exception
+    {
+        final ObjectName name = new ObjectName( "weak:type=Session,id=2" );
+        final Session session = new Session( 2 );
+        final int tracked = TargetReaper.getTrackedCount();
+        m_server.registerMBean( RMXBeanFactory.createWeakStandardRMXBean( session ), name );
+        assertEquals( "tracked after register", tracked + 1, TargetReaper.getTrackedCount() );
+        m_server.unregisterMBean( name );
+        assertEquals( "tracked after unregister", tracked, TargetReaper.getTrackedCount() );
+        assertEquals( "target still usable", 2, session.getId() );
+    }
+
+    public void testShortLivedTargetsReaped()
+        throws Exception
+    {
+        final int tracked = TargetReaper.getTrackedCount();
+        final int initialCount = m_server.getMBeanCount();
+        int id = 0;
+        for( int batch = 0; batch < 10; batch++ )
+        {
+            for( int i = 0; i < 10000; i++, id++ )
+            {
+                final ObjectName name = new ObjectName( "weak:type=Session,id=" + id );
+                m_server.registerMBean( RMXBeanFactory.createWeakStandardRMXBean( new Session( id ) ), name );
+            }
+            // None of the targets are reachable so every bean is reaped once they are collected
+            for( int i = 0; i < 100 && TargetReaper.getTrackedCount() != tracked; i++ )
+            {
+                System.gc();
+                Thread.sleep( 20 );
+            }
+            assertEquals( "tracked after batch " + batch, tracked, TargetReaper.getTrackedCount() );
+            for( int i = 0; i < 100 && m_server.getMBeanCount() != initialCount; i++ )
+            {
+                Thread.sleep( 20 );
+            }
+            assertEquals( "beans registered after batch " + batch,
+                          initialCount,
+                          m_server.getMBeanCount().intValue() );
+        }
+    }
+
+    private static void collect( final WeakReference<?> reference )
+        throws InterruptedException
+    {
+        for( int i = 0; i < 100 && null != reference.get(); i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( "target collected", reference.get() );
+    }
+}
@@ -0,0 +1,143 @@
+package panmx.stats;
+
+import javax.management.Attribute;
+import javax.management.DynamicMBean;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+import panmx.model.ModelMBeanFactory;
+import panmx.rmx.RMXBeanFactory;
+
+public class StatisticsTestCase
+    extends TestCase
+{
+    @MBean
+    public static class Spleen
+    {
+        private int m_filtration;
+
+        @MxAttribute
+        public int getFiltration()
+        {
+            return m_filtration;
+        }
+
+        @MxAttribute
+        public void setFiltration( final int filtration )
+        {
+            m_filtration = filtration;
+        }
+
+        @MxOperation
+        public void rupture()
+            throws Exception
+        {
+            throw new Exception( "Ruptured" );
+        }
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        Statistics.disable();
+    }
+
+    public void testHistogramBuckets()
+    {
+        for( long value = 0; value < 100000; value++ )
+        {
+            final int bucket = Histogram.getBucket( value );
+            assertTrue( "value " + value + " <= upper bound", value <= Histogram.getUpperBound( bucket ) );
+            assertTrue( "value " + value + " > previous upper bound",
+                        0 == bucket || value > Histogram.getUpperBound( bucket - 1 ) );
+        }
+        assertEquals( "bucket of max value", Histogram.BUCKETS - 1, Histogram.getBucket( Long.MAX_VALUE ) );
+    }
+
+    public void testHistogramPercentiles()
+    {
+        final Histogram histogram = new Histogram();
+        for( int i = 1; i <= 100; i++ )
+        {
+            histogram.record( i * 1000 );
+        }
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals( "count", 100, snapshot.getCount() );
+        assertEquals( "mean", 50500, snapshot.getMean() );
+        assertPercentile( "50th", 50000, snapshot.getPercentile( 50 ) );
+        assertPercentile( "99th", 99000, snapshot.getPercentile( 99 ) );
+        assertPercentile( "max", 100000, snapshot.getMax() );
+        assertEquals( "empty percentile", 0, new Histogram().snapshot().getPercentile( 99 ) );
+    }
+
+    private void assertPercentile( final String message, final long expected, final long actual )
+    {
+        assertTrue( message + " percentile " + actual + " >= " + expected, actual >= expected );
+        assertTrue( message + " percentile " + actual + " within 25% of " + expected, actual <= expected * 1.25 );
+    }
+
+    public void testBeansCreatedWhileDisabledAreNotInstrumented()
+        throws Exception
+    {
+        assertFalse( "isEnabled()", Statistics.isEnabled() );
+        assertNull( "getBeanStatistics()", Statistics.getBeanStatistics( "Disabled" ) );
+    }
+
+    public void testStatisticsPublished()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        Statistics.enable( server );
+        assertTrue( "isEnabled()", Statistics.isEnabled() );
+
+        final DynamicMBean rmxBean = (DynamicMBean)RMXBeanFactory.createAnnotatedRMXBean( new Spleen() );
+        rmxBean.setAttribute( new Attribute( "filtration", 3 ) );
+        rmxBean.getAttribute( "filtration" );
+        rmxBean.getAttribute( "filtration" );
+        try
+        {
+            rmxBean.invoke( "rupture", null, null );
+            fail( "Expected operation to fail" );
+        }
+        catch( final MBeanException mbe )
+        {
+        }
+
+        final DynamicMBean modelMBean = ModelMBeanFactory.createAnnotatedModelMBean( new Spleen() );
+        try
+        {
+            modelMBean.invoke( "rupture", null, null );
+            fail( "Expected operation to fail" );
+        }
+        catch( final MBeanException mbe )
+        {
+        }
+
+        final ObjectName name = Statistics.getObjectName( Spleen.class.getName() );
+        assertEquals( "name", "panmx:type=Statistics,bean=" + Spleen.class.getName(), name.toString() );
+        assertTrue( "isRegistered()", server.isRegistered( name ) );
+        assertEquals( "bean", Spleen.class.getName(), server.getAttribute( name, "bean" ) );
+        assertEquals( "calls", 5L, server.getAttribute( name, "calls" ) );
+        assertEquals( "errors", 2L, server.getAttribute( name, "errors" ) );
+
+        final TabularData members = (TabularData)server.getAttribute( name, "members" );
+        final CompositeData get = members.get( new Object[]{"get filtration"} );
+        assertEquals( "get.calls", 2L, get.get( "calls" ) );
+        assertEquals( "get.errors", 0L, get.get( "errors" ) );
+        assertTrue( "get.targetTime99 >= targetTime50",
+                    (Long)get.get( "targetTime99" ) >= (Long)get.get( "targetTime50" ) );
+        final CompositeData rupture = members.get( new Object[]{"invoke rupture()"} );
+        assertEquals( "rupture.calls", 2L, rupture.get( "calls" ) );
+        assertEquals( "rupture.errors", 2L, rupture.get( "errors" ) );
+
+        Statistics.disable();
+        assertFalse( "isRegistered() after disable", server.isRegistered( name ) );
+    }
+}
@@ -0,0 +1,147 @@
+package panmx.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+import panmx.rmx.RMXBeanFactory;
+
+public class TracerTestCase
+    extends TestCase
+{
+    public interface VeinRMXBean
+    {
+        int[] getFlow();
+
+        void setFlow( int[] flow );
+    }
+
+    public static class Vein
+        implements VeinRMXBean
+    {
+        private int[] m_flow = new int[]{1, 2, 3};
+
+        public int[] getFlow()
+        {
+            return m_flow;
+        }
+
+        public void setFlow( final int[] flow )
+        {
+            m_flow = flow;
+        }
+    }
+
+    static class Event
+    {
+        final TraceKind m_kind;
+        final ObjectName m_objectName;
+        final String m_member;
+        final int m_payloadSize;
+
+        Event( final TraceKind kind, final ObjectName objectName, final String member, final int payloadSize )
+        {
+            m_kind = kind;
+            m_objectName = objectName;
+            m_member = member;
+            m_payloadSize = payloadSize;
+        }
+    }
+
+    static class RecordingListener
+        implements TraceListener
+    {
+        final ArrayList<Event> m_events = new ArrayList<Event>();
+
+        public void trace( final TraceKind kind,
+                           final ObjectName objectName,
+                           final String member,
+                           final int payloadSize,
+                           final long start,
+                           final long duration )
+        {
+            assertTrue( "duration >= 0", duration >= 0 );
+            assertTrue( "start + duration <= now", start + duration - System.nanoTime() <= 0 );
+            m_events.add( new Event( kind, objectName, member, payloadSize ) );
+        }
+
+        Event find( final TraceKind kind )
+        {
+            for( final Event event : m_events )
+            {
+                if( kind == event.m_kind )
+                {
+                    return event;
+                }
+            }
+            fail( "No " + kind + " event in " + m_events.size() + " events" );
+            return null;
+        }
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        Tracer.uninstall();
+    }
+
+    public void testCallsTraced()
+        throws Exception
+    {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = new ObjectName( "rmxtest:type=Vein" );
+        server.registerMBean( RMXBeanFactory.createStandardRMXBean( new Vein() ), name );
+        final VeinRMXBean proxy = (VeinRMXBean)RMXBeanFactory.newProxyInstance( server, name, VeinRMXBean.class );
+
+        final RecordingListener listener = new RecordingListener();
+        Tracer.install( listener, 0, TimeUnit.NANOSECONDS );
+        assertNotNull( "getTracer()", Tracer.getTracer() );
+
+        assertTrue( "getFlow()", Arrays.equals( new int[]{1, 2, 3}, proxy.getFlow() ) );
+        server.getAttributes( name, new String[]{"flow"} );
+
+        final Event get = listener.find( TraceKind.GET_ATTRIBUTE );
+        assertEquals( "get.objectName", name, get.m_objectName );
+        assertEquals( "get.member", "flow", get.m_member );
+        assertEquals( "get.payloadSize", 3, get.m_payloadSize );
+
+        final Event toOpenType = listener.find( TraceKind.TO_OPEN_TYPE );
+        assertEquals( "toOpenType.objectName", name, toOpenType.m_objectName );
+        assertEquals( "toOpenType.member", "getFlow", toOpenType.m_member );
+
+        final Event proxyGet = listener.find( TraceKind.PROXY_GET_ATTRIBUTE );
+        assertEquals( "proxyGet.objectName", name, proxyGet.m_objectName );
+        assertEquals( "proxyGet.member", "flow", proxyGet.m_member );
+        assertEquals( "proxyGet.payloadSize", 3, proxyGet.m_payloadSize );
+
+        final Event toJavaType = listener.find( TraceKind.TO_JAVA_TYPE );
+        assertEquals( "toJavaType.objectName", name, toJavaType.m_objectName );
+
+        final Event getAttributes = listener.find( TraceKind.GET_ATTRIBUTES );
+        assertEquals( "getAttributes.member", "flow", getAttributes.m_member );
+        assertEquals( "getAttributes.payloadSize", 3, getAttributes.m_payloadSize );
+
+        listener.m_events.clear();
+        Tracer.install( listener, 1, TimeUnit.HOURS );
+        proxy.setFlow( new int[]{4} );
+        assertEquals( "events below threshold", 0, listener.m_events.size() );
+
+        Tracer.uninstall();
+        assertNull( "getTracer() after uninstall", Tracer.getTracer() );
+    }
+
+    public void testPayloadSize()
+    {
+        final HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put( "a", new String[]{"x", null, "y"} );
+        assertEquals( "null", 0, Tracer.getPayloadSize( null, 0 ) );
+        assertEquals( "simple", 1, Tracer.getPayloadSize( "x", 0 ) );
+        assertEquals( "primitive array", 4, Tracer.getPayloadSize( new long[4], 0 ) );
+        assertEquals( "map", 3, Tracer.getPayloadSize( map, 0 ) );
+        assertEquals( "list", 2, Tracer.getPayloadSize( Arrays.asList( 1, 2 ), 0 ) );
+    }
+}
@@ -0,0 +1,216 @@
+package panmx.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import junit.framework.TestCase;
+
+public class InvokerFactoryTestCase
+    extends TestCase
+{
+    public static interface Named
+    {
+        String getName();
+    }
+
+    public static class Counter
+        implements Named
+    {
+        private long m_count;
+        private String m_name;
+
+        public String getName()
+        {
+            return m_name;
+        }
+
+        public void setName( final String name )
+        {
+            m_name = name;
+        }
+
+        public long getCount()
+        {
+            return m_count;
+        }
+
+        public void setCount( final long count )
+        {
+            m_count = count;
+        }
+
+        public boolean isZero()
+        {
+            return 0 == m_count;
+        }
+
+        public double add( final int a, final double b, final long[] c )
+        {
+            double result = a + b;
+            for( final long value : c )
+            {
+                result += value;
+            }
+            return result;
+        }
+
+        public void fail()
+        {
+            throw new IllegalStateException( "Failed" );
+        }
+
+        public static int getConstant()
+        {
+            return 42;
+        }
+    }
+
+    public static class Point
+    {
+        private final int m_x;
+        private final long m_y;
+        private final String m_label;
+
+        public Point( final int x, final long y, final String label )
+        {
+            if( x < 0 )
+            {
+                throw new IllegalArgumentException( "x" );
+            }
+            m_x = x;
+            m_y = y;
+            m_label = label;
+        }
+
+        public static Point origin( final String label )
+        {
+            return new Point( 0, 0, label );
+        }
+    }
+
+    static class Hidden
+    {
+        public int getValue()
+        {
+            return 1;
+        }
+    }
+
+    public void testGeneratedInvoker()
+        throws Exception
+    {
+        final Method[] methods = new Method[]{
+            Counter.class.getMethod( "getCount" ),
+            Counter.class.getMethod( "setCount", Long.TYPE ),
+            Counter.class.getMethod( "isZero" ),
+            Counter.class.getMethod( "add", Integer.TYPE, Double.TYPE, long[].class ),
+            Counter.class.getMethod( "setName", String.class ),
+            Named.class.getMethod( "getName" ),
+            Counter.class.getMethod( "getConstant" ),
+            Counter.class.getMethod( "fail" )};
+        final Invoker invoker = InvokerFactory.createInvoker( Counter.class, methods );
+        assertNotNull( "invoker", invoker );
+        assertTrue( "generated invoker: " + invoker.getClass().getName(),
+                    invoker.getClass().getName().startsWith( "panmx.generated." ) );
+
+        final Counter counter = new Counter();
+        assertEquals( "isZero()", Boolean.TRUE, invoker.invoke( 2, counter, null ) );
+        assertNull( "setCount(7)", invoker.invoke( 1, counter, new Object[]{7L} ) );
+        assertEquals( "getCount()", 7L, invoker.invoke( 0, counter, null ) );
+        assertEquals( "isZero()", Boolean.FALSE, invoker.invoke( 2, counter, null ) );
+        assertEquals( "add(1,2.5,[3,4])",
+                      10.5D,
+                      invoker.invoke( 3, counter, new Object[]{1, 2.5D, new long[]{3, 4}} ) );
+        invoker.invoke( 4, counter, new Object[]{"Bob"} );
+        assertEquals( "getName()", "Bob", invoker.invoke( 5, counter, null ) );
+        assertEquals( "getConstant()", 42, invoker.invoke( 6, null, null ) );
+
+        try
+        {
+            invoker.invoke( 7, counter, null );
+            fail( "Expected InvocationTargetException" );
+        }
+        catch( final InvocationTargetException ite )
+        {
+            assertTrue( "ite.getTargetException()",
+                        ite.getTargetException() instanceof IllegalStateException );
+        }
+
+        try
+        {
+            invoker.invoke( 8, counter, null );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+
+        final Object[][] badArguments = new Object[][]{{"7"}, {null}, {}, null};
+        for( final Object[] args : badArguments )
+        {
+            try
+            {
+                invoker.invoke( 1, counter, args );
+                fail( "Expected IllegalArgumentException for setCount(" + args + ")" );
+            }
+            catch( final IllegalArgumentException iae )
+            {
+            }
+        }
+        try
+        {
+            invoker.invoke( 0, "counter", null );
+            fail( "Expected IllegalArgumentException for target of wrong type" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+        assertEquals( "getCount() after bad arguments", 7L, invoker.invoke( 0, counter, null ) );
+    }
+
+    public void testGeneratedConstructor()
+        throws Exception
+    {
+        final Member[] members = new Member[]{
+            Point.class.getConstructor( Integer.TYPE, Long.TYPE, String.class ),
+            Point.class.getMethod( "origin", String.class )};
+        final Invoker invoker = InvokerFactory.createInvoker( Point.class, members );
+        assertNotNull( "invoker", invoker );
+        assertTrue( "generated invoker: " + invoker.getClass().getName(),
+                    invoker.getClass().getName().startsWith( "panmx.generated." ) );
+
+        final Point point = (Point)invoker.invoke( 0, null, new Object[]{3, 4L, "p"} );
+        assertEquals( "point.m_x", 3, point.m_x );
+        assertEquals( "point.m_y", 4L, point.m_y );
+        assertEquals( "point.m_label", "p", point.m_label );
+        final Point origin = (Point)invoker.invoke( 1, null, new Object[]{"o"} );
+        assertEquals( "origin.m_x", 0, origin.m_x );
+        assertEquals( "origin.m_label", "o", origin.m_label );
+
+        try
+        {
+            invoker.invoke( 0, null, new Object[]{-1, 4L, "p"} );
+            fail( "Expected InvocationTargetException" );
+        }
+        catch( final InvocationTargetException ite )
+        {
+            assertTrue( "ite.getTargetException()",
+                        ite.getTargetException() instanceof IllegalArgumentException );
+        }
+        try
+        {
+            invoker.invoke( 0, null, new Object[]{3, "4", "p"} );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+    }
+
+    public void testNonPublicTypeNotGenerated()
+        throws Exception
+    {
+        final Method[] methods = new Method[]{Hidden.class.getMethod( "getValue" )};
+        assertNull( "invoker", InvokerFactory.createInvoker( Hidden.class, methods ) );
+    }
+}
@@ -0,0 +1,171 @@
+package panmx.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import javax.management.Attribute;
+import javax.management.DynamicMBean;
+import javax.management.NotCompliantMBeanException;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+import panmx.model.ModelMBeanFactory;
+import panmx.rmx.RMXBeanFactory;
+
+public class ManagedTypeTestCase
+    extends TestCase
+{
+    @MBean
+    public static class Pancreas
+    {
+        private int m_insulin;
+
+        @MxAttribute
+        public int getInsulin()
+        {
+            return m_insulin;
+        }
+
+        @MxAttribute
+        public void setInsulin( final int insulin )
+        {
+            m_insulin = insulin;
+        }
+
+        @MxOperation
+        public void secrete()
+        {
+            m_insulin++;
+        }
+
+        public void digest()
+        {
+        }
+    }
+
+    /**
+     * ClassLoader that defines its own copy of this test and Pancreas so that
+     * the copies can be collected along with the ClassLoader. The enclosing
+     * class is copied as well as the JVM checks it agrees with the nested class.
+     */
+    static class IsolatingClassLoader
+        extends ClassLoader
+    {
+        IsolatingClassLoader()
+        {
+            super( Pancreas.class.getClassLoader() );
+        }
+
+        protected synchronized Class<?> loadClass( final String name, final boolean resolve )
+            throws ClassNotFoundException
+        {
+            if( !name.startsWith( ManagedTypeTestCase.class.getName() ) )
+            {
+                return super.loadClass( name, resolve );
+            }
+            Class<?> type = findLoadedClass( name );
+            if( null == type )
+            {
+                final byte[] bytes = readClass( name );
+                type = defineClass( name, bytes, 0, bytes.length );
+            }
+            if( resolve )
+            {
+                resolveClass( type );
+            }
+            return type;
+        }
+
+        private byte[] readClass( final String name )
+            throws ClassNotFoundException
+        {
+            final String resource = name.replace( '.', '/' ) + ".class";
+            final InputStream input = getParent().getResourceAsStream( resource );
+            if( null == input )
+            {
+                throw new ClassNotFoundException( name );
+            }
+            try
+            {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int count;
+                while( -1 != ( count = input.read( buffer ) ) )
+                {
+                    output.write( buffer, 0, count );
+                }
+                input.close();
+                return output.toByteArray();
+            }
+            catch( final Exception e )
+            {
+                final ClassNotFoundException exception = new ClassNotFoundException( name );
+                exception.initCause( e );
+                throw exception;
+            }
+        }
+    }
+
+    public void testManagedMethods()
+        throws Exception
+    {
+        final ManagedType type = ManagedType.getManagedType( Pancreas.class );
+
+        assertSame( "getManagedType() cached", type, ManagedType.getManagedType( Pancreas.class ) );
+        assertEquals( "methods.length", 3, type.getMethods().length );
+        for( final ManagedType.ManagedMethod method : type.getMethods() )
+        {
+            assertFalse( method.getMethod().getName() + ".isForced()", method.isForced() );
+            assertTrue( method.getMethod().getName() + " annotated",
+                        null != method.getAttribute() || null != method.getOperation() );
+        }
+    }
+
+    public void testMissingMBeanAnnotation()
+        throws Exception
+    {
+        try
+        {
+            ManagedType.getManagedType( Object.class );
+            fail( "Expected to fail introspecting class without MBean annotation" );
+        }
+        catch( final NotCompliantMBeanException ncme )
+        {
+        }
+    }
+
+    public void testClassLoadersAreCollected()
+        throws Exception
+    {
+        for( int i = 0; i < 5; i++ )
+        {
+            final WeakReference<ClassLoader> reference = exerciseIsolatedClass();
+            for( int j = 0; j < 50 && null != reference.get(); j++ )
+            {
+                System.gc();
+                Thread.sleep( 10 );
+            }
+            assertNull( "ClassLoader " + i + " collected", reference.get() );
+        }
+    }
+
+    private WeakReference<ClassLoader> exerciseIsolatedClass()
+        throws Exception
+    {
+        final ClassLoader classLoader = new IsolatingClassLoader();
+        final Class<?> type = classLoader.loadClass( Pancreas.class.getName() );
+        assertNotSame( "isolated type", Pancreas.class, type );
+
+        final Object object = type.newInstance();
+        final DynamicMBean rmxBean = (DynamicMBean)RMXBeanFactory.createAnnotatedRMXBean( object );
+        rmxBean.setAttribute( new Attribute( "insulin", 3 ) );
+        rmxBean.invoke( "secrete", null, null );
+        assertEquals( "rmxBean.getAttribute(insulin)", 4, rmxBean.getAttribute( "insulin" ) );
+
+        final DynamicMBean modelMBean = ModelMBeanFactory.createAnnotatedModelMBean( object );
+        assertEquals( "modelMBean.getAttribute(insulin)", 4, modelMBean.getAttribute( "insulin" ) );
+
+        return new WeakReference<ClassLoader>( classLoader );
+    }
+}
@@ -0,0 +1,199 @@
+package panmx.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import javax.management.DynamicMBean;
+import junit.framework.TestCase;
+import panmx.annotations.MBean;
+import panmx.annotations.MxAttribute;
+import panmx.annotations.MxOperation;
+import panmx.rmx.RMXBeanFactory;
+
+public class MxMetadataTestCase
+    extends TestCase
+{
+    @MBean
+    public static class Dial
+    {
+        private int m_setting;
+
+        @MxAttribute
+        public int getSetting()
+        {
+            return m_setting;
+        }
+
+        @MxOperation
+        public void turn( final int amount )
+        {
+            m_setting += amount;
+        }
+
+        public void reset()
+        {
+            m_setting = 0;
+        }
+
+        /**
+         * Metadata as the processor would generate it except that reset is
+         * listed so tests can tell the metadata was used instead of a scan.
+         */
+        public static final class MxMetadata
+            extends panmx.util.MxMetadata
+        {
+            public MxMetadata()
+            {
+                super( Dial.class,
+                       new Class<?>[]{Dial.class, Dial.class, Dial.class},
+                       new String[]{"getSetting", "turn", "reset"},
+                       new Class<?>[][]{{}, {Integer.TYPE}, {}},
+                       new boolean[]{false, false, false} );
+            }
+
+            public Object invoke( final int index, final Object target, final Object[] args )
+                throws InvocationTargetException
+            {
+                final Dial dial;
+                final int value;
+                try
+                {
+                    dial = (Dial)target;
+                    value = 1 == index ? (Integer)args[ 0 ] : 0;
+                }
+                catch( final RuntimeException e )
+                {
+                    throw new IllegalArgumentException( e );
+                }
+                try
+                {
+                    switch( index )
+                    {
+                        case 0:
+                            return dial.getSetting();
+                        case 1:
+                            dial.turn( value );
+                            return null;
+                        case 2:
+                            dial.reset();
+                            return null;
+                    }
+                }
+                catch( final Throwable t )
+                {
+                    throw new InvocationTargetException( t );
+                }
+                throw new IllegalArgumentException( "Unknown method index " + index );
+            }
+        }
+    }
+
+    @MBean
+    public static class Knob
+    {
+        @MxAttribute
+        public int getPosition()
+        {
+            return 1;
+        }
+
+        /** Metadata generated before getPosition was renamed. */
+        public static final class MxMetadata
+            extends panmx.util.MxMetadata
+        {
+            public MxMetadata()
+            {
+                super( Knob.class,
+                       new Class<?>[]{Knob.class},
+                       new String[]{"getPlace"},
+                       new Class<?>[][]{{}},
+                       new boolean[]{false} );
+            }
+
+            public Object invoke( final int index, final Object target, final Object[] args )
+            {
+                throw new IllegalArgumentException( "Unknown method index " + index );
+            }
+        }
+    }
+
+    @MBean
+    public static class Switch
+    {
+        @MxAttribute
+        public boolean isOn()
+        {
+            return true;
+        }
+
+        /** Metadata that describes another class. */
+        public static final class MxMetadata
+            extends panmx.util.MxMetadata
+        {
+            public MxMetadata()
+            {
+                super( Dial.class, new Class<?>[0], new String[0], new Class<?>[0][], new boolean[0] );
+            }
+
+            public Object invoke( final int index, final Object target, final Object[] args )
+            {
+                throw new IllegalArgumentException( "Unknown method index " + index );
+            }
+        }
+    }
+
+    public void testGetMetadata()
+        throws Exception
+    {
+        final MxMetadata metadata = MxMetadata.getMetadata( Dial.class );
+        assertTrue( "metadata", metadata instanceof Dial.MxMetadata );
+        assertSame( "cached", metadata, MxMetadata.getMetadata( Dial.class ) );
+        assertEquals( "getMethodCount()", 3, metadata.getMethodCount() );
+        assertEquals( "getMethod(1)", Dial.class.getMethod( "turn", Integer.TYPE ), metadata.getMethod( 1 ) );
+        assertFalse( "isForced(1)", metadata.isForced( 1 ) );
+
+        assertNull( "no metadata", MxMetadata.getMetadata( MxMetadataTestCase.class ) );
+        assertNull( "metadata of another class", MxMetadata.getMetadata( Switch.class ) );
+        assertNull( "system class", MxMetadata.getMetadata( String.class ) );
+    }
+
+    public void testManagedTypeUsesMetadata()
+        throws Exception
+    {
+        assertEquals( "Dial methods", 3, ManagedType.getManagedType( Dial.class ).getMethods().length );
+
+        final ManagedType.ManagedMethod[] methods = ManagedType.getManagedType( Knob.class ).getMethods();
+        assertEquals( "Knob methods", 1, methods.length );
+        assertEquals( "stale metadata ignored", "getPosition", methods[ 0 ].getMethod().getName() );
+    }
+
+    public void testInvokerUsesMetadata()
+        throws Exception
+    {
+        final Dial dial = new Dial();
+        final Member[] methods = {Dial.class.getMethod( "turn", Integer.TYPE ), Dial.class.getMethod( "getSetting" )};
+        final Invoker invoker = InvokerFactory.createInvoker( Dial.class, methods );
+        assertFalse( "not generated", invoker.getClass().getName().startsWith( "panmx.generated." ) );
+        assertNull( "turn", invoker.invoke( 0, dial, new Object[]{4} ) );
+        assertEquals( "getSetting", 4, invoker.invoke( 1, dial, new Object[0] ) );
+        try
+        {
+            invoker.invoke( 0, dial, new Object[]{"5"} );
+            fail( "Expected bad argument to be rejected" );
+        }
+        catch( final IllegalArgumentException iae )
+        {
+        }
+
+        final Member[] others = {Object.class.getMethod( "hashCode" )};
+        assertNull( "method not in metadata",
+                    MxMetadata.getMetadata( Dial.class ).createInvoker( others ) );
+    }
+
+    public void testFactoryUsesMetadata()
+        throws Exception
+    {
+        final DynamicMBean bean = (DynamicMBean)RMXBeanFactory.createAnnotatedRMXBean( new Dial() );
+        bean.invoke( "turn", new Object[]{5}, new String[]{"int"} );
+        assertEquals( "setting", 5, bean.getAttribute( "setting" ) );
+    }
+}
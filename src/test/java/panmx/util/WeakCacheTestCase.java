@@ -0,0 +1,140 @@
+package panmx.util;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+public class WeakCacheTestCase
+    extends TestCase
+{
+    public void testValueCreatedOnce()
+        throws Exception
+    {
+        final WeakCache<String, Object> cache = new WeakCache<String, Object>();
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final Object[] results = new Object[16];
+        final WeakCache.Factory<String, Object, RuntimeException> factory =
+            new WeakCache.Factory<String, Object, RuntimeException>()
+            {
+                public Object create( final String key )
+                {
+                    count.incrementAndGet();
+                    try
+                    {
+                        Thread.sleep( 50 );
+                    }
+                    catch( final InterruptedException ie )
+                    {
+                    }
+                    return new Object();
+                }
+            };
+
+        final Thread[] threads = new Thread[results.length];
+        for( int i = 0; i < threads.length; i++ )
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch( final InterruptedException ie )
+                    {
+                    }
+                    results[index] = cache.get( "key", factory );
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for( final Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( "count", 1, count.get() );
+        for( final Object result : results )
+        {
+            assertSame( "result", results[0], result );
+        }
+        assertSame( "get(key)", results[0], cache.get( "key" ) );
+    }
+
+    public void testFailureNotCached()
+        throws Exception
+    {
+        final WeakCache<String, String> cache = new WeakCache<String, String>();
+        final AtomicInteger count = new AtomicInteger();
+        final WeakCache.Factory<String, String, IOException> factory =
+            new WeakCache.Factory<String, String, IOException>()
+            {
+                public String create( final String key )
+                    throws IOException
+                {
+                    if( 1 == count.incrementAndGet() )
+                    {
+                        throw new IOException( "Failed" );
+                    }
+                    return key + "!";
+                }
+            };
+        try
+        {
+            cache.get( "key", factory );
+            fail( "Expected IOException" );
+        }
+        catch( final IOException ioe )
+        {
+            assertEquals( "ioe.getMessage()", "Failed", ioe.getMessage() );
+        }
+        assertNull( "get(key)", cache.get( "key" ) );
+        assertEquals( "get(key,factory)", "key!", cache.get( "key", factory ) );
+    }
+
+    public void testCircularCreation()
+        throws Exception
+    {
+        final WeakCache<String, String> cache = new WeakCache<String, String>();
+        final WeakCache.Factory<String, String, RuntimeException> factory =
+            new WeakCache.Factory<String, String, RuntimeException>()
+            {
+                public String create( final String key )
+                {
+                    return cache.get( key, this );
+                }
+            };
+        try
+        {
+            cache.get( "key", factory );
+            fail( "Expected CircularCreationException" );
+        }
+        catch( final WeakCache.CircularCreationException cce )
+        {
+        }
+        assertNull( "get(key)", cache.get( "key" ) );
+    }
+
+    public void testValueReferencingKeyIsCollected()
+        throws Exception
+    {
+        final WeakCache<Object, Object[]> cache = new WeakCache<Object, Object[]>();
+        Object key = new Object();
+        cache.put( key, new Object[]{key} );
+        final WeakReference<Object> reference = new WeakReference<Object>( key );
+        key = null;
+
+        for( int i = 0; i < 50 && null != reference.get(); i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( "key collected", reference.get() );
+    }
+}